@@ -34,14 +34,27 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import hcm.ssj.androidSensor.AndroidSensor;
 import hcm.ssj.androidSensor.AndroidSensorChannel;
 import hcm.ssj.androidSensor.SensorType;
 import hcm.ssj.audio.Intensity;
+import hcm.ssj.core.Cons;
 import hcm.ssj.core.EventChannel;
+import hcm.ssj.core.EventListener;
+import hcm.ssj.core.Log;
 import hcm.ssj.core.Pipeline;
 import hcm.ssj.core.Provider;
+import hcm.ssj.core.event.Event;
+import hcm.ssj.core.event.EventCodec;
+import hcm.ssj.core.event.FloatEvent;
+import hcm.ssj.core.event.MapEvent;
+import hcm.ssj.core.event.StringEvent;
 import hcm.ssj.event.FloatSegmentEventSender;
 import hcm.ssj.event.FloatsEventSender;
 import hcm.ssj.event.ThresholdEventSender;
@@ -53,11 +66,456 @@ import hcm.ssj.ioput.SocketEventWriter;
 import hcm.ssj.test.EventLogger;
 
 import static androidx.test.InstrumentationRegistry.getContext;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 @RunWith(AndroidJUnit4.class)
 @SmallTest
 public class EventTest
 {
+	@Test
+	public void testEventPool() throws Exception
+	{
+		EventChannel channel = new EventChannel();
+
+		HashSet<Event> instances = new HashSet<>();
+		int num = 10 * Cons.MAX_NUM_EVENTS_PER_CHANNEL;
+		for (int i = 0; i < num; i++)
+		{
+			FloatEvent ev = (FloatEvent) channel.obtainEvent(Cons.Type.FLOAT);
+			ev.reserve(1)[0] = i;
+			instances.add(ev);
+			channel.pushEvent(ev);
+		}
+
+		// events are recycled once they drop out of the channel
+		assertTrue(instances.size() <= Cons.MAX_NUM_EVENTS_PER_CHANNEL + 1);
+
+		// lookup by id
+		Event last = channel.getEvent(num - 1, false);
+		assertEquals(num - 1, last.id);
+		assertEquals(num - 1, last.ptrF()[0], 0);
+		assertEquals(num - Cons.MAX_NUM_EVENTS_PER_CHANNEL, channel.getEvent(0, false).id);
+		assertNull(channel.getEvent(num, false));
+	}
+
+	@Test
+	public void testEventPoolInDelivery() throws Exception
+	{
+		Pipeline frame = Pipeline.getInstance();
+		frame.options.eventDispatchThread.set(true);
+
+		try
+		{
+			checkEventPoolInDelivery();
+		}
+		finally
+		{
+			frame.options.eventDispatchThread.set(false);
+		}
+	}
+
+	private void checkEventPoolInDelivery() throws Exception
+	{
+		final CountDownLatch entered = new CountDownLatch(1);
+		final CountDownLatch resume = new CountDownLatch(1);
+		final Event[] held = new Event[1];
+		final float[] value = new float[1];
+
+		EventChannel channel = new EventChannel();
+		EventListener listener = new EventListener()
+		{
+			@Override
+			public void notify(Event event)
+			{
+				if (held[0] == null)
+				{
+					held[0] = event;
+					entered.countDown();
+					try
+					{
+						resume.await(10, TimeUnit.SECONDS);
+					}
+					catch (InterruptedException e)
+					{
+					}
+					value[0] = event.ptrF()[0];
+				}
+			}
+		};
+
+		channel.addEventListener(listener, EventChannel.OverflowPolicy.DROP_OLDEST, 1);
+		channel.reset();
+
+		FloatEvent first = (FloatEvent) channel.obtainEvent(Cons.Type.FLOAT);
+		first.reserve(1)[0] = -1;
+		channel.pushEvent(first);
+		assertTrue(entered.await(10, TimeUnit.SECONDS));
+
+		// the event being delivered drops out of the ring but must not be handed out again
+		for (int i = 0; i < 3 * Cons.MAX_NUM_EVENTS_PER_CHANNEL; i++)
+		{
+			FloatEvent ev = (FloatEvent) channel.obtainEvent(Cons.Type.FLOAT);
+			assertTrue(ev != first);
+			ev.reserve(1)[0] = i;
+			channel.pushEvent(ev);
+		}
+
+		resume.countDown();
+		Thread.sleep(100);
+
+		assertEquals(-1, value[0], 0);
+		assertEquals(0, first.id);
+
+		// once delivered, the event is back in the pool
+		boolean recycled = false;
+		for (int i = 0; i < Cons.MAX_NUM_EVENTS_PER_CHANNEL && !recycled; i++)
+		{
+			recycled = channel.obtainEvent(Cons.Type.FLOAT) == first;
+		}
+		assertTrue(recycled);
+
+		channel.close();
+	}
+
+	@Test
+	public void testDispatchLogCaller() throws Exception
+	{
+		Pipeline frame = Pipeline.getInstance();
+		frame.options.eventDispatchThread.set(true);
+
+		final ArrayList<String> messages = new ArrayList<>();
+		Log.LogListener logListener = new Log.LogListener()
+		{
+			@Override
+			public void msg(int type, String msg)
+			{
+				synchronized (messages)
+				{
+					messages.add(msg);
+				}
+			}
+		};
+		Log.addLogListener(logListener);
+
+		NamedListener listener = new NamedListener();
+		EventChannel channel = new EventChannel();
+		try
+		{
+			channel.addEventListener(listener);
+			channel.reset();
+			channel.pushEvent(channel.obtainEvent(Cons.Type.EMPTY));
+			assertTrue(listener.done.await(10, TimeUnit.SECONDS));
+		}
+		finally
+		{
+			channel.close();
+			Log.removeLogListener(logListener);
+			frame.options.eventDispatchThread.set(false);
+		}
+
+		// the entry is attributed to the listener, not to the dispatching thread
+		synchronized (messages)
+		{
+			assertTrue(messages.contains("[NamedListener] received"));
+		}
+	}
+
+	private static class NamedListener implements EventListener
+	{
+		final CountDownLatch done = new CountDownLatch(1);
+
+		@Override
+		public void notify(Event event)
+		{
+			Log.i("received");
+			done.countDown();
+		}
+	}
+
+	@Test
+	public void testBinaryCodec() throws Exception
+	{
+		FloatEvent floats = new FloatEvent(new float[]{1.5f, -2.25f, 3.0f});
+		floats.name = "acc";
+		floats.sender = "sensor";
+		floats.time = 123456789012L;
+		floats.dur = 500;
+		floats.state = Event.State.CONTINUED;
+
+		StringEvent str = new StringEvent("h\u00e9llo");
+		str.name = "label";
+
+		HashMap<String, String> map = new HashMap<>();
+		map.put("x", "1");
+		map.put("y", "2");
+		MapEvent mapEvent = new MapEvent(map);
+
+		EventCodec codec = new EventCodec(16);
+		codec.begin();
+		codec.add(floats);
+		codec.add(str);
+		codec.add(mapEvent);
+		codec.add(Event.create(Cons.Type.EMPTY));
+		int len = codec.finish();
+
+		byte[] packet = new byte[len];
+		System.arraycopy(codec.array(), 0, packet, 0, len);
+		assertTrue(EventCodec.isBinary(packet, 0, len));
+		assertEquals(len, EventCodec.packetLength(packet, 0));
+		assertFalse(EventCodec.isBinary("<events/>  ".getBytes(), 0, 11));
+
+		EventChannel channel = new EventChannel();
+		EventCodec decoder = new EventCodec(0);
+		assertTrue(decoder.setInput(packet, 0, len));
+		assertEquals(EventCodec.VERSION, decoder.getVersion());
+
+		Event ev = decoder.next(channel);
+		assertEquals(Cons.Type.FLOAT, ev.type);
+		assertEquals("acc", ev.name);
+		assertEquals("sensor", ev.sender);
+		assertEquals(123456789012L, ev.time);
+		assertEquals(500, ev.dur);
+		assertEquals(Event.State.CONTINUED, ev.state);
+		assertArrayEquals(floats.ptrF(), ev.ptrF(), 0);
+
+		ev = decoder.next(channel);
+		assertEquals("label", ev.name);
+		assertEquals("h\u00e9llo", ev.ptrStr());
+
+		ev = decoder.next(channel);
+		assertEquals(map, ev.ptrMap());
+
+		assertEquals(Cons.Type.EMPTY, decoder.next(channel).type);
+		assertNull(decoder.next(channel));
+
+		// truncated packets are rejected
+		assertFalse(decoder.setInput(packet, 0, len - 1));
+
+		// as well as packets of unknown versions
+		packet[4] = EventCodec.VERSION + 1;
+		assertFalse(decoder.setInput(packet, 0, len));
+		packet[4] = 0;
+		assertFalse(decoder.setInput(packet, 0, len));
+		packet[4] = EventCodec.VERSION;
+
+		// element counts which do not fit the packet are rejected
+		int count = 0;
+		while (Float.intBitsToFloat(readInt(packet, count + 4)) != 1.5f)
+		{
+			count++;
+		}
+		assertEquals(3, readInt(packet, count));
+
+		for (int corrupt : new int[]{-1, Integer.MAX_VALUE, 1 << 29})
+		{
+			writeInt(packet, count, corrupt);
+			assertTrue(decoder.setInput(packet, 0, len));
+			assertNull(decoder.next(channel));
+		}
+
+		// packet lengths shorter than the header are rejected
+		for (int corrupt : new int[]{-1, Integer.MIN_VALUE, 0, EventCodec.HEADER_SIZE - 1})
+		{
+			writeInt(packet, 8, corrupt);
+			assertFalse(decoder.setInput(packet, 0, len));
+			assertNull(decoder.next(channel));
+		}
+	}
+
+	private static int readInt(byte[] data, int pos)
+	{
+		return ((data[pos] & 0xff) << 24) | ((data[pos + 1] & 0xff) << 16) | ((data[pos + 2] & 0xff) << 8) | (data[pos + 3] & 0xff);
+	}
+
+	private static void writeInt(byte[] data, int pos, int value)
+	{
+		data[pos] = (byte) (value >>> 24);
+		data[pos + 1] = (byte) (value >>> 16);
+		data[pos + 2] = (byte) (value >>> 8);
+		data[pos + 3] = (byte) value;
+	}
+
+	@Test
+	public void testDispatchPolicies() throws Exception
+	{
+		Pipeline frame = Pipeline.getInstance();
+		frame.options.eventDispatchThread.set(true);
+
+		try
+		{
+			checkDispatch(EventChannel.OverflowPolicy.BLOCK, 8);
+			checkDispatch(EventChannel.OverflowPolicy.DROP_OLDEST, 8);
+			checkDispatch(EventChannel.OverflowPolicy.COALESCE_LATEST, 1);
+		}
+		finally
+		{
+			frame.options.eventDispatchThread.set(false);
+		}
+	}
+
+	private void checkDispatch(EventChannel.OverflowPolicy policy, int capacity) throws Exception
+	{
+		final int num = 200;
+		final ArrayList<Integer> received = new ArrayList<>();
+		final CountDownLatch done = new CountDownLatch(1);
+
+		EventChannel channel = new EventChannel();
+		EventListener listener = new EventListener()
+		{
+			@Override
+			public void notify(Event event)
+			{
+				try
+				{
+					Thread.sleep(1);
+				}
+				catch (InterruptedException e)
+				{
+				}
+
+				received.add(event.id);
+				if (event.id == num - 1)
+				{
+					done.countDown();
+				}
+			}
+		};
+
+		channel.addEventListener(listener, policy, capacity);
+		channel.reset();
+
+		for (int i = 0; i < num; i++)
+		{
+			channel.pushEvent(channel.obtainEvent(Cons.Type.EMPTY));
+			assertTrue(channel.getQueueDepth(listener) <= capacity);
+		}
+
+		// the newest event is always delivered, events arrive in order
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+		for (int i = 1; i < received.size(); i++)
+		{
+			assertTrue(received.get(i) > received.get(i - 1));
+		}
+
+		assertEquals(num, received.size() + channel.getDroppedEvents(listener));
+		if (policy == EventChannel.OverflowPolicy.BLOCK)
+		{
+			assertEquals(0, channel.getDroppedEvents(listener));
+		}
+
+		channel.close();
+	}
+
+	@Test
+	public void testBlockingChain() throws Exception
+	{
+		Pipeline frame = Pipeline.getInstance();
+		frame.options.countdown.set(0);
+		frame.options.eventThreads.set(1);
+
+		// a listener which forwards into a second channel, like a classifier chain during a replay
+		final int num = 50;
+		final CountDownLatch received = new CountDownLatch(num);
+		final EventChannel second = new EventChannel();
+		second.addEventListener(new EventListener()
+		{
+			@Override
+			public void notify(Event event)
+			{
+				try
+				{
+					Thread.sleep(2);
+				}
+				catch (InterruptedException e)
+				{
+				}
+				received.countDown();
+			}
+		}, EventChannel.OverflowPolicy.BLOCK, 1);
+
+		EventChannel first = new EventChannel();
+		first.addEventListener(new EventListener()
+		{
+			@Override
+			public void notify(Event event)
+			{
+				second.pushEvent(second.obtainEvent(Cons.Type.EMPTY));
+			}
+		}, EventChannel.OverflowPolicy.BLOCK, 1);
+
+		try
+		{
+			frame.start();
+			first.reset();
+			second.reset();
+
+			for (int i = 0; i < num; i++)
+			{
+				first.pushEvent(first.obtainEvent(Cons.Type.EMPTY));
+			}
+
+			// the forwarding listener must not wait for a dispatcher queued behind it
+			assertTrue(received.await(10, TimeUnit.SECONDS));
+		}
+		finally
+		{
+			first.close();
+			second.close();
+			frame.stop();
+			frame.release();
+			frame.options.eventThreads.set(0);
+		}
+	}
+
+	@Test
+	public void testDispatchOnClose() throws Exception
+	{
+		Pipeline frame = Pipeline.getInstance();
+		frame.options.eventDispatchThread.set(true);
+
+		final int num = 20;
+		final CountDownLatch received = new CountDownLatch(num);
+		EventListener listener = new EventListener()
+		{
+			@Override
+			public void notify(Event event)
+			{
+				try
+				{
+					Thread.sleep(5);
+				}
+				catch (InterruptedException e)
+				{
+				}
+				received.countDown();
+			}
+		};
+
+		EventChannel channel = new EventChannel();
+		try
+		{
+			channel.addEventListener(listener, EventChannel.OverflowPolicy.BLOCK, num);
+			channel.reset();
+			for (int i = 0; i < num; i++)
+			{
+				channel.pushEvent(channel.obtainEvent(Cons.Type.EMPTY));
+			}
+		}
+		finally
+		{
+			// most events are still queued when the channel is closed
+			channel.close();
+			frame.options.eventDispatchThread.set(false);
+		}
+
+		assertTrue(received.await(10, TimeUnit.SECONDS));
+		assertEquals(0, channel.getQueueDepth());
+	}
+
 	@Test
 	public void testFloatsEventSender() throws Exception
 	{
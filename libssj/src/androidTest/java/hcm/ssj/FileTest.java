@@ -36,21 +36,38 @@ import org.junit.runner.RunWith;
 
 import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.nio.FloatBuffer;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 import hcm.ssj.androidSensor.AndroidSensor;
 import hcm.ssj.androidSensor.AndroidSensorChannel;
 import hcm.ssj.androidSensor.SensorType;
+import hcm.ssj.core.Cons;
+import hcm.ssj.core.Consumer;
 import hcm.ssj.core.Pipeline;
+import hcm.ssj.core.SSJFatalException;
+import hcm.ssj.core.Util;
+import hcm.ssj.core.event.Event;
+import hcm.ssj.core.option.OptionList;
+import hcm.ssj.core.stream.Stream;
+import hcm.ssj.file.AsyncWriter;
 import hcm.ssj.file.FileCons;
 import hcm.ssj.file.FileReader;
 import hcm.ssj.file.FileReaderChannel;
 import hcm.ssj.file.FileWriter;
+import hcm.ssj.file.MappedStreamReader;
 import hcm.ssj.file.SimpleXmlParser;
+import hcm.ssj.file.StreamCodec;
 import hcm.ssj.test.Logger;
 
 import static androidx.test.InstrumentationRegistry.getInstrumentation;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Tests all classes in the logging package.<br>
@@ -137,6 +154,485 @@ public class FileTest
 		}
 	}
 
+	/**
+	 * @throws Exception
+	 */
+	@Test
+	public void testMappedReader() throws Exception
+	{
+		final int dim = 2;
+		final int num = 1000;
+		final double sr = 100;
+
+		File dir = getInstrumentation().getContext().getFilesDir();
+		File header = new File(dir, "mapped." + FileCons.FILE_EXTENSION_STREAM);
+		File data = new File(header.getPath() + FileCons.TAG_DATA_FILE);
+
+		writeStream(header, num, dim, sr);
+		float[] values = new float[num * dim];
+		for (int i = 0; i < values.length; i++)
+		{
+			values[i] = i;
+		}
+
+		// small pages to exercise windows which span two pages
+		MappedStreamReader reader = new MappedStreamReader(data, sr, dim, 4, Cons.Type.FLOAT, 0, 64 * dim * 4);
+		assertEquals(num, reader.getNumSamples());
+
+		FloatBuffer view = reader.view(60, 10).asFloatBuffer();
+		for (int i = 0; i < 10 * dim; i++)
+		{
+			assertEquals(60 * dim + i, view.get(i), 0);
+		}
+
+		Stream segment = reader.substream(2.5, 3.0);
+		assertEquals(50, segment.num);
+		assertEquals(2.5, segment.time, 0);
+		assertEquals(250 * dim, segment.ptrF()[0], 0);
+
+		// sequential access
+		byte[] buffer = new byte[100 * dim * 4];
+		reader.seek(950);
+		assertEquals(50 * dim * 4, reader.read(buffer, buffer.length));
+		assertEquals(-1, reader.read(buffer, buffer.length));
+		reader.close();
+
+		Stream stream = Stream.load(header.getPath());
+		assertEquals(num, stream.num);
+		for (int i = 0; i < values.length; i++)
+		{
+			assertEquals(values[i], stream.ptrF()[i], 0);
+		}
+
+		header.delete();
+		data.delete();
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	@Test
+	public void testFileWriterChunks() throws Exception
+	{
+		checkFileWriterChunks(Cons.FileType.BINARY);
+		checkFileWriterChunks(Cons.FileType.ASCII);
+	}
+
+	private void checkFileWriterChunks(Cons.FileType type) throws Exception
+	{
+		final int dim = 2;
+		final int num = 1000;
+		final double sr = 100;
+		final double chunk = 1.0;
+
+		File dir = getInstrumentation().getContext().getFilesDir();
+		File source = new File(dir, "source." + FileCons.FILE_EXTENSION_STREAM);
+		File header = new File(dir, "chunked." + FileCons.FILE_EXTENSION_STREAM);
+		File data = new File(header.getPath() + FileCons.TAG_DATA_FILE);
+		writeStream(source, num, dim, sr);
+
+		// record the replayed stream in chunks
+		Pipeline frame = Pipeline.getInstance();
+		frame.options.virtualTime.set(true);
+		frame.options.countdown.set(1);
+
+		FileReader fileReader = new FileReader();
+		fileReader.options.file.setValue(source.getPath());
+		fileReader.options.loop.set(false);
+		FileReaderChannel fileReaderChannel = new FileReaderChannel();
+		frame.addSensor(fileReader, fileReaderChannel);
+
+		FileWriter fileWriter = new FileWriter();
+		fileWriter.options.filePath.setValue(dir.getPath());
+		fileWriter.options.fileName.set(header.getName());
+		fileWriter.options.type.set(type);
+		fileWriter.options.chunk.set(chunk);
+		frame.addConsumer(fileWriter, fileReaderChannel, 0.25, 0);
+
+		try
+		{
+			frame.start();
+
+			long end = System.currentTimeMillis() + TestHelper.DUR_TEST_NORMAL;
+			while (System.currentTimeMillis() < end && !frame.isReplayFinished())
+			{
+				Thread.sleep(10);
+			}
+
+			frame.stop();
+			frame.release();
+		}
+		finally
+		{
+			frame.options.virtualTime.set(false);
+			frame.options.countdown.set(3);
+		}
+
+		// every chunk offset points at the first sample of the chunk
+		SimpleXmlParser.XmlValues chunks = new SimpleXmlParser().parse(
+				new FileInputStream(header),
+				new String[]{"stream", "chunk"},
+				new String[]{"from", "byte", "num"}
+		);
+		int numChunks = chunks.foundAttributes.size();
+		assertEquals((int) Math.ceil(num / (chunk * sr)), numChunks);
+
+		byte[] content = new byte[(int) data.length()];
+		FileInputStream in = new FileInputStream(data);
+		assertEquals(content.length, in.read(content));
+		in.close();
+
+		int first = 0;
+		for (String[] attributes : chunks.foundAttributes)
+		{
+			assertEquals(first / sr, Double.parseDouble(attributes[0]), 1e-9);
+
+			int offset = Integer.parseInt(attributes[1]);
+			float value;
+			if (type == Cons.FileType.BINARY)
+			{
+				assertEquals(first * dim * 4, offset);
+				value = Float.intBitsToFloat(((content[offset + 3] & 0xff) << 24) | ((content[offset + 2] & 0xff) << 16)
+													 | ((content[offset + 1] & 0xff) << 8) | (content[offset] & 0xff));
+			}
+			else
+			{
+				assertTrue(offset == 0 || content[offset - 1] == '\n');
+				value = Float.parseFloat(new String(content, offset, Math.min(32, content.length - offset)).split(FileCons.DELIMITER_DIMENSION)[0]);
+			}
+			assertEquals(first * dim, value, 0);
+
+			first += Integer.parseInt(attributes[2]);
+		}
+		assertEquals(num, first);
+
+		// the index is used to read single chunks
+		if (type == Cons.FileType.BINARY)
+		{
+			MappedStreamReader reader = MappedStreamReader.open(header.getPath());
+			assertEquals(numChunks, reader.getNumChunks());
+			for (int i = 0; i < numChunks; i++)
+			{
+				Stream stream = reader.readChunk(i);
+				assertEquals(reader.getChunkSample(i) * dim, stream.ptrF()[0], 0);
+				assertEquals(reader.getChunkSample(i), reader.getSampleIndex(stream.time));
+			}
+			reader.close();
+		}
+
+		source.delete();
+		new File(source.getPath() + FileCons.TAG_DATA_FILE).delete();
+		header.delete();
+		data.delete();
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	@Test
+	public void testMappedReaderLegacyHeader() throws Exception
+	{
+		final int dim = 3;
+		final int num = 200;
+		final double sr = 50;
+
+		File dir = getInstrumentation().getContext().getFilesDir();
+		File header = new File(dir, "legacy." + FileCons.FILE_EXTENSION_STREAM);
+		File data = new File(header.getPath() + FileCons.TAG_DATA_FILE);
+
+		float[] values = new float[num * dim];
+		for (int i = 0; i < values.length; i++)
+		{
+			values[i] = i;
+		}
+		byte[] bytes = new byte[values.length * 4];
+		Util.arraycopy(values, 0, bytes, 0, bytes.length);
+
+		FileOutputStream out = new FileOutputStream(data);
+		out.write(bytes);
+		out.close();
+
+		// header without any chunk
+		out = new FileOutputStream(header);
+		out.write(("<?xml version=\"1.0\" ?>\n<stream ssi-v=\"2\">\n"
+				+ "<info ftype=\"BINARY\" sr=\"" + sr + "\" dim=\"" + dim + "\" byte=\"4\" type=\"FLOAT\" />\n</stream>").getBytes());
+		out.close();
+
+		MappedStreamReader reader = MappedStreamReader.open(header.getPath());
+		assertEquals(num, reader.getNumSamples());
+		assertEquals(1, reader.getNumChunks());
+		assertEquals(0, reader.getChunkSample(0));
+		reader.close();
+
+		Stream stream = Stream.load(header.getPath());
+		assertEquals(num, stream.num);
+		assertEquals(dim, stream.dim);
+		assertEquals(0, stream.time, 0);
+		for (int i = 0; i < values.length; i++)
+		{
+			assertEquals(values[i], stream.ptrF()[i], 0);
+		}
+
+		header.delete();
+		data.delete();
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	@Test
+	public void testStreamCodec() throws Exception
+	{
+		checkCodec(StreamCodec.Type.XOR, Cons.Type.FLOAT);
+		checkCodec(StreamCodec.Type.XOR, Cons.Type.DOUBLE);
+		checkCodec(StreamCodec.Type.DELTA, Cons.Type.SHORT);
+		checkCodec(StreamCodec.Type.DELTA, Cons.Type.LONG);
+		checkCodec(StreamCodec.Type.DEFLATE, Cons.Type.INT);
+	}
+
+	private void checkCodec(StreamCodec.Type codecType, Cons.Type type) throws Exception
+	{
+		final int dim = 3;
+		final int frame = 50;
+		final int frames = 20;
+		final double sr = 50;
+
+		// slowly changing signal with noise, as produced by typical sensors
+		Stream values = Stream.create(frame * frames, dim, sr, type);
+		for (int i = 0; i < values.num * dim; i++)
+		{
+			double v = 1000 * Math.sin(i / (double) (dim * 40)) + (i % dim) * 10 + (i % 7);
+			switch (type)
+			{
+				case SHORT: values.ptrS()[i] = (short) v; break;
+				case INT: values.ptrI()[i] = (int) v; break;
+				case LONG: values.ptrL()[i] = (long) v - 5000000000L; break;
+				case FLOAT: values.ptrF()[i] = (float) (v / 100); break;
+				case DOUBLE: values.ptrD()[i] = v / 100; break;
+			}
+		}
+
+		byte[] raw = new byte[values.tot];
+		Util.arraycopy(values.ptr(), 0, raw, 0, raw.length);
+
+		// one block per frame, as written by FileWriter
+		StreamCodec codec = new StreamCodec(codecType, type, dim, values.bytes);
+		int frameBytes = frame * dim * values.bytes;
+		byte[] frameRaw = new byte[frameBytes];
+		byte[] encoded = new byte[codec.maxBlockSize(frame)];
+
+		File data = new File(getInstrumentation().getContext().getFilesDir(), "codec." + FileCons.FILE_EXTENSION_STREAM + FileCons.TAG_DATA_FILE);
+		FileOutputStream out = new FileOutputStream(data);
+		for (int f = 0; f < frames; f++)
+		{
+			System.arraycopy(raw, f * frameBytes, frameRaw, 0, frameBytes);
+			out.write(encoded, 0, codec.encode(frameRaw, frame, encoded, 0));
+		}
+		out.close();
+		codec.release();
+
+		assertTrue(codecType + " " + type + " not compressed", data.length() < raw.length);
+
+		MappedStreamReader reader = new MappedStreamReader(data, sr, dim, values.bytes, type, 0, MappedStreamReader.DEFAULT_PAGE_SIZE, codecType);
+		assertEquals(values.num, reader.getNumSamples());
+
+		// window spanning three blocks
+		byte[] window = new byte[120 * dim * values.bytes];
+		reader.read(130, 120, window, 0);
+		for (int i = 0; i < window.length; i++)
+		{
+			assertEquals(raw[130 * dim * values.bytes + i], window[i]);
+		}
+
+		Stream all = reader.read(0, values.num);
+		byte[] decoded = new byte[values.tot];
+		Util.arraycopy(all.ptr(), 0, decoded, 0, decoded.length);
+		assertArrayEquals(raw, decoded);
+		reader.close();
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	@Test
+	public void testAsyncWriter() throws Exception
+	{
+		File file = new File(getInstrumentation().getContext().getFilesDir(), "async.txt");
+
+		// small buffers so that the producer has to wait for the I/O thread
+		AsyncWriter writer = new AsyncWriter(file, 64, 2);
+		final AtomicLong synced = new AtomicLong(-1);
+		final File syncFile = file;
+
+		StringBuilder expected = new StringBuilder();
+		StringBuilder line = new StringBuilder();
+		for (int i = 0; i < 1000; i++)
+		{
+			line.delete(0, line.length());
+			line.append(i).append(FileCons.DELIMITER_DIMENSION).append(i * 0.5f).append(FileCons.DELIMITER_LINE);
+			expected.append(line);
+			writer.write(line);
+
+			if (i == 500)
+			{
+				final long length = expected.length();
+				writer.sync(new Runnable()
+				{
+					@Override
+					public void run()
+					{
+						synced.set(syncFile.length() - length);
+					}
+				});
+			}
+		}
+		writer.write(new byte[]{'e', 'n', 'd'});
+		expected.append("end");
+		writer.close();
+
+		assertEquals(0, synced.get());
+		assertEquals(expected.length(), writer.getBytesWritten());
+		assertEquals(expected.length(), file.length());
+
+		byte[] content = new byte[(int) file.length()];
+		FileInputStream in = new FileInputStream(file);
+		assertEquals(content.length, in.read(content));
+		in.close();
+		assertEquals(expected.toString(), new String(content));
+
+		file.delete();
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	@Test
+	public void testVirtualTimeReplay() throws Exception
+	{
+		final int dim = 2;
+		final int num = 300;
+		final double sr = 100;
+		final double frameSize = 0.2;
+
+		File file = new File(getInstrumentation().getContext().getFilesDir(), "replay." + FileCons.FILE_EXTENSION_STREAM);
+		writeStream(file, num, dim, sr);
+
+		ArrayList<double[]> real = replay(file, false, frameSize, num / sr + 0.5);
+		long start = System.currentTimeMillis();
+		ArrayList<double[]> virtual = replay(file, true, frameSize, 0);
+		long duration = System.currentTimeMillis() - start;
+
+		// every frame of the file is delivered, in order, with the time of its samples
+		int frames = (int) (num / (frameSize * sr));
+		assertEquals(frames, virtual.size());
+		for (int i = 0; i < frames; i++)
+		{
+			assertEquals(i * frameSize, virtual.get(i)[0], 1e-9);
+			assertEquals(i * (int) (frameSize * sr) * dim, virtual.get(i)[1], 0);
+		}
+
+		// the real-time replay yields the same frames, but takes as long as the recording
+		assertTrue(real.size() >= frames - 1);
+		for (int i = 0; i < Math.min(frames, real.size()); i++)
+		{
+			assertArrayEquals(virtual.get(i), real.get(i), 1e-9);
+		}
+		assertTrue(duration < num / sr * 1000);
+
+		file.delete();
+		new File(file.getPath() + FileCons.TAG_DATA_FILE).delete();
+	}
+
+	/**
+	 * @param file stream file to replay
+	 * @param virtualTime replay on the virtual clock
+	 * @param frameSize frame size of the consumer in seconds
+	 * @param duration duration of a real-time replay in seconds
+	 * @return time and first value of every frame received by a consumer
+	 */
+	private ArrayList<double[]> replay(File file, boolean virtualTime, double frameSize, double duration) throws Exception
+	{
+		final ArrayList<double[]> frames = new ArrayList<>();
+
+		Pipeline frame = Pipeline.getInstance();
+		frame.options.virtualTime.set(virtualTime);
+		frame.options.countdown.set(1);
+
+		FileReader fileReader = new FileReader();
+		fileReader.options.file.setValue(file.getPath());
+		fileReader.options.loop.set(false);
+		FileReaderChannel fileReaderChannel = new FileReaderChannel();
+		fileReaderChannel.options.chunk.set(0.1);
+		frame.addSensor(fileReader, fileReaderChannel);
+
+		Consumer recorder = new Consumer()
+		{
+			@Override
+			public OptionList getOptions()
+			{
+				return null;
+			}
+
+			@Override
+			protected void consume(Stream[] stream_in, Event trigger) throws SSJFatalException
+			{
+				synchronized (frames)
+				{
+					frames.add(new double[]{stream_in[0].time, stream_in[0].ptrF()[0]});
+				}
+			}
+		};
+		frame.addConsumer(recorder, fileReaderChannel, frameSize, 0);
+
+		try
+		{
+			frame.start();
+
+			long end = System.currentTimeMillis() + TestHelper.DUR_TEST_NORMAL;
+			while (System.currentTimeMillis() < end && (virtualTime ? !frame.isReplayFinished() : frame.getTime() < duration))
+			{
+				Thread.sleep(10);
+			}
+
+			frame.stop();
+			frame.release();
+		}
+		finally
+		{
+			frame.options.virtualTime.set(false);
+			frame.options.countdown.set(3);
+		}
+
+		synchronized (frames)
+		{
+			return new ArrayList<>(frames);
+		}
+	}
+
+	/**
+	 * Writes a binary stream with a single chunk, the values count up from zero
+	 */
+	private void writeStream(File header, int num, int dim, double sr) throws Exception
+	{
+		float[] values = new float[num * dim];
+		for (int i = 0; i < values.length; i++)
+		{
+			values[i] = i;
+		}
+		byte[] bytes = new byte[values.length * 4];
+		Util.arraycopy(values, 0, bytes, 0, bytes.length);
+
+		FileOutputStream out = new FileOutputStream(header.getPath() + FileCons.TAG_DATA_FILE);
+		out.write(bytes);
+		out.close();
+
+		out = new FileOutputStream(header);
+		out.write(("<?xml version=\"1.0\" ?>\n<stream ssi-v=\"2\">\n"
+				+ "<info ftype=\"BINARY\" sr=\"" + sr + "\" dim=\"" + dim + "\" byte=\"4\" type=\"FLOAT\" />\n"
+				+ "<chunk from=\"0.0\" to=\"" + num / sr + "\" byte=\"0\" num=\"" + num + "\"/>\n</stream>").getBytes());
+		out.close();
+	}
+
 	/**
 	 * @param internalStorage boolean
 	 * @throws Exception
@@ -33,6 +33,18 @@ import androidx.test.runner.AndroidJUnit4;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.Arrays;
+
 import hcm.ssj.androidSensor.AndroidSensor;
 import hcm.ssj.androidSensor.AndroidSensorChannel;
 import hcm.ssj.androidSensor.SensorType;
@@ -51,12 +63,18 @@ import hcm.ssj.ioput.BluetoothEventReader;
 import hcm.ssj.ioput.BluetoothEventWriter;
 import hcm.ssj.ioput.BluetoothReader;
 import hcm.ssj.ioput.BluetoothWriter;
+import hcm.ssj.ioput.NioTransport;
 import hcm.ssj.ioput.SocketChannel;
 import hcm.ssj.ioput.SocketEventWriter;
 import hcm.ssj.ioput.SocketReader;
 import hcm.ssj.test.EventLogger;
 import hcm.ssj.test.Logger;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
 @RunWith(AndroidJUnit4.class)
 @SmallTest
 public class IOputTest
@@ -264,4 +282,127 @@ public class IOputTest
 		frame.stop();
 		frame.clear();
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void testNioTransportUdp() throws Exception
+	{
+		DatagramSocket receiver = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+		receiver.setSoTimeout(5000);
+
+		// two records per packet
+		NioTransport transport = new NioTransport("udp", new InetSocketAddress(InetAddress.getLoopbackAddress(), receiver.getLocalPort()),
+												  Cons.SocketType.UDP, 64, 2, 16, 50);
+		transport.start();
+		try
+		{
+			for (int i = 0; i < 4; i++)
+			{
+				assertTrue(transport.send(new byte[]{(byte) i, 1, 2, 3}, 0, 4));
+			}
+
+			for (int i = 0; i < 4; i += 2)
+			{
+				DatagramPacket packet = new DatagramPacket(new byte[64], 64);
+				receiver.receive(packet);
+				assertArrayEquals(new byte[]{(byte) i, 1, 2, 3, (byte) (i + 1), 1, 2, 3}, Arrays.copyOf(packet.getData(), packet.getLength()));
+			}
+		}
+		finally
+		{
+			transport.close(1000);
+			receiver.close();
+		}
+
+		assertEquals(2, transport.getSentPackets());
+		assertEquals(0, transport.getDroppedPackets());
+	}
+
+	@Test
+	public void testNioTransportTcp() throws Exception
+	{
+		ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+		server.setSoTimeout(5000);
+		byte[] record = new byte[]{1, 2, 3, 4};
+
+		NioTransport transport = new NioTransport("tcp", new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getLocalPort()),
+												  Cons.SocketType.TCP, 64, 1, 16, 50);
+		transport.start();
+		try
+		{
+			Socket first = server.accept();
+			first.setSoTimeout(5000);
+			assertTrue(transport.send(record, 0, record.length));
+			assertArrayEquals(record, read(first, record.length));
+
+			// the transport notices the broken connection while sending and reconnects
+			first.close();
+			server.setSoTimeout(20);
+			Socket second = null;
+			long end = System.currentTimeMillis() + 5000;
+			while (second == null && System.currentTimeMillis() < end)
+			{
+				transport.send(record, 0, record.length);
+				try
+				{
+					second = server.accept();
+				}
+				catch (SocketTimeoutException e)
+				{
+					// not reconnected yet
+				}
+			}
+			assertNotNull(second);
+			assertTrue(transport.getReconnects() > 0);
+
+			second.setSoTimeout(5000);
+			assertTrue(transport.send(record, 0, record.length));
+			assertArrayEquals(record, read(second, record.length));
+
+			// the sender thread closes the connection on close
+			transport.close(1000);
+			InputStream in = second.getInputStream();
+			while (in.read() >= 0)
+			{
+				// remaining records
+			}
+			second.close();
+		}
+		finally
+		{
+			transport.close(1000);
+			server.close();
+		}
+	}
+
+	@Test
+	public void testNioTransportUnreachable() throws Exception
+	{
+		// nobody listens on the port
+		ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+		int port = server.getLocalPort();
+		server.close();
+
+		NioTransport transport = new NioTransport("tcp", new InetSocketAddress(InetAddress.getLoopbackAddress(), port),
+												  Cons.SocketType.TCP, 64, 1, 4, 50);
+		transport.start();
+		for (int i = 0; i < 10; i++)
+		{
+			transport.send(new byte[]{1, 2, 3, 4}, 0, 4);
+			Thread.sleep(20);
+		}
+
+		// pending packets are given up after the timeout
+		long start = System.currentTimeMillis();
+		transport.close(200);
+		assertTrue(System.currentTimeMillis() - start < 2000);
+		assertEquals(0, transport.getSentPackets());
+		assertTrue(transport.getDroppedPackets() > 0);
+	}
+
+	private static byte[] read(Socket socket, int len) throws IOException
+	{
+		byte[] data = new byte[len];
+		new DataInputStream(socket.getInputStream()).readFully(data);
+		return data;
+	}
+}
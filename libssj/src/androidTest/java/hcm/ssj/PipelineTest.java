@@ -0,0 +1,534 @@
+/*
+ * PipelineTest.java
+ * Copyright (c) 2018
+ * Authors: Ionut Damian, Michael Dietz, Frank Gaibler, Daniel Langerenken, Simon Flutura,
+ * Vitalijs Krumins, Antonio Grieco
+ * *****************************************************
+ * This file is part of the Social Signal Interpretation for Java (SSJ) framework
+ * developed at the Lab for Human Centered Multimedia of the University of Augsburg.
+ *
+ * SSJ has been inspired by the SSI (http://openssi.net) framework. SSJ is not a
+ * one-to-one port of SSI to Java, it is an approximation. Nor does SSJ pretend
+ * to offer SSI's comprehensive functionality and performance (this is java after all).
+ * Nevertheless, SSJ borrows a lot of programming patterns from SSI.
+ *
+ * This library is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 3 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package hcm.ssj;
+
+import androidx.test.filters.SmallTest;
+import androidx.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import hcm.ssj.core.BufferView;
+import hcm.ssj.core.Cons;
+import hcm.ssj.core.Consumer;
+import hcm.ssj.core.ExceptionHandler;
+import hcm.ssj.core.Metrics;
+import hcm.ssj.core.Pipeline;
+import hcm.ssj.core.SSJFatalException;
+import hcm.ssj.core.Sensor;
+import hcm.ssj.core.SensorChannel;
+import hcm.ssj.core.ThreadPool;
+import hcm.ssj.core.TimeBuffer;
+import hcm.ssj.core.Transformer;
+import hcm.ssj.core.event.Event;
+import hcm.ssj.core.option.OptionList;
+import hcm.ssj.core.stream.Stream;
+
+import static androidx.test.InstrumentationRegistry.getInstrumentation;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+@SmallTest
+public class PipelineTest
+{
+	@Test
+	public void testAuxTasks() throws Exception
+	{
+		Pipeline frame = Pipeline.getInstance();
+		frame.options.countdown.set(0);
+
+		// more long running helpers than threads kept for them, like one connection per bluetooth sensor
+		final int helpers = frame.options.auxThreads.get() + 2;
+		final CountDownLatch started = new CountDownLatch(helpers);
+		final CountDownLatch finished = new CountDownLatch(helpers);
+		final CountDownLatch disconnected = new CountDownLatch(1);
+
+		final ArrayList<Throwable> errors = new ArrayList<>();
+		frame.setExceptionHandler(new ExceptionHandler()
+		{
+			@Override
+			public void handle(String location, String msg, Throwable t)
+			{
+				synchronized (errors)
+				{
+					errors.add(t);
+				}
+			}
+		});
+
+		Sensor sensor = new Sensor()
+		{
+			@Override
+			public OptionList getOptions()
+			{
+				return null;
+			}
+
+			@Override
+			protected boolean connect() throws SSJFatalException
+			{
+				for (int i = 0; i < helpers; i++)
+				{
+					_frame.executeRunnable(new Runnable()
+					{
+						@Override
+						public void run()
+						{
+							started.countDown();
+							try
+							{
+								disconnected.await();
+							}
+							catch (InterruptedException e)
+							{
+								return;
+							}
+							finished.countDown();
+						}
+					});
+				}
+				return true;
+			}
+
+			@Override
+			protected void disconnect() throws SSJFatalException
+			{
+				disconnected.countDown();
+			}
+		};
+		frame.addSensor(sensor, new ZeroChannel());
+
+		List<ThreadPool> pools;
+		try
+		{
+			frame.start();
+			assertTrue(started.await(10, TimeUnit.SECONDS));
+
+			pools = new ArrayList<>(frame.getMetrics().getThreadPools());
+			frame.stop();
+		}
+		finally
+		{
+			frame.release();
+			frame.setExceptionHandler(null);
+		}
+
+		// all helpers ran at the same time and were released by the sensor on close
+		assertEquals(0, finished.getCount());
+		synchronized (errors)
+		{
+			assertTrue(errors.toString(), errors.isEmpty());
+		}
+
+		for (ThreadPool pool : pools)
+		{
+			assertEquals(pool.toString(), 0, pool.getRejectedCount());
+			assertTrue(pool.isTerminated());
+
+			if (pool.getName().equals("components"))
+			{
+				// one thread per component
+				assertEquals(2, pool.getMaximumPoolSize());
+			}
+			else if (pool.getName().equals("aux"))
+			{
+				// bounded by the kept threads plus one per component
+				assertEquals(frame.options.auxThreads.get() + 2, pool.getMaximumPoolSize());
+				assertEquals(helpers, pool.getLargestPoolSize());
+			}
+		}
+	}
+
+	@Test
+	public void testMetricsReport() throws Exception
+	{
+		File dir = new File(getInstrumentation().getContext().getFilesDir(), "metrics");
+		File report = new File(dir, "metrics.txt");
+		report.delete();
+
+		Pipeline frame = Pipeline.getInstance();
+		frame.options.countdown.set(0);
+		frame.options.metricsInterval.set(0.1f);
+		frame.options.metricsPath.set(dir.getPath());
+
+		Sensor sensor = new Sensor()
+		{
+			@Override
+			public OptionList getOptions()
+			{
+				return null;
+			}
+
+			@Override
+			protected boolean connect() throws SSJFatalException
+			{
+				return true;
+			}
+
+			@Override
+			protected void disconnect() throws SSJFatalException
+			{
+			}
+		};
+		frame.addSensor(sensor, new ZeroChannel());
+
+		try
+		{
+			frame.start();
+			Thread.sleep(500);
+			frame.stop();
+		}
+		finally
+		{
+			frame.release();
+			frame.options.metricsInterval.set(0f);
+		}
+
+		StringBuilder content = new StringBuilder();
+		BufferedReader reader = new BufferedReader(new FileReader(report));
+		String line;
+		while ((line = reader.readLine()) != null)
+		{
+			content.append(line).append('\n');
+		}
+		reader.close();
+		String text = content.toString();
+
+		// periodic snapshots contain the components as well as the thread pools
+		assertTrue(text, text.contains("\tZeroChannel\t"));
+		assertTrue(text, text.contains("\tpool_components\t"));
+		assertTrue(text, text.contains("\tpool_aux\t"));
+		assertTrue(text, text.contains("\tpool_events\t"));
+	}
+
+	@Test
+	public void testViewsReleasedBeforePush() throws Exception
+	{
+		Pipeline frame = Pipeline.getInstance();
+		frame.options.countdown.set(0);
+		// the sensor wraps its buffer within a fraction of a second
+		float headroom = frame.options.bufferHeadroom.get();
+		frame.options.bufferHeadroom.set(0.1f);
+
+		Sensor sensor = new Sensor()
+		{
+			@Override
+			public OptionList getOptions()
+			{
+				return null;
+			}
+
+			@Override
+			protected boolean connect() throws SSJFatalException
+			{
+				return true;
+			}
+
+			@Override
+			protected void disconnect() throws SSJFatalException
+			{
+			}
+		};
+		ZeroChannel channel = new ZeroChannel(1000);
+		frame.addSensor(sensor, channel);
+
+		ViewTransformer transformer = new ViewTransformer();
+		frame.addTransformer(transformer, channel, 0.01);
+
+		// the consumer stops reading, so the transformer blocks when pushing its output
+		final CountDownLatch resume = new CountDownLatch(1);
+		Consumer consumer = new Consumer()
+		{
+			@Override
+			public OptionList getOptions()
+			{
+				return null;
+			}
+
+			@Override
+			protected void consume(Stream[] stream_in, Event trigger) throws SSJFatalException
+			{
+				try
+				{
+					resume.await();
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+				}
+			}
+		};
+		frame.addConsumer(consumer, transformer, 0.01);
+		frame.setOverrunPolicy(transformer, consumer, TimeBuffer.OverrunPolicy.BLOCK);
+
+		int before;
+		int after;
+		try
+		{
+			frame.start();
+			Thread.sleep(1000);
+			before = channel.produced.get();
+			Thread.sleep(1000);
+			after = channel.produced.get();
+		}
+		finally
+		{
+			resume.countDown();
+			frame.stop();
+			frame.release();
+			frame.options.bufferHeadroom.set(headroom);
+		}
+
+		// the sensor is not held up by the views of the blocked transformer
+		assertTrue(before + " -> " + after, after - before > 500);
+	}
+
+	@Test
+	public void testProbeFailedFrames() throws Exception
+	{
+		Pipeline frame = Pipeline.getInstance();
+		frame.options.countdown.set(0);
+		frame.setExceptionHandler(new ExceptionHandler()
+		{
+			@Override
+			public void handle(String location, String msg, Throwable t)
+			{
+			}
+		});
+
+		Sensor sensor = new Sensor()
+		{
+			@Override
+			public OptionList getOptions()
+			{
+				return null;
+			}
+
+			@Override
+			protected boolean connect() throws SSJFatalException
+			{
+				return true;
+			}
+
+			@Override
+			protected void disconnect() throws SSJFatalException
+			{
+			}
+		};
+		ZeroChannel channel = new ZeroChannel();
+		frame.addSensor(sensor, channel);
+		FailingTransformer transformer = new FailingTransformer();
+		frame.addTransformer(transformer, channel, 0.1);
+
+		Metrics.Probe probe = null;
+		try
+		{
+			frame.start();
+			Thread.sleep(1000);
+
+			for (Metrics.Probe p : frame.getMetrics().getProbes())
+			{
+				if (p.getName().equals(transformer.getComponentName()))
+				{
+					probe = p;
+				}
+			}
+			frame.stop();
+		}
+		finally
+		{
+			frame.release();
+			frame.setExceptionHandler(null);
+		}
+
+		// frames whose transform threw are dropped, not counted as processed
+		assertTrue(probe != null);
+		assertEquals(0, probe.getFrames());
+		assertEquals(0, probe.getProcessingTime().getCount());
+		assertTrue(probe.getDroppedFrames() > 0);
+	}
+
+	private static class FailingTransformer extends Transformer
+	{
+		FailingTransformer()
+		{
+			_name = "FailingTransformer";
+		}
+
+		@Override
+		public OptionList getOptions()
+		{
+			return null;
+		}
+
+		@Override
+		public void transform(Stream[] stream_in, Stream stream_out) throws SSJFatalException
+		{
+			throw new IllegalStateException("transform failed");
+		}
+
+		@Override
+		public int getSampleDimension(Stream[] stream_in)
+		{
+			return 1;
+		}
+
+		@Override
+		public Cons.Type getSampleType(Stream[] stream_in)
+		{
+			return Cons.Type.FLOAT;
+		}
+
+		@Override
+		public int getSampleNumber(int sampleNumber_in)
+		{
+			return sampleNumber_in;
+		}
+
+		@Override
+		protected void describeOutput(Stream[] stream_in, Stream stream_out)
+		{
+			stream_out.desc = new String[]{"failed"};
+		}
+	}
+
+	private static class ViewTransformer extends Transformer
+	{
+		ViewTransformer()
+		{
+			_name = "ViewTransformer";
+			_useBufferViews = true;
+		}
+
+		@Override
+		public OptionList getOptions()
+		{
+			return null;
+		}
+
+		@Override
+		public void transform(Stream[] stream_in, Stream stream_out) throws SSJFatalException
+		{
+		}
+
+		@Override
+		public void transform(BufferView[] views, Stream stream_out) throws SSJFatalException
+		{
+			views[0].copyTo(stream_out);
+		}
+
+		@Override
+		public int getSampleDimension(Stream[] stream_in)
+		{
+			return 1;
+		}
+
+		@Override
+		public Cons.Type getSampleType(Stream[] stream_in)
+		{
+			return Cons.Type.FLOAT;
+		}
+
+		@Override
+		public int getSampleNumber(int sampleNumber_in)
+		{
+			return sampleNumber_in;
+		}
+
+		@Override
+		protected void describeOutput(Stream[] stream_in, Stream stream_out)
+		{
+			stream_out.desc = new String[]{"copy"};
+		}
+	}
+
+	private static class ZeroChannel extends SensorChannel
+	{
+		final double sr;
+		final AtomicInteger produced = new AtomicInteger(0);
+
+		ZeroChannel()
+		{
+			this(10);
+		}
+
+		ZeroChannel(double sr)
+		{
+			_name = "ZeroChannel";
+			this.sr = sr;
+		}
+
+		@Override
+		public OptionList getOptions()
+		{
+			return null;
+		}
+
+		@Override
+		protected boolean process(Stream stream_out) throws SSJFatalException
+		{
+			stream_out.ptrF()[0] = 0;
+			produced.incrementAndGet();
+			return true;
+		}
+
+		@Override
+		protected double getSampleRate()
+		{
+			return sr;
+		}
+
+		@Override
+		protected int getSampleDimension()
+		{
+			return 1;
+		}
+
+		@Override
+		protected Cons.Type getSampleType()
+		{
+			return Cons.Type.FLOAT;
+		}
+
+		@Override
+		protected void describeOutput(Stream stream_out)
+		{
+			stream_out.desc = new String[]{"zero"};
+		}
+	}
+}
@@ -34,23 +34,41 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import java.io.File;
+import java.util.Arrays;
+import java.util.Random;
 
 import hcm.ssj.androidSensor.AndroidSensor;
 import hcm.ssj.androidSensor.AndroidSensorChannel;
 import hcm.ssj.androidSensor.SensorType;
 import hcm.ssj.biosig.HRVSpectral;
+import hcm.ssj.body.AccelerationFeatures;
+import hcm.ssj.core.Cons;
 import hcm.ssj.core.Pipeline;
+import hcm.ssj.core.SSJFatalException;
+import hcm.ssj.core.stream.Stream;
 import hcm.ssj.file.FileReader;
 import hcm.ssj.file.FileReaderChannel;
+import hcm.ssj.signal.Biquad;
+import hcm.ssj.signal.Butfilt;
 import hcm.ssj.signal.Derivative;
+import hcm.ssj.signal.FFTCache;
 import hcm.ssj.signal.FFTfeat;
+import hcm.ssj.signal.FilterBank;
+import hcm.ssj.signal.FilterTools;
 import hcm.ssj.signal.Functionals;
+import hcm.ssj.signal.MathTools;
+import hcm.ssj.signal.Matrix;
+import hcm.ssj.signal.MatrixOps;
 import hcm.ssj.signal.PSD;
+import hcm.ssj.signal.SlidingQuantile;
 import hcm.ssj.signal.Spectrogram;
+import hcm.ssj.signal.Statistics;
 import hcm.ssj.test.Logger;
 
 import static androidx.test.InstrumentationRegistry.getContext;
 import static androidx.test.InstrumentationRegistry.getInstrumentation;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
 
 @RunWith(AndroidJUnit4.class)
 @SmallTest
@@ -110,6 +128,65 @@ public class SignalTest
 		data.delete();
 	}
 
+	@Test
+	public void testExecutionModes() throws Exception
+	{
+		runFileReaderPipeline(Pipeline.ExecutionMode.DATA_DRIVEN);
+		runFileReaderPipeline(Pipeline.ExecutionMode.INLINE);
+	}
+
+	private void runFileReaderPipeline(Pipeline.ExecutionMode mode) throws Exception
+	{
+		File dir = getContext().getFilesDir();
+		String fileName = "audio.stream";
+		File header = new File(dir, fileName);
+		TestHelper.copyAssetToFile(fileName, header);
+		File data = new File(dir, fileName + "~");
+		TestHelper.copyAssetToFile(fileName + "data", data); //android does not support "~" in asset files
+
+		// Setup
+		Pipeline frame = Pipeline.getInstance();
+		frame.options.bufferSize.set(10.0f);
+		frame.options.countdown.set(0);
+		frame.options.execution.set(mode);
+
+		// Sensor
+		FileReader file = new FileReader();
+		file.options.file.setValue(dir.getAbsolutePath() + File.separator + fileName);
+		FileReaderChannel channel = new FileReaderChannel();
+		channel.setWatchInterval(0);
+		channel.setSyncInterval(0);
+		frame.addSensor(file, channel);
+
+		// Transformer, triggered by the data pushed by the channel
+		FFTfeat fft = new FFTfeat();
+		frame.addTransformer(fft, channel, 512.0 / channel.getSampleRate(), 0);
+
+		Logger log = new Logger();
+		frame.addConsumer(log, fft, 1, 0);
+
+		// Start framework
+		frame.start();
+
+		// Wait duration
+		try
+		{
+			Thread.sleep(TestHelper.DUR_TEST_SHORT);
+		}
+		catch (Exception e)
+		{
+			e.printStackTrace();
+		}
+
+		// Stop framework
+		frame.stop();
+		frame.options.execution.set(Pipeline.ExecutionMode.TIMED);
+		frame.clear();
+
+		header.delete();
+		data.delete();
+	}
+
 	@Test
 	public void testDerivative() throws Exception
 	{
@@ -293,4 +370,495 @@ public class SignalTest
 		frame.stop();
 		frame.release();
 	}
+
+	@Test
+	public void testMatrixOps() throws Exception
+	{
+		MatrixOps ops = MatrixOps.getInstance();
+
+		// 3x4 matrix with a(i,j) = 10 * i + j
+		Matrix a = new Matrix(3, 4);
+		for (int i = 0; i < a.getSize(); i++)
+		{
+			a.setData(i, 10 * (i / 4) + i % 4);
+		}
+
+		// views share the storage of the matrix
+		Matrix block = a.view(1, 1, 2, 2);
+		assertEquals(11, block.getData(0), 0);
+		assertEquals(22, block.getData(1, 1), 0);
+		block.fillValue(0);
+		assertEquals(0, a.getData(2, 2), 0);
+		assertEquals(23, a.getData(2, 3), 0);
+		assertEquals(10 + 13 + 20 + 23, ops.sum(a.view(1, 0, 2, 4)), 0);
+
+		// column views are strided
+		Matrix col = a.col(3);
+		assertEquals(3, col.getRows());
+		assertEquals(3 + 13 + 23, ops.sum(col), 0);
+
+		// gemv with a strided vector: a * col
+		Matrix y = new Matrix(3, 1);
+		Matrix sq = a.view(0, 0, 3, 3);
+		ops.gemv(1, sq, col, 0, y);
+		assertEquals(0 * 3 + 1 * 13 + 2 * 23, y.getData(0), 0);
+		assertEquals(10 * 3 + 0 * 13 + 0 * 23, y.getData(1), 0);
+
+		// gemm matches gemv for a single column
+		Matrix c = new Matrix(3, 1);
+		ops.gemm(2, sq, col, 0, c);
+		ops.axpy(-2, y, c);
+		assertEquals(0, ops.max(c), 0);
+		assertEquals(0, ops.min(c), 0);
+
+		// transposing a view yields a compact copy
+		col.transpose();
+		assertEquals(1, col.getRows());
+		assertEquals(23, col.getData(2), 0);
+		float[] out = new float[3];
+		col.copyTo(out, 0);
+		assertEquals(13, out[1], 0);
+		assertEquals(3 * 3 + 13 * 13 + 23 * 23, ops.dot(col, col), 0);
+
+		// dividing by a scalar is exact, multiplying by its reciprocal is not
+		Matrix d = new Matrix(2, 100);
+		for (int i = 0; i < d.getSize(); i++)
+		{
+			d.setData(i, i + 1);
+		}
+		Matrix row = d.view(1, 0, 1, 100);
+		ops.div(row, 3.0f);
+		for (int i = 0; i < 100; i++)
+		{
+			assertBits(i + 1, d.getData(0, i));
+			assertBits((i + 101) / 3.0f, row.getData(i));
+		}
+	}
+
+	@Test
+	public void testBiquad() throws Exception
+	{
+		FilterTools tools = FilterTools.getInstance();
+		int num = 2000;
+
+		// two channels, the second one is twice the first: constant plus a fast oscillation
+		float[] in = new float[num * 2];
+		for (int i = 0; i < num; i++)
+		{
+			in[i * 2] = 1 + (i % 2 == 0 ? 0.5f : -0.5f);
+			in[i * 2 + 1] = 2 * in[i * 2];
+		}
+
+		// low-pass keeps the constant and removes the oscillation at nyquist
+		Biquad low = new Biquad(tools.getLPButter(4, 0.1), 2);
+		float[] out = new float[num * 2];
+		low.process(in, out, num);
+		assertEquals(1, out[(num - 1) * 2], 1e-3);
+		assertEquals(2, out[(num - 1) * 2 + 1], 1e-3);
+
+		// processing in frames gives the same result as processing at once
+		low.reset();
+		float[] framed = new float[num * 2];
+		float[] frame = new float[100 * 2];
+		for (int i = 0; i < num; i += 100)
+		{
+			System.arraycopy(in, i * 2, frame, 0, frame.length);
+			low.process(frame, frame, 100);
+			System.arraycopy(frame, 0, framed, i * 2, frame.length);
+		}
+		for (int i = 0; i < out.length; i++)
+		{
+			assertEquals(out[i], framed[i], 0);
+		}
+
+		// bank of two band-pass filters, a sine in the upper band
+		Biquad bank = new Biquad(new Matrix[]{tools.getBPButter(4, 0.05, 0.15), tools.getBPButter(4, 0.35, 0.45)}, 2);
+		assertEquals(2, bank.getBands());
+		for (int i = 0; i < num; i++)
+		{
+			in[i * 2] = (float) Math.sin(Math.PI * 0.4 * i);
+			in[i * 2 + 1] = 2 * in[i * 2];
+		}
+		out = new float[num * 4];
+		bank.process(in, out, num);
+
+		double[] energy = new double[4];
+		for (int i = num / 2; i < num; i++)
+		{
+			for (int j = 0; j < 4; j++)
+			{
+				energy[j] += out[i * 4 + j] * out[i * 4 + j];
+			}
+		}
+		assertEquals(true, energy[2] > 100 * energy[0]);
+		assertEquals(4 * energy[2], energy[3], 1e-3 * energy[3]);
+	}
+
+	@Test
+	public void testStatistics() throws Exception
+	{
+		MathTools math = MathTools.getInstance();
+		Statistics stats = new Statistics();
+		Random random = new Random(1);
+
+		for (int t = 0; t < 2000; t++)
+		{
+			// small sizes cover all odd/even cases of median and quartiles, integers produce ties
+			int n = (t < 20) ? t : random.nextInt(300);
+			float[] values = new float[n];
+			for (int i = 0; i < n; i++)
+			{
+				values[i] = (t % 2 == 0) ? (float) random.nextGaussian() : random.nextInt(5) - 2;
+			}
+
+			stats.compute(values);
+
+			// the fused kernel must produce the same bits as the individual methods
+			assertBits(math.getSum(values), stats.getSum());
+			assertBits(math.getMean(values), stats.getMean());
+			assertBits(math.getMin(values), stats.getMin());
+			assertBits(math.getMax(values), stats.getMax());
+			assertBits(math.getRange(values), stats.getRange());
+			assertBits(math.getVariance(values), stats.getVariance());
+			assertBits(math.getStdDeviation(values), stats.getStdDeviation());
+			assertBits(math.getSkew(values), stats.getSkew());
+			assertBits(math.getKurtosis(values), stats.getKurtosis());
+			assertBits(math.getRMS(values), stats.getRMS());
+			assertBits(math.getMAD(values), stats.getMAD());
+			assertBits(math.getCrest(values), stats.getCrest());
+
+			// selection must match a full sort
+			float[] sorted = values.clone();
+			Arrays.sort(sorted);
+			int half = n / 2;
+			float median = sortedMedian(sorted, 0, n);
+			float iqr = sortedMedian(sorted, n - half, half) - sortedMedian(sorted, 0, half);
+
+			assertBits(median, stats.getMedian());
+			assertBits(iqr, stats.getIQR());
+			assertBits(median, math.getMedian(values));
+			assertBits(iqr, math.getIQR(values));
+		}
+	}
+
+	private static float sortedMedian(float[] sorted, int start, int count)
+	{
+		if (count == 0)
+		{
+			return 0;
+		}
+
+		int mid = start + count / 2;
+		return (count % 2 == 0) ? (sorted[mid - 1] + sorted[mid]) / 2.0f : sorted[mid];
+	}
+
+	private static void assertBits(float expected, float actual)
+	{
+		assertEquals(Float.floatToIntBits(expected), Float.floatToIntBits(actual));
+	}
+
+	@Test
+	public void testSlidingQuantile() throws Exception
+	{
+		int window = 101;
+		SlidingQuantile quantiles = new SlidingQuantile(window);
+		Random random = new Random(1);
+
+		float[] history = new float[3000];
+		for (int i = 0; i < history.length; i++)
+		{
+			// the second half contains many ties
+			history[i] = (i < history.length / 2) ? (float) random.nextGaussian() : random.nextInt(7);
+			quantiles.add(history[i]);
+
+			int n = Math.min(i + 1, window);
+			assertEquals(n, quantiles.size());
+
+			float[] sorted = Arrays.copyOfRange(history, i + 1 - n, i + 1);
+			Arrays.sort(sorted);
+
+			assertEquals(sorted[0], quantiles.get(0), 0);
+			assertEquals(sorted[n - 1], quantiles.get(n - 1), 0);
+			assertEquals(sortedMedian(sorted, 0, n), quantiles.getMedian(), 1e-6);
+
+			// 5th percentile, linear interpolation between the closest ranks
+			double position = (n - 1) * 0.05;
+			int rank = (int) position;
+			float expected = (rank + 1 < n) ? (float) (sorted[rank] + (position - rank) * (sorted[rank + 1] - sorted[rank])) : sorted[rank];
+			assertEquals(expected, quantiles.quantile(0.05), 1e-6);
+		}
+	}
+
+	@Test
+	public void testSpectrum() throws Exception
+	{
+		int num = 256;
+
+		// plans are shared between components
+		assertEquals(true, FFTCache.getInstance().get(num) == FFTCache.getInstance().get(num));
+
+		Stream signal = Stream.create(num, 1, 100, Cons.Type.FLOAT);
+		Random random = new Random(1);
+		for (int i = 0; i < num; i++)
+		{
+			signal.ptrF()[i] = (float) (Math.sin(2 * Math.PI * 10 * i / 100.0) + random.nextGaussian());
+		}
+		Stream[] in = new Stream[]{signal};
+
+		// psd computed from the signal
+		PSD direct = new PSD();
+		Stream expected = Stream.create(direct.getSampleNumber(num), direct.getSampleDimension(in), 1, Cons.Type.FLOAT);
+		direct.enter(in, expected);
+		direct.transform(in, expected);
+
+		// psd computed from a shared magnitude or power spectrum
+		for (boolean power : new boolean[]{false, true})
+		{
+			FFTfeat fft = new FFTfeat();
+			fft.options.power.set(power);
+			Stream bins = spectrum(fft, in);
+			assertEquals(num / 2 + 1, bins.dim);
+
+			PSD shared = new PSD();
+			shared.options.spectrum.set(true);
+			Stream[] binsIn = new Stream[]{bins};
+			// the dimension is queried first, as during setup
+			int dim = shared.getSampleDimension(binsIn);
+			Stream actual = Stream.create(shared.getSampleNumber(1), dim, 1, Cons.Type.FLOAT);
+			shared.enter(binsIn, actual);
+			shared.transform(binsIn, actual);
+
+			assertEquals(expected.num, actual.num);
+			for (int i = 0; i < expected.num; i++)
+			{
+				assertEquals(expected.ptrF()[i], actual.ptrF()[i], 0);
+			}
+		}
+
+		// the spectrum of several dimensions cannot be read as one psd
+		Stream stereo = Stream.create(num, 2, 100, Cons.Type.FLOAT);
+		Stream[] stereoBins = new Stream[]{spectrum(new FFTfeat(), new Stream[]{stereo})};
+		PSD invalid = new PSD();
+		invalid.options.spectrum.set(true);
+		try
+		{
+			invalid.enter(stereoBins, Stream.create(1, 1, 1, Cons.Type.FLOAT));
+			fail("spectrum of two dimensions accepted");
+		}
+		catch (SSJFatalException e)
+		{
+			// expected
+		}
+
+		// spectrogram computed from the signal and from a spectrum windowed by FFTfeat, nfft is the number of bins
+		Spectrogram spectrogram = new Spectrogram();
+		spectrogram.options.nfft.set(num / 2 + 1);
+		spectrogram.options.banks.set("1 5, 5 15, 15 40");
+		spectrogram.options.nbanks.set(3);
+		Stream banks = Stream.create(1, spectrogram.getSampleDimension(in), 1, Cons.Type.FLOAT);
+		spectrogram.enter(in, banks);
+		spectrogram.transform(in, banks);
+
+		FFTfeat windowed = new FFTfeat();
+		windowed.options.wintype.set(spectrogram.options.wintype.get());
+		Stream[] windowedIn = new Stream[]{spectrum(windowed, in)};
+
+		Spectrogram sharedSpectrogram = new Spectrogram();
+		sharedSpectrogram.options.nfft.set(num / 2 + 1);
+		sharedSpectrogram.options.banks.set("1 5, 5 15, 15 40");
+		sharedSpectrogram.options.nbanks.set(3);
+		sharedSpectrogram.options.spectrum.set(true);
+		sharedSpectrogram.options.sr.set(signal.sr);
+		Stream sharedBanks = Stream.create(1, sharedSpectrogram.getSampleDimension(windowedIn), 1, Cons.Type.FLOAT);
+		sharedSpectrogram.enter(windowedIn, sharedBanks);
+		sharedSpectrogram.transform(windowedIn, sharedBanks);
+
+		assertEquals(banks.dim, sharedBanks.dim);
+		for (int i = 0; i < banks.dim; i++)
+		{
+			assertEquals(banks.ptrF()[i], sharedBanks.ptrF()[i], 0);
+		}
+
+		// acceleration features computed with and without a shared spectrum
+		Stream acc = Stream.create(num, 3, 100, Cons.Type.FLOAT);
+		for (int i = 0; i < acc.tot / 4; i++)
+		{
+			acc.ptrF()[i] = (float) random.nextGaussian();
+		}
+		Stream[] accIn = new Stream[]{acc};
+		Stream[] accSpectrumIn = new Stream[]{acc, spectrum(new FFTfeat(), accIn)};
+
+		AccelerationFeatures features = new AccelerationFeatures();
+		Stream featuresOut = Stream.create(1, features.getSampleDimension(accIn), 1, Cons.Type.FLOAT);
+		features.enter(accIn, featuresOut);
+		features.transform(accIn, featuresOut);
+
+		AccelerationFeatures sharedFeatures = new AccelerationFeatures();
+		Stream sharedFeaturesOut = Stream.create(1, sharedFeatures.getSampleDimension(accSpectrumIn), 1, Cons.Type.FLOAT);
+		sharedFeatures.enter(accSpectrumIn, sharedFeaturesOut);
+		sharedFeatures.transform(accSpectrumIn, sharedFeaturesOut);
+
+		for (int i = 0; i < featuresOut.dim; i++)
+		{
+			assertEquals(featuresOut.ptrF()[i], sharedFeaturesOut.ptrF()[i], 0);
+		}
+	}
+
+	/**
+	 * Runs FFTfeat on a single frame, the returned stream references it as its source like in a pipeline
+	 */
+	private static Stream spectrum(FFTfeat fft, Stream[] in) throws SSJFatalException
+	{
+		Stream bins = Stream.create(fft.getSampleNumber(in[0].num), fft.getSampleDimension(in), 1, Cons.Type.FLOAT);
+		bins.source = fft;
+		fft.enter(in, bins);
+		fft.transform(in, bins);
+		return bins;
+	}
+
+	@Test
+	public void testButfilt() throws Exception
+	{
+		int num = 50;
+		int dim = 3;
+
+		for (Butfilt.Type type : Butfilt.Type.values())
+		{
+			Butfilt filter = new Butfilt();
+			filter.options.type.set(type);
+			filter.options.order.set(4);
+			filter.options.low.set(0.1);
+			filter.options.high.set(0.3);
+			filter.options.zero.set(false);
+
+			Stream[] in = new Stream[]{Stream.create(num, dim, 100, Cons.Type.FLOAT)};
+			Stream out = Stream.create(num, dim, 100, Cons.Type.FLOAT);
+			filter.enter(in, out);
+
+			Matrix sos = null;
+			switch (type)
+			{
+				case LOW:
+					sos = FilterTools.getInstance().getLPButter(4, 0.1);
+					break;
+				case HIGH:
+					sos = FilterTools.getInstance().getHPButter(4, 0.3);
+					break;
+				case BAND:
+					sos = FilterTools.getInstance().getBPButter(4, 0.1, 0.3);
+					break;
+			}
+			float[] history = new float[sos.getRows() * dim * 2];
+			float[] expected = new float[num * dim];
+
+			for (int frame = 0; frame < 200; frame++)
+			{
+				float[] ptr = in[0].ptrF();
+				for (int i = 0; i < ptr.length; i++)
+				{
+					ptr[i] = (float) Math.sin((frame * num + i / dim) * 0.05 * (1 + i % dim));
+				}
+
+				iirReference(sos, history, ptr, expected, num, dim);
+				filter.transform(in, out);
+
+				for (int i = 0; i < expected.length; i++)
+				{
+					assertEquals(expected[i], out.ptrF()[i], 1e-4);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Single precision direct form II filter as used by IIR before the biquad engine
+	 */
+	private static void iirReference(Matrix sos, float[] history, float[] in, float[] out, int num, int dim)
+	{
+		int sections = sos.getRows();
+
+		for (int i = 0; i < num; i++)
+		{
+			for (int j = 0; j < dim; j++)
+			{
+				float y = in[i * dim + j];
+
+				for (int k = 0; k < sections; k++)
+				{
+					int h = (j * sections + k) * 2;
+					float hist1 = history[h];
+					float hist2 = history[h + 1];
+
+					y -= hist1 * sos.getData(k, 4);
+					float newHist = y - hist2 * sos.getData(k, 5);
+					y = newHist * sos.getData(k, 0);
+					y += hist1 * sos.getData(k, 1);
+					y += hist2 * sos.getData(k, 2);
+
+					history[h + 1] = hist1;
+					history[h] = newHist;
+				}
+
+				out[i * dim + j] = y;
+			}
+		}
+	}
+
+	@Test
+	public void testFilterBank() throws Exception
+	{
+		int num = 100;
+		int dim = 2;
+		double[][] bands = {{0.05, 0.15}, {0.2, 0.3}, {0.35, 0.45}};
+
+		Stream[] in = new Stream[]{Stream.create(num, dim, 100, Cons.Type.FLOAT)};
+
+		FilterBank bank = new FilterBank();
+		bank.options.bands.set("0.05 0.15, 0.2 0.3, 0.35 0.45");
+		assertEquals(dim * bands.length, bank.getSampleDimension(in));
+		assertEquals(num, bank.getSampleNumber(num));
+
+		Stream out = Stream.create(num, bank.getSampleDimension(in), 100, Cons.Type.FLOAT);
+		bank.enter(in, out);
+
+		// each band matches a single band-pass filter on the same input
+		Butfilt[] filters = new Butfilt[bands.length];
+		Stream[] filtered = new Stream[bands.length];
+		for (int b = 0; b < bands.length; b++)
+		{
+			filters[b] = new Butfilt();
+			filters[b].options.type.set(Butfilt.Type.BAND);
+			filters[b].options.order.set(4);
+			filters[b].options.low.set(bands[b][0]);
+			filters[b].options.high.set(bands[b][1]);
+			filters[b].options.zero.set(false);
+			filtered[b] = Stream.create(num, dim, 100, Cons.Type.FLOAT);
+			filters[b].enter(in, filtered[b]);
+		}
+
+		Random random = new Random(1);
+		for (int frame = 0; frame < 20; frame++)
+		{
+			for (int i = 0; i < in[0].tot / 4; i++)
+			{
+				in[0].ptrF()[i] = (float) random.nextGaussian();
+			}
+
+			bank.transform(in, out);
+
+			for (int b = 0; b < bands.length; b++)
+			{
+				filters[b].transform(in, filtered[b]);
+
+				// all dimensions of the first band, then all dimensions of the second band, etc.
+				for (int i = 0; i < num; i++)
+				{
+					for (int j = 0; j < dim; j++)
+					{
+						assertEquals(filtered[b].ptrF()[i * dim + j], out.ptrF()[i * out.dim + b * dim + j], 1e-6);
+					}
+				}
+			}
+		}
+	}
 }
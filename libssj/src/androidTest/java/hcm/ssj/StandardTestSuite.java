@@ -41,8 +41,11 @@ import org.junit.runners.Suite;
 		BodyTest.class,
 		EventTest.class,
 		FileTest.class,
+		PipelineTest.class,
 		SignalTest.class,
 		SvmTest.class,
+		TimeBufferTest.class,
+		TimerTest.class,
 		SSITest.class,
 		UtilTest.class,
 		NaiveBayesTest.class})
@@ -0,0 +1,525 @@
+/*
+ * TimeBufferTest.java
+ * Copyright (c) 2018
+ * Authors: Ionut Damian, Michael Dietz, Frank Gaibler, Daniel Langerenken, Simon Flutura,
+ * Vitalijs Krumins, Antonio Grieco
+ * *****************************************************
+ * This file is part of the Social Signal Interpretation for Java (SSJ) framework
+ * developed at the Lab for Human Centered Multimedia of the University of Augsburg.
+ *
+ * SSJ has been inspired by the SSI (http://openssi.net) framework. SSJ is not a
+ * one-to-one port of SSI to Java, it is an approximation. Nor does SSJ pretend
+ * to offer SSI's comprehensive functionality and performance (this is java after all).
+ * Nevertheless, SSJ borrows a lot of programming patterns from SSI.
+ *
+ * This library is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 3 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package hcm.ssj;
+
+import androidx.test.filters.SmallTest;
+import androidx.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import hcm.ssj.core.BufferView;
+import hcm.ssj.core.Component;
+import hcm.ssj.core.Cons;
+import hcm.ssj.core.Log;
+import hcm.ssj.core.TimeBuffer;
+import hcm.ssj.core.Util;
+import hcm.ssj.core.option.OptionList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+@SmallTest
+public class TimeBufferTest
+{
+	private static final int DIM = 3;
+	private static final double SR = 100;
+	private static final double CAPACITY = 2.0;
+	private static final int FRAME = 10;
+
+	@Test
+	public void testLocked() throws Exception
+	{
+		checkBuffer(false);
+	}
+
+	@Test
+	public void testLockFree() throws Exception
+	{
+		checkBuffer(true);
+	}
+
+	@Test
+	public void testTypedStorage() throws Exception
+	{
+		TimeBuffer buf = new TimeBuffer(CAPACITY, SR, DIM, Util.sizeOf(Cons.Type.SHORT), Cons.Type.SHORT, null);
+
+		short[] in = new short[FRAME * DIM];
+		for (int i = 0; i < in.length; i++)
+		{
+			in[i] = (short) (i - 5);
+		}
+
+		// serialized producer, typed reader
+		byte[] bytes = new byte[in.length * Util.sizeOf(Cons.Type.SHORT)];
+		Util.arraycopy(in, 0, bytes, 0, bytes.length);
+		buf.push(bytes, bytes.length);
+
+		short[] out = new short[in.length];
+		assertEquals(TimeBuffer.STATUS_SUCCESS, buf.get(out, 0, FRAME));
+		for (int i = 0; i < in.length; i++)
+		{
+			assertEquals(in[i], out[i]);
+		}
+
+		// typed producer, serialized reader
+		buf.push(in, bytes.length);
+
+		byte[] outBytes = new byte[bytes.length];
+		assertEquals(TimeBuffer.STATUS_SUCCESS, buf.get(outBytes, FRAME, FRAME));
+		for (int i = 0; i < bytes.length; i++)
+		{
+			assertEquals(bytes[i], outBytes[i]);
+		}
+
+		// reader of a different type, frame larger than the scratch array
+		int num = 500;
+		TimeBuffer floats = new TimeBuffer(10.0, SR, DIM, Util.sizeOf(Cons.Type.FLOAT), Cons.Type.FLOAT, null);
+
+		float[] inFloats = new float[num * DIM];
+		for (int i = 0; i < inFloats.length; i++)
+		{
+			inFloats[i] = i * 0.5f - 7;
+		}
+		floats.push(inFloats, inFloats.length * Util.sizeOf(Cons.Type.FLOAT));
+
+		int[] outInts = new int[inFloats.length];
+		assertEquals(TimeBuffer.STATUS_SUCCESS, floats.get(outInts, 0, num));
+		for (int i = 0; i < inFloats.length; i++)
+		{
+			assertEquals(Float.floatToRawIntBits(inFloats[i]), outInts[i]);
+		}
+	}
+
+	@Test
+	public void testViews() throws Exception
+	{
+		checkViews(false);
+		checkViews(true);
+	}
+
+	private void checkViews(boolean lockFree) throws Exception
+	{
+		final TimeBuffer buf = new TimeBuffer(CAPACITY, SR, DIM, Util.sizeOf(Cons.Type.FLOAT), Cons.Type.FLOAT, null, lockFree);
+		final int capacity = (int) (CAPACITY * SR);
+		final float[] in = new float[FRAME * DIM];
+
+		// fill buffer so that the next window wraps around
+		int written = 0;
+		while (written < capacity + FRAME / 2)
+		{
+			for (int i = 0; i < in.length; i++)
+			{
+				in[i] = written * DIM + i;
+			}
+			buf.push(in, in.length * Util.sizeOf(Cons.Type.FLOAT));
+			written += FRAME;
+		}
+
+		BufferView view = new BufferView();
+		int start = written - capacity;
+		assertEquals(TimeBuffer.STATUS_SUCCESS, buf.acquire(view, start, capacity));
+		assertEquals(2, view.segments());
+
+		float[] data = (float[]) view.array();
+		int value = start * DIM;
+		for (int s = 0; s < view.segments(); s++)
+		{
+			for (int i = view.offset(s); i < view.offset(s) + view.length(s); i++)
+			{
+				assertEquals(value++, data[i], 0);
+			}
+		}
+
+		// producer must not overwrite the pinned region
+		Thread producer = new Thread(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				buf.push(in, in.length * Util.sizeOf(Cons.Type.FLOAT));
+			}
+		});
+		producer.start();
+		producer.join(200);
+		assertTrue(producer.isAlive());
+		assertEquals(start * DIM, data[view.offset(0)], 0);
+
+		view.release();
+		producer.join();
+		assertFalse(view.isAcquired());
+
+		buf.close();
+	}
+
+	@Test
+	public void testPinnedSlowReader() throws Exception
+	{
+		checkPinnedSlowReader(false);
+		checkPinnedSlowReader(true);
+	}
+
+	private void checkPinnedSlowReader(boolean lockFree) throws Exception
+	{
+		final TimeBuffer buf = new TimeBuffer(CAPACITY, SR, DIM, Util.sizeOf(Cons.Type.FLOAT), Cons.Type.FLOAT, null, lockFree);
+		final int capacity = (int) (CAPACITY * SR);
+		final float[] in = new float[FRAME * DIM];
+
+		for (int written = 0; written < capacity; written += FRAME)
+		{
+			for (int i = 0; i < in.length; i++)
+			{
+				in[i] = written * DIM + i;
+			}
+			buf.push(in, in.length * Util.sizeOf(Cons.Type.FLOAT));
+		}
+
+		// slow reader pins the oldest frame, the producer has to wait for it
+		BufferView slow = new BufferView();
+		assertEquals(TimeBuffer.STATUS_SUCCESS, buf.acquire(slow, 0, FRAME));
+
+		Thread producer = new Thread(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				buf.push(in, in.length * Util.sizeOf(Cons.Type.FLOAT));
+			}
+		});
+		producer.start();
+		producer.join(100);
+		assertTrue(producer.isAlive());
+
+		// another reader of the region the producer waits for must neither block nor lose the data
+		final BufferView late = new BufferView();
+		final int[] status = {Integer.MIN_VALUE};
+		Thread reader = new Thread(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				status[0] = buf.acquire(late, 0, FRAME);
+			}
+		});
+		reader.start();
+		reader.join(1000);
+		assertFalse(reader.isAlive());
+		assertEquals(TimeBuffer.STATUS_SUCCESS, status[0]);
+
+		// the producer keeps waiting as long as any view pins the region
+		slow.release();
+		producer.join(100);
+		assertTrue(producer.isAlive());
+		assertEquals(0, ((float[]) late.array())[late.offset(0)], 0);
+
+		late.release();
+		producer.join(1000);
+		assertFalse(producer.isAlive());
+
+		buf.close();
+	}
+
+	/**
+	 * Compares reader throughput of the locked and the lock-free buffer with 1 to 16 readers
+	 */
+	@Test
+	public void testReaderScaling() throws Exception
+	{
+		for (int readers = 1; readers <= 16; readers *= 2)
+		{
+			double locked = benchmark(false, readers);
+			double lockFree = benchmark(true, readers);
+
+			Log.i(String.format(java.util.Locale.US, "%2d readers: locked %.0f frames/s, lock-free %.0f frames/s", readers, locked, lockFree));
+		}
+	}
+
+	@Test
+	public void testOverrunPolicies() throws Exception
+	{
+		int capacity = (int) (CAPACITY * SR);
+		float[] out = new float[FRAME * DIM];
+
+		// DROP: data is lost and counted
+		TimeBuffer buf = createBuffer(false);
+		TimeBuffer.Reader reader = buf.addReader(new TestReader());
+		pushSamples(buf, 0, FRAME);
+		assertEquals(TimeBuffer.STATUS_SUCCESS, buf.get(reader, out, 0, FRAME));
+		pushSamples(buf, FRAME, capacity + 2 * FRAME);
+		assertEquals(TimeBuffer.STATUS_DATA_NOT_IN_BUFFER_ANYMORE, buf.get(reader, out, FRAME, FRAME));
+		assertEquals(TimeBuffer.STATUS_DATA_NOT_IN_BUFFER_ANYMORE, buf.get(reader, out, 2 * FRAME, FRAME));
+		assertEquals(1, reader.getGaps());
+		assertEquals(2 * FRAME, reader.getLostSamples());
+
+		// SKIP: reader continues with the newest frame
+		buf = createBuffer(false);
+		reader = buf.addReader(new TestReader());
+		reader.setOverrunPolicy(TimeBuffer.OverrunPolicy.SKIP);
+		pushSamples(buf, 0, FRAME);
+		assertEquals(TimeBuffer.STATUS_SUCCESS, buf.get(reader, out, 0, FRAME));
+		pushSamples(buf, FRAME, capacity + FRAME);
+		assertEquals(TimeBuffer.STATUS_SUCCESS, buf.get(reader, out, FRAME, FRAME));
+		assertEquals(capacity + FRAME, reader.getSample());
+		assertEquals(capacity, reader.getLostSamples());
+		checkSamples(out, reader.getSample());
+
+		// GROW: buffer grows instead of overwriting the reader's data
+		buf = createBuffer(false);
+		buf.setOverrunPolicy(TimeBuffer.OverrunPolicy.GROW, 2 * CAPACITY, 0);
+		reader = buf.addReader(new TestReader());
+		pushSamples(buf, 0, FRAME);
+		assertEquals(TimeBuffer.STATUS_SUCCESS, buf.get(reader, out, 0, FRAME));
+		pushSamples(buf, FRAME, capacity + FRAME);
+		assertTrue(buf.getCapacitySamples() > capacity);
+		for (int pos = FRAME; pos < capacity + 2 * FRAME; pos += FRAME)
+		{
+			assertEquals(TimeBuffer.STATUS_SUCCESS, buf.get(reader, out, pos, FRAME));
+			checkSamples(out, pos);
+		}
+		assertEquals(0, reader.getGaps());
+
+		// SPILL: overwritten data is read back from disk
+		buf = createBuffer(false);
+		buf.setOverrunPolicy(TimeBuffer.OverrunPolicy.SPILL, CAPACITY, 10);
+		reader = buf.addReader(new TestReader());
+		pushSamples(buf, 0, FRAME);
+		assertEquals(TimeBuffer.STATUS_SUCCESS, buf.get(reader, out, 0, FRAME));
+		pushSamples(buf, FRAME, 2 * capacity);
+		for (int pos = FRAME / 2; pos < 2 * capacity; pos += FRAME)
+		{
+			assertEquals(TimeBuffer.STATUS_SUCCESS, buf.get(reader, out, pos, FRAME));
+			checkSamples(out, pos);
+		}
+		assertEquals(0, reader.getGaps());
+		buf.close();
+
+		// BLOCK: producer waits for the reader
+		checkBlocking(false);
+		checkBlocking(true);
+	}
+
+	@Test
+	public void testResize() throws Exception
+	{
+		int capacity = (int) (CAPACITY * SR);
+
+		// buffers sized on start are created empty
+		TimeBuffer buf = new TimeBuffer(0, SR, DIM, Util.sizeOf(Cons.Type.FLOAT), Cons.Type.FLOAT, null);
+		assertEquals(0, buf.getCapacitySamples());
+
+		// window larger than the default buffer size
+		int window = 3 * capacity;
+		buf.resize(window / SR + CAPACITY);
+		assertEquals(window + capacity, buf.getCapacitySamples());
+
+		float[] out = new float[window * DIM];
+		pushSamples(buf, 0, window + capacity);
+		assertEquals(TimeBuffer.STATUS_SUCCESS, buf.get(out, capacity, window));
+		checkSamples(out, capacity);
+
+		// resizing discards the content
+		buf.resize(CAPACITY);
+		assertEquals(capacity, buf.getCapacitySamples());
+		assertEquals(0, buf.getPositionAbs());
+		pushSamples(buf, 0, capacity);
+		assertEquals(TimeBuffer.STATUS_SUCCESS, buf.get(out, 0, capacity));
+	}
+
+	private void checkBlocking(boolean lockFree) throws Exception
+	{
+		final int capacity = (int) (CAPACITY * SR);
+		final int total = 3 * capacity;
+		final TimeBuffer buf = createBuffer(lockFree);
+		buf.setOverrunPolicy(TimeBuffer.OverrunPolicy.BLOCK, CAPACITY, 0);
+		final TimeBuffer.Reader reader = buf.addReader(new TestReader());
+
+		Thread producer = new Thread(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				pushSamples(buf, 0, total);
+			}
+		});
+		producer.start();
+
+		float[] out = new float[FRAME * DIM];
+		for (int pos = 0; pos < total; pos += FRAME)
+		{
+			assertEquals(TimeBuffer.STATUS_SUCCESS, buf.get(reader, out, pos, FRAME));
+			checkSamples(out, pos);
+
+			// producer never runs more than one buffer ahead
+			assertTrue(buf.getPositionAbs() / buf.getBytesPerSample() <= pos + capacity);
+			if (pos % (10 * FRAME) == 0)
+			{
+				Thread.sleep(5);
+			}
+		}
+
+		producer.join(1000);
+		assertFalse(producer.isAlive());
+		assertEquals(0, reader.getGaps());
+	}
+
+	private TimeBuffer createBuffer(boolean lockFree)
+	{
+		return new TimeBuffer(CAPACITY, SR, DIM, Util.sizeOf(Cons.Type.FLOAT), Cons.Type.FLOAT, null, lockFree);
+	}
+
+	private static void pushSamples(TimeBuffer buf, int start, int num)
+	{
+		float[] in = new float[FRAME * DIM];
+		for (int pos = start; pos < start + num; pos += FRAME)
+		{
+			for (int i = 0; i < in.length; i++)
+			{
+				in[i] = pos + i / DIM;
+			}
+			buf.push(in, in.length * Util.sizeOf(Cons.Type.FLOAT));
+		}
+	}
+
+	private static void checkSamples(float[] out, int start)
+	{
+		for (int i = 0; i < out.length; i++)
+		{
+			assertEquals(start + i / DIM, out[i], 0);
+		}
+	}
+
+	private static class TestReader extends Component
+	{
+		@Override
+		public void run() {}
+
+		@Override
+		public OptionList getOptions()
+		{
+			return null;
+		}
+	}
+
+	private void checkBuffer(boolean lockFree) throws Exception
+	{
+		TimeBuffer buf = new TimeBuffer(CAPACITY, SR, DIM, Util.sizeOf(Cons.Type.FLOAT), Cons.Type.FLOAT, null, lockFree);
+		int capacity = (int) (CAPACITY * SR);
+
+		float[] in = new float[FRAME * DIM];
+		float[] out = new float[FRAME * DIM];
+
+		assertEquals(TimeBuffer.STATUS_DURATION_TOO_SMALL, buf.get(out, 0, 0));
+		assertEquals(TimeBuffer.STATUS_DURATION_TOO_LARGE, buf.get(out, 0, capacity + 1));
+
+		// write several times the capacity to exercise wrap-around
+		int frames = 5 * capacity / FRAME;
+		for (int f = 0; f < frames; f++)
+		{
+			for (int i = 0; i < in.length; i++)
+			{
+				in[i] = f * in.length + i;
+			}
+			buf.push(in, in.length * Util.sizeOf(Cons.Type.FLOAT));
+
+			assertEquals(TimeBuffer.STATUS_SUCCESS, buf.get(out, f * FRAME, FRAME));
+			for (int i = 0; i < out.length; i++)
+			{
+				assertEquals(in[i], out[i], 0);
+			}
+		}
+
+		// range which straddles the end of the ring
+		int start = frames * FRAME - capacity + FRAME / 2;
+		float[] window = new float[(capacity - FRAME) * DIM];
+		assertEquals(TimeBuffer.STATUS_SUCCESS, buf.get(window, start, capacity - FRAME));
+		for (int i = 0; i < window.length; i++)
+		{
+			assertEquals(start * DIM + i, window[i], 0);
+		}
+
+		assertEquals(TimeBuffer.STATUS_DATA_NOT_IN_BUFFER_ANYMORE, buf.get(out, 0, FRAME));
+
+		// blocked reader is released on close
+		buf.close();
+		assertEquals(TimeBuffer.STATUS_ERROR, buf.get(out, frames * FRAME, FRAME));
+	}
+
+	private double benchmark(boolean lockFree, int numReaders) throws Exception
+	{
+		final int frames = 20000;
+		final TimeBuffer buf = new TimeBuffer(CAPACITY, SR, DIM, Util.sizeOf(Cons.Type.FLOAT), Cons.Type.FLOAT, null, lockFree);
+		final AtomicLong delivered = new AtomicLong();
+
+		Thread[] readers = new Thread[numReaders];
+		for (int r = 0; r < numReaders; r++)
+		{
+			readers[r] = new Thread(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					float[] out = new float[FRAME * DIM];
+					int pos = 0;
+					while (pos < frames * FRAME)
+					{
+						int status = buf.get(out, pos, FRAME);
+						if (status == TimeBuffer.STATUS_SUCCESS)
+						{
+							delivered.incrementAndGet();
+						}
+						else if (status != TimeBuffer.STATUS_DATA_NOT_IN_BUFFER_ANYMORE)
+						{
+							return;
+						}
+						pos += FRAME;
+					}
+				}
+			});
+			readers[r].start();
+		}
+
+		float[] in = new float[FRAME * DIM];
+		long start = System.nanoTime();
+		for (int f = 0; f < frames; f++)
+		{
+			buf.push(in, in.length * Util.sizeOf(Cons.Type.FLOAT));
+		}
+		for (Thread t : readers)
+		{
+			t.join();
+		}
+		double dur = (System.nanoTime() - start) / 1E9;
+
+		buf.close();
+		return delivered.get() / dur;
+	}
+}
@@ -0,0 +1,306 @@
+/*
+ * TimerTest.java
+ * Copyright (c) 2018
+ * Authors: Ionut Damian, Michael Dietz, Frank Gaibler, Daniel Langerenken, Simon Flutura,
+ * Vitalijs Krumins, Antonio Grieco
+ * *****************************************************
+ * This file is part of the Social Signal Interpretation for Java (SSJ) framework
+ * developed at the Lab for Human Centered Multimedia of the University of Augsburg.
+ *
+ * SSJ has been inspired by the SSI (http://openssi.net) framework. SSJ is not a
+ * one-to-one port of SSI to Java, it is an approximation. Nor does SSJ pretend
+ * to offer SSI's comprehensive functionality and performance (this is java after all).
+ * Nevertheless, SSJ borrows a lot of programming patterns from SSI.
+ *
+ * This library is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 3 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package hcm.ssj;
+
+import androidx.test.filters.SmallTest;
+import androidx.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import hcm.ssj.core.Cons;
+import hcm.ssj.core.Histogram;
+import hcm.ssj.core.Log;
+import hcm.ssj.core.Scheduler;
+import hcm.ssj.core.Timer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+@SmallTest
+public class TimerTest
+{
+	// 512 samples at 44.1kHz, not a whole number of milliseconds
+	private static final double PERIOD = 512 / 44100.0;
+	private static final int TICKS = 200;
+
+	@Test
+	public void testDriftFree() throws Exception
+	{
+		Timer timer = new Timer(PERIOD);
+		timer.reset();
+
+		long start = System.nanoTime();
+		for (int i = 0; i < TICKS; i++)
+		{
+			timer.sync();
+		}
+		double elapsed = (System.nanoTime() - start) / 1E9;
+
+		// rounding the period to whole milliseconds would accumulate ~78ms here
+		assertEquals(TICKS * PERIOD, elapsed, 0.02);
+		assertTrue(timer.getMeanLateness() >= 0);
+	}
+
+	@Test
+	public void testScheduler() throws Exception
+	{
+		final int numJobs = 16;
+		final CountDownLatch done = new CountDownLatch(numJobs);
+		final int[] steps = new int[numJobs];
+		Timer[] timers = new Timer[numJobs];
+
+		Scheduler scheduler = new Scheduler(2);
+		for (int j = 0; j < numJobs; j++)
+		{
+			final int job = j;
+			timers[j] = new Timer(PERIOD);
+			timers[j].reset();
+
+			scheduler.schedule("job" + j, new Scheduler.Job()
+			{
+				@Override
+				public boolean step()
+				{
+					if (++steps[job] < TICKS)
+					{
+						return true;
+					}
+
+					done.countDown();
+					return false;
+				}
+			}, timers[j]);
+		}
+
+		assertTrue(done.await((long) (2 * TICKS * PERIOD * 1000), TimeUnit.MILLISECONDS));
+		scheduler.shutdown(1000);
+
+		for (int j = 0; j < numJobs; j++)
+		{
+			assertEquals(TICKS, steps[j]);
+			assertTrue(timers[j].getMaxLateness() < PERIOD * TICKS);
+		}
+	}
+
+	@Test
+	public void testSchedulerCancel() throws Exception
+	{
+		final CountDownLatch inStep = new CountDownLatch(1);
+		final AtomicInteger started = new AtomicInteger(0);
+		final AtomicInteger finished = new AtomicInteger(0);
+
+		Scheduler scheduler = new Scheduler(2);
+		try
+		{
+			Timer timer = new Timer(0.01);
+			timer.reset();
+			Scheduler.Job slow = new Scheduler.Job()
+			{
+				@Override
+				public boolean step()
+				{
+					started.incrementAndGet();
+					inStep.countDown();
+					try
+					{
+						Thread.sleep(100);
+					}
+					catch (InterruptedException e)
+					{
+						return false;
+					}
+					finished.incrementAndGet();
+					return true;
+				}
+			};
+			scheduler.schedule("slow", slow, timer);
+
+			// cancelling a running job waits for its step
+			assertTrue(inStep.await(1, TimeUnit.SECONDS));
+			scheduler.cancel(slow);
+			assertEquals(started.get(), finished.get());
+
+			int steps = started.get();
+			Thread.sleep(100);
+			assertEquals(steps, started.get());
+
+			// a job may cancel itself from its step
+			final AtomicInteger selfSteps = new AtomicInteger(0);
+			final Scheduler owner = scheduler;
+			Timer selfTimer = new Timer(0.01);
+			selfTimer.reset();
+			scheduler.schedule("self", new Scheduler.Job()
+			{
+				@Override
+				public boolean step()
+				{
+					selfSteps.incrementAndGet();
+					try
+					{
+						owner.cancel(this);
+					}
+					catch (InterruptedException e)
+					{
+						return false;
+					}
+					return true;
+				}
+			}, selfTimer);
+
+			Thread.sleep(100);
+			assertEquals(1, selfSteps.get());
+		}
+		finally
+		{
+			scheduler.shutdown(1000);
+		}
+	}
+
+	@Test
+	public void testSchedulerLogCaller() throws Exception
+	{
+		final CountDownLatch done = new CountDownLatch(2);
+		final ArrayList<String> messages = new ArrayList<>();
+
+		Log.LogListener listener = new Log.LogListener()
+		{
+			@Override
+			public void msg(int type, String msg)
+			{
+				synchronized (messages)
+				{
+					messages.add(msg);
+				}
+			}
+		};
+		Log.addLogListener(listener);
+
+		// both jobs share the scheduler's thread
+		Scheduler scheduler = new Scheduler(1);
+		for (int j = 0; j < 2; j++)
+		{
+			Timer timer = new Timer(PERIOD);
+			timer.reset();
+
+			scheduler.schedule("component" + j, new Scheduler.Job()
+			{
+				@Override
+				public boolean step()
+				{
+					Log.i("step");
+					done.countDown();
+					return false;
+				}
+			}, timer);
+		}
+
+		try
+		{
+			assertTrue(done.await(1, TimeUnit.SECONDS));
+		}
+		finally
+		{
+			scheduler.shutdown(1000);
+			Log.removeLogListener(listener);
+		}
+
+		synchronized (messages)
+		{
+			assertTrue(messages.contains("[component0] step"));
+			assertTrue(messages.contains("[component1] step"));
+		}
+
+		// outside of a job, the thread name identifies the caller
+		Thread thread = new Thread(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				Log.i("done");
+			}
+		}, "SSJ_worker");
+		Log.addLogListener(listener);
+		thread.start();
+		thread.join();
+		Log.removeLogListener(listener);
+
+		synchronized (messages)
+		{
+			assertEquals("[worker] done", messages.get(messages.size() - 1));
+		}
+	}
+
+	@Test
+	public void testHistogram() throws Exception
+	{
+		Histogram hist = new Histogram();
+		for (long v = 1; v <= 100000; v++)
+		{
+			hist.record(v * 1000);
+		}
+
+		assertEquals(100000, hist.getCount());
+		assertEquals(1000, hist.getMin());
+		assertEquals(100000000, hist.getMax());
+		assertEquals(50000500, hist.getMean(), 1);
+
+		// buckets are at most ~6% wide
+		assertEquals(50000000, hist.getPercentile(50), 50000000 * 0.07);
+		assertEquals(99000000, hist.getPercentile(99), 99000000 * 0.07);
+		assertEquals(hist.getMax(), hist.getPercentile(100));
+
+		hist.reset();
+		assertEquals(0, hist.getCount());
+		assertEquals(0, hist.getPercentile(50));
+	}
+
+	@Test
+	public void testMissedDeadlines() throws Exception
+	{
+		Timer timer = new Timer(0.001);
+		timer.reset();
+
+		// a tick counts as missed if it is processed more than one interval plus TIMER_SYNC_ACCURACY too late
+		for (int i = 0; i < 3; i++)
+		{
+			Thread.sleep(Cons.TIMER_SYNC_ACCURACY + 50);
+			timer.sync();
+		}
+
+		assertTrue(timer.getMissed() > 0);
+		timer.reset();
+		assertEquals(0, timer.getMissed());
+	}
+}
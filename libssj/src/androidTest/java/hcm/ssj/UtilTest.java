@@ -37,9 +37,15 @@ import org.xmlpull.v1.XmlPullParser;
 
 import java.io.StringReader;
 import java.util.Arrays;
+import java.util.Random;
 
+import hcm.ssj.core.AsciiFormatter;
 import hcm.ssj.core.Log;
 import hcm.ssj.core.Util;
+import hcm.ssj.core.event.FloatEvent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 
 @RunWith(AndroidJUnit4.class)
@@ -215,4 +221,76 @@ public class UtilTest
 
 		Log.i("output: " + Util.xmlToString(xml));
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void testAsciiFormatter() throws Exception
+	{
+		AsciiFormatter f = new AsciiFormatter(16);
+
+		long[] longs = new long[]{0, 7, -7, 1234567890123L, Long.MAX_VALUE, Long.MIN_VALUE};
+		for (long v : longs)
+		{
+			assertEquals(Long.toString(v), f.clear().append(v).toString());
+		}
+
+		// shortest representation matches StringBuilder
+		float[] floats = new float[]{0f, -0.0f, -0.5f, 3.14159f, 0.001f, 100f, 1e7f, 1e-8f, 1e20f, Float.MAX_VALUE, Float.NaN, Float.NEGATIVE_INFINITY};
+		for (float v : floats)
+		{
+			assertEquals(new StringBuilder().append(v).toString(), f.clear().append(v).toString());
+		}
+		double[] doubles = new double[]{0.0, -0.1, 0.1 + 0.2, 1.5e-5, 123456.789, 1e300, Double.MIN_VALUE, Double.POSITIVE_INFINITY};
+		for (double v : doubles)
+		{
+			assertEquals(new StringBuilder().append(v).toString(), f.clear().append(v).toString());
+		}
+
+		// and reads back as the same value, in the same notation
+		Random random = new Random(1);
+		for (int i = 0; i < 100000; i++)
+		{
+			float v = Float.intBitsToFloat(random.nextInt());
+			if (!Float.isNaN(v))
+			{
+				String text = f.clear().append(v).toString();
+				assertEquals(v, Float.parseFloat(text), 0);
+				assertEquals(Float.toString(v).contains("E"), text.contains("E"));
+				assertTrue(text.length() <= Float.toString(v).length());
+			}
+
+			double d = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(20) - 10);
+			assertEquals(d, Double.parseDouble(f.clear().append(d).toString()), 0);
+		}
+
+		// fixed precision
+		f.setPrecision(3);
+		assertEquals("3.142", f.clear().append(3.14159f).toString());
+		assertEquals("-0.050", f.clear().append(-0.05).toString());
+		assertEquals("0.000", f.clear().append(-0.0001).toString());
+		assertEquals("100.000", f.clear().append(99.9999).toString());
+		assertEquals("1.0E20", f.clear().append(1e20).toString());
+
+		f.setPrecision(0);
+		assertEquals("-3", f.clear().append(-2.5f).toString());
+
+		for (int i = 0; i < 1000; i++)
+		{
+			double v = (Math.random() - 0.5) * 1000;
+			f.setPrecision(6);
+			assertEquals(v, Double.parseDouble(f.clear().append(v).toString()), 1e-6);
+		}
+
+		// non-ASCII text
+		assertEquals("gr\u00fc\u00dfe 1", f.clear().append("gr\u00fc\u00dfe").append(' ').append(1).toString());
+
+		// events are formatted alike into both builders
+		FloatEvent ev = new FloatEvent(new float[]{0.1f, -2.5f, 1e-5f});
+		ev.name = "acc";
+		ev.sender = "sensor";
+		StringBuilder builder = new StringBuilder();
+		Util.eventToXML(builder, ev, true, new String[]{"x", "y"});
+		f.setPrecision(-1);
+		Util.eventToXML(f.clear(), ev, true, new String[]{"x", "y"});
+		assertEquals(builder.toString(), f.toString());
+	}
+}
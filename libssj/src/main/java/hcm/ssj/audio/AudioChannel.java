@@ -75,6 +75,7 @@ public class AudioChannel extends SensorChannel
     public AudioChannel()
     {
         _name = "Microphone_Audio";
+        _blockingProcess = true;
     }
 
     @Override
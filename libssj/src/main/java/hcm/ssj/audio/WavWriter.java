@@ -52,6 +52,7 @@ import hcm.ssj.core.option.FolderPath;
 import hcm.ssj.core.option.Option;
 import hcm.ssj.core.option.OptionList;
 import hcm.ssj.core.stream.Stream;
+import hcm.ssj.file.AsyncWriter;
 import hcm.ssj.file.FileCons;
 import hcm.ssj.file.IFileWriter;
 
@@ -93,6 +94,7 @@ public class WavWriter extends Consumer implements IFileWriter
     //
     protected File file = null;
     private BufferedOutputStream outputStream;
+    private AsyncWriter asyncWriter = null;
 
     public final WavWriter.Options options = new WavWriter.Options();
     //
@@ -106,7 +108,7 @@ public class WavWriter extends Consumer implements IFileWriter
     /**
      * All options for the audio writer
      */
-    public class Options extends IFileWriter.Options
+    public class Options extends IFileWriter.AsyncOptions
     {
         public final Option<Cons.AudioFormat> audioFormat = new Option<>("audioFormat", Cons.AudioFormat.ENCODING_DEFAULT, Cons.AudioFormat.class, "");
 
@@ -190,7 +192,14 @@ public class WavWriter extends Consumer implements IFileWriter
 
         try
         {
-            outputStream = new BufferedOutputStream(new FileOutputStream(file));
+            if (options.async.get())
+            {
+                asyncWriter = new AsyncWriter(file, options.asyncBufferSize.get(), options.asyncBuffers.get());
+            }
+            else
+            {
+                outputStream = new BufferedOutputStream(new FileOutputStream(file));
+            }
         } catch (IOException ex)
         {
             throw new SSJFatalException("RawEncoder creation failed: " + ex.getMessage());
@@ -266,6 +275,11 @@ public class WavWriter extends Consumer implements IFileWriter
     @Override
     public final void flush(Stream stream_in[]) throws SSJFatalException
     {
+        if (asyncWriter != null)
+        {
+            asyncWriter.close();
+            asyncWriter = null;
+        }
         if (outputStream != null)
         {
             try
@@ -276,6 +290,7 @@ public class WavWriter extends Consumer implements IFileWriter
             {
                 Log.e("RawEncoder closing: " + ex.getMessage());
             }
+            outputStream = null;
         }
 
         try
@@ -320,6 +335,12 @@ public class WavWriter extends Consumer implements IFileWriter
      */
     protected final void write(byte[] frameData)
     {
+        if (asyncWriter != null)
+        {
+            asyncWriter.write(frameData);
+            return;
+        }
+
         try
         {
             outputStream.write(frameData, 0, frameData.length);
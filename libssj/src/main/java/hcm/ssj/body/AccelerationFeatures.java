@@ -37,9 +37,15 @@ import hcm.ssj.core.Util;
 import hcm.ssj.core.option.Option;
 import hcm.ssj.core.option.OptionList;
 import hcm.ssj.core.stream.Stream;
+import hcm.ssj.signal.FFTCache;
+import hcm.ssj.signal.FFTfeat;
 import hcm.ssj.signal.MathTools;
+import hcm.ssj.signal.Statistics;
 
 /**
+ * Computes features of a three axis acceleration stream. The magnitude spectrum of the frame
+ * can be passed as second input (FFTfeat on the same stream and frame), otherwise it is computed here.
+ *
  * Created by Michael Dietz on 18.10.2016.
  */
 
@@ -123,6 +129,10 @@ public class AccelerationFeatures extends Transformer
 	float[] yValues;
 	float[] zValues;
 
+	Statistics xStats;
+	Statistics yStats;
+	Statistics zStats;
+
 	float[] joined;
 	float[] psd;
 	float[] xValuesFFT;
@@ -134,32 +144,60 @@ public class AccelerationFeatures extends Transformer
 	{
 		int values = stream_in[0].num;
 
-		fft = new FloatFFT_1D(values);
+		fft = FFTCache.getInstance().get(values);
 		inputCopy = new float[values];
 
 		xValues = new float[values];
 		yValues = new float[values];
 		zValues = new float[values];
 
+		xStats = new Statistics(values);
+		yStats = new Statistics(values);
+		zStats = new Statistics(values);
+
 		joined = new float[(values >> 1) + 1];
 		psd = new float[(values >> 1) + 1];
 		xValuesFFT = new float[(values >> 1) + 1];
 		yValuesFFT = new float[(values >> 1) + 1];
 		zValuesFFT = new float[(values >> 1) + 1];
+
+		if (stream_in.length > 1)
+		{
+			//spectrum of the same frame, one sample of n/2 + 1 bins per axis
+			if (stream_in[1].num != 1 || stream_in[1].dim != 3 * xValuesFFT.length || stream_in[1].type != Cons.Type.FLOAT)
+			{
+				throw new SSJFatalException("input spectrum does not match the acceleration frame (" + stream_in[1].num + "x" + stream_in[1].dim + ")");
+			}
+			if (stream_in[1].source instanceof FFTfeat && ((FFTfeat) stream_in[1].source).options.power.get())
+			{
+				throw new SSJFatalException("input spectrum must hold magnitudes, disable power of FFTfeat");
+			}
+		}
 	}
 
 	@Override
 	public void transform(Stream[] stream_in, Stream stream_out) throws SSJFatalException
 	{
-		MathTools math = MathTools.getInstance();
-
 		getValues(stream_in[0], 0, xValues);
 		getValues(stream_in[0], 1, yValues);
 		getValues(stream_in[0], 2, zValues);
 
-		calculateFFT(xValues, xValuesFFT);
-		calculateFFT(yValues, yValuesFFT);
-		calculateFFT(zValues, zValuesFFT);
+		xStats.compute(xValues);
+		yStats.compute(yValues);
+		zStats.compute(zValues);
+
+		if (stream_in.length > 1)
+		{
+			getBins(stream_in[1], 0, xValuesFFT);
+			getBins(stream_in[1], 1, yValuesFFT);
+			getBins(stream_in[1], 2, zValuesFFT);
+		}
+		else
+		{
+			calculateFFT(xValues, xValuesFFT);
+			calculateFFT(yValues, yValuesFFT);
+			calculateFFT(zValues, zValuesFFT);
+		}
 
 		float[] out = stream_out.ptrF();
 
@@ -167,27 +205,27 @@ public class AccelerationFeatures extends Transformer
 
 		if (options.meanX.get())
 		{
-			out[featureCount++] = math.getMean(xValues);
+			out[featureCount++] = xStats.getMean();
 		}
 		if (options.meanY.get())
 		{
-			out[featureCount++] = math.getMean(yValues);
+			out[featureCount++] = yStats.getMean();
 		}
 		if (options.meanZ.get())
 		{
-			out[featureCount++] = math.getMean(zValues);
+			out[featureCount++] = zStats.getMean();
 		}
 		if (options.stdDeviationX.get())
 		{
-			out[featureCount++] = math.getStdDeviation(xValues);
+			out[featureCount++] = xStats.getStdDeviation();
 		}
 		if (options.stdDeviationY.get())
 		{
-			out[featureCount++] = math.getStdDeviation(yValues);
+			out[featureCount++] = yStats.getStdDeviation();
 		}
 		if (options.stdDeviationZ.get())
 		{
-			out[featureCount++] = math.getStdDeviation(zValues);
+			out[featureCount++] = zStats.getStdDeviation();
 		}
 		if (options.energyX.get())
 		{
@@ -203,15 +241,15 @@ public class AccelerationFeatures extends Transformer
 		}
 		if (options.correlationXY.get())
 		{
-			out[featureCount++] = getCorrelation(xValues, yValues);
+			out[featureCount++] = getCorrelation(xValues, yValues, xStats, yStats);
 		}
 		if (options.correlationXZ.get())
 		{
-			out[featureCount++] = getCorrelation(xValues, zValues);
+			out[featureCount++] = getCorrelation(xValues, zValues, xStats, zStats);
 		}
 		if (options.correlationYZ.get())
 		{
-			out[featureCount++] = getCorrelation(yValues, zValues);
+			out[featureCount++] = getCorrelation(yValues, zValues, yStats, zStats);
 		}
 		if (options.displacementX.get())
 		{
@@ -239,75 +277,75 @@ public class AccelerationFeatures extends Transformer
 		}
 		if (options.skewX.get())
 		{
-			out[featureCount++] = math.getSkew(xValues);
+			out[featureCount++] = xStats.getSkew();
 		}
 		if (options.skewY.get())
 		{
-			out[featureCount++] = math.getSkew(yValues);
+			out[featureCount++] = yStats.getSkew();
 		}
 		if (options.skewZ.get())
 		{
-			out[featureCount++] = math.getSkew(zValues);
+			out[featureCount++] = zStats.getSkew();
 		}
 		if (options.kurtosisX.get())
 		{
-			out[featureCount++] = math.getKurtosis(xValues);
+			out[featureCount++] = xStats.getKurtosis();
 		}
 		if (options.kurtosisY.get())
 		{
-			out[featureCount++] = math.getKurtosis(yValues);
+			out[featureCount++] = yStats.getKurtosis();
 		}
 		if (options.kurtosisZ.get())
 		{
-			out[featureCount++] = math.getKurtosis(zValues);
+			out[featureCount++] = zStats.getKurtosis();
 		}
 		if (options.iqrX.get())
 		{
-			out[featureCount++] = math.getIQR(xValues);
+			out[featureCount++] = xStats.getIQR();
 		}
 		if (options.iqrY.get())
 		{
-			out[featureCount++] = math.getIQR(yValues);
+			out[featureCount++] = yStats.getIQR();
 		}
 		if (options.iqrZ.get())
 		{
-			out[featureCount++] = math.getIQR(zValues);
+			out[featureCount++] = zStats.getIQR();
 		}
 		if (options.madX.get())
 		{
-			out[featureCount++] = math.getMAD(xValues);
+			out[featureCount++] = xStats.getMAD();
 		}
 		if (options.madY.get())
 		{
-			out[featureCount++] = math.getMAD(yValues);
+			out[featureCount++] = yStats.getMAD();
 		}
 		if (options.madZ.get())
 		{
-			out[featureCount++] = math.getMAD(zValues);
+			out[featureCount++] = zStats.getMAD();
 		}
 		if (options.rmsX.get())
 		{
-			out[featureCount++] = math.getRMS(xValues);
+			out[featureCount++] = xStats.getRMS();
 		}
 		if (options.rmsY.get())
 		{
-			out[featureCount++] = math.getRMS(yValues);
+			out[featureCount++] = yStats.getRMS();
 		}
 		if (options.rmsZ.get())
 		{
-			out[featureCount++] = math.getRMS(zValues);
+			out[featureCount++] = zStats.getRMS();
 		}
 		if (options.varianceX.get())
 		{
-			out[featureCount++] = math.getVariance(xValues);
+			out[featureCount++] = xStats.getVariance();
 		}
 		if (options.varianceY.get())
 		{
-			out[featureCount++] = math.getVariance(yValues);
+			out[featureCount++] = yStats.getVariance();
 		}
 		if (options.varianceZ.get())
 		{
-			out[featureCount++] = math.getVariance(zValues);
+			out[featureCount++] = zStats.getVariance();
 		}
 		if (options.signalMagnitudeArea.get())
 		{
@@ -339,15 +377,15 @@ public class AccelerationFeatures extends Transformer
 		}
 		if (options.crestX.get())
 		{
-			out[featureCount++] = math.getCrest(xValues);
+			out[featureCount++] = xStats.getCrest();
 		}
 		if (options.crestY.get())
 		{
-			out[featureCount++] = math.getCrest(yValues);
+			out[featureCount++] = yStats.getCrest();
 		}
 		if (options.crestZ.get())
 		{
-			out[featureCount++] = math.getCrest(zValues);
+			out[featureCount++] = zStats.getCrest();
 		}
 		if (options.spectralFluxX.get())
 		{
@@ -419,19 +457,17 @@ public class AccelerationFeatures extends Transformer
 	* Bao, Ling et al. - Activity Recognition from User-Annotated Acceleration Data
 	* Ravi, N. et al. - Activity recognition from accelerometer data
 	*/
-	private float getCorrelation(float[] aValues, float[] bValues)
+	private float getCorrelation(float[] aValues, float[] bValues, Statistics aStats, Statistics bStats)
 	{
-		MathTools math = MathTools.getInstance();
-
 		float correlation = 0;
 		float covariance = 0;
 
 		if (aValues.length > 0 && bValues.length > 0)
 		{
-			float meanA = math.getMean(aValues);
-			float meanB = math.getMean(bValues);
-			float stdDeviationA = math.getStdDeviation(aValues);
-			float stdDeviationB = math.getStdDeviation(bValues);
+			float meanA = aStats.getMean();
+			float meanB = bStats.getMean();
+			float stdDeviationA = aStats.getStdDeviation();
+			float stdDeviationB = bStats.getStdDeviation();
 
 			for (int i = 0; i < aValues.length; i++)
 			{
@@ -755,6 +791,17 @@ public class AccelerationFeatures extends Transformer
 		}
 	}
 
+	private void getBins(Stream spectrum, int dimension, float[] out)
+	{
+		float[] in = spectrum.ptrF();
+
+		//bins of the three axes are interleaved
+		for (int i = 0; i < out.length; i++)
+		{
+			out[i] = in[i * 3 + dimension];
+		}
+	}
+
 	private void calculateFFT(float[] values, float[] out)
 	{
 		System.arraycopy(values, 0, inputCopy, 0, values.length);
@@ -37,6 +37,7 @@ import android.os.Build;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 
+import hcm.ssj.core.BufferView;
 import hcm.ssj.core.Cons;
 import hcm.ssj.core.Log;
 import hcm.ssj.core.SSJFatalException;
@@ -110,6 +111,7 @@ public class CameraWriter extends Mp4Writer
     public CameraWriter()
     {
         _name = this.getClass().getSimpleName();
+        _useBufferViews = true;
     }
 
     /**
@@ -189,6 +191,37 @@ public class CameraWriter extends Mp4Writer
         }
     }
 
+    /**
+     * Encodes frames directly from the pipeline buffer, avoiding the copy into the input stream
+     *
+     * @param views BufferView[]
+     * @param trigger Event trigger
+     */
+    @Override
+    protected final void consume(BufferView[] views, Event trigger) throws SSJFatalException
+    {
+        byte[] in = (byte[]) views[0].array();
+        for (int s = 0; s < views[0].segments(); s++)
+        {
+            int end = views[0].offset(s) + views[0].length(s);
+            for (int i = views[0].offset(s); i < end; i += aByShuffle.length)
+            {
+                System.arraycopy(in, i, aByShuffle, 0, aByShuffle.length);
+
+                try
+                {
+                    encode(aByShuffle);
+                }
+                catch (IOException e)
+                {
+                    throw new SSJFatalException("exception during encoding", e);
+                }
+
+                save(false);
+            }
+        }
+    }
+
     /**
      * @param stream_in Stream[]
      */
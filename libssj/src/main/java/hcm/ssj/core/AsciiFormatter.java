@@ -0,0 +1,409 @@
+/*
+ * AsciiFormatter.java
+ * Copyright (c) 2018
+ * Authors: Ionut Damian, Michael Dietz, Frank Gaibler, Daniel Langerenken, Simon Flutura,
+ * Vitalijs Krumins, Antonio Grieco
+ * *****************************************************
+ * This file is part of the Social Signal Interpretation for Java (SSJ) framework
+ * developed at the Lab for Human Centered Multimedia of the University of Augsburg.
+ *
+ * SSJ has been inspired by the SSI (http://openssi.net) framework. SSJ is not a
+ * one-to-one port of SSI to Java, it is an approximation. Nor does SSJ pretend
+ * to offer SSI's comprehensive functionality and performance (this is java after all).
+ * Nevertheless, SSJ borrows a lot of programming patterns from SSI.
+ *
+ * This library is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 3 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package hcm.ssj.core;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Formats text directly into a reusable byte array (UTF-8), used to write ASCII files and XML events
+ * without creating intermediate strings.
+ *
+ * Floating point values are written with a fixed number of decimal places if a precision is set,
+ * otherwise as the shortest decimal which reads back as the same value, in the notation of Float.toString/Double.toString.
+ */
+public class AsciiFormatter
+{
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final long[] POW10 = {1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L, 1000000000L};
+    /** maximum number of decimal places of the fixed point encoding */
+    public static final int MAX_PRECISION = POW10.length - 1;
+    /** powers of ten which are exact in double precision */
+    private static final double[] POW10D = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+                                            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    private byte[] buffer;
+    private final byte[] digits = new byte[20];
+    private int length = 0;
+    private int precision = -1;
+
+    public AsciiFormatter()
+    {
+        this(256);
+    }
+
+    /**
+     * @param capacity initial capacity in bytes, grows if needed
+     */
+    public AsciiFormatter(int capacity)
+    {
+        buffer = new byte[Math.max(16, capacity)];
+    }
+
+    /**
+     * @param precision number of decimal places for floating point values, -1 for the shortest representation
+     */
+    public void setPrecision(int precision)
+    {
+        this.precision = Math.min(precision, MAX_PRECISION);
+    }
+
+    public int getPrecision()
+    {
+        return precision;
+    }
+
+    public AsciiFormatter clear()
+    {
+        length = 0;
+        return this;
+    }
+
+    /**
+     * @return number of bytes written
+     */
+    public int length()
+    {
+        return length;
+    }
+
+    /**
+     * @return backing array, valid up to {@link #length()}
+     */
+    public byte[] array()
+    {
+        return buffer;
+    }
+
+    public void writeTo(OutputStream stream) throws IOException
+    {
+        stream.write(buffer, 0, length);
+    }
+
+    public AsciiFormatter append(char c)
+    {
+        if (c < 0x80)
+        {
+            ensure(1);
+            buffer[length++] = (byte) c;
+            return this;
+        }
+        return append(String.valueOf(c));
+    }
+
+    public AsciiFormatter append(String s)
+    {
+        if (s == null)
+        {
+            return append("null");
+        }
+
+        int len = s.length();
+        ensure(len);
+        for (int i = 0; i < len; i++)
+        {
+            char c = s.charAt(i);
+            if (c >= 0x80)
+            {
+                //not ASCII, encode the remainder
+                byte[] bytes = s.substring(i).getBytes(UTF8);
+                ensure(bytes.length);
+                System.arraycopy(bytes, 0, buffer, length, bytes.length);
+                length += bytes.length;
+                return this;
+            }
+            buffer[length++] = (byte) c;
+        }
+        return this;
+    }
+
+    public AsciiFormatter append(Object o)
+    {
+        return append(String.valueOf(o));
+    }
+
+    public AsciiFormatter append(boolean b)
+    {
+        return append(b ? "true" : "false");
+    }
+
+    public AsciiFormatter append(int value)
+    {
+        return append((long) value);
+    }
+
+    public AsciiFormatter append(long value)
+    {
+        if (value == Long.MIN_VALUE)
+        {
+            return append(Long.toString(value));
+        }
+
+        ensure(20);
+        if (value < 0)
+        {
+            buffer[length++] = '-';
+            value = -value;
+        }
+
+        int digits = 1;
+        for (long v = value / 10; v != 0; v /= 10)
+        {
+            digits++;
+        }
+
+        int pos = length + digits;
+        do
+        {
+            buffer[--pos] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        while (value != 0);
+
+        length += digits;
+        return this;
+    }
+
+    /**
+     * Writes a float with the precision of the formatter
+     */
+    public AsciiFormatter append(float value)
+    {
+        if (precision < 0)
+        {
+            return appendShortest(value, true);
+        }
+        return appendFixed(value, precision);
+    }
+
+    /**
+     * Writes a double with the precision of the formatter
+     */
+    public AsciiFormatter append(double value)
+    {
+        if (precision < 0)
+        {
+            return appendShortest(value, false);
+        }
+        return appendFixed(value, precision);
+    }
+
+    /**
+     * Writes the shortest decimal which reads back as the same value, e.g. 0.1 or 1.0E-5.
+     * Candidates are checked with a single exact multiplication or division, doubles which need
+     * more than 15 significant digits fall back to Double.toString.
+     *
+     * @param single value is a float
+     */
+    private AsciiFormatter appendShortest(double value, boolean single)
+    {
+        if (Double.isNaN(value))
+        {
+            return append("NaN");
+        }
+        if (Double.isInfinite(value))
+        {
+            return append(value > 0 ? "Infinity" : "-Infinity");
+        }
+        if (value == 0)
+        {
+            return append(1 / value < 0 ? "-0.0" : "0.0");
+        }
+
+        double abs = Math.abs(value);
+        int exp = (int) Math.floor(Math.log10(abs));
+        int maxDigits = single ? 9 : 15;
+
+        //with fewer digits than the type resolves, rounding yields the shortest representation padded with zeros
+        int minDigits = single ? (abs < Float.MIN_NORMAL ? 1 : 6) : 15;
+
+        for (int n = minDigits; n <= maxDigits; n++)
+        {
+            //scale the value to n digits before the decimal point
+            int scale = n - 1 - exp;
+            if (!single && (scale > 22 || scale < -22))
+            {
+                break;
+            }
+
+            long mantissa = Math.round(scale >= 0 ? abs * pow10(scale) : abs / pow10(-scale));
+            double candidate = scale >= 0 ? mantissa / pow10(scale) : mantissa * pow10(-scale);
+
+            if (single ? (float) candidate == (float) abs : candidate == abs)
+            {
+                return appendDecimal(value < 0, mantissa, scale, abs >= 1e-3 && abs < 1e7);
+            }
+        }
+
+        return append(single ? Float.toString((float) value) : Double.toString(value));
+    }
+
+    /**
+     * Writes mantissa * 10^-scale in plain or scientific notation, with at least one decimal place
+     */
+    private AsciiFormatter appendDecimal(boolean negative, long mantissa, int scale, boolean plain)
+    {
+        while (mantissa % 10 == 0)
+        {
+            mantissa /= 10;
+            scale--;
+        }
+
+        int n = 0;
+        for (long m = mantissa; m != 0; m /= 10)
+        {
+            n++;
+        }
+        for (int i = n - 1; i >= 0; i--)
+        {
+            digits[i] = (byte) ('0' + mantissa % 10);
+            mantissa /= 10;
+        }
+
+        //exponent of the first digit
+        int exp = n - 1 - scale;
+
+        ensure(n + 32);
+        if (negative)
+        {
+            buffer[length++] = '-';
+        }
+
+        if (!plain)
+        {
+            buffer[length++] = digits[0];
+            buffer[length++] = '.';
+            if (n > 1)
+            {
+                System.arraycopy(digits, 1, buffer, length, n - 1);
+                length += n - 1;
+            }
+            else
+            {
+                buffer[length++] = '0';
+            }
+            buffer[length++] = 'E';
+            return append(exp);
+        }
+
+        if (exp < 0)
+        {
+            buffer[length++] = '0';
+            buffer[length++] = '.';
+            for (int i = exp + 1; i < 0; i++)
+            {
+                buffer[length++] = '0';
+            }
+            System.arraycopy(digits, 0, buffer, length, n);
+            length += n;
+            return this;
+        }
+
+        for (int i = 0; i <= exp; i++)
+        {
+            buffer[length++] = (i < n) ? digits[i] : (byte) '0';
+        }
+        buffer[length++] = '.';
+        if (n - 1 > exp)
+        {
+            System.arraycopy(digits, exp + 1, buffer, length, n - 1 - exp);
+            length += n - 1 - exp;
+        }
+        else
+        {
+            buffer[length++] = '0';
+        }
+        return this;
+    }
+
+    private static double pow10(int exp)
+    {
+        return (exp < POW10D.length) ? POW10D[exp] : Math.pow(10, exp);
+    }
+
+    /**
+     * Writes a value with a fixed number of decimal places, e.g. 3.14159 with 3 decimals as 3.142
+     *
+     * @param value value
+     * @param decimals number of decimal places (0 to MAX_PRECISION)
+     * @return this
+     */
+    public AsciiFormatter appendFixed(double value, int decimals)
+    {
+        long scale = POW10[decimals];
+        double scaled = Math.abs(value) * scale;
+
+        if (Double.isNaN(value) || Double.isInfinite(value) || scaled >= 9E18)
+        {
+            return append(Double.toString(value));
+        }
+
+        long digits = Math.round(scaled);
+        if (value < 0 && digits != 0)
+        {
+            append('-');
+        }
+
+        append(digits / scale);
+
+        if (decimals > 0)
+        {
+            ensure(decimals + 1);
+            buffer[length++] = '.';
+
+            long frac = digits % scale;
+            for (int i = decimals - 1; i >= 0; i--)
+            {
+                buffer[length + i] = (byte) ('0' + frac % 10);
+                frac /= 10;
+            }
+            length += decimals;
+        }
+        return this;
+    }
+
+    /**
+     * @return content decoded as UTF-8
+     */
+    @Override
+    public String toString()
+    {
+        return new String(buffer, 0, length, UTF8);
+    }
+
+    private void ensure(int n)
+    {
+        if (length + n > buffer.length)
+        {
+            byte[] tmp = new byte[Math.max(buffer.length * 2, length + n)];
+            System.arraycopy(buffer, 0, tmp, 0, length);
+            buffer = tmp;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * BufferView.java
+ * Copyright (c) 2018
+ * Authors: Ionut Damian, Michael Dietz, Frank Gaibler, Daniel Langerenken, Simon Flutura,
+ * Vitalijs Krumins, Antonio Grieco
+ * *****************************************************
+ * This file is part of the Social Signal Interpretation for Java (SSJ) framework
+ * developed at the Lab for Human Centered Multimedia of the University of Augsburg.
+ *
+ * SSJ has been inspired by the SSI (http://openssi.net) framework. SSJ is not a
+ * one-to-one port of SSI to Java, it is an approximation. Nor does SSJ pretend
+ * to offer SSI's comprehensive functionality and performance (this is java after all).
+ * Nevertheless, SSJ borrows a lot of programming patterns from SSI.
+ *
+ * This library is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 3 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package hcm.ssj.core;
+
+import hcm.ssj.core.stream.Stream;
+
+/**
+ * Read-only window into the storage of a TimeBuffer.
+ * The window consists of one segment, or of two segments if it wraps around the end of the ring.
+ * Offsets and lengths are given in elements of the backing array (see {@link #array()}).
+ *
+ * While a view is acquired the region is pinned: the producer blocks instead of overwriting it.
+ * Views must therefore be released as soon as possible and must never be written to.
+ */
+public class BufferView
+{
+    Object data = null;
+    TimeBuffer owner = null;
+    int pin = -1;
+
+    int segments = 0;
+    final int[] offset = new int[2];
+    final int[] length = new int[2];
+
+    /** time of the first sample in the view (in seconds) */
+    public double time = 0;
+    /** number of samples in the view */
+    public int num = 0;
+
+    /**
+     * @return backing array of the time buffer, e.g. float[] for float streams
+     */
+    public Object array()
+    {
+        return data;
+    }
+
+    /**
+     * @return 1 if the window is contiguous, 2 if it wraps around the end of the ring
+     */
+    public int segments()
+    {
+        return segments;
+    }
+
+    /**
+     * @param segment index of the segment
+     * @return offset of the segment within the backing array (in elements)
+     */
+    public int offset(int segment)
+    {
+        return offset[segment];
+    }
+
+    /**
+     * @param segment index of the segment
+     * @return length of the segment (in elements)
+     */
+    public int length(int segment)
+    {
+        return length[segment];
+    }
+
+    /**
+     * @return true if the view currently pins a region of a time buffer
+     */
+    public boolean isAcquired()
+    {
+        return owner != null;
+    }
+
+    /**
+     * Copies the content of the view into a stream, used if a component does not process views directly
+     *
+     * @param stream destination stream, must be of the same type as the time buffer
+     */
+    public void copyTo(Stream stream)
+    {
+        Object dst = stream.ptr();
+        int dstPos = 0;
+        for (int i = 0; i < segments; i++)
+        {
+            if (dst.getClass() == data.getClass())
+                System.arraycopy(data, offset[i], dst, dstPos, length[i]);
+            else //byte storage, deserialize into typed stream (offsets are in bytes)
+                Util.arraycopy(data, offset[i], dst, dstPos, length[i]);
+
+            dstPos += length[i];
+        }
+        stream.time = time;
+    }
+
+    /**
+     * Unpins the region, the view becomes invalid afterwards
+     */
+    public void release()
+    {
+        if (owner != null)
+            owner.release(this);
+    }
+}
@@ -28,6 +28,8 @@
 package hcm.ssj.core;
 
 import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import hcm.ssj.core.option.OptionList;
 
@@ -38,8 +40,8 @@ public abstract class Component implements Runnable
 {
     protected String _name = "Component";
 
-    protected boolean _terminate = false;
-    protected boolean _safeToKill = false;
+    protected volatile boolean _terminate = false;
+    protected volatile boolean _safeToKill = false;
     protected boolean _isSetup = false;
 
     protected ArrayList<EventChannel> _evchannel_in = null;
@@ -47,12 +49,22 @@ public abstract class Component implements Runnable
 
     public int threadPriority = Cons.THREAD_PRIORIIY_HIGH;
 
+    final Metrics.Probe _probe = new Metrics.Probe(this);
+
+    //released once the component has stopped processing
+    private volatile CountDownLatch _stopped = new CountDownLatch(0);
+    private final Object _terminateLock = new Object();
+
     public void close()
     {
         Pipeline frame = Pipeline.getInstance();
         Log.i(_name + " shutting down");
 
         _terminate = true;
+        synchronized (_terminateLock)
+        {
+            _terminateLock.notifyAll();
+        }
 
         if(_evchannel_in != null)
             for(EventChannel ch : _evchannel_in)
@@ -60,23 +72,70 @@ public abstract class Component implements Runnable
 
         if(_evchannel_out != null) _evchannel_out.close();
 
-        double time = frame.getTime();
-        while(!_safeToKill)
+        boolean stopped = _safeToKill;
+        try {
+            if(!stopped)
+                stopped = _stopped.await((long)(frame.options.waitThreadKill.get() * 1000), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Log.w("thread interrupt");
+        }
+
+        if(!stopped && !_safeToKill)
+        {
+            Log.w(_name + " force-killed thread");
+            forcekill();
+        }
+        Log.i(_name + " shut down completed");
+    }
+
+    /**
+     * Signals that the component has stopped processing and its thread can be safely killed
+     */
+    protected void setSafeToKill()
+    {
+        _safeToKill = true;
+        _stopped.countDown();
+
+        //producers blocking on this component's reads must not wait for it any longer
+        Pipeline.getInstance().wakeProducers();
+    }
+
+    /**
+     * Blocks until the component is closed or the timeout elapsed
+     *
+     * @param timeout maximum time to wait in ms
+     */
+    protected void waitForTermination(long timeout)
+    {
+        synchronized (_terminateLock)
         {
+            if(_terminate)
+                return;
+
             try {
-                Thread.sleep(Cons.SLEEP_IN_LOOP);
+                _terminateLock.wait(timeout);
             } catch (InterruptedException e) {
                 Log.w("thread interrupt");
             }
-
-            if(frame.getTime() > time + frame.options.waitThreadKill.get())
-            {
-                Log.w(_name + " force-killed thread");
-                forcekill();
-                break;
-            }
         }
-        Log.i(_name + " shut down completed");
+    }
+
+    /**
+     * Called by the thread pool before the component is executed
+     */
+    void onExecute()
+    {
+        _stopped = new CountDownLatch(1);
+    }
+
+    /**
+     * Called by the thread pool once the run method returned
+     */
+    void onExit()
+    {
+        //components handing over to the scheduler keep running after run() returned
+        if(_safeToKill)
+            _stopped.countDown();
     }
 
     public void forcekill()
@@ -89,6 +148,38 @@ public abstract class Component implements Runnable
         return _name;
     }
 
+    /**
+     * @return timer which paces the component, null if the component is not paced
+     */
+    public Timer getTimer()
+    {
+        return null;
+    }
+
+    /**
+     * @return readers of the component's stream inputs, null if the component does not continuously read streams
+     */
+    TimeBuffer.Reader[] getReaders()
+    {
+        return null;
+    }
+
+    /**
+     * @return how far the slowest stream input lags behind its source (in seconds), 0 if the component has no stream inputs
+     */
+    double getInputLag()
+    {
+        return 0;
+    }
+
+    /**
+     * @return fill level of the fullest input buffer (0 - 1), 0 if the component has no stream inputs
+     */
+    double getInputFill()
+    {
+        return 0;
+    }
+
     void addEventChannelIn(EventChannel channel)
     {
         if(_evchannel_in == null)
@@ -117,6 +208,8 @@ public abstract class Component implements Runnable
     {
         _terminate = false;
         _safeToKill = false;
+
+        Pipeline.getInstance().getMetrics().register(_probe);
         
         if(_evchannel_in != null)
             for(EventChannel ch : _evchannel_in)
@@ -42,6 +42,7 @@ public abstract class Consumer extends Component {
 
     private Stream[] _stream_in;
     private int[] _readPos = null;
+    private TimeBuffer.Reader[] _readers = null;
     private int[] _bufferID_in;
 
     private int[] _num_frame;
@@ -51,8 +52,12 @@ public abstract class Consumer extends Component {
 
     private Timer _timer;
 
+    private BufferView[] _views;
+
     protected Pipeline _frame;
     protected boolean _doWakeLock = true;
+    //read input through views on the source buffers instead of copying it into the input streams
+    protected boolean _useBufferViews = false;
 
     public Consumer()
     {
@@ -66,7 +71,7 @@ public abstract class Consumer extends Component {
 
         if(!_isSetup) {
             _frame.error(_name, "not initialized", null);
-            _safeToKill = true;
+            setSafeToKill();
             return;
         }
 
@@ -87,21 +92,23 @@ public abstract class Consumer extends Component {
             enter(_stream_in);
         } catch(SSJFatalException e) {
             _frame.error(_name, "exception in enter", e);
-            _safeToKill = true;
+            setSafeToKill();
             return;
         } catch(Exception e) {
             _frame.error(_name, "exception in enter", e);
         }
 
-        //wait for framework
-        while (!_terminate && !_frame.isRunning()) {
-            try {
-                Thread.sleep(Cons.SLEEP_IN_LOOP);
-            } catch (InterruptedException e) {
-                Log.w("thread interrupt");
-            }
+        //event-triggered consumers are always paced by their events
+        Pipeline.ExecutionMode mode = (_triggerChannel == null) ? _frame.getExecutionMode() : Pipeline.ExecutionMode.TIMED;
+        if(mode == Pipeline.ExecutionMode.INLINE)
+        {
+            runInline();
+            return;
         }
 
+        //wait for framework
+        _frame.waitForStart();
+
         //maintain update rate starting from now
         if(_triggerChannel == null)
             _timer.reset();
@@ -117,42 +124,16 @@ public abstract class Consumer extends Component {
 
                 if(_doWakeLock) wakeLock.acquire();
 
-                //grab data
-                boolean ok = true;
-                int pos, numSamples;
-                for(int i = 0; i < _bufferID_in.length; i++)
-                {
-                    if(_triggerChannel != null)
-                    {
-                        pos = (int) ((ev.time / 1000.0) * _stream_in[i].sr + 0.5);
-                        numSamples = ((int) (((ev.time + ev.dur) / 1000.0) * _stream_in[i].sr + 0.5)) - pos;
-
-                        // check if local buffer is large enough and make it larger if necessary
-                        _stream_in[i].adjust(numSamples);
-                    }
-                    else
-                    {
-                        pos = _readPos[i];
-                        _readPos[i] += _num_frame[i];
-                    }
-
-                    ok &= _frame.getData(_bufferID_in[i], _stream_in[i].ptr(), pos, _stream_in[i].num);
-                    if (ok)
-                        _stream_in[i].time = (double) pos / _stream_in[i].sr;
-                }
-
-                //if we received data from all sources, process it
-                if(ok) {
-                    consume(_stream_in, ev);
-                }
+                //in data-driven mode, reading blocks until the next frame has been pushed
+                boolean ok = iterate(ev);
 
                 //maintain update rate
-                if(ok && _triggerChannel == null)
+                if(ok && _triggerChannel == null && mode == Pipeline.ExecutionMode.TIMED)
                     _timer.sync();
 
             } catch(SSJFatalException e) {
                 _frame.error(_name, "exception in loop", e);
-                _safeToKill = true;
+                setSafeToKill();
                 return;
             } catch(Exception e) {
                 _frame.error(_name, "exception in loop", e);
@@ -167,7 +148,144 @@ public abstract class Consumer extends Component {
             _frame.error(_name, "exception in flush", e);
         }
 
-        _safeToKill = true;
+        setSafeToKill();
+    }
+
+    /**
+     * Reads the next frame (or the data of the trigger event) from all sources and consumes it
+     *
+     * @param ev trigger event, null if the consumer is not event-triggered
+     * @return true if data was received from all sources
+     */
+    private boolean iterate(Event ev) throws SSJFatalException
+    {
+        long start = System.nanoTime();
+        boolean ok = true;
+        boolean done = false;
+        try {
+            //grab data
+            int pos, numSamples;
+            for(int i = 0; i < _bufferID_in.length; i++)
+            {
+                TimeBuffer.Reader reader = null;
+                if(_triggerChannel != null)
+                {
+                    pos = (int) ((ev.time / 1000.0) * _stream_in[i].sr + 0.5);
+                    numSamples = ((int) (((ev.time + ev.dur) / 1000.0) * _stream_in[i].sr + 0.5)) - pos;
+
+                    // check if local buffer is large enough and make it larger if necessary
+                    _stream_in[i].adjust(numSamples);
+                }
+                else
+                {
+                    pos = _readPos[i];
+                    reader = _readers[i];
+                }
+
+                boolean read;
+                if(_useBufferViews)
+                    read = _frame.getDataView(_bufferID_in[i], reader, _views[i], pos, _stream_in[i].num);
+                else
+                    read = _frame.getData(_bufferID_in[i], reader, _stream_in[i].ptr(), pos, _stream_in[i].num);
+
+                //the reader may have skipped ahead
+                if(read && reader != null)
+                    pos = reader.getSample();
+
+                ok &= read;
+                if(ok)
+                {
+                    if(_useBufferViews)
+                        _views[i].time = (double) pos / _stream_in[i].sr;
+                    else
+                        _stream_in[i].time = (double) pos / _stream_in[i].sr;
+                }
+
+                if(reader != null)
+                    _readPos[i] = pos + _num_frame[i];
+            }
+
+            //if we received data from all sources, process it
+            if(ok) {
+                if(_useBufferViews)
+                {
+                    consume(_views, ev);
+                    releaseViews();
+                }
+                else
+                    consume(_stream_in, ev);
+                done = true;
+            }
+
+            return ok;
+        } finally {
+            //frames without data or failing to process count as dropped
+            _probe.end(start, done);
+            if(_useBufferViews)
+                releaseViews();
+        }
+    }
+
+    private void releaseViews()
+    {
+        for(BufferView view : _views)
+            view.release();
+    }
+
+    /**
+     * Frames are processed by the providers' threads, this thread only waits for termination
+     */
+    private void runInline()
+    {
+        InlineReader reader = new InlineReader(_name) {
+            @Override
+            protected boolean available() {
+                for(int i = 0; i < _bufferID_in.length; i++)
+                    if(!_frame.isDataAvailable(_bufferID_in[i], _readPos[i], _stream_in[i].num))
+                        return false;
+                return true;
+            }
+
+            @Override
+            protected void step() throws SSJFatalException {
+                try {
+                    iterate(null);
+                } catch(SSJFatalException e) {
+                    throw e;
+                } catch(Exception e) {
+                    _frame.error(_name, "exception in loop", e);
+                }
+            }
+        };
+
+        //register before the pipeline starts, so no frame is pushed past the reader
+        reader.start();
+        for(int id : _bufferID_in)
+            _frame.addInlineReader(id, reader);
+
+        //wait for framework
+        _frame.waitForStart();
+
+        //catch up with data which was pushed before we registered
+        reader.run();
+
+        while(!_terminate && _frame.isRunning() && reader.isActive())
+            waitForTermination(Cons.SLEEP_IN_LOOP);
+
+        reader.stop();
+        if(reader.hasFailed())
+        {
+            setSafeToKill();
+            return;
+        }
+
+        try {
+            flush(_stream_in);
+        } catch(Exception e) {
+            _frame.error(_name, "exception in flush", e);
+        }
+
+        setSafeToKill();
     }
 
     /**
@@ -195,6 +313,23 @@ public abstract class Consumer extends Component {
      */
     protected abstract void consume(Stream[] stream_in, Event trigger) throws SSJFatalException;
 
+    /**
+     * Main processing method if input is read through buffer views.
+     * Views are read-only and only valid during this call.
+     * By default, views are copied into the input streams and consume(Stream[], Event) is called.
+     *
+     * @param views Input views, one per source
+     * @param trigger Event trigger
+     * @throws SSJFatalException Exception
+     */
+    protected void consume(BufferView[] views, Event trigger) throws SSJFatalException
+    {
+        for(int i = 0; i < views.length; i++)
+            views[i].copyTo(_stream_in[i]);
+
+        consume(_stream_in, trigger);
+    }
+
     /**
      * Called once prior to termination
      *
@@ -203,6 +338,30 @@ public abstract class Consumer extends Component {
      */
     public void flush(Stream[] stream_in) throws SSJFatalException {}
 
+    @Override
+    public Timer getTimer()
+    {
+        return _timer;
+    }
+
+    @Override
+    TimeBuffer.Reader[] getReaders()
+    {
+        return _readers;
+    }
+
+    @Override
+    double getInputLag()
+    {
+        return Metrics.inputLag(_frame, _bufferID_in, _readPos, false);
+    }
+
+    @Override
+    double getInputFill()
+    {
+        return Metrics.inputLag(_frame, _bufferID_in, _readPos, true);
+    }
+
     public void setEventTrigger(EventChannel channel)
     {
         _triggerChannel = channel;
@@ -234,7 +393,9 @@ public abstract class Consumer extends Component {
         {
             _bufferID_in = new int[sources.length];
             _readPos = new int[sources.length];
+            _readers = new TimeBuffer.Reader[sources.length];
             _stream_in = new Stream[sources.length];
+            _views = new BufferView[sources.length];
             _num_frame = new int[sources.length];
             _num_delta = new int[sources.length];
 
@@ -249,7 +410,10 @@ public abstract class Consumer extends Component {
             //allocate local input buffer
             for(int i = 0; i < sources.length; i++) {
                 _bufferID_in[i] = sources[i].getBufferID();
+                _readers[i] = _frame.getBuffer(_bufferID_in[i]).addReader(this);
+                _readers[i].setWindow(_num_frame[i] + _num_delta[i]);
                 _stream_in[i] = Stream.create(sources[i], _num_frame[i], _num_delta[i]);
+                _views[i] = new BufferView();
             }
 
             //give implementation a chance to react to window size
@@ -257,6 +421,7 @@ public abstract class Consumer extends Component {
 
             // configure update rate
             _timer = new Timer(frame);
+            _timer.setName(_name);
             _timer.setStartOffset(delta);
         }
         catch(Exception e)
@@ -286,9 +451,12 @@ public abstract class Consumer extends Component {
         try {
             _bufferID_in = new int[sources.length];
             _stream_in = new Stream[sources.length];
+            _views = new BufferView[sources.length];
 
             for(int i = 0; i < sources.length; i++) {
                 _bufferID_in[i] = sources[i].getBufferID();
+                _frame.getBuffer(_bufferID_in[i]).setRandomAccess(true);
+                _views[i] = new BufferView();
 
                 //allocate local input buffer and make it one second large too avoid memory allocation at runtime
                 _stream_in[i] = Stream.create(sources[i], (int)sources[i].getOutputStream().sr);
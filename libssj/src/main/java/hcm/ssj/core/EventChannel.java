@@ -25,29 +25,59 @@
  * with this library; if not, see <http://www.gnu.org/licenses/>.
  */
 
+
 package hcm.ssj.core;
 
 import android.content.Context;
 import android.os.PowerManager;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.Arrays;
 
 import hcm.ssj.core.event.Event;
 
 /**
  * Created by Johnny on 05.03.2015.
+ *
+ * Events are kept in a preallocated ring holding the last MAX_NUM_EVENTS_PER_CHANNEL events,
+ * an event is located at position (id % capacity).
+ * Events obtained through obtainEvent() are recycled once they have dropped out of the ring
+ * and have been delivered to all listeners. Listeners must not keep references to pooled
+ * events after notify() returns, copy the data instead.
+ *
+ * Each listener is served by its own dispatcher holding a bounded queue of pending events,
+ * events are always delivered to a listener in the order they were pushed.
  */
 public class EventChannel {
 
+    /**
+     * Behaviour of a dispatcher if its listener cannot keep up
+     */
+    public enum OverflowPolicy
+    {
+        /** the producer waits until the listener has caught up, events are delivered on a dedicated thread */
+        BLOCK,
+        /** the oldest pending event is dropped */
+        DROP_OLDEST,
+        /** the newest pending event is replaced, i.e. the listener only sees the latest state */
+        COALESCE_LATEST
+    }
+
     protected String _name = "EventChannel";
 
     private ArrayList<EventListener> _listeners = new ArrayList<>();
-    private LinkedList<Event> _events = new LinkedList<>();
-    private int _event_id = 0;
+    private volatile Dispatcher[] _dispatchers = new Dispatcher[0];
+
+    private final Event[] _events = new Event[Cons.MAX_NUM_EVENTS_PER_CHANNEL];
+    private int _event_id = 0; //id of the next event
+    private int _first = 0; //id of the oldest event in the ring
+    private int _last = -1; //id of the newest event in the ring, -1 if ring is empty
+
+    private final Event[][] _pool = new Event[Cons.Type.values().length][];
+    private final int[] _poolSize = new int[Cons.Type.values().length];
 
     final private Object _lock = new Object();
-    protected boolean _terminate = false;
+    protected volatile boolean _terminate = false;
 
     protected Pipeline _frame;
     PowerManager powerManager;
@@ -58,21 +88,129 @@ public class EventChannel {
     }
 
     public void reset() {
-        _terminate = false;
-        _event_id = 0;
-        _events.clear();
+        synchronized (_lock) {
+            _terminate = false;
+            _event_id = 0;
+            _first = 0;
+            _last = -1;
+
+            for (int i = 0; i < _events.length; i++) {
+                release(_events[i]);
+                _events[i] = null;
+            }
+
+            for (Dispatcher d : _dispatchers) {
+                d.clear();
+                d.configure();
+            }
+        }
     }
 
     public void clear() {
-        _listeners.clear();
+        synchronized (_lock) {
+            for (Dispatcher d : _dispatchers) {
+                d.shutdown();
+            }
+            _listeners.clear();
+            _dispatchers = new Dispatcher[0];
+        }
     }
 
     public void addEventListener(EventListener listener) {
+        addEventListener(listener, null, 0);
+    }
+
+    /**
+     * Registers a listener with its own overflow behaviour instead of the pipeline defaults
+     *
+     * @param listener listener to register
+     * @param policy what to do if the listener cannot keep up, null to use the pipeline default
+     * @param capacity max number of pending events (at most MAX_NUM_EVENTS_PER_CHANNEL), 0 to use the pipeline default
+     */
+    public void addEventListener(EventListener listener, OverflowPolicy policy, int capacity) {
+
+        synchronized (_lock) {
+            if (_listeners.contains(listener))
+                return;
+
+            _listeners.add(listener);
+
+            Dispatcher d = new Dispatcher(listener, policy, capacity);
+            d.configure();
+
+            Dispatcher[] dispatchers = Arrays.copyOf(_dispatchers, _dispatchers.length + 1);
+            dispatchers[dispatchers.length - 1] = d;
+            _dispatchers = dispatchers;
+        }
+    }
+
+    /**
+     * Provides an event from the channel's pool, or a new one if the pool is empty.
+     * Pooled events are recycled once MAX_NUM_EVENTS_PER_CHANNEL newer events have been pushed
+     * and all listeners have been notified, so receivers must not hold on to them.
+     *
+     * @param type type of the event
+     * @return event with default header, data of recycled events is retained and may be reused
+     */
+    public Event obtainEvent(Cons.Type type) {
+
+        Event ev = null;
+
+        synchronized (_lock) {
+            int t = type.ordinal();
+            if (_poolSize[t] > 0) {
+                ev = _pool[t][--_poolSize[t]];
+                _pool[t][_poolSize[t]] = null;
+            }
+        }
+
+        if (ev == null) {
+            ev = Event.create(type);
+            ev.pooled = true;
+        }
+
+        ev.name = "";
+        ev.sender = "";
+        ev.time = 0;
+        ev.dur = 0;
+        ev.state = Event.State.COMPLETED;
+        ev.refs = 0;
+
+        return ev;
+    }
+
+    /**
+     * Adds an owner to a pooled event, must be called while holding the lock
+     */
+    private void retain(Event ev) {
+        if (ev.pooled)
+            ev.refs++;
+    }
 
-        if(_listeners.contains(listener))
+    /**
+     * Removes an owner from a pooled event and returns it to the pool once it is no longer used,
+     * must be called while holding the lock
+     */
+    private void release(Event ev) {
+
+        if (ev == null || !ev.pooled || --ev.refs > 0)
             return;
 
-        _listeners.add(listener);
+        int t = ev.type.ordinal();
+        if (_pool[t] == null)
+            _pool[t] = new Event[Cons.MAX_NUM_EVENTS_PER_CHANNEL];
+
+        if (_poolSize[t] < _pool[t].length)
+            _pool[t][_poolSize[t]++] = ev;
+    }
+
+    private Event slot(int eventID) {
+        Event ev = _events[eventID % _events.length];
+        return (ev != null && ev.id == eventID) ? ev : null;
+    }
+
+    private boolean isEmpty() {
+        return _last < _first;
     }
 
     public Event getLastEvent(boolean peek, boolean blocking) {
@@ -80,7 +218,7 @@ public class EventChannel {
         Event ev = null;
 
         synchronized (_lock) {
-            while (!_terminate && _events.size() == 0) {
+            while (!_terminate && isEmpty()) {
                 if (blocking) {
                     try {
                         _lock.wait();
@@ -95,10 +233,15 @@ public class EventChannel {
                 return null;
             }
 
-            ev = _events.getLast();
+            ev = slot(_last);
 
             if (!peek) {
-                _events.removeLast();
+                _events[_last % _events.length] = null;
+
+                //step back to the previous event which is still in the ring
+                do {
+                    _last--;
+                } while (_last >= _first && slot(_last) == null);
             }
         }
 
@@ -108,7 +251,7 @@ public class EventChannel {
     public Event getEvent(int eventID, boolean blocking) {
 
         synchronized (_lock) {
-            while (!_terminate && (_events.size() == 0 || eventID > _events.getLast().id)) {
+            while (!_terminate && (isEmpty() || eventID > _last)) {
                 if (blocking) {
                     try {
                         _lock.wait();
@@ -123,51 +266,43 @@ public class EventChannel {
                 return null;
             }
 
-            if (eventID == _events.getFirst().id) {
-                return _events.getFirst();
-            }
-
-            if (eventID < _events.getFirst().id) {
+            if (eventID < _first) {
                 Log.w("event " + eventID + " no longer in queue");
-                return _events.getFirst(); //if event is no longer in queue, return oldest event
+                return slot(_first); //if event is no longer in queue, return oldest event
             }
 
-            //search for event
-            for (Event ev : _events) {
-                if (ev.id == eventID) {
-                    return ev;
-                }
-            }
+            return slot(eventID);
         }
-        return null;
     }
 
     public void pushEvent(final Event ev) {
+
+        //wait outside of the channel lock, listeners may access the channel while we block
+        for (Dispatcher d : _dispatchers) {
+            d.awaitSpace();
+        }
+
         synchronized (_lock) {
             //give event a local-unique ID
             ev.id = _event_id++;
 
-            _events.addLast(ev);
-            if (_events.size() > Cons.MAX_NUM_EVENTS_PER_CHANNEL) {
-                _events.removeFirst();
+            //overwrite oldest event
+            int pos = ev.id % _events.length;
+            release(_events[pos]);
+            _events[pos] = ev;
+            retain(ev);
+
+            _last = ev.id;
+            if (_first <= ev.id - _events.length) {
+                _first = ev.id - _events.length + 1;
+            }
+            while (_first < _last && slot(_first) == null) {
+                _first++;
             }
 
             // Notify event listeners
-            for (final EventListener listener : _listeners) {
-                _frame.threadPool.execute(new Runnable() {
-                    @Override
-                    public void run() {
-                        if(listener == null)
-                        {
-                            Log.e("error reacting to event: listener == null, listeners = " + _listeners.size());
-                            return;
-                        }
-                        PowerManager.WakeLock wakeLock = powerManager.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, "ev" + ev.id + listener.toString());
-                        wakeLock.acquire();
-                        listener.notify(ev);
-                        wakeLock.release();
-                    }
-                });
+            for (Dispatcher d : _dispatchers) {
+                d.enqueue(ev);
             }
 
             _lock.notifyAll();
@@ -183,6 +318,331 @@ public class EventChannel {
             _lock.notifyAll();
         }
 
+        for (Dispatcher d : _dispatchers) {
+            d.wake();
+        }
+
         Log.i("shut down complete");
     }
+
+    /**
+     * @return number of events which are waiting to be delivered, summed over all listeners
+     */
+    public int getQueueDepth() {
+        int depth = 0;
+        for (Dispatcher d : _dispatchers) {
+            depth += d.depth();
+        }
+        return depth;
+    }
+
+    /**
+     * @return number of events waiting to be delivered to the listener, -1 if the listener is not registered
+     */
+    public int getQueueDepth(EventListener listener) {
+        Dispatcher d = dispatcher(listener);
+        return (d != null) ? d.depth() : -1;
+    }
+
+    /**
+     * @return number of events which were dropped or coalesced since the last reset, summed over all listeners
+     */
+    public long getDroppedEvents() {
+        long dropped = 0;
+        for (Dispatcher d : _dispatchers) {
+            dropped += d.dropped();
+        }
+        return dropped;
+    }
+
+    /**
+     * @return number of events which were not delivered to the listener since the last reset, -1 if the listener is not registered
+     */
+    public long getDroppedEvents(EventListener listener) {
+        Dispatcher d = dispatcher(listener);
+        return (d != null) ? d.dropped() : -1;
+    }
+
+    private Dispatcher dispatcher(EventListener listener) {
+        for (Dispatcher d : _dispatchers) {
+            if (d.listener == listener)
+                return d;
+        }
+        return null;
+    }
+
+    /**
+     * Delivers events to a single listener in the order they were pushed.
+     * Pending events are kept in a preallocated ring guarded by the dispatcher's monitor.
+     * The dispatcher is either submitted to the thread pool as a task whenever events are pending,
+     * or it runs on a dedicated thread, so delivering an event does not allocate.
+     */
+    private class Dispatcher implements Runnable {
+
+        private final EventListener listener;
+        private final String name;
+        private final Event[] pending = new Event[Cons.MAX_NUM_EVENTS_PER_CHANNEL];
+        private int head = 0;
+        private int size = 0;
+        private boolean scheduled = false;
+        private Thread runner = null;
+        private Thread worker = null;
+        private boolean shutdown = false;
+
+        private final OverflowPolicy customPolicy;
+        private final int customCapacity;
+        private OverflowPolicy policy;
+        private int capacity;
+        private boolean dedicated;
+
+        private long dropped = 0;
+
+        private final PowerManager.WakeLock wakeLock;
+
+        Dispatcher(EventListener listener, OverflowPolicy policy, int capacity) {
+            this.listener = listener;
+            String listenerName = (listener instanceof Component) ? ((Component) listener).getComponentName() : listener.getClass().getSimpleName();
+            name = listenerName.isEmpty() ? null : listenerName; //anonymous listeners are identified by the thread
+            customPolicy = policy;
+            customCapacity = capacity;
+            wakeLock = powerManager.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, "ev" + listener.toString());
+        }
+
+        synchronized void configure() {
+            policy = (customPolicy != null) ? customPolicy : _frame.options.eventOverflow.get();
+
+            //a replay must not lose events just because it runs faster than real time
+            if (customPolicy == null && _frame.isVirtualTime())
+                policy = OverflowPolicy.BLOCK;
+            capacity = (customCapacity > 0) ? customCapacity : _frame.options.eventQueueSize.get();
+            //producers blocked on a full queue may occupy all pool threads, which would starve the task draining it
+            dedicated = _frame.options.eventDispatchThread.get() || policy == OverflowPolicy.BLOCK;
+
+            //the pending ring is preallocated with the size of the channel's ring
+            if (capacity > pending.length || capacity < 1) {
+                Log.w("invalid event queue size " + capacity + " for listener " + listener.toString() + ", using " + pending.length);
+                capacity = pending.length;
+            }
+        }
+
+        synchronized int depth() {
+            return size;
+        }
+
+        synchronized long dropped() {
+            return dropped;
+        }
+
+        /**
+         * Blocks the producer while the queue is full, only if the policy is BLOCK
+         */
+        synchronized void awaitSpace() {
+            if (policy != OverflowPolicy.BLOCK) {
+                return;
+            }
+
+            //never block the thread which is supposed to empty the queue
+            Thread current = Thread.currentThread();
+            if (current == runner || current == worker) {
+                return;
+            }
+
+            while (size >= capacity && !_terminate && !shutdown) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Must be called while holding the channel lock
+         */
+        synchronized void enqueue(Event ev) {
+            if (shutdown) {
+                return;
+            }
+
+            retain(ev);
+
+            if (size >= capacity) {
+                dropped++;
+
+                if (policy == OverflowPolicy.COALESCE_LATEST) {
+                    int last = (head + size - 1) % pending.length;
+                    release(pending[last]);
+                    pending[last] = ev;
+                    return;
+                }
+
+                //DROP_OLDEST, or BLOCK if the producer is the listener itself or raced with another producer
+                Log.w("listener " + listener.toString() + " too slow, dropping events");
+                release(pending[head]);
+                pending[head] = null;
+                head = (head + 1) % pending.length;
+                size--;
+            }
+
+            pending[(head + size) % pending.length] = ev;
+            size++;
+
+            if (dedicated) {
+                if (worker == null) {
+                    worker = new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            loop();
+                        }
+                    }, "SSJ_ev_" + listener.getClass().getSimpleName());
+                    worker.start();
+                }
+                notifyAll();
+            } else if (!scheduled) {
+                scheduled = true;
+                _frame.eventPool.execute(this);
+            }
+        }
+
+        /**
+         * Must be called while holding the channel lock
+         */
+        synchronized void clear() {
+            for (int i = 0; i < pending.length; i++) {
+                release(pending[i]);
+                pending[i] = null;
+            }
+            head = 0;
+            size = 0;
+            dropped = 0;
+            notifyAll();
+        }
+
+        synchronized void shutdown() {
+            shutdown = true;
+            notifyAll();
+        }
+
+        synchronized void wake() {
+            notifyAll();
+        }
+
+        /**
+         * Removes the next pending event, must be called while holding the dispatcher's monitor
+         */
+        private Event dequeue() {
+            Event ev = pending[head];
+            pending[head] = null;
+            head = (head + 1) % pending.length;
+            size--;
+
+            //space became available for blocked producers
+            notifyAll();
+            return ev;
+        }
+
+        /**
+         * Notifies the listener and hands the event back to the channel afterwards
+         */
+        private void deliver(Event ev) {
+            String caller = Log.setCaller(name);
+            try {
+                listener.notify(ev);
+            } finally {
+                Log.setCaller(caller);
+                synchronized (_lock) {
+                    release(ev);
+                }
+            }
+        }
+
+        /**
+         * Thread pool mode, runs until the queue is empty
+         */
+        @Override
+        public void run() {
+            boolean drained = false;
+            wakeLock.acquire();
+
+            synchronized (this) {
+                runner = Thread.currentThread();
+            }
+
+            try {
+                while (true) {
+                    Event ev;
+                    synchronized (this) {
+                        if (size == 0) {
+                            scheduled = false;
+                            runner = null;
+                            drained = true;
+                            return;
+                        }
+
+                        ev = dequeue();
+                    }
+
+                    deliver(ev);
+                }
+            } finally {
+                wakeLock.release();
+
+                //listener threw, make sure remaining events are still delivered
+                if (!drained) {
+                    synchronized (this) {
+                        scheduled = false;
+                        runner = null;
+                        if (size > 0 && !_terminate && !shutdown) {
+                            scheduled = true;
+                            _frame.eventPool.execute(this);
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Dedicated thread mode, runs until the channel is closed and the queue is empty
+         */
+        private void loop() {
+            while (true) {
+                Event ev;
+                synchronized (this) {
+                    while (size == 0 && !_terminate && !shutdown) {
+                        if (wakeLock.isHeld()) {
+                            wakeLock.release();
+                        }
+
+                        try {
+                            wait();
+                        } catch (InterruptedException e) {
+                            break;
+                        }
+                    }
+
+                    //events queued before the channel was closed are still delivered
+                    if (size == 0 || shutdown) {
+                        if (wakeLock.isHeld()) {
+                            wakeLock.release();
+                        }
+                        worker = null;
+                        return;
+                    }
+
+                    if (!wakeLock.isHeld()) {
+                        wakeLock.acquire();
+                    }
+
+                    ev = dequeue();
+                }
+
+                try {
+                    deliver(ev);
+                } catch (Exception e) {
+                    _frame.error(_name, "exception in event listener " + listener.toString(), e);
+                }
+            }
+        }
+    }
 }
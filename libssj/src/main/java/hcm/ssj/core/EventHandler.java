@@ -73,20 +73,14 @@ public abstract class EventHandler extends Component implements EventListener {
             enter();
         } catch(SSJFatalException e) {
             _frame.error(_name, "exception in enter", e);
-            _safeToKill = true;
+            setSafeToKill();
             return;
         } catch(Exception e) {
             _frame.error(_name, "exception in enter", e);
         }
 
         //wait for framework
-        while (!_terminate && !_frame.isRunning()) {
-            try {
-                Thread.sleep(Cons.SLEEP_IN_LOOP);
-            } catch (InterruptedException e) {
-                Log.w("thread interrupt");
-            }
-        }
+        _frame.waitForStart();
 
         while(!_terminate && _frame.isRunning())
         {
@@ -95,7 +89,7 @@ public abstract class EventHandler extends Component implements EventListener {
                 process();
             } catch(SSJFatalException e) {
                 _frame.error(_name, "exception in loop", e);
-                _safeToKill = true;
+                setSafeToKill();
                 return;
             } catch(Exception e) {
                 _frame.error(_name, "exception in loop", e);
@@ -110,7 +104,7 @@ public abstract class EventHandler extends Component implements EventListener {
             _frame.error(_name, "exception in flush", e);
         }
 
-        _safeToKill = true;
+        setSafeToKill();
     }
 
     /**
@@ -127,11 +121,7 @@ public abstract class EventHandler extends Component implements EventListener {
      */
     protected void process() throws SSJFatalException
     {
-        try {
-            Thread.sleep(SLEEP_ON_COMPONENT_IDLE);
-        } catch (InterruptedException e) {
-            Log.w("thread interrupt");
-        }
+        waitForTermination(SLEEP_ON_COMPONENT_IDLE);
     }
 
     /**
@@ -0,0 +1,153 @@
+/*
+ * Histogram.java
+ * Copyright (c) 2018
+ * Authors: Ionut Damian, Michael Dietz, Frank Gaibler, Daniel Langerenken, Simon Flutura,
+ * Vitalijs Krumins, Antonio Grieco
+ * *****************************************************
+ * This file is part of the Social Signal Interpretation for Java (SSJ) framework
+ * developed at the Lab for Human Centered Multimedia of the University of Augsburg.
+ *
+ * SSJ has been inspired by the SSI (http://openssi.net) framework. SSJ is not a
+ * one-to-one port of SSI to Java, it is an approximation. Nor does SSJ pretend
+ * to offer SSI's comprehensive functionality and performance (this is java after all).
+ * Nevertheless, SSJ borrows a lot of programming patterns from SSI.
+ *
+ * This library is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 3 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package hcm.ssj.core;
+
+/**
+ * Allocation-free histogram of non-negative long values (e.g. durations in nanoseconds).
+ * Values are counted in buckets whose width grows with the magnitude of the value (16 buckets per
+ * power of two), so quantiles are accurate to about 6% over the whole range.
+ *
+ * Values are expected to be recorded by a single thread, other threads may read the histogram at any
+ * time but the result is only approximate while values are recorded.
+ */
+public class Histogram
+{
+    private static final int SUB_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    /** largest value which can be distinguished, larger values are counted as this value (about 18 minutes in ns) */
+    public static final long MAX_VALUE = (1L << 40) - 1;
+
+    private final long[] counts = new long[(40 - SUB_BITS + 1) * SUB_BUCKETS];
+    private long count = 0;
+    private long sum = 0;
+    private long min = Long.MAX_VALUE;
+    private long max = 0;
+
+    public void record(long value)
+    {
+        if (value < 0)
+            value = 0;
+        else if (value > MAX_VALUE)
+            value = MAX_VALUE;
+
+        counts[index(value)]++;
+        count++;
+        sum += value;
+        if (value < min)
+            min = value;
+        if (value > max)
+            max = value;
+    }
+
+    public void reset()
+    {
+        for (int i = 0; i < counts.length; i++)
+            counts[i] = 0;
+
+        count = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+
+    /**
+     * Copies the content of this histogram into another one (e.g. to take a consistent snapshot)
+     */
+    public void copyTo(Histogram dst)
+    {
+        System.arraycopy(counts, 0, dst.counts, 0, counts.length);
+        dst.count = count;
+        dst.sum = sum;
+        dst.min = min;
+        dst.max = max;
+    }
+
+    public long getCount()
+    {
+        return count;
+    }
+
+    public long getMin()
+    {
+        return (count == 0) ? 0 : min;
+    }
+
+    public long getMax()
+    {
+        return max;
+    }
+
+    public double getMean()
+    {
+        return (count == 0) ? 0 : (double) sum / count;
+    }
+
+    /**
+     * @param percentile percentile (0 - 100)
+     * @return value below which the given percentage of recorded values lies
+     */
+    public long getPercentile(double percentile)
+    {
+        if (count == 0)
+            return 0;
+
+        long target = (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100.0 * count);
+        if (target < 1)
+            target = 1;
+
+        long n = 0;
+        for (int i = 0; i < counts.length; i++)
+        {
+            n += counts[i];
+            if (n >= target)
+                return Math.max(getMin(), Math.min(max, upperBound(i)));
+        }
+        return max;
+    }
+
+    static int index(long value)
+    {
+        if (value < SUB_BUCKETS)
+            return (int) value;
+
+        int exp = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exp - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exp - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    static long upperBound(int index)
+    {
+        if (index < SUB_BUCKETS)
+            return index;
+
+        int exp = index / SUB_BUCKETS - 1 + SUB_BITS;
+        int sub = index % SUB_BUCKETS;
+        long lower = (long) (SUB_BUCKETS + sub) << (exp - SUB_BITS);
+        return lower + (1L << (exp - SUB_BITS)) - 1;
+    }
+}
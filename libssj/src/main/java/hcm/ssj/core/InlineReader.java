@@ -0,0 +1,126 @@
+/*
+ * InlineReader.java
+ * Copyright (c) 2018
+ * Authors: Ionut Damian, Michael Dietz, Frank Gaibler, Daniel Langerenken, Simon Flutura,
+ * Vitalijs Krumins, Antonio Grieco
+ * *****************************************************
+ * This file is part of the Social Signal Interpretation for Java (SSJ) framework
+ * developed at the Lab for Human Centered Multimedia of the University of Augsburg.
+ *
+ * SSJ has been inspired by the SSI (http://openssi.net) framework. SSJ is not a
+ * one-to-one port of SSI to Java, it is an approximation. Nor does SSJ pretend
+ * to offer SSI's comprehensive functionality and performance (this is java after all).
+ * Nevertheless, SSJ borrows a lot of programming patterns from SSI.
+ *
+ * This library is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 3 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package hcm.ssj.core;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Processes frames of a component on the thread of whichever provider completes them (see Pipeline.ExecutionMode.INLINE).
+ * Registered with all input buffers of the component, frames are never processed by two threads at once.
+ */
+abstract class InlineReader implements Runnable
+{
+    private final AtomicBoolean _busy = new AtomicBoolean(false);
+    private volatile boolean _pending = false;
+    private volatile boolean _active = false;
+    private volatile boolean _failed = false;
+
+    private final String _name;
+
+    InlineReader(String name)
+    {
+        _name = name;
+    }
+
+    /**
+     * @return true if the next frame is available from all inputs
+     */
+    protected abstract boolean available();
+
+    /**
+     * Processes the next frame
+     *
+     * @throws SSJFatalException if the component cannot continue
+     */
+    protected abstract void step() throws SSJFatalException;
+
+    /**
+     * Called by a provider after it has pushed new data
+     */
+    @Override
+    public void run()
+    {
+        if (!_active)
+            return;
+
+        //a busy reader checks the flag again after finishing, so no frame is missed
+        _pending = true;
+        while (_pending && _busy.compareAndSet(false, true))
+        {
+            //runs on the provider's thread
+            String caller = Log.setCaller(_name);
+            try
+            {
+                _pending = false;
+                while (_active && available())
+                {
+                    step();
+                }
+            }
+            catch (SSJFatalException e)
+            {
+                _failed = true;
+                _active = false;
+                Pipeline.getInstance().error(_name, "exception in loop", e);
+            }
+            finally
+            {
+                Log.setCaller(caller);
+                _busy.set(false);
+            }
+        }
+    }
+
+    void start()
+    {
+        _failed = false;
+        _active = true;
+    }
+
+    /**
+     * Deactivates the reader and waits until a running frame is finished
+     */
+    void stop()
+    {
+        _active = false;
+        while (_busy.get())
+        {
+            Thread.yield();
+        }
+    }
+
+    boolean isActive()
+    {
+        return _active;
+    }
+
+    boolean hasFailed()
+    {
+        return _failed;
+    }
+}
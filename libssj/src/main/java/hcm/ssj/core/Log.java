@@ -27,25 +27,31 @@
 
 package hcm.ssj.core;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.text.NumberFormat;
+import java.io.OutputStream;
 import java.util.HashSet;
-import java.util.Iterator;
-import java.util.LinkedHashMap;
-import java.util.LinkedList;
-import java.util.Locale;
-import java.util.Map;
 
 import hcm.ssj.BuildConfig;
 
 /**
  * Created by Johnny on 17.03.2016.
+ *
+ * Entries are kept in a fixed-size ring, if the ring overflows the oldest entries are lost.
+ * While a log file is open, a background thread continuously streams the ring to the file.
+ * The caller of an entry is the component currently run by a shared thread (see setCaller),
+ * otherwise the name of the thread (components name their threads),
+ * the level is checked before any formatting takes place.
  */
 public class Log
 {
     private final int RECENT_HISTORY_SIZE = 10;
+    /** number of entries kept in memory */
+    public static final int BUFFER_SIZE = 1024;
+    /** time between two writes to the log file in ms */
+    private static final long STREAM_INTERVAL = 500;
 
     public enum Level
     {
@@ -74,21 +80,38 @@ public class Log
         }
     }
 
-    private LinkedList<Entry> buffer = new LinkedList<>();
+    private final Entry[] buffer = new Entry[BUFFER_SIZE];
+    private int head = 0;
+    private int count = 0;
+    private long dropped = 0;
+
     private Pipeline frame = null;
     private static Log instance = null;
+
+    //component which is currently executed by a pool or scheduler thread
+    private static final ThreadLocal<String> caller = new ThreadLocal<>();
     //
     private static HashSet<LogListener> hsLogListener = new HashSet<>();
     //
-    private LinkedHashMap<String, Double> recent = new LinkedHashMap<String, Double>()
+    private final String[] recentMsg = new String[RECENT_HISTORY_SIZE];
+    private final double[] recentTime = new double[RECENT_HISTORY_SIZE];
+    private int recentPos = 0;
+
+    //streaming
+    private Thread streamer = null;
+    private OutputStream stream = null;
+    private Entry[] drain = null;
+    private AsciiFormatter formatter = null;
+    private long streamDropped = 0;
+    private final Object streamLock = new Object();
+
+    Log()
     {
-        @Override
-        protected boolean removeEldestEntry(Map.Entry<String,Double> eldest) {
-            return size() > RECENT_HISTORY_SIZE;
+        for (int i = 0; i < BUFFER_SIZE; i++)
+        {
+            buffer[i] = new Entry(0, null);
         }
-    };
-
-    Log() {}
+    }
 
     public void setFramework(Pipeline frame)
     {
@@ -107,54 +130,238 @@ public class Log
     {
         synchronized (this)
         {
-            buffer.clear();
-            recent.clear();
+            for (int i = 0; i < BUFFER_SIZE; i++)
+            {
+                buffer[i].msg = null;
+            }
+            head = 0;
+            count = 0;
+            dropped = 0;
+            streamDropped = 0;
+
+            for (int i = 0; i < RECENT_HISTORY_SIZE; i++)
+            {
+                recentMsg[i] = null;
+            }
         }
     }
 
     public void invalidate()
     {
+        closeStream();
         clear();
         instance = null;
     }
 
-    public void saveToFile(String path)
+    /**
+     * @return number of entries which were lost because the ring overflowed
+     */
+    public synchronized long getDropped()
     {
+        return dropped;
+    }
+
+    /**
+     * Opens a new log file and starts streaming all entries to it.
+     * Entries which are still in the ring are written first.
+     *
+     * @param path directory of the log file
+     */
+    public void startStream(String path)
+    {
+        closeStream();
+
         try
         {
-            File fileDirectory = Util.createDirectory(path);
-            if(fileDirectory == null)
+            File file = createFile(path);
+            if (file == null)
                 return;
 
-            File file = new File(fileDirectory, "ssj.log");
-            int i = 2;
-            while(file.exists())
+            synchronized (this)
             {
-                file = new File(fileDirectory, "ssj" + (i++) + ".log");
+                stream = new BufferedOutputStream(new FileOutputStream(file), 8192);
+                if (drain == null)
+                {
+                    drain = new Entry[BUFFER_SIZE];
+                    for (int i = 0; i < BUFFER_SIZE; i++)
+                    {
+                        drain[i] = new Entry(0, null);
+                    }
+                    formatter = new AsciiFormatter(512);
+                }
             }
+        }
+        catch (IOException e)
+        {
+            Log.e("Exception in creating logfile", e);
+            return;
+        }
 
-            FileOutputStream fos = new FileOutputStream(file);
+        streamer = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                while (true)
+                {
+                    synchronized (Log.this)
+                    {
+                        if (stream == null)
+                            return;
+
+                        try
+                        {
+                            Log.this.wait(STREAM_INTERVAL);
+                        }
+                        catch (InterruptedException e)
+                        {
+                            return;
+                        }
+                    }
+
+                    flush();
+                }
+            }
+        }, "SSJ_Log");
+        streamer.setDaemon(true);
+        streamer.start();
+    }
+
+    /**
+     * Writes all pending entries and closes the log file
+     */
+    public void closeStream()
+    {
+        Thread t;
+        synchronized (this)
+        {
+            if (stream == null)
+                return;
 
-            NumberFormat nf = NumberFormat.getNumberInstance(Locale.ENGLISH);
-            nf.setMaximumFractionDigits(3);
-            nf.setMinimumFractionDigits(3);
+            t = streamer;
+            streamer = null;
+        }
+
+        flush();
+
+        synchronized (streamLock)
+        {
+            synchronized (this)
+            {
+                try
+                {
+                    stream.close();
+                }
+                catch (IOException e)
+                {
+                    android.util.Log.e(Cons.LOGTAG, "failed closing logfile", e);
+                }
+                stream = null;
+                notifyAll();
+            }
+        }
 
-            StringBuilder builder = new StringBuilder();
+        if (t != null && t != Thread.currentThread())
+        {
+            try
+            {
+                t.join(STREAM_INTERVAL);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
 
+    /**
+     * Writes all pending entries to the log file
+     */
+    public void flush()
+    {
+        //only one thread may drain the ring at a time
+        synchronized (streamLock)
+        {
+            int n;
+            long lost;
+            OutputStream out;
             synchronized (this)
             {
-                Iterator<Entry> iter = buffer.iterator();
-                while (iter.hasNext())
+                if (stream == null)
+                    return;
+
+                out = stream;
+                n = count;
+                for (int i = 0; i < n; i++)
                 {
-                    Entry e = iter.next();
+                    Entry e = buffer[(head - n + i + BUFFER_SIZE) % BUFFER_SIZE];
+                    drain[i].t = e.t;
+                    drain[i].msg = e.msg;
+                }
+                count = 0;
+                lost = dropped - streamDropped;
+                streamDropped = dropped;
+            }
 
-                    builder.setLength(0);
-                    builder.append(nf.format(e.t));
-                    builder.append("\t");
-                    builder.append(e.msg);
-                    builder.append("\r\n");
+            try
+            {
+                if (lost > 0)
+                {
+                    formatter.clear().append("[Log] ").append(lost).append(" entries dropped\r\n");
+                    formatter.writeTo(out);
+                }
 
-                    fos.write(builder.toString().getBytes());
+                for (int i = 0; i < n; i++)
+                {
+                    formatter.clear().appendFixed(drain[i].t, 3).append('\t').append(drain[i].msg).append("\r\n");
+                    formatter.writeTo(out);
+                    drain[i].msg = null;
+                }
+                out.flush();
+            }
+            catch (IOException e)
+            {
+                android.util.Log.e(Cons.LOGTAG, "failed writing logfile", e);
+            }
+        }
+    }
+
+    /**
+     * Writes the log to a file.
+     * If a log file is currently open, the pending entries are written to it instead.
+     *
+     * @param path directory of the log file
+     */
+    public void saveToFile(String path)
+    {
+        boolean streaming;
+        synchronized (this)
+        {
+            streaming = (stream != null);
+        }
+
+        if (streaming)
+        {
+            flush();
+            return;
+        }
+
+        try
+        {
+            File file = createFile(path);
+            if (file == null)
+                return;
+
+            FileOutputStream fos = new FileOutputStream(file);
+            AsciiFormatter fmt = new AsciiFormatter(512);
+
+            synchronized (this)
+            {
+                for (int i = 0; i < count; i++)
+                {
+                    Entry e = buffer[(head - count + i + BUFFER_SIZE) % BUFFER_SIZE];
+                    fmt.clear().appendFixed(e.t, 3).append('\t').append(e.msg).append("\r\n");
+                    fmt.writeTo(fos);
                 }
             }
 
@@ -166,10 +373,49 @@ public class Log
         }
     }
 
+    private File createFile(String path)
+    {
+        File fileDirectory = Util.createDirectory(path);
+        if(fileDirectory == null)
+            return null;
+
+        File file = new File(fileDirectory, "ssj.log");
+        int i = 2;
+        while(file.exists())
+        {
+            file = new File(fileDirectory, "ssj" + (i++) + ".log");
+        }
+        return file;
+    }
+
+    /**
+     * Attributes the entries of the calling thread to a component,
+     * used by threads which execute several components in turn
+     *
+     * @param name name of the component, null to identify the caller by the thread name
+     * @return previous name, to be restored afterwards
+     */
+    static String setCaller(String name)
+    {
+        String previous = caller.get();
+        caller.set(name);
+        return previous;
+    }
+
     private String getCaller()
     {
-        StackTraceElement element = Thread.currentThread().getStackTrace()[5];
-        return element.getClassName().replace("hcm.ssj.", "");
+        String name = caller.get();
+        if(name != null)
+            return name;
+
+        //component threads are named after their component
+        name = Thread.currentThread().getName();
+        return name.startsWith("SSJ_") ? name.substring(4) : name;
+    }
+
+    private boolean isLoggable(int type)
+    {
+        return type >= ((frame == null) ? Level.VERBOSE.val : frame.options.loglevel.get().val);
     }
 
     private String buildEntry(String caller, String msg, Throwable tr)
@@ -185,22 +431,44 @@ public class Log
 
     private void log(int type, String caller, String msg, Throwable tr)
     {
-        if(type < ((frame == null) ? Level.VERBOSE.val : frame.options.loglevel.get().val))
+        if(!isLoggable(type))
             return;
 
-        String str;
         double time = (frame == null) ? 0 : frame.getTime();
-        str = buildEntry(caller, msg, tr);
+        double timeout = (frame == null) ? 1.0 : frame.options.logtimeout.get();
+        String str = buildEntry(caller, msg, tr);
 
-        //check if entry is in our recent history
-        Double lastTime = recent.get(str);
-        if(lastTime != null && time - lastTime < ((frame == null) ? 1.0 : frame.options.logtimeout.get()))
-            return;
+        synchronized (this)
+        {
+            //check if entry is in our recent history
+            int hash = str.hashCode();
+            for (int i = 0; i < RECENT_HISTORY_SIZE; i++)
+            {
+                String r = recentMsg[i];
+                if (r != null && r.hashCode() == hash && time - recentTime[i] < timeout && r.equals(str))
+                    return;
+            }
 
-        android.util.Log.println(type, Cons.LOGTAG, str);
+            //save in recent
+            recentMsg[recentPos] = str;
+            recentTime[recentPos] = time;
+            recentPos = (recentPos + 1) % RECENT_HISTORY_SIZE;
+
+            Entry e = buffer[head];
+            e.t = time;
+            e.msg = str;
+            head = (head + 1) % BUFFER_SIZE;
+            if (count < BUFFER_SIZE)
+                count++;
+            else
+                dropped++;
+
+            //wake up streamer before the ring overflows
+            if (stream != null && count >= BUFFER_SIZE / 2)
+                notifyAll();
+        }
 
-        //save in recent
-        recent.put(str, time);
+        android.util.Log.println(type, Cons.LOGTAG, str);
 
         //send message to listeners
         if (hsLogListener.size() > 0) {
@@ -208,14 +476,13 @@ public class Log
                 logListener.msg(type, str);
             }
         }
-
-        synchronized (this) {
-            buffer.add(new Entry(time, str));
-        }
     }
 
     private void log(int type, String msg, Throwable tr)
     {
+        if(!isLoggable(type))
+            return;
+
         log(type, getCaller(), msg, tr);
     }
 
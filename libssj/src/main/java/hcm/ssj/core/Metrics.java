@@ -0,0 +1,455 @@
+/*
+ * Metrics.java
+ * Copyright (c) 2018
+ * Authors: Ionut Damian, Michael Dietz, Frank Gaibler, Daniel Langerenken, Simon Flutura,
+ * Vitalijs Krumins, Antonio Grieco
+ * *****************************************************
+ * This file is part of the Social Signal Interpretation for Java (SSJ) framework
+ * developed at the Lab for Human Centered Multimedia of the University of Augsburg.
+ *
+ * SSJ has been inspired by the SSI (http://openssi.net) framework. SSJ is not a
+ * one-to-one port of SSI to Java, it is an approximation. Nor does SSJ pretend
+ * to offer SSI's comprehensive functionality and performance (this is java after all).
+ * Nevertheless, SSJ borrows a lot of programming patterns from SSI.
+ *
+ * This library is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 3 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package hcm.ssj.core;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Runtime metrics of all components of a pipeline.
+ * Every component reports into its own probe: processing time per frame, processed and dropped frames
+ * and missed deadlines of its timer. The fill level of the input buffers and the queue depth of the
+ * output event channel are sampled whenever a snapshot is taken.
+ *
+ * Snapshots can be pulled at any time or written periodically to a file and/or sent via UDP,
+ * one line per component:
+ * time, name, frames, dropped, missed, mean/p50/p99/max processing time (ms), input lag (s),
+ * input fill (%), gaps, lost samples, event queue depth, dropped events.
+ * The thread pools of the pipeline are reported as additional lines: completed tasks, rejected tasks,
+ * task run time, busy threads (%) and queued tasks.
+ */
+public class Metrics
+{
+    public static final String HEADER = "time\tcomponent\tframes\tdropped\tmissed\tmean\tp50\tp99\tmax\tlag\tfill\tgaps\tlost\tqueue\tevdropped";
+
+    public static class Probe
+    {
+        private final Component component;
+        private final Histogram time = new Histogram();
+        private volatile long frames = 0;
+        private volatile long dropped = 0;
+
+        Probe(Component component)
+        {
+            this.component = component;
+        }
+
+        void reset()
+        {
+            time.reset();
+            frames = 0;
+            dropped = 0;
+        }
+
+        /**
+         * @param start System.nanoTime() at the beginning of the frame
+         * @param ok false if the frame could not be processed (e.g. the input data was lost)
+         */
+        void end(long start, boolean ok)
+        {
+            if (ok)
+            {
+                time.record(System.nanoTime() - start);
+                frames++;
+            }
+            else
+            {
+                dropped++;
+            }
+        }
+
+        public String getName()
+        {
+            return component.getComponentName();
+        }
+
+        /**
+         * @return processing time per frame in ns
+         */
+        public Histogram getProcessingTime()
+        {
+            return time;
+        }
+
+        public long getFrames()
+        {
+            return frames;
+        }
+
+        public long getDroppedFrames()
+        {
+            return dropped;
+        }
+
+        /**
+         * @return number of ticks the component's timer was processed later than one interval
+         */
+        public long getMissedDeadlines()
+        {
+            Timer timer = component.getTimer();
+            return (timer == null) ? 0 : timer.getMissed();
+        }
+
+        /**
+         * @return how far the slowest input lags behind its source (in seconds)
+         */
+        public double getInputLag()
+        {
+            return component.getInputLag();
+        }
+
+        /**
+         * @return fill level of the fullest input buffer (0 - 1), i.e. how much of it is waiting to be read
+         */
+        public double getInputFill()
+        {
+            return component.getInputFill();
+        }
+
+        /**
+         * @return number of times the component lost (or skipped) input data
+         */
+        public long getGaps()
+        {
+            long gaps = 0;
+            TimeBuffer.Reader[] readers = component.getReaders();
+            if (readers != null)
+                for (TimeBuffer.Reader r : readers)
+                    gaps += r.getGaps();
+            return gaps;
+        }
+
+        /**
+         * @return number of input samples the component lost (or skipped)
+         */
+        public long getLostSamples()
+        {
+            long lost = 0;
+            TimeBuffer.Reader[] readers = component.getReaders();
+            if (readers != null)
+                for (TimeBuffer.Reader r : readers)
+                    lost += r.getLostSamples();
+            return lost;
+        }
+
+        public int getQueueDepth()
+        {
+            EventChannel ch = component._evchannel_out;
+            return (ch == null) ? 0 : ch.getQueueDepth();
+        }
+
+        public long getDroppedEvents()
+        {
+            EventChannel ch = component._evchannel_out;
+            return (ch == null) ? 0 : ch.getDroppedEvents();
+        }
+    }
+
+    private final CopyOnWriteArrayList<Probe> probes = new CopyOnWriteArrayList<>();
+    private final CopyOnWriteArrayList<ThreadPool> pools = new CopyOnWriteArrayList<>();
+    private final Histogram snapshot = new Histogram();
+    private final AsciiFormatter formatter = new AsciiFormatter(1024);
+
+    private Thread reporter = null;
+    private volatile boolean reporting = false;
+
+    Metrics() {}
+
+    void register(Probe probe)
+    {
+        probe.reset();
+        probes.addIfAbsent(probe);
+    }
+
+    void register(ThreadPool pool)
+    {
+        pools.addIfAbsent(pool);
+    }
+
+    void clear()
+    {
+        probes.clear();
+        pools.clear();
+    }
+
+    public List<Probe> getProbes()
+    {
+        return probes;
+    }
+
+    /**
+     * Writes the current state of all probes, one line per component
+     *
+     * @param out formatter to write to
+     * @param time pipeline time of the snapshot
+     */
+    public void snapshot(AsciiFormatter out, double time)
+    {
+        synchronized (snapshot)
+        {
+            for (Probe p : probes)
+            {
+                snapshot(out, time, p);
+            }
+            for (ThreadPool p : pools)
+            {
+                snapshot(out, time, p);
+            }
+        }
+    }
+
+    private void snapshot(AsciiFormatter out, double time, Probe p)
+    {
+        p.time.copyTo(snapshot);
+
+        out.appendFixed(time, 3).append('\t')
+           .append(p.getName()).append('\t')
+           .append(p.getFrames()).append('\t')
+           .append(p.getDroppedFrames()).append('\t')
+           .append(p.getMissedDeadlines()).append('\t')
+           .appendFixed(snapshot.getMean() / 1E6, 3).append('\t')
+           .appendFixed(snapshot.getPercentile(50) / 1E6, 3).append('\t')
+           .appendFixed(snapshot.getPercentile(99) / 1E6, 3).append('\t')
+           .appendFixed(snapshot.getMax() / 1E6, 3).append('\t')
+           .appendFixed(p.getInputLag(), 3).append('\t')
+           .appendFixed(p.getInputFill() * 100, 1).append('\t')
+           .append(p.getGaps()).append('\t')
+           .append(p.getLostSamples()).append('\t')
+           .append(p.getQueueDepth()).append('\t')
+           .append(p.getDroppedEvents()).append('\n');
+    }
+
+    private void snapshot(AsciiFormatter out, double time, ThreadPool p)
+    {
+        p.getTaskTime(snapshot);
+
+        out.appendFixed(time, 3).append('\t')
+           .append("pool_").append(p.getName()).append('\t')
+           .append(p.getCompletedTaskCount()).append('\t')
+           .append(p.getRejectedCount()).append("\t0\t")
+           .appendFixed(snapshot.getMean() / 1E6, 3).append('\t')
+           .appendFixed(snapshot.getPercentile(50) / 1E6, 3).append('\t')
+           .appendFixed(snapshot.getPercentile(99) / 1E6, 3).append('\t')
+           .appendFixed(snapshot.getMax() / 1E6, 3).append("\t0\t")
+           .appendFixed(p.getActiveCount() * 100.0 / p.getMaximumPoolSize(), 1).append("\t0\t0\t")
+           .append(p.getQueueDepth()).append("\t0\n");
+    }
+
+    public List<ThreadPool> getThreadPools()
+    {
+        return pools;
+    }
+
+    @Override
+    public String toString()
+    {
+        AsciiFormatter out = new AsciiFormatter(1024);
+        out.append(HEADER).append('\n');
+        snapshot(out, Pipeline.getInstance().getTime());
+        return out.toString();
+    }
+
+    /**
+     * Starts writing snapshots periodically
+     *
+     * @param interval time between snapshots in seconds
+     * @param path directory of the metrics file, null or empty to not write a file
+     * @param host receiver of the snapshots (UDP), null or empty to not send the snapshots
+     * @param port port of the receiver
+     */
+    void startReporting(final double interval, String path, String host, final int port)
+    {
+        stopReporting();
+
+        OutputStream file = null;
+        DatagramSocket socket = null;
+        InetAddress address = null;
+        try
+        {
+            if (path != null && !path.isEmpty())
+            {
+                File dir = Util.createDirectory(path);
+                if (dir != null)
+                {
+                    File f = new File(dir, "metrics.txt");
+                    int i = 2;
+                    while (f.exists())
+                    {
+                        f = new File(dir, "metrics" + (i++) + ".txt");
+                    }
+                    file = new FileOutputStream(f);
+                    file.write((HEADER + "\n").getBytes());
+                }
+            }
+
+            if (host != null && !host.isEmpty())
+            {
+                address = InetAddress.getByName(host);
+                socket = new DatagramSocket();
+            }
+        }
+        catch (IOException e)
+        {
+            Log.e("unable to open metrics output", e);
+        }
+
+        if (file == null && socket == null)
+            return;
+
+        final OutputStream fileOut = file;
+        final DatagramSocket socketOut = socket;
+        final InetAddress addressOut = address;
+
+        reporting = true;
+        reporter = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                Pipeline frame = Pipeline.getInstance();
+                long next = System.nanoTime();
+                while (reporting)
+                {
+                    next += (long) (interval * 1E9);
+                    long wait = (next - System.nanoTime()) / 1000000L;
+                    if (wait > 0)
+                    {
+                        try
+                        {
+                            Thread.sleep(wait);
+                        }
+                        catch (InterruptedException e)
+                        {
+                            //stopped, write the final snapshot
+                        }
+                    }
+
+                    write(frame.getTime(), fileOut, socketOut, addressOut, port);
+                }
+
+                try
+                {
+                    if (fileOut != null)
+                        fileOut.close();
+                }
+                catch (IOException e)
+                {
+                    Log.w("failed closing metrics file", e);
+                }
+
+                if (socketOut != null)
+                    socketOut.close();
+            }
+        }, "SSJ_Metrics");
+        reporter.start();
+    }
+
+    private void write(double time, OutputStream file, DatagramSocket socket, InetAddress address, int port)
+    {
+        try
+        {
+            synchronized (snapshot)
+            {
+                for (Probe p : probes)
+                {
+                    formatter.clear();
+                    snapshot(formatter, time, p);
+                    send(file, socket, address, port);
+                }
+                for (ThreadPool p : pools)
+                {
+                    formatter.clear();
+                    snapshot(formatter, time, p);
+                    send(file, socket, address, port);
+                }
+            }
+
+            if (file != null)
+                file.flush();
+        }
+        catch (IOException e)
+        {
+            Log.w("failed writing metrics (" + e.getMessage() + ")");
+        }
+    }
+
+    private void send(OutputStream file, DatagramSocket socket, InetAddress address, int port) throws IOException
+    {
+        if (file != null)
+            formatter.writeTo(file);
+        if (socket != null)
+            socket.send(new DatagramPacket(formatter.array(), formatter.length(), address, port));
+    }
+
+    void stopReporting()
+    {
+        if (reporter == null)
+            return;
+
+        reporting = false;
+        reporter.interrupt();
+        try
+        {
+            reporter.join(1000);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        reporter = null;
+    }
+
+    /**
+     * @param fill true to compute the fill level of the buffers instead of the lag in seconds
+     * @return max lag (or fill level) of all inputs
+     */
+    static double inputLag(Pipeline frame, int[] bufferIDs, int[] readPos, boolean fill)
+    {
+        if (bufferIDs == null || readPos == null)
+            return 0;
+
+        double max = 0;
+        for (int i = 0; i < bufferIDs.length && i < readPos.length; i++)
+        {
+            TimeBuffer buf = frame.getBuffer(bufferIDs[i]);
+            if (buf == null)
+                continue;
+
+            int lag = Math.max(0, buf.getLag(readPos[i]));
+            max = Math.max(max, fill ? (double) lag / buf.getCapacitySamples() : lag / buf.getSampleRate());
+        }
+        return max;
+    }
+}
@@ -165,6 +165,7 @@ class NetworkSync {
         SyncSender(int interval)
         {
             timer = new Timer(interval);
+            timer.setName("NetworkSync");
         }
 
         public void terminate()
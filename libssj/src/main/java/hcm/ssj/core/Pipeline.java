@@ -35,12 +35,15 @@ import java.net.InetAddress;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.TimeUnit;
 
 import hcm.ssj.BuildConfig;
 import hcm.ssj.R;
+import hcm.ssj.core.event.Event;
 import hcm.ssj.core.option.Option;
 import hcm.ssj.core.option.OptionList;
 import hcm.ssj.feedback.Feedback;
@@ -61,10 +64,20 @@ public class Pipeline
     {
         /** duration of pipeline start-up phase. Default: 3 */
         public final Option<Integer> countdown = new Option<>("countdown", 3, Integer.class, "duration of pipeline start-up phase");
-        /** size of all inter-component buffers (in seconds). Default: 2.0 */
-        public final Option<Float> bufferSize = new Option<>("bufferSize", 2.f, Float.class, "size of all inter-component buffers (in seconds)");
+        /** size of all inter-component buffers (in seconds), if autoBufferSize is on only buffers read by event triggered consumers are this large. Default: 2.0 */
+        public final Option<Float> bufferSize = new Option<>("bufferSize", 2.f, Float.class, "size of all inter-component buffers (in seconds), lower limit for buffers read by event triggered consumers if autoBufferSize is on");
+        /** size each buffer according to the windows of its readers. Default: true */
+        public final Option<Boolean> autoBufferSize = new Option<>("autoBufferSize", true, Boolean.class, "size each buffer according to the windows of its readers");
+        /** added to the size of automatically sized buffers to absorb scheduling jitter (in seconds). Default: 1.0 */
+        public final Option<Float> bufferHeadroom = new Option<>("bufferHeadroom", 1.f, Float.class, "added to the size of automatically sized buffers to absorb jitter (in seconds)");
+        /** memory budget of all inter-component buffers, the headroom is reduced to meet it (in MB, 0 = unlimited). Default: 128 */
+        public final Option<Float> bufferMemory = new Option<>("bufferMemory", 128.f, Float.class, "memory budget of all inter-component buffers (in MB, 0 = unlimited)");
         /** How long to wait for threads to finish on pipeline shutdown. Default: 30.0 */
         public final Option<Float> waitThreadKill = new Option<>("waitThreadKill", 30f, Float.class, "How long to wait for threads to finish on pipeline shutdown");
+        /** number of threads kept for auxiliary tasks (e.g. connections), up to one more per component is started on demand. Default: 4 */
+        public final Option<Integer> auxThreads = new Option<>("auxThreads", 4, Integer.class, "number of threads kept for auxiliary tasks, up to one more per component is started on demand");
+        /** number of threads delivering events to listeners without a dedicated dispatch thread (0 = number of cores). Default: 0 */
+        public final Option<Integer> eventThreads = new Option<>("eventThreads", 0, Integer.class, "number of threads delivering events (0 = number of cores)");
         /** How long to wait for a sensor to connect. Default: 30.0 */
         public final Option<Float> waitSensorConnect = new Option<>("waitSensorConnect", 30.f, Float.class, "How long to wait for a sensor to connect");
         /** Cross-device synchronization (requires network). Default: NONE */
@@ -85,6 +98,36 @@ public class Pipeline
         public final Option<Double> logtimeout = new Option<>("logtimeout", 1.0, Double.class, "ignore repeated entries < timeout");
         /** Shut down pipeline if runtime error is encountered */
         public final Option<Boolean> terminateOnError = new Option<>("terminateOnError", false, Boolean.class, "Shut down pipeline if runtime error is encountered");
+        /** use lock-free inter-component buffers, readers are only woken up once their data is available. Default: false */
+        public final Option<Boolean> lockFreeBuffers = new Option<>("lockFreeBuffers", false, Boolean.class, "use lock-free inter-component buffers");
+        /** max number of events waiting to be delivered to a single listener (at most MAX_NUM_EVENTS_PER_CHANNEL). Default: 128 */
+        public final Option<Integer> eventQueueSize = new Option<>("eventQueueSize", Cons.MAX_NUM_EVENTS_PER_CHANNEL, Integer.class, "max number of pending events per listener");
+        /** what to do if an event listener cannot keep up. Default: DROP_OLDEST */
+        public final Option<EventChannel.OverflowPolicy> eventOverflow = new Option<>("eventOverflow", EventChannel.OverflowPolicy.DROP_OLDEST, EventChannel.OverflowPolicy.class, "behaviour if an event listener cannot keep up");
+        /** deliver events to each listener on its own thread instead of the shared thread pool. Default: false */
+        public final Option<Boolean> eventDispatchThread = new Option<>("eventDispatchThread", false, Boolean.class, "deliver events to each listener on a dedicated thread");
+        /** how transformers and consumers are triggered. Default: TIMED */
+        public final Option<ExecutionMode> execution = new Option<>("execution", ExecutionMode.TIMED, ExecutionMode.class, "how transformers and consumers are triggered");
+        /** replay as fast as possible on a clock driven by the sensor data instead of the system clock (offline processing). Default: false */
+        public final Option<Boolean> virtualTime = new Option<>("virtualTime", false, Boolean.class, "replay as fast as possible on a virtual clock driven by the sensor data");
+        /** drive sensor channels and watchdogs from a few shared threads instead of one thread each. Default: false */
+        public final Option<Boolean> sharedScheduler = new Option<>("sharedScheduler", false, Boolean.class, "drive sensor channels and watchdogs from a shared scheduler");
+        /** number of threads of the shared scheduler. Default: 2 */
+        public final Option<Integer> schedulerThreads = new Option<>("schedulerThreads", 2, Integer.class, "number of threads of the shared scheduler");
+        /** what happens if a consumer or transformer falls more than bufferSize behind, can be overridden per edge. Default: DROP */
+        public final Option<TimeBuffer.OverrunPolicy> overrun = new Option<>("overrun", TimeBuffer.OverrunPolicy.DROP, TimeBuffer.OverrunPolicy.class, "behaviour if a reader falls behind by more than bufferSize");
+        /** maximum size of inter-component buffers with the GROW policy (in seconds). Default: 10.0 */
+        public final Option<Float> bufferSizeMax = new Option<>("bufferSizeMax", 10.f, Float.class, "maximum size of growing buffers (in seconds)");
+        /** size of the disk-backed overflow of buffers with the SPILL policy (in seconds). Default: 60.0 */
+        public final Option<Float> spillSize = new Option<>("spillSize", 60.f, Float.class, "size of the disk-backed buffer overflow (in seconds)");
+        /** time between two metrics snapshots in seconds, 0 to disable. Default: 0 */
+        public final Option<Float> metricsInterval = new Option<>("metricsInterval", 0f, Float.class, "time between metrics snapshots (0 = off)");
+        /** location of metrics file, leave empty to not write a file. Default: /sdcard/SSJ/[time] */
+        public final Option<String> metricsPath = new Option<>("metricsPath", FileCons.SSJ_EXTERNAL_STORAGE + File.separator + "[time]", String.class, "location of metrics file");
+        /** IP address metrics snapshots are sent to via UDP, leave empty to not send them. Default: null */
+        public final Option<String> metricsHost = new Option<>("metricsHost", null, String.class, "IP address metrics snapshots are sent to (UDP)");
+        /** port metrics snapshots are sent to. Default: 0 */
+        public final Option<Integer> metricsPort = new Option<>("metricsPort", 0, Integer.class, "port metrics snapshots are sent to");
 
         private Options()
         {
@@ -107,10 +150,21 @@ public class Pipeline
         CONTINUOUS
     }
 
+    public enum ExecutionMode
+    {
+        /** components are paced by their own timer */
+        TIMED,
+        /** components process a frame as soon as it is available, on their own thread */
+        DATA_DRIVEN,
+        /** components process a frame on the thread of the provider which completes it */
+        INLINE
+    }
+
     public final Options options = new Options();
 
     protected String name = "SSJ_Framework";
-    private State state;
+    private volatile State state;
+    private final Object stateLock = new Object();
 
     private long startTime = 0; //virtual clock
     private long startTimeSystem = 0; //real clock
@@ -119,7 +173,15 @@ public class Pipeline
 
     private NetworkSync sync = null;
 
+    //virtual clock, state of each buffer: 0 = not a clock source, 1 = running sensor, 2 = sensor without further data
+    private volatile boolean virtualClock = false;
+    private volatile int[] clockSources = new int[0];
+    private final Object clockLock = new Object();
+
     ThreadPool threadPool = null;
+    ThreadPool auxPool = null;
+    ThreadPool eventPool = null;
+    Scheduler scheduler = null;
     ExceptionHandler exceptionHandler = null;
 
     private HashSet<Component> components = new HashSet<>();
@@ -128,6 +190,8 @@ public class Pipeline
 
     private FileDownloader downloader;
 
+    private final Metrics metrics = new Metrics();
+
     protected static Pipeline instance = null;
 
     private Pipeline()
@@ -166,7 +230,11 @@ public class Pipeline
      */
     private void setState(final State newState)
     {
-        this.state = newState;
+        synchronized (stateLock)
+        {
+            this.state = newState;
+            stateLock.notifyAll();
+        }
 
         for (final PipelineStateListener stateListener : stateListeners)
         {
@@ -181,6 +249,28 @@ public class Pipeline
         }
     }
 
+    /**
+     * Blocks the calling thread while the pipeline is starting up
+     */
+    public void waitForStart()
+    {
+        synchronized (stateLock)
+        {
+            while (state == State.STARTING)
+            {
+                try
+                {
+                    stateLock.wait();
+                }
+                catch (InterruptedException e)
+                {
+                    Log.w("thread interrupt");
+                    return;
+                }
+            }
+        }
+    }
+
     /**
      * Adds a new pipeline state listener
      * @param listener listener
@@ -209,12 +299,28 @@ public class Pipeline
 
         try
         {
+            if (options.log.get())
+                Log.getInstance().startStream(options.logpath.parseWildcards());
+
             Log.i("starting pipeline" + '\n' +
                   "\tSSJ v" + getVersion() + '\n' +
                   "\tlocal time: " + Util.getTimestamp(System.currentTimeMillis()));
 
-            int coreThreads = Runtime.getRuntime().availableProcessors();
-            threadPool = new ThreadPool(coreThreads, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>());
+            //each component occupies a thread for its whole lifetime
+            threadPool = new ThreadPool("components", Math.max(1, components.size()), Math.max(1, components.size()), 60L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>());
+
+            //helper tasks (connections, sync) may live as long as the pipeline and are not known upfront,
+            //the pool grows by at most one thread per component beyond the kept ones
+            int auxThreads = Math.max(1, options.auxThreads.get());
+            auxPool = new ThreadPool("aux", auxThreads, auxThreads + components.size(), 60L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>());
+
+            //event dispatch tasks are short, at most one task per listener is queued
+            int eventThreads = (options.eventThreads.get() > 0) ? options.eventThreads.get() : Runtime.getRuntime().availableProcessors();
+            eventPool = new ThreadPool("events", eventThreads, eventThreads, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+            eventPool.allowCoreThreadTimeOut(true);
+
+            if (options.sharedScheduler.get())
+                scheduler = new Scheduler(options.schedulerThreads.get());
 
             //sync with other pipelines
             if (options.sync.get() != SyncType.NONE) {
@@ -222,9 +328,29 @@ public class Pipeline
                 sync = new NetworkSync(options.sync.get(), isMaster, InetAddress.getByName(options.syncHost.get()), options.syncPort.get(), (int)(options.syncInterval.get() * 1000));
             }
 
+            virtualClock = options.virtualTime.get();
+            if (virtualClock)
+            {
+                //sensors drive the clock, downstream components run on the sensors' threads
+                Log.i("replaying on virtual clock");
+                int[] sources = new int[buffers.size()];
+                for (int i = 0; i < sources.length; i++)
+                    sources[i] = (buffers.get(i).getOwner() instanceof SensorChannel) ? 1 : 0;
+                clockSources = sources;
+            }
+
+            metrics.clear();
+            metrics.register(threadPool);
+            metrics.register(auxPool);
+            metrics.register(eventPool);
+
             Log.i("preparing buffers");
+            sizeBuffers();
             for (TimeBuffer b : buffers)
+            {
+                b.setOverrunPolicy(options.overrun.get(), options.bufferSizeMax.get(), options.spillSize.get());
                 b.reset();
+            }
 
             for (Component c : components)
             {
@@ -258,6 +384,14 @@ public class Pipeline
             setState(State.RUNNING);
             Log.i("pipeline started");
 
+            if (options.metricsInterval.get() > 0)
+            {
+                String path = options.metricsPath.get();
+                metrics.startReporting(options.metricsInterval.get(),
+                                       (path == null || path.isEmpty()) ? null : options.metricsPath.parseWildcards(),
+                                       options.metricsHost.get(), options.metricsPort.get());
+            }
+
             if (options.sync.get() != SyncType.NONE)
             {
                 if (options.syncHost.get() != null)
@@ -271,7 +405,7 @@ public class Pipeline
                             stop();
                         }
                     };
-                    threadPool.execute(stopper);
+                    auxPool.execute(stopper);
                 }
             }
         }
@@ -316,7 +450,7 @@ public class Pipeline
         Cons.Type type = c.getSampleType();
 
         //add output buffer
-        TimeBuffer buf = new TimeBuffer(options.bufferSize.get(), sr, dim, bytesPerValue, type, c);
+        TimeBuffer buf = new TimeBuffer(initialBufferSize(), sr, dim, bytesPerValue, type, c, options.lockFreeBuffers.get());
         buffers.add(buf);
         int buffer_id = buffers.size() - 1;
         c.setBufferID(buffer_id);
@@ -403,7 +537,7 @@ public class Pipeline
         Cons.Type type = t.getOutputStream().type;
 
         //add output buffer
-        TimeBuffer buf = new TimeBuffer(options.bufferSize.get(), sr, dim, bytesPerValue, type, t);
+        TimeBuffer buf = new TimeBuffer(initialBufferSize(), sr, dim, bytesPerValue, type, t, options.lockFreeBuffers.get());
         buffers.add(buf);
         int buffer_id = buffers.size() - 1;
         t.setBufferID(buffer_id);
@@ -643,7 +777,9 @@ public class Pipeline
         if (buffer_id < 0 || buffer_id >= buffers.size())
             Log.w("cannot push to buffer " + buffer_id + ". Buffer does not exist.");
 
-        buffers.get(buffer_id).push(data, numBytes);
+        TimeBuffer buf = buffers.get(buffer_id);
+        buf.push(data, numBytes);
+        buf.runInlineReaders();
     }
 
     void pushZeroes(int buffer_id)
@@ -666,7 +802,10 @@ public class Pipeline
             int bytes = (int) ((frame_time - buffer_time) * buf.getSampleRate()) * buf.getBytesPerSample();
 
             if (bytes > 0)
+            {
                 buf.pushZeroes(bytes);
+                buf.runInlineReaders();
+            }
         }
     }
 
@@ -680,7 +819,36 @@ public class Pipeline
         if (buffer_id < 0 || buffer_id >= buffers.size())
             Log.w("cannot push to buffer " + buffer_id + ". Buffer does not exist.");
 
-        buffers.get(buffer_id).pushZeroes(num);
+        TimeBuffer buf = buffers.get(buffer_id);
+        buf.pushZeroes(num);
+        buf.runInlineReaders();
+    }
+
+    /**
+     * @return true if the requested samples have already been pushed to the buffer
+     */
+    boolean isDataAvailable(int buffer_id, int startSample, int numSamples)
+    {
+        return buffers.get(buffer_id).isAvailable(startSample, numSamples);
+    }
+
+    TimeBuffer getBuffer(int buffer_id)
+    {
+        return (buffer_id >= 0 && buffer_id < buffers.size()) ? buffers.get(buffer_id) : null;
+    }
+
+    /**
+     * Wakes up producers waiting for their readers, called when a component stops reading
+     */
+    void wakeProducers()
+    {
+        for (TimeBuffer b : buffers)
+            b.wakeProducer();
+    }
+
+    void addInlineReader(int buffer_id, Runnable reader)
+    {
+        buffers.get(buffer_id).addInlineReader(reader);
     }
 
     boolean getData(int buffer_id, Object data, double start_time, double duration)
@@ -726,6 +894,16 @@ public class Pipeline
     }
 
     boolean getData(int buffer_id, Object data, int startSample, int numSamples)
+    {
+        return getData(buffer_id, null, data, startSample, numSamples);
+    }
+
+    /**
+     * Reads data on behalf of a registered reader, the reader's overrun policy is applied if the data has been overwritten
+     *
+     * @return true if data was read, check {@link TimeBuffer.Reader#getSample()} for the position it was read from
+     */
+    boolean getData(int buffer_id, TimeBuffer.Reader reader, Object data, int startSample, int numSamples)
     {
         if (!isRunning())
         {
@@ -736,8 +914,173 @@ public class Pipeline
             Log.w("Invalid buffer");
 
         TimeBuffer buf = buffers.get(buffer_id);
-        int res = buf.get(data, startSample, numSamples);
+        int res = buf.get(reader, data, startSample, numSamples);
+
+        if (res == TimeBuffer.STATUS_SUCCESS && reader != null && reader.getSample() != startSample)
+            reportGap(buf, reader, startSample);
+
+        return checkStatus(buf, res, startSample, numSamples);
+    }
+
+    /**
+     * Provides read-only access to buffered data without copying it.
+     * The view pins the data in the buffer and has to be released after use.
+     *
+     * @param buffer_id buffer to read from
+     * @param view view to fill
+     * @param startSample first sample
+     * @param numSamples number of samples
+     * @return true if the view is valid
+     */
+    boolean getDataView(int buffer_id, BufferView view, int startSample, int numSamples)
+    {
+        return getDataView(buffer_id, null, view, startSample, numSamples);
+    }
+
+    boolean getDataView(int buffer_id, TimeBuffer.Reader reader, BufferView view, int startSample, int numSamples)
+    {
+        if (!isRunning())
+        {
+            return false;
+        }
+
+        if (buffer_id < 0 || buffer_id >= buffers.size())
+            Log.w("Invalid buffer");
 
+        TimeBuffer buf = buffers.get(buffer_id);
+        int res = buf.acquire(reader, view, startSample, numSamples);
+
+        if (res == TimeBuffer.STATUS_SUCCESS && reader != null && reader.getSample() != startSample)
+            reportGap(buf, reader, startSample);
+
+        return checkStatus(buf, res, startSample, numSamples);
+    }
+
+    /**
+     * Reports that a reader skipped ahead. If the reader provides events, a "gap" event covering the skipped data is sent.
+     */
+    private void reportGap(TimeBuffer buf, TimeBuffer.Reader reader, int requestedSample)
+    {
+        Component c = reader.getComponent();
+        double from = requestedSample / buf.getSampleRate();
+        double to = reader.getSample() / buf.getSampleRate();
+
+        Log.w(c.getComponentName(), String.format(Locale.US, "reader too slow, skipped %.3fs of %s", to - from, buf.getOwner().getComponentName()));
+
+        EventChannel channel = c._evchannel_out;
+        if (channel != null)
+        {
+            Event ev = channel.obtainEvent(Cons.Type.EMPTY);
+            ev.name = "gap";
+            ev.sender = c.getComponentName();
+            ev.time = (long) (from * 1000 + 0.5);
+            ev.dur = (int) ((to - from) * 1000 + 0.5);
+            channel.pushEvent(ev);
+        }
+    }
+
+    /**
+     * Sets the size of the buffer of a provider, overrides the automatic sizing
+     *
+     * @param source provider
+     * @param capacity buffer size in seconds, 0 to use the automatic sizing again
+     */
+    public void setBufferSize(Provider source, double capacity)
+    {
+        TimeBuffer buf = getBuffer(source.getBufferID());
+        if (buf == null)
+        {
+            Log.w(source.getComponentName() + " has not been added to the pipeline");
+            return;
+        }
+        buf.setFixedCapacity(capacity);
+    }
+
+    private double initialBufferSize()
+    {
+        //automatically sized buffers are allocated on start
+        return options.autoBufferSize.get() ? 0 : options.bufferSize.get();
+    }
+
+    /**
+     * Sizes each buffer to hold the largest window (frame + delta) of its readers, one output frame of
+     * its producer and some headroom. If all buffers together exceed the memory budget, the headroom shrinks.
+     */
+    private void sizeBuffers()
+    {
+        int n = buffers.size();
+        double[] required = new double[n];
+        double[] headroom = new double[n];
+        long requiredBytes = 0;
+        long headroomBytes = 0;
+
+        for (int i = 0; i < n; i++)
+        {
+            TimeBuffer b = buffers.get(i);
+            if (b.getFixedCapacity() > 0)
+            {
+                required[i] = b.getFixedCapacity();
+            }
+            else if (!options.autoBufferSize.get())
+            {
+                required[i] = options.bufferSize.get();
+            }
+            else
+            {
+                int window = 0;
+                for (TimeBuffer.Reader r : b.getReaders())
+                    window = Math.max(window, r.getWindow());
+
+                required[i] = (window + b.getOwner().getOutputStream().num) / b.getSampleRate();
+                if (b.isRandomAccess())
+                    required[i] = Math.max(required[i], options.bufferSize.get());
+                headroom[i] = options.bufferHeadroom.get();
+            }
+
+            double bytesPerSecond = b.getSampleRate() * b.getBytesPerSample();
+            requiredBytes += (long) (required[i] * bytesPerSecond);
+            headroomBytes += (long) (headroom[i] * bytesPerSecond);
+        }
+
+        double scale = 1;
+        long budget = (long) (options.bufferMemory.get() * 1024 * 1024);
+        if (budget > 0 && requiredBytes + headroomBytes > budget)
+        {
+            scale = (headroomBytes > 0) ? Math.max(0, (double) (budget - requiredBytes) / headroomBytes) : 0;
+            if (requiredBytes > budget)
+                Log.w(String.format(Locale.US, "buffers require %.1fMB, memory budget is %.1fMB", requiredBytes / 1048576.0, budget / 1048576.0));
+            else
+                Log.w(String.format(Locale.US, "buffer headroom reduced to %.0f%% to meet memory budget", scale * 100));
+        }
+
+        for (int i = 0; i < n; i++)
+        {
+            TimeBuffer b = buffers.get(i);
+            b.resize(required[i] + headroom[i] * scale);
+            Log.i(b.getOwner().getComponentName(), String.format(Locale.US, "buffer size %.2fs (%dkB)", b.getCapacitySamples() / b.getSampleRate(), b.getCapacity() / 1024));
+        }
+    }
+
+    /**
+     * Sets the overrun policy of a single edge, overrides the "overrun" option
+     *
+     * @param source provider the component reads from
+     * @param reader consumer or transformer
+     * @param policy policy, null to use the "overrun" option
+     * @throws SSJException if the component does not read from the provider
+     */
+    public void setOverrunPolicy(Provider source, Component reader, TimeBuffer.OverrunPolicy policy) throws SSJException
+    {
+        TimeBuffer buf = getBuffer(source.getBufferID());
+        TimeBuffer.Reader r = (buf == null) ? null : buf.getReader(reader);
+        if (r == null)
+            throw new SSJException(reader.getComponentName() + " does not read from " + source.getComponentName());
+
+        r.setOverrunPolicy(policy);
+    }
+
+    private boolean checkStatus(TimeBuffer buf, int res, int startSample, int numSamples)
+    {
         switch (res)
         {
             case TimeBuffer.STATUS_INPUT_ARRAY_TOO_SMALL:
@@ -763,6 +1106,9 @@ public class Pipeline
             case TimeBuffer.STATUS_UNKNOWN_DATA:
                 Log.w(buf.getOwner().getComponentName(), "requested data is unknown, probably caused by a delayed sensor start");
                 return false;
+            case TimeBuffer.STATUS_NO_VIEW_AVAILABLE:
+                Log.w(buf.getOwner().getComponentName(), "too many views acquired on buffer");
+                return false;
             case TimeBuffer.STATUS_ERROR:
                 if (isRunning()) //this means that either the framework shut down (in this case the behaviour is normal) or some other error occurred
                     Log.w(buf.getOwner().getComponentName(), "unknown buffer error occurred");
@@ -788,6 +1134,9 @@ public class Pipeline
               "\tlocal time: " + Util.getTimestamp(System.currentTimeMillis()));
         try
         {
+            //write the final snapshot before the components shut down
+            metrics.stopReporting();
+
             if(sync != null)
             {
                 if (options.syncHost.get() == null)
@@ -821,17 +1170,43 @@ public class Pipeline
                 }
             }
 
+            for (Component c : components)
+            {
+                Timer timer = c.getTimer();
+                if (timer != null)
+                    Log.i(c.getComponentName(), String.format(Locale.US, "lateness: mean %.2fms, max %.2fms",
+                                                              timer.getMeanLateness() * 1000, timer.getMaxLateness() * 1000));
+            }
+
+            if (scheduler != null)
+            {
+                scheduler.shutdown(Cons.WAIT_THREAD_TERMINATION);
+                scheduler = null;
+            }
+
+            Log.i(threadPool.toString());
+            Log.i(auxPool.toString());
+            Log.i(eventPool.toString());
+
             threadPool.shutdown();
+            auxPool.shutdown();
+            eventPool.shutdown();
 
             Log.i("waiting for components to terminate");
             if(!threadPool.awaitTermination(Cons.WAIT_THREAD_TERMINATION, TimeUnit.MILLISECONDS))
                 threadPool.shutdownNow();
+            if(!auxPool.awaitTermination(Cons.WAIT_THREAD_TERMINATION, TimeUnit.MILLISECONDS))
+                auxPool.shutdownNow();
+            if(!eventPool.awaitTermination(Cons.WAIT_THREAD_TERMINATION, TimeUnit.MILLISECONDS))
+                eventPool.shutdownNow();
 
             Log.i("shut down completed");
         }
         catch (InterruptedException e)
         {
             threadPool.shutdownNow();
+            auxPool.shutdownNow();
+            eventPool.shutdownNow();
         }
         catch (Exception e)
         {
@@ -849,6 +1224,7 @@ public class Pipeline
         } finally
         {
             writeLogFile();
+            Log.getInstance().closeStream();
             setState(State.INACTIVE);
         }
     }
@@ -899,18 +1275,21 @@ public class Pipeline
 
         if(threadPool != null)
             threadPool.purge();
+        if(auxPool != null)
+            auxPool.purge();
 
         SSI.clear();
     }
 
     /**
-     * Executes a runnable using the pipeline's thread pool
+     * Executes a runnable on the pipeline's pool for auxiliary tasks,
+     * which starts a new thread if all kept threads are busy (up to one per component)
      *
      * @param r runnable
      */
     public void executeRunnable(Runnable r)
     {
-        threadPool.execute(r);
+        auxPool.execute(r);
     }
 
     /**
@@ -1012,6 +1391,14 @@ public class Pipeline
         if(wait) downloader.wait(t);
     }
 
+    /**
+     * @return runtime metrics of all components
+     */
+    public Metrics getMetrics()
+    {
+        return metrics;
+    }
+
     /**
      * @return elapsed time since start of the pipeline (in seconds)
      */
@@ -1028,9 +1415,111 @@ public class Pipeline
         if (startTime == 0)
             return 0;
 
+        if (virtualClock)
+            return (long) (getVirtualTime() * 1000);
+
         return SystemClock.elapsedRealtime() - startTime + timeOffset;
     }
 
+    /**
+     * @return true if the pipeline replays on a virtual clock
+     */
+    public boolean isVirtualTime()
+    {
+        return virtualClock;
+    }
+
+    /**
+     * @return true if all sensors have reached the end of their data while replaying on a virtual clock
+     */
+    public boolean isReplayFinished()
+    {
+        if (!virtualClock)
+            return false;
+
+        int[] sources = clockSources;
+        for (int state : sources)
+            if (state == 1)
+                return false;
+
+        return true;
+    }
+
+    ExecutionMode getExecutionMode()
+    {
+        return virtualClock ? ExecutionMode.INLINE : options.execution.get();
+    }
+
+    /**
+     * Virtual time is the time of the last sample which has been pushed by all running sensors
+     */
+    private double getVirtualTime()
+    {
+        int[] sources = clockSources;
+        double min = Double.MAX_VALUE;
+        double max = 0;
+
+        for (int i = 0; i < sources.length; i++)
+        {
+            if (sources[i] == 0)
+                continue;
+
+            double time = buffers.get(i).getLastWrittenSampleTime();
+            max = Math.max(max, time);
+            if (sources[i] == 1)
+                min = Math.min(min, time);
+        }
+
+        return (min == Double.MAX_VALUE) ? max : min;
+    }
+
+    /**
+     * Called by a sensor after pushing data, blocks while the sensor is ahead of the virtual clock
+     *
+     * @param bufferID buffer of the sensor
+     * @param lead how far the sensor may run ahead (in seconds)
+     */
+    void awaitVirtualClock(int bufferID, double lead)
+    {
+        TimeBuffer buf = buffers.get(bufferID);
+
+        synchronized (clockLock)
+        {
+            clockLock.notifyAll();
+
+            while (isRunning() && buf.getLastWrittenSampleTime() > getVirtualTime() + lead)
+            {
+                try
+                {
+                    clockLock.wait(Cons.SLEEP_IN_LOOP);
+                }
+                catch (InterruptedException e)
+                {
+                    Log.w("thread interrupt");
+                }
+            }
+        }
+    }
+
+    /**
+     * Called by a sensor which will not provide any more data, it no longer holds back the virtual clock
+     */
+    void releaseVirtualClock(int bufferID)
+    {
+        synchronized (clockLock)
+        {
+            int[] sources = clockSources.clone();
+            if (bufferID >= 0 && bufferID < sources.length && sources[bufferID] == 1)
+                sources[bufferID] = 2;
+            clockSources = sources;
+
+            clockLock.notifyAll();
+        }
+
+        if (isReplayFinished())
+            Log.i("replay finished");
+    }
+
     void adjustTime(long offset)
     {
         Log.d("adjusting clock by " + offset + " ms");
@@ -0,0 +1,282 @@
+/*
+ * Scheduler.java
+ * Copyright (c) 2018
+ * Authors: Ionut Damian, Michael Dietz, Frank Gaibler, Daniel Langerenken, Simon Flutura,
+ * Vitalijs Krumins, Antonio Grieco
+ * *****************************************************
+ * This file is part of the Social Signal Interpretation for Java (SSJ) framework
+ * developed at the Lab for Human Centered Multimedia of the University of Augsburg.
+ *
+ * SSJ has been inspired by the SSI (http://openssi.net) framework. SSJ is not a
+ * one-to-one port of SSI to Java, it is an approximation. Nor does SSJ pretend
+ * to offer SSI's comprehensive functionality and performance (this is java after all).
+ * Nevertheless, SSJ borrows a lot of programming patterns from SSI.
+ *
+ * This library is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 3 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package hcm.ssj.core;
+
+import java.util.ArrayList;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Drives periodic jobs of many components from a small set of shared threads
+ * instead of one sleeping thread per component.
+ * Jobs are kept in a priority queue ordered by their next tick, a job is never executed by two threads at once.
+ */
+public class Scheduler
+{
+    /**
+     * Periodic work item
+     */
+    public interface Job
+    {
+        /**
+         * Called once per tick of the job's timer
+         *
+         * @return false if the job should not be scheduled again
+         */
+        boolean step();
+    }
+
+    private static class Entry implements Comparable<Entry>
+    {
+        final String name;
+        final Job job;
+        final Timer timer;
+        long due;
+        //worker executing the current step, null while queued
+        Thread worker = null;
+        boolean cancelled = false;
+
+        Entry(String name, Job job, Timer timer)
+        {
+            this.name = name;
+            this.job = job;
+            this.timer = timer;
+        }
+
+        @Override
+        public int compareTo(Entry other)
+        {
+            //compare difference, nanoTime may overflow
+            long diff = due - other.due;
+            return (diff < 0) ? -1 : ((diff > 0) ? 1 : 0);
+        }
+    }
+
+    private final PriorityQueue<Entry> _queue = new PriorityQueue<>();
+    private final ArrayList<Entry> _running = new ArrayList<>();
+    private final ReentrantLock _lock = new ReentrantLock();
+    private final Condition _changed = _lock.newCondition();
+    private final Thread[] _workers;
+    private volatile boolean _terminate = false;
+
+    public Scheduler(int numThreads)
+    {
+        _workers = new Thread[Math.max(1, numThreads)];
+        for (int i = 0; i < _workers.length; i++)
+        {
+            _workers[i] = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    loop();
+                }
+            }, "SSJ_Scheduler_" + i);
+            _workers[i].start();
+        }
+    }
+
+    /**
+     * Schedules a job, the first step is executed at the next tick of the timer
+     *
+     * @param name name used for reporting
+     * @param job work item
+     * @param timer timer defining the update rate, must have been reset
+     */
+    public void schedule(String name, Job job, Timer timer)
+    {
+        Entry entry = new Entry(name, job, timer);
+        timer.setName(name);
+        entry.due = timer.getNextTick();
+
+        _lock.lock();
+        try
+        {
+            _queue.add(entry);
+            _changed.signalAll();
+        }
+        finally
+        {
+            _lock.unlock();
+        }
+    }
+
+    private void loop()
+    {
+        android.os.Process.setThreadPriority(Cons.THREAD_PRIORIIY_HIGH);
+
+        while (!_terminate)
+        {
+            Entry entry = null;
+
+            _lock.lock();
+            try
+            {
+                while (!_terminate && entry == null)
+                {
+                    Entry head = _queue.peek();
+                    if (head == null)
+                    {
+                        _changed.await();
+                        continue;
+                    }
+
+                    long wait = head.due - System.nanoTime();
+                    if (wait > 0)
+                    {
+                        _changed.awaitNanos(wait);
+                        continue;
+                    }
+
+                    entry = _queue.poll();
+                    entry.worker = Thread.currentThread();
+                    _running.add(entry);
+                }
+            }
+            catch (InterruptedException e)
+            {
+                Log.w("thread interrupt");
+            }
+            finally
+            {
+                _lock.unlock();
+            }
+
+            if (entry == null)
+            {
+                continue;
+            }
+
+            boolean keep = true;
+            String caller = Log.setCaller(entry.name);
+            try
+            {
+                entry.timer.advance();
+                keep = entry.job.step();
+            }
+            catch (Exception e)
+            {
+                Pipeline.getInstance().error(entry.name, "exception in scheduled job", e);
+            }
+            finally
+            {
+                Log.setCaller(caller);
+            }
+
+            _lock.lock();
+            try
+            {
+                entry.worker = null;
+                _running.remove(entry);
+
+                if (entry.cancelled)
+                {
+                    //wake up cancel()
+                    _changed.signalAll();
+                }
+                else if (keep && !_terminate)
+                {
+                    entry.due = entry.timer.getNextTick();
+                    _queue.add(entry);
+                    _changed.signal();
+                }
+            }
+            finally
+            {
+                _lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Removes a job, waits for its current step to complete if it is being executed by another worker
+     *
+     * @param job scheduled job
+     */
+    public void cancel(Job job) throws InterruptedException
+    {
+        _lock.lock();
+        try
+        {
+            for (Entry entry : _queue)
+            {
+                if (entry.job == job)
+                {
+                    _queue.remove(entry);
+                    return;
+                }
+            }
+
+            for (Entry entry : _running)
+            {
+                if (entry.job == job)
+                {
+                    entry.cancelled = true;
+
+                    //a job cancelling itself is dropped once its step returns
+                    while (_running.contains(entry) && entry.worker != Thread.currentThread())
+                    {
+                        _changed.await();
+                    }
+                    return;
+                }
+            }
+        }
+        finally
+        {
+            _lock.unlock();
+        }
+    }
+
+    /**
+     * Stops all workers, pending jobs are discarded
+     *
+     * @param timeout max time to wait for each worker (in ms)
+     */
+    public void shutdown(long timeout) throws InterruptedException
+    {
+        _terminate = true;
+
+        _lock.lock();
+        try
+        {
+            _queue.clear();
+            _changed.signalAll();
+        }
+        finally
+        {
+            _lock.unlock();
+        }
+
+        for (Thread worker : _workers)
+        {
+            worker.join(timeout);
+        }
+    }
+}
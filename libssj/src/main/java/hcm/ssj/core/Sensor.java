@@ -80,7 +80,7 @@ public abstract class Sensor extends Component {
                 }
                 catch (SSJFatalException e) {
                     _frame.error(this.getComponentName(), "failed to connect to sensor", e);
-                    _safeToKill = true;
+                    setSafeToKill();
                     return;
                 } catch (Exception e) {
                     _frame.error(this.getComponentName(), "failed to connect to sensor", e);
@@ -91,7 +91,7 @@ public abstract class Sensor extends Component {
                 update();
             } catch(SSJFatalException e) {
                 _frame.error(this.getComponentName(), "exception in sensor update", e);
-                _safeToKill = true;
+                setSafeToKill();
                 return;
             } catch(Exception e) {
                 _frame.error(this.getComponentName(), "exception in sensor update", e);
@@ -106,7 +106,7 @@ public abstract class Sensor extends Component {
             _frame.error(this.getComponentName(), "failed to disconnect from sensor", e);
         }
         _isConnected = false;
-        _safeToKill = true;
+        setSafeToKill();
     }
 
     /**
@@ -127,12 +127,8 @@ public abstract class Sensor extends Component {
 
     private void waitCheckConnect()
     {
-        try{
-            Thread.sleep(Cons.SLEEP_ON_COMPONENT_IDLE);
-        }
-        catch(InterruptedException e) {
-            Log.w("thread interrupt");
-        }
+        //returns early if the sensor is closed
+        waitForTermination(Cons.SLEEP_ON_COMPONENT_IDLE);
     }
 
     /**
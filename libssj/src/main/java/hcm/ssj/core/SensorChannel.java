@@ -45,6 +45,15 @@ public abstract class SensorChannel extends Provider {
 
     protected Sensor _sensor;
 
+    //set by channels whose process() blocks until data is available, these always run on their own thread
+    //(channels copying data received by their sensor's thread, e.g. socket or bluetooth, do not block)
+    protected boolean _blockingProcess = false;
+
+    private volatile boolean _endOfStream = false;
+
+    private WatchDog _dog;
+    private PowerManager.WakeLock _wakeLock;
+
     public SensorChannel()
     {
         _frame = Pipeline.getInstance();
@@ -62,16 +71,17 @@ public abstract class SensorChannel extends Provider {
 
         if(!_isSetup) {
             _frame.error(this.getComponentName(), "not initialized", null);
-            _safeToKill = true;
+            setSafeToKill();
             return;
         }
 
         //if user did not specify a custom priority, use high priority
         android.os.Process.setThreadPriority( (threadPriority == Cons.THREAD_PRIORITY_NORMAL) ? Cons.THREAD_PRIORIIY_HIGH : threadPriority );
         PowerManager mgr = (PowerManager)SSJApplication.getAppContext().getSystemService(Context.POWER_SERVICE);
-        PowerManager.WakeLock wakeLock = mgr.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, _name);
+        _wakeLock = mgr.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, _name);
 
-        WatchDog dog = new WatchDog(_bufferID, _watchInterval, _syncInterval);
+        _dog = new WatchDog(_bufferID, _watchInterval, _syncInterval);
+        _endOfStream = false;
 
         if(_sensor == null)
         {
@@ -79,13 +89,16 @@ public abstract class SensorChannel extends Provider {
         }
         else
         {
-            // wait for sensor to connect
-            while (!_sensor.isConnected() && !_terminate)
+            // wait for sensor to connect, the sensor notifies on connect
+            synchronized (_sensor)
             {
-                try {
-                    Thread.sleep(100);
-                } catch (InterruptedException e) {
-                    Log.w("thread interrupt");
+                while (!_sensor.isConnected() && !_terminate)
+                {
+                    try {
+                        _sensor.wait(Cons.SLEEP_IN_LOOP);
+                    } catch (InterruptedException e) {
+                        Log.w("thread interrupt");
+                    }
                 }
             }
         }
@@ -94,7 +107,7 @@ public abstract class SensorChannel extends Provider {
             enter(_stream_out);
         } catch(SSJFatalException e) {
             _frame.error(this.getComponentName(), "exception in enter", e);
-            _safeToKill = true;
+            setSafeToKill();
             return;
         } catch(Exception e) {
             _frame.error(this.getComponentName(), "exception in enter", e);
@@ -102,30 +115,113 @@ public abstract class SensorChannel extends Provider {
 
         _timer.reset();
 
-        while(!_terminate)
+        if(_frame.isVirtualTime())
         {
-            try {
-                wakeLock.acquire();
-                if(process(_stream_out))
-                {
-                    _frame.pushData(_bufferID, _stream_out.ptr(), _stream_out.tot);
-                    dog.checkIn();
+            runVirtual();
+            return;
+        }
+
+        if(_frame.scheduler != null && !_blockingProcess)
+        {
+            //hand over to the shared scheduler, this thread is no longer needed
+            _frame.scheduler.schedule(_name, new Scheduler.Job() {
+                @Override
+                public boolean step() {
+                    if(_terminate) {
+                        finish();
+                        return false;
+                    }
+                    return iterate();
                 }
-                _timer.sync();
-            } catch(SSJFatalException e) {
-                _frame.error(this.getComponentName(), "exception in loop", e);
-                _safeToKill = true;
+            }, _timer);
+            return;
+        }
+
+        while(!_terminate)
+        {
+            if(!iterate())
+                return;
+
+            _timer.sync();
+        }
+
+        finish();
+    }
+
+    /**
+     * Replay mode, data is pushed as fast as downstream components process it
+     */
+    private void runVirtual()
+    {
+        //the channel may run ahead of the other sensors by one chunk
+        double lead = _stream_out.num / _stream_out.sr;
+
+        //data read before the pipeline is running would be discarded
+        _frame.waitForStart();
+
+        while(!_terminate && !_endOfStream)
+        {
+            if(!iterate())
+            {
+                _frame.releaseVirtualClock(_bufferID);
                 return;
-            } catch(Exception e) {
-                _frame.error(this.getComponentName(), "exception in loop", e);
-            } finally {
-                wakeLock.release();
             }
+
+            _frame.awaitVirtualClock(_bufferID, lead);
         }
 
+        _frame.releaseVirtualClock(_bufferID);
+
+        //keep the pipeline's shutdown sequence
+        while(!_terminate)
+            waitForTermination(0);
+
+        finish();
+    }
+
+    /**
+     * Signals that the sensor will not provide any more data, e.g. because the end of a file was reached.
+     * When replaying on a virtual clock, the channel stops and no longer holds back the other sensors.
+     */
+    protected void endOfStream()
+    {
+        _endOfStream = true;
+    }
+
+    /**
+     * @return false if a fatal error occurred
+     */
+    private boolean iterate()
+    {
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            _wakeLock.acquire();
+            //data read past the end of a replayed stream is not pushed
+            if(process(_stream_out) && !(_endOfStream && _frame.isVirtualTime()))
+            {
+                _frame.pushData(_bufferID, _stream_out.ptr(), _stream_out.tot);
+                _dog.checkIn();
+                ok = true;
+            }
+        } catch(SSJFatalException e) {
+            _frame.error(this.getComponentName(), "exception in loop", e);
+            setSafeToKill();
+            return false;
+        } catch(Exception e) {
+            _frame.error(this.getComponentName(), "exception in loop", e);
+        } finally {
+            _wakeLock.release();
+            _probe.end(start, ok);
+        }
+        return true;
+    }
+
+    private void finish()
+    {
         //dog must be closed as soon as sensor stops providing
         try {
-            dog.close();
+            _dog.close();
         } catch(Exception e) {
             _frame.error(this.getComponentName(), "exception closing watch dog", e);
         }
@@ -136,7 +232,7 @@ public abstract class SensorChannel extends Provider {
             _frame.error(this.getComponentName(), "exception in flush", e);
         }
 
-        _safeToKill = true;
+        setSafeToKill();
     }
 
     /**
@@ -192,6 +288,7 @@ public abstract class SensorChannel extends Provider {
 
             // configure update rate
             _timer = new Timer((double)num_out / sr_out);
+            _timer.setName(_name);
         }
         catch(Exception e)
         {
@@ -222,6 +319,12 @@ public abstract class SensorChannel extends Provider {
         return desc;
     }
 
+    @Override
+    public Timer getTimer()
+    {
+        return _timer;
+    }
+
     protected abstract double getSampleRate();
     protected abstract int getSampleDimension();
     protected abstract Cons.Type getSampleType();
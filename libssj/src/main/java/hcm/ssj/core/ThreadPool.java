@@ -25,26 +25,132 @@
  * with this library; if not, see <http://www.gnu.org/licenses/>.
  */
 
+
 package hcm.ssj.core;
 
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * Extends java's ThreadPoolExecutor to add uncaught exception handling
+ * Extends java's ThreadPoolExecutor to add uncaught exception handling, component lifecycle tracking
+ * and pool metrics (task time, rejected tasks, queue depth).
  *
  * Created by Johnny on 06.04.2016.
  */
 public class ThreadPool extends java.util.concurrent.ThreadPoolExecutor {
 
+    private final String name;
+    private final Histogram taskTime = new Histogram();
+    private final AtomicLong rejected = new AtomicLong(0);
+
+    private final ThreadLocal<long[]> taskStart = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[1];
+        }
+    };
+
     public ThreadPool(int corePoolSize, int maximumPoolSize, long keepAliveTime, TimeUnit unit, BlockingQueue<Runnable> workQueue) {
+        this("pool", corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue);
+    }
+
+    /**
+     * @param name name of the pool, used for its threads and metrics
+     */
+    public ThreadPool(final String name, int corePoolSize, int maximumPoolSize, long keepAliveTime, TimeUnit unit, BlockingQueue<Runnable> workQueue) {
         super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue);
+        this.name = name;
+
+        setThreadFactory(new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger(0);
+
+            @Override
+            public Thread newThread(Runnable r) {
+                return new Thread(r, "SSJ_" + name + "_" + count.incrementAndGet());
+            }
+        });
+
+        setRejectedExecutionHandler(new RejectedExecutionHandler() {
+            @Override
+            public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+                rejected.incrementAndGet();
+                throw new RejectedExecutionException(name + " pool exhausted (" + executor.getMaximumPoolSize() + " threads), cannot execute " + r.getClass().getSimpleName());
+            }
+        });
+    }
+
+    @Override
+    public void execute(Runnable r) {
+        if(r instanceof Component)
+            ((Component) r).onExecute();
+
+        try {
+            super.execute(r);
+        } catch(RejectedExecutionException e) {
+            if(r instanceof Component)
+                ((Component) r).onExit();
+            throw e;
+        }
+    }
+
+    @Override
+    protected void beforeExecute(Thread t, Runnable r) {
+        super.beforeExecute(t, r);
+        taskStart.get()[0] = System.nanoTime();
     }
 
+    @Override
     protected void afterExecute(Runnable r, Throwable t) {
         super.afterExecute(r, t);
 
+        long time = System.nanoTime() - taskStart.get()[0];
+        synchronized (taskTime) {
+            taskTime.record(time);
+        }
+
+        if(r instanceof Component)
+            ((Component) r).onExit();
+
         if(t != null)
             Pipeline.getInstance().error(r.getClass().getSimpleName(), "uncaught exception", t);
     }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @param dst receives the run time of all completed tasks in ns
+     */
+    public void getTaskTime(Histogram dst) {
+        synchronized (taskTime) {
+            taskTime.copyTo(dst);
+        }
+    }
+
+    /**
+     * @return number of tasks which could not be executed because all threads were busy
+     */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    /**
+     * @return number of tasks waiting for a thread
+     */
+    public int getQueueDepth() {
+        return getQueue().size();
+    }
+
+    @Override
+    public String toString() {
+        return name + ": " + getCompletedTaskCount() + " tasks, " + getActiveCount() + " active / " + getLargestPoolSize() + " peak / "
+                + getMaximumPoolSize() + " max threads, " + getQueueDepth() + " queued, " + getRejectedCount() + " rejected";
+    }
 }
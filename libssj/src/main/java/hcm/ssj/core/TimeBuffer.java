@@ -27,10 +27,33 @@
 
 package hcm.ssj.core;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Created by Johnny on 16.03.2015.
+ *
+ * Supports two synchronization modes. The default mode guards every access with a monitor.
+ * The lock-free mode publishes data through an ordered write cursor: readers never take a lock,
+ * blocked readers park on the position they are waiting for and are only woken once
+ * the producer has written past it (sequence barrier).
+ *
+ * Data of primitive streams is stored in an array of the stream's native type (e.g. float[]),
+ * so pushing and reading data of the same type is a plain System.arraycopy.
+ * All positions are still expressed in bytes.
+ *
+ * Besides copying data out, readers can acquire a {@link BufferView} on the buffer's storage.
+ * Pinned regions are never overwritten, the producer waits until the view is released instead.
+ *
+ * Components which continuously read from the buffer register a {@link Reader}. The buffer tracks
+ * the position of each reader and applies the reader's {@link OverrunPolicy} if the reader falls so
+ * far behind that its data is about to be overwritten. Lost data is counted per reader.
  */
 public class TimeBuffer {
 
@@ -42,13 +65,172 @@ public class TimeBuffer {
     public final static int STATUS_DURATION_TOO_SMALL = -5;
     public final static int STATUS_DURATION_TOO_LARGE = -6;
     public final static int STATUS_UNKNOWN_DATA = -7;
+    public final static int STATUS_NO_VIEW_AVAILABLE = -8;
     public final static int STATUS_ERROR = -9; //unknown error, buffer is probably closed
 
-    private byte[] _buffer;
-    private long _position;
+    private final static int SCRATCH_BYTES = 4096; //multiple of every element size
+
+    /**
+     * Behaviour if a reader falls so far behind that the data it needs is about to be overwritten
+     */
+    public enum OverrunPolicy
+    {
+        /** the reader loses the data */
+        DROP,
+        /** the producer waits until the reader has caught up */
+        BLOCK,
+        /** the buffer grows up to a limit, afterwards data is dropped (requires a locked buffer, lock-free buffers block instead) */
+        GROW,
+        /** the reader skips to the newest frame, the gap is reported as event */
+        SKIP,
+        /** overwritten data is kept in a file up to a limit, afterwards data is dropped (requires a locked buffer, lock-free buffers block instead) */
+        SPILL
+    }
+
+    /**
+     * Position and loss statistics of a component which continuously reads from the buffer
+     */
+    public class Reader
+    {
+        private final Component _component;
+        private OverrunPolicy _policy = null;
+        //first byte the reader still needs
+        private volatile long _position = 0;
+        //first sample of the last read, as requested by the component
+        private volatile int _sample = 0;
+        private boolean _inGap = false;
+        private volatile long _gaps = 0;
+        private volatile long _lostSamples = 0;
+        //samples needed per read (frame + delta), used to size the buffer
+        private int _window = 0;
+
+        private Reader(Component component)
+        {
+            _component = component;
+        }
+
+        private void reset()
+        {
+            _position = 0;
+            _sample = 0;
+            _inGap = false;
+            _gaps = 0;
+            _lostSamples = 0;
+        }
+
+        /**
+         * @param policy policy of this reader, null to use the default policy of the buffer
+         */
+        public void setOverrunPolicy(OverrunPolicy policy)
+        {
+            _policy = policy;
+        }
+
+        public OverrunPolicy getOverrunPolicy()
+        {
+            OverrunPolicy policy = (_policy != null) ? _policy : _defaultPolicy;
+            if (_lockFree && (policy == OverrunPolicy.GROW || policy == OverrunPolicy.SPILL))
+                return OverrunPolicy.BLOCK;
+            return policy;
+        }
+
+        public Component getComponent()
+        {
+            return _component;
+        }
+
+        /**
+         * @param samples number of samples the component reads at once (frame + delta)
+         */
+        void setWindow(int samples)
+        {
+            _window = samples;
+        }
+
+        public int getWindow()
+        {
+            return _window;
+        }
+
+        /**
+         * @return first sample of the last successful read, differs from the requested sample if the reader skipped ahead
+         */
+        public int getSample()
+        {
+            return _sample;
+        }
+
+        /**
+         * @return number of times the reader lost data
+         */
+        public long getGaps()
+        {
+            return _gaps;
+        }
+
+        /**
+         * @return number of samples the reader lost (or skipped)
+         */
+        public long getLostSamples()
+        {
+            return _lostSamples;
+        }
+
+        private boolean isActive()
+        {
+            //readers which have stopped no longer hold back the producer
+            return !_component._safeToKill;
+        }
+
+        private void update(int status, int startSample, int numSamples)
+        {
+            if (status == STATUS_SUCCESS)
+            {
+                _position = (long) startSample * _bytesPerSample;
+                _sample = startSample + _offsetSamples;
+                _inGap = false;
+
+                wakeProducer();
+            }
+            else if (status == STATUS_DATA_NOT_IN_BUFFER_ANYMORE)
+            {
+                gap(numSamples);
+            }
+        }
+
+        private void gap(long samples)
+        {
+            if (!_inGap)
+            {
+                _gaps++;
+                _inGap = true;
+            }
+            _lostSamples += samples;
+        }
+    }
+
+    //maximum number of readers which can park at the same time, additional readers back off instead
+    private final static int MAX_PARKED_READERS = 32;
+    //maximum number of views which can be acquired at the same time
+    private final static int MAX_PINNED_VIEWS = 32;
+    private final static long UNPINNED = Long.MAX_VALUE;
+    private final static long BACKOFF_NS = 100000;
+
+    private Object _buffer;
+    private int _bufferBytes;
+    private int _bytesPerElement;
+    private volatile long _position;
 
     private final Object _lock = new Object();
-    private boolean _terminate = false;
+    private volatile boolean _terminate = false;
+
+    private final boolean _lockFree;
+    private final Object _writeLock = new Object();
+    private final AtomicLong _writeClaim = new AtomicLong(0);
+    private volatile int _readFence;
+    private final AtomicReferenceArray<Thread> _parked = new AtomicReferenceArray<>(MAX_PARKED_READERS);
+    private final AtomicLongArray _parkedTarget = new AtomicLongArray(MAX_PARKED_READERS);
+    private final AtomicLongArray _pins = new AtomicLongArray(MAX_PINNED_VIEWS);
 
     private double _sr;
     private int _dim;
@@ -64,9 +246,41 @@ public class TimeBuffer {
 
     private Provider _owner;
 
+    //components which process their input on the producer's thread
+    private volatile Runnable[] _inlineReaders = new Runnable[0];
+
+    private volatile Reader[] _readers = new Reader[0];
+    private volatile boolean _producerWaiting = false;
+    private OverrunPolicy _defaultPolicy = OverrunPolicy.DROP;
+    private int _maxBufferBytes;
+
+    //disk-backed ring for the SPILL policy
+    private int _spillBytes = 0;
+    private File _spillFile = null;
+    private RandomAccessFile _spill = null;
+    private long _spillStart = 0;
+    private long _spillEnd = 0;
+    private byte[] _spillTmp = null;
+
+    //intermediate for copies between storage and arrays of a different type
+    private final byte[] _scratch = new byte[SCRATCH_BYTES];
+
+    //sizing hints, see Pipeline
+    private boolean _randomAccess = false;
+    private double _fixedCapacity = 0;
+
     public TimeBuffer(double capacity, double sr, int dim, int bytesPerValue, Cons.Type type, Provider owner)
+    {
+        this(capacity, sr, dim, bytesPerValue, type, owner, false);
+    }
+
+    /**
+     * @param lockFree if true, readers access the buffer without locking and only wake up once their data is available
+     */
+    public TimeBuffer(double capacity, double sr, int dim, int bytesPerValue, Cons.Type type, Provider owner, boolean lockFree)
     {
         _owner = owner;
+        _lockFree = lockFree;
 
         _sr = sr;
         _dim = dim;
@@ -78,23 +292,75 @@ public class TimeBuffer {
 
         _sampleDuration = 1.0 / _sr;
 
-        _buffer = new byte[_capacitySamples * _bytesPerSample];
+        _bufferBytes = _capacitySamples * _bytesPerSample;
+        _maxBufferBytes = _bufferBytes;
+        _buffer = allocate(type, bytesPerValue, _bufferBytes);
+        _bytesPerElement = (_buffer instanceof byte[]) ? 1 : bytesPerValue;
 
         reset();
     }
 
+    /**
+     * Allocates the backing storage in the native type of the stream.
+     * Types which have no primitive representation (or a custom sample size) fall back to a byte array.
+     */
+    private static Object allocate(Cons.Type type, int bytesPerValue, int numBytes)
+    {
+        if (bytesPerValue != Util.sizeOf(type))
+            return new byte[numBytes];
+
+        switch (type)
+        {
+            case CHAR:
+                return new char[numBytes / bytesPerValue];
+            case SHORT:
+                return new short[numBytes / bytesPerValue];
+            case INT:
+                return new int[numBytes / bytesPerValue];
+            case LONG:
+                return new long[numBytes / bytesPerValue];
+            case FLOAT:
+                return new float[numBytes / bytesPerValue];
+            case DOUBLE:
+                return new double[numBytes / bytesPerValue];
+            case BOOL:
+                return new boolean[numBytes / bytesPerValue];
+            default:
+                return new byte[numBytes];
+        }
+    }
+
     public void reset()
     {
         _position = 0;
+        _writeClaim.set(0);
         _offsetSamples = 0;
+
+        for (int i = 0; i < MAX_PINNED_VIEWS; i++) {
+            _pins.set(i, UNPINNED);
+        }
         _lastAccessedSample = 0;
 
+        _inlineReaders = new Runnable[0];
+
+        for (Reader r : _readers) {
+            r.reset();
+        }
+        _spillStart = 0;
+        _spillEnd = 0;
+
         _terminate = false;
     }
 
     public void close()
     {
         _terminate = true;
+        closeSpill();
+
+        if (_lockFree) {
+            unparkReaders(Long.MAX_VALUE);
+            return;
+        }
 
         synchronized (_lock) {
             _lock.notifyAll();
@@ -103,32 +369,116 @@ public class TimeBuffer {
 
     public void push(Object data, int numBytes)
     {
+        if (_lockFree) {
+            synchronized (_writeLock) {
+                long pos = _position;
+                makeRoom(pos + numBytes);
+                //announce the region we are about to overwrite before touching it
+                claim(pos + numBytes);
+                copy(data, 0, (int)(pos % _bufferBytes), numBytes);
+                publish(pos + numBytes);
+            }
+            return;
+        }
+
         synchronized (_lock) {
+            makeRoom(_position + numBytes);
             //compute actual position of data within buffer
-            int pos_mod = (int)(_position % _buffer.length);
+            awaitPins(_position + numBytes);
+            int pos_mod = (int)(_position % _bufferBytes);
 
-            copy(data, 0, _buffer, pos_mod, numBytes);
+            copy(data, 0, pos_mod, numBytes);
 
             _position += numBytes;
             _lock.notifyAll();
         }
     }
 
-    private void copy(Object src, int srcpos, byte[] dst, int dstpos, int numBytes)
+    /**
+     * Registers a reader which is run by the producer after each push
+     */
+    void addInlineReader(Runnable reader)
+    {
+        synchronized (_writeLock) {
+            Runnable[] readers = Arrays.copyOf(_inlineReaders, _inlineReaders.length + 1);
+            readers[readers.length - 1] = reader;
+            _inlineReaders = readers;
+        }
+    }
+
+    void runInlineReaders()
+    {
+        for (Runnable reader : _inlineReaders) {
+            reader.run();
+        }
+    }
+
+    /**
+     * @return true if the requested samples have been written to the buffer
+     */
+    public boolean isAvailable(int startSample, int numSamples)
+    {
+        return (long)(startSample - _offsetSamples + numSamples) * _bytesPerSample <= _position;
+    }
+
+    private void copy(Object src, int srcpos, int dstpos, int numBytes)
     {
-        if (dstpos + numBytes <= dst.length) {
+        if (dstpos + numBytes <= _bufferBytes) {
             // end of buffer not reached
             // copy data in one step
-            Util.arraycopy(src, srcpos, dst, dstpos, numBytes);
+            transfer(src, srcpos, _buffer, dstpos, numBytes);
         } else {
             // end of buffer reached
             // copy data in two steps:
             // 1. copy everything until the end of the buffer is reached
             // 2. copy remaining part from the beginning
-            int size_until_end = dst.length - dstpos;
+            int size_until_end = _bufferBytes - dstpos;
             int size_remaining = numBytes - size_until_end;
-            Util.arraycopy(src, srcpos, dst, dstpos, size_until_end);
-            copy(src, size_until_end, dst, 0, size_remaining);
+            transfer(src, srcpos, _buffer, dstpos, size_until_end);
+            copy(src, srcpos + size_until_end, 0, size_remaining);
+        }
+    }
+
+    /**
+     * Copies data out of the buffer, splitting the copy if the requested range wraps around
+     */
+    private void read(Object dst, int dstpos, int pos_mod, int len)
+    {
+        if (pos_mod + len <= _bufferBytes) {
+            // end of buffer not reached
+            // copy data in one step
+            transfer(_buffer, pos_mod, dst, dstpos, len);
+        } else {
+            // end of buffer reached
+            // copy data in two steps:
+            // 1. copy everything until the end of the buffer is reached
+            // 2. copy remaining part from the beginning
+            int size_until_end = _bufferBytes - pos_mod;
+            int size_remaining = len - size_until_end;
+            transfer(_buffer, pos_mod, dst, dstpos, size_until_end);
+            transfer(_buffer, 0, dst, dstpos + size_until_end, size_remaining);
+        }
+    }
+
+    /**
+     * Copies between the backing storage and a component's array.
+     * Identical types are copied directly, byte arrays are (de)serialized,
+     * any other combination is reinterpreted in chunks through the preallocated scratch array.
+     * The scratch array is shared by the producer and (lock-free) readers, its monitor is never held
+     * while acquiring another lock.
+     */
+    private void transfer(Object src, int srcPosBytes, Object dst, int dstPosBytes, int numBytes)
+    {
+        if (src.getClass() == dst.getClass() || src instanceof byte[] || dst instanceof byte[]) {
+            Util.arraycopy(src, srcPosBytes, dst, dstPosBytes, numBytes);
+        } else {
+            synchronized (_scratch) {
+                for (int off = 0; off < numBytes; off += SCRATCH_BYTES) {
+                    int len = Math.min(SCRATCH_BYTES, numBytes - off);
+                    Util.arraycopy(src, srcPosBytes + off, _scratch, 0, len);
+                    Util.arraycopy(_scratch, 0, dst, dstPosBytes + off, len);
+                }
+            }
         }
     }
 
@@ -136,32 +486,193 @@ public class TimeBuffer {
     {
         Log.w(_owner.getComponentName(), "pushing " + numBytes + " bytes of zeroes");
 
+        if (_lockFree) {
+            synchronized (_writeLock) {
+                long pos = _position;
+                makeRoom(pos + numBytes);
+                claim(pos + numBytes);
+                fillZero((int)(pos % _bufferBytes), numBytes);
+                publish(pos + numBytes);
+            }
+            return;
+        }
+
         synchronized (_lock) {
+            makeRoom(_position + numBytes);
             //compute actual position of data within buffer
-            int pos_mod = (int)(_position % _buffer.length);
+            awaitPins(_position + numBytes);
+            int pos_mod = (int)(_position % _bufferBytes);
 
-            fillZero(_buffer, pos_mod, numBytes);
+            fillZero(pos_mod, numBytes);
 
             _position += numBytes;
             _lock.notifyAll();
         }
     }
 
-    private void fillZero(byte[] buffer, int pos, int num)
+    private void fillZero(int pos, int num)
     {
-        if (pos + num <= buffer.length)
-            Arrays.fill(buffer, pos, pos + num, (byte)0);
+        if (pos + num <= _bufferBytes)
+            Util.fillZeroes(_buffer, pos / _bytesPerElement, num / _bytesPerElement);
         else
         {
             // end of buffer reached
             // copy data in two steps:
             // 1. copy everything until the end of the buffer is reached
             // 2. copy remaining part from the beginning
-            int size_until_end = buffer.length - pos;
+            int size_until_end = _bufferBytes - pos;
             int size_remaining = num - size_until_end;
-            Arrays.fill(buffer, pos, pos + size_until_end, (byte)0);
-            fillZero(buffer, 0, size_remaining);
+            Util.fillZeroes(_buffer, pos / _bytesPerElement, size_until_end / _bytesPerElement);
+            fillZero(0, size_remaining);
+        }
+    }
+
+    /**
+     * Announces the region the lock-free producer is about to overwrite.
+     * The claim is only advanced once no view pins the region. Readers pin before they validate against the claim
+     * and the producer re-checks the pins after advancing it, so either the reader sees the claim and backs off
+     * or the producer sees the pin and withdraws the claim until the view is released.
+     * <p>
+     * Readers copy without synchronization and validate against the claim afterwards (seqlock), which requires
+     * the claim to become visible before the producer's plain stores into the claimed region. A volatile store
+     * alone does not forbid the JMM from moving later plain stores ahead of it, so the claim is published with
+     * a compare-and-set, which every supported runtime (ART, HotSpot) implements as a full fence. The producer
+     * is the only writer of the claim, so the CAS cannot fail and the re-check below only concerns pins.
+     *
+     * @param end position up to which the producer is going to write
+     */
+    private void claim(long end)
+    {
+        long previous = _writeClaim.get();
+        while (true) {
+            awaitPins(end);
+            _writeClaim.compareAndSet(previous, end);
+            if (!isPinned(end - _bufferBytes) || _terminate) {
+                return;
+            }
+            _writeClaim.set(previous);
+        }
+    }
+
+    /**
+     * Blocks the producer while any part of the region it is about to overwrite is pinned by a view.
+     * In locked mode the caller holds the monitor, which is released while waiting so readers can complete
+     * (or give up) their views.
+     *
+     * @param end position up to which the producer is going to write
+     */
+    private void awaitPins(long end)
+    {
+        //everything before this position is overwritten
+        long limit = end - _bufferBytes;
+        if (_lockFree) {
+            while (isPinned(limit) && !_terminate) {
+                LockSupport.parkNanos(this, BACKOFF_NS);
+            }
+            return;
+        }
+
+        //announced before checking, releasing readers notify us if they see it
+        _producerWaiting = true;
+        while (isPinned(limit) && !_terminate) {
+            try {
+                _lock.wait();
+            } catch (InterruptedException e) {
+                Log.w("thread interrupt");
+            }
         }
+        _producerWaiting = false;
+    }
+
+    /**
+     * @return true if any view pins data before the given position
+     */
+    private boolean isPinned(long limit)
+    {
+        for (int i = 0; i < MAX_PINNED_VIEWS; i++) {
+            if (_pins.get(i) < limit) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Advances the write cursor and wakes up all parked readers whose data is now available
+     */
+    private void publish(long position)
+    {
+        _position = position;
+        unparkReaders(position);
+    }
+
+    private void unparkReaders(long position)
+    {
+        for (int i = 0; i < MAX_PARKED_READERS; i++) {
+            Thread t = _parked.get(i);
+            if (t != null && _parkedTarget.get(i) <= position) {
+                LockSupport.unpark(t);
+            }
+        }
+    }
+
+    /**
+     * Blocks the calling reader until the write cursor has reached the target position
+     *
+     * @return false if the buffer has been closed in the meantime
+     */
+    private boolean await(long target)
+    {
+        if (_position >= target) {
+            return !_terminate;
+        }
+
+        Thread self = Thread.currentThread();
+        int slot = -1;
+        for (int i = 0; i < MAX_PARKED_READERS && slot < 0; i++) {
+            if (_parked.compareAndSet(i, null, self)) {
+                _parkedTarget.set(i, target);
+                slot = i;
+            }
+        }
+
+        try {
+            //re-check after registering, the producer may have published in between
+            while (_position < target && !_terminate) {
+                if (slot >= 0) {
+                    LockSupport.park(this);
+                } else {
+                    LockSupport.parkNanos(this, BACKOFF_NS);
+                }
+
+                if (Thread.interrupted()) {
+                    Log.w("thread interrupt");
+                }
+            }
+        } finally {
+            if (slot >= 0) {
+                _parked.set(slot, null);
+            }
+        }
+
+        return !_terminate;
+    }
+
+    private boolean getLockFree_(Object dst, long pos, int len)
+    {
+        if (!await(pos + len)) {
+            return false;
+        }
+
+        //compute actual position of data within buffer
+        read(dst, 0, (int)(pos % _bufferBytes), len);
+
+        //volatile write keeps the copy above from being reordered past the validation below,
+        //the producer side of the ordering is provided by the fenced claim, see claim()
+        _readFence = 0;
+
+        //validate that the producer did not overwrite the region while we were copying it
+        return _writeClaim.get() - _bufferBytes <= pos;
     }
 
     private boolean get_(Object dst, long pos, int len)
@@ -180,32 +691,14 @@ public class TimeBuffer {
                 return false;
 
             //compute actual position of data within buffer
-            int pos_mod = (int)(pos % _buffer.length);
-
-            if (pos_mod + len <= _buffer.length) {
-                // end of buffer not reached
-                // copy data in one step
-                Util.arraycopy(_buffer, pos_mod, dst, 0, len);
-            } else {
-                // end of buffer reached
-                // copy data in two steps:
-                // 1. copy everything until the end of the buffer is reached
-                // 2. copy remaining part from the beginning
-                int size_until_end = _buffer.length - pos_mod;
-                int size_remaining = len - size_until_end;
-                Util.arraycopy(_buffer, pos_mod, dst, 0, size_until_end);
-                Util.arraycopy(_buffer, 0, dst, size_until_end, size_remaining);
-            }
+            read(dst, 0, (int)(pos % _bufferBytes), len);
         }
 
         return true;
     }
 
-    public int get(Object dst, int startSample, int numSamples)
+    private int check(int startSample, int numSamples)
     {
-        //correct position for sync
-        startSample -= _offsetSamples;
-
         // check if requested duration is too small
         if (numSamples == 0) {
             return STATUS_DURATION_TOO_SMALL;
@@ -225,6 +718,62 @@ public class TimeBuffer {
             return STATUS_DATA_NOT_IN_BUFFER_ANYMORE;
         }
 
+        return STATUS_SUCCESS;
+    }
+
+    public int get(Object dst, int startSample, int numSamples)
+    {
+        //correct position for sync
+        return getSamples(dst, startSample - _offsetSamples, numSamples);
+    }
+
+    /**
+     * Reads data on behalf of a registered reader, applying the reader's overrun policy
+     * if the requested data has already been overwritten
+     *
+     * @param reader reader registered with {@link #addReader(Component)}, null to read without tracking
+     * @return status code, check {@link Reader#getSample()} for the position the data was actually read from
+     */
+    public int get(Reader reader, Object dst, int startSample, int numSamples)
+    {
+        if (reader == null)
+            return get(dst, startSample, numSamples);
+
+        //correct position for sync
+        startSample -= _offsetSamples;
+
+        if (check(startSample, numSamples) == STATUS_DATA_NOT_IN_BUFFER_ANYMORE) {
+            OverrunPolicy policy = reader.getOverrunPolicy();
+            if (policy == OverrunPolicy.SKIP) {
+                startSample = skip(reader, startSample, numSamples);
+            } else if (policy == OverrunPolicy.SPILL) {
+                int status = getSpilled(dst, startSample, numSamples);
+                reader.update(status, startSample, numSamples);
+                return status;
+            }
+        }
+
+        int status = getSamples(dst, startSample, numSamples);
+        reader.update(status, startSample, numSamples);
+        return status;
+    }
+
+    private int getSamples(Object dst, int startSample, int numSamples)
+    {
+        int status = check(startSample, numSamples);
+        if (status != STATUS_SUCCESS) {
+            return status;
+        }
+
+        if (_lockFree) {
+            boolean ok = getLockFree_(dst, (long)startSample * _bytesPerSample, numSamples * _bytesPerSample);
+            _lastAccessedSample = startSample + numSamples - 1;
+
+            if (ok) return STATUS_SUCCESS;
+            else if (_terminate) return STATUS_ERROR;
+            else return STATUS_DATA_NOT_IN_BUFFER_ANYMORE;
+        }
+
         boolean ok = get_(dst, (long)startSample * _bytesPerSample, numSamples * _bytesPerSample);
 
         _lastAccessedSample = startSample + numSamples - 1;
@@ -233,6 +782,502 @@ public class TimeBuffer {
         else return STATUS_ERROR;
     }
 
+    /**
+     * Provides read-only access to the requested samples without copying them.
+     * The region stays pinned until the view is released, the producer cannot overwrite it in the meantime.
+     *
+     * @param view view to fill, a previously acquired region is released first
+     * @param startSample first sample
+     * @param numSamples number of samples
+     * @return status code, the view is only valid if STATUS_SUCCESS is returned
+     */
+    public int acquire(BufferView view, int startSample, int numSamples)
+    {
+        view.release();
+
+        //correct position for sync
+        return acquireSamples(view, startSample - _offsetSamples, numSamples);
+    }
+
+    /**
+     * Provides a view on behalf of a registered reader, applying the reader's overrun policy.
+     * Spilled data cannot be viewed, it is counted as lost.
+     *
+     * @param reader reader registered with {@link #addReader(Component)}, null to read without tracking
+     * @return status code, check {@link Reader#getSample()} for the position the view actually starts at
+     */
+    public int acquire(Reader reader, BufferView view, int startSample, int numSamples)
+    {
+        if (reader == null)
+            return acquire(view, startSample, numSamples);
+
+        view.release();
+
+        //correct position for sync
+        startSample -= _offsetSamples;
+
+        if (check(startSample, numSamples) == STATUS_DATA_NOT_IN_BUFFER_ANYMORE
+            && reader.getOverrunPolicy() == OverrunPolicy.SKIP) {
+            startSample = skip(reader, startSample, numSamples);
+        }
+
+        int status = acquireSamples(view, startSample, numSamples);
+        reader.update(status, startSample, numSamples);
+        return status;
+    }
+
+    private int acquireSamples(BufferView view, int startSample, int numSamples)
+    {
+        int status = check(startSample, numSamples);
+        if (status != STATUS_SUCCESS) {
+            return status;
+        }
+
+        long pos = (long)startSample * _bytesPerSample;
+        int len = numSamples * _bytesPerSample;
+
+        //wait for data and make sure it was not overwritten before the pin became visible to the producer
+        int pin;
+        boolean ok;
+        Object buffer = _buffer;
+        int bufferBytes = _bufferBytes;
+        if (_lockFree) {
+            pin = pin(pos);
+            if (pin < 0) {
+                return STATUS_NO_VIEW_AVAILABLE;
+            }
+            ok = await(pos + len) && _writeClaim.get() - _bufferBytes <= pos;
+        } else {
+            synchronized (_lock) {
+                while (pos + len > _position && !_terminate) {
+                    try {
+                        _lock.wait();
+                    } catch (InterruptedException e) {
+                        Log.w("thread interrupt");
+                    }
+                }
+                //pin while holding the monitor, a producer waiting for pins re-checks them before it continues
+                pin = pin(pos);
+                if (pin < 0) {
+                    return STATUS_NO_VIEW_AVAILABLE;
+                }
+                ok = !_terminate && _position - _bufferBytes <= pos;
+                //the storage may have grown in the meantime
+                buffer = _buffer;
+                bufferBytes = _bufferBytes;
+            }
+        }
+
+        _lastAccessedSample = startSample + numSamples - 1;
+
+        if (!ok) {
+            unpin(pin);
+            return (_terminate) ? STATUS_ERROR : STATUS_DATA_NOT_IN_BUFFER_ANYMORE;
+        }
+
+        int pos_mod = (int)(pos % bufferBytes);
+        view.data = buffer;
+        view.num = numSamples;
+        view.offset[0] = pos_mod / _bytesPerElement;
+        if (pos_mod + len <= bufferBytes) {
+            view.segments = 1;
+            view.length[0] = len / _bytesPerElement;
+        } else {
+            int size_until_end = bufferBytes - pos_mod;
+            view.segments = 2;
+            view.length[0] = size_until_end / _bytesPerElement;
+            view.offset[1] = 0;
+            view.length[1] = (len - size_until_end) / _bytesPerElement;
+        }
+        view.pin = pin;
+        view.owner = this;
+
+        return STATUS_SUCCESS;
+    }
+
+    private int pin(long pos)
+    {
+        for (int i = 0; i < MAX_PINNED_VIEWS; i++) {
+            if (_pins.compareAndSet(i, UNPINNED, pos)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void unpin(int pin)
+    {
+        _pins.set(pin, UNPINNED);
+        wakeProducer();
+    }
+
+    /**
+     * Wakes up a producer of a locked buffer waiting for pins or readers, e.g. because a reader stopped
+     */
+    void wakeProducer()
+    {
+        //the producer sets the flag before it checks, so either it sees our change or we see the flag
+        if (_producerWaiting && !_lockFree) {
+            synchronized (_lock) {
+                _lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Unpins the region of a view, allowing the producer to overwrite it
+     */
+    void release(BufferView view)
+    {
+        if (view.owner != this || view.pin < 0) {
+            return;
+        }
+
+        unpin(view.pin);
+        view.owner = null;
+        view.pin = -1;
+        view.segments = 0;
+    }
+
+    /**
+     * Changes the capacity of the buffer, the content is discarded.
+     * Must not be called while producers or readers access the buffer.
+     *
+     * @param capacity new capacity in seconds
+     */
+    public void resize(double capacity)
+    {
+        int bufferBytes = Math.max(1, (int)(capacity * _sr)) * _bytesPerSample;
+        if (bufferBytes == _bufferBytes)
+            return;
+
+        synchronized (_lock) {
+            //release the old storage before allocating the new one
+            _buffer = null;
+            _buffer = allocate(_type, _bytesPerValue, bufferBytes);
+            _bufferBytes = bufferBytes;
+            _maxBufferBytes = bufferBytes;
+            _capacitySamples = bufferBytes / _bytesPerSample;
+        }
+        reset();
+    }
+
+    /**
+     * Marks the buffer as accessed at arbitrary positions (e.g. by event triggered consumers),
+     * such buffers are never sized below the "bufferSize" option of the pipeline
+     */
+    void setRandomAccess(boolean randomAccess)
+    {
+        _randomAccess = randomAccess;
+    }
+
+    boolean isRandomAccess()
+    {
+        return _randomAccess;
+    }
+
+    /**
+     * @param capacity capacity in seconds which overrides the automatic sizing, 0 to size automatically
+     */
+    void setFixedCapacity(double capacity)
+    {
+        _fixedCapacity = capacity;
+    }
+
+    double getFixedCapacity()
+    {
+        return _fixedCapacity;
+    }
+
+    /**
+     * Registers a component which continuously reads from the buffer
+     */
+    public Reader addReader(Component component)
+    {
+        synchronized (_writeLock) {
+            Reader reader = getReader(component);
+            if (reader != null)
+                return reader;
+
+            reader = new Reader(component);
+            Reader[] readers = Arrays.copyOf(_readers, _readers.length + 1);
+            readers[readers.length - 1] = reader;
+            _readers = readers;
+            return reader;
+        }
+    }
+
+    /**
+     * @return reader of the component, null if the component does not read from this buffer
+     */
+    public Reader getReader(Component component)
+    {
+        for (Reader r : _readers) {
+            if (r._component == component)
+                return r;
+        }
+        return null;
+    }
+
+    public Reader[] getReaders()
+    {
+        return _readers;
+    }
+
+    /**
+     * Sets the policy of all readers which have no policy of their own
+     *
+     * @param policy default policy
+     * @param maxCapacity maximum size of the buffer (GROW) in seconds
+     * @param spillCapacity size of the disk-backed overflow (SPILL) in seconds
+     */
+    public void setOverrunPolicy(OverrunPolicy policy, double maxCapacity, double spillCapacity)
+    {
+        _defaultPolicy = policy;
+        _maxBufferBytes = Math.max(_bufferBytes, (int)(maxCapacity * _sr) * _bytesPerSample);
+        _spillBytes = Math.max(0, (int)(spillCapacity * _sr) * _bytesPerSample);
+    }
+
+    /**
+     * Makes room for the producer according to the policies of the readers which would lose data
+     *
+     * @param end position up to which the producer is going to write
+     */
+    private void makeRoom(long end)
+    {
+        Reader[] readers = _readers;
+        if (readers.length == 0)
+            return;
+
+        long limit = end - _bufferBytes;
+        long grow = Long.MAX_VALUE, spill = Long.MAX_VALUE, block = Long.MAX_VALUE;
+        for (Reader r : readers) {
+            long pos = r._position;
+            if (pos >= limit || !r.isActive())
+                continue;
+
+            switch (r.getOverrunPolicy()) {
+                case GROW:
+                    grow = Math.min(grow, pos);
+                    break;
+                case SPILL:
+                    spill = Math.min(spill, pos);
+                    break;
+                case BLOCK:
+                    block = Math.min(block, pos);
+                    break;
+            }
+        }
+
+        if (grow < limit) {
+            grow(end - grow);
+            limit = end - _bufferBytes;
+        }
+
+        if (spill < limit) {
+            spill(Math.max(spill, _position - _bufferBytes), limit);
+        }
+
+        if (block < limit) {
+            awaitReaders(end);
+        }
+    }
+
+    /**
+     * Enlarges the storage (at most up to the configured limit), must be called by the producer while holding the lock
+     *
+     * @param numBytes number of bytes which should fit into the buffer
+     */
+    private void grow(long numBytes)
+    {
+        long size = Math.max(numBytes, 2L * _bufferBytes);
+        size = Math.min(size, _maxBufferBytes);
+        int newBytes = (int)(size / _bytesPerSample) * _bytesPerSample;
+        if (newBytes <= _bufferBytes)
+            return;
+
+        Object buffer = allocate(_type, _bytesPerValue, newBytes);
+
+        //move the valid data to its position in the larger ring
+        long pos = Math.max(0, _position - _bufferBytes);
+        while (pos < _position) {
+            int src = (int)(pos % _bufferBytes);
+            int dst = (int)(pos % newBytes);
+            int len = (int)Math.min(_position - pos, Math.min(_bufferBytes - src, newBytes - dst));
+            transfer(_buffer, src, buffer, dst, len);
+            pos += len;
+        }
+
+        Log.i(getOwnerName(), "buffer grows to " + (newBytes / _bytesPerSample / _sr) + "s, reader too slow");
+
+        _buffer = buffer;
+        _bufferBytes = newBytes;
+        _capacitySamples = newBytes / _bytesPerSample;
+    }
+
+    /**
+     * Blocks the producer until no reader with the BLOCK policy needs the region it is about to overwrite
+     *
+     * @param end position up to which the producer is going to write
+     */
+    private void awaitReaders(long end)
+    {
+        long limit = end - _bufferBytes;
+        for (Reader r : _readers) {
+            if (r.getOverrunPolicy() != OverrunPolicy.BLOCK)
+                continue;
+
+            if (_lockFree) {
+                while (r._position < limit && r.isActive() && !_terminate) {
+                    LockSupport.parkNanos(this, BACKOFF_NS);
+                }
+                continue;
+            }
+
+            //announced before checking, readers notify us if they see it after advancing
+            _producerWaiting = true;
+            while (r._position < limit && r.isActive() && !_terminate) {
+                try {
+                    _lock.wait();
+                } catch (InterruptedException e) {
+                    Log.w("thread interrupt");
+                }
+            }
+        }
+        _producerWaiting = false;
+    }
+
+    /**
+     * Moves a lagging reader to the newest frame
+     *
+     * @return new start sample
+     */
+    private int skip(Reader reader, int startSample, int numSamples)
+    {
+        int newest = (int)(_position / _bytesPerSample) - numSamples;
+        if (newest <= startSample)
+            return startSample;
+
+        reader._gaps++;
+        reader._lostSamples += newest - startSample;
+        return newest;
+    }
+
+    /**
+     * Copies a region which is about to be overwritten to the spill file, must be called by the producer while holding the lock
+     */
+    private void spill(long from, long to)
+    {
+        if (_spillBytes <= 0)
+            return;
+
+        from = Math.max(Math.max(from, _spillEnd), to - _spillBytes);
+        if (from >= to)
+            return;
+
+        try {
+            if (_spill == null) {
+                _spillFile = File.createTempFile("ssj_spill", ".tmp");
+                _spillFile.deleteOnExit();
+                _spill = new RandomAccessFile(_spillFile, "rw");
+                _spill.setLength(_spillBytes);
+                Log.i(getOwnerName(), "spilling buffer to " + _spillFile.getPath());
+            }
+
+            //a new segment starts if the previous one does not continue here
+            if (from > _spillEnd || _spillEnd == 0)
+                _spillStart = from;
+
+            int len = (int)(to - from);
+            if (_spillTmp == null || _spillTmp.length < len)
+                _spillTmp = new byte[len];
+
+            read(_spillTmp, 0, (int)(from % _bufferBytes), len);
+
+            int off = (int)(from % _spillBytes);
+            int first = Math.min(len, _spillBytes - off);
+            _spill.seek(off);
+            _spill.write(_spillTmp, 0, first);
+            if (first < len) {
+                _spill.seek(0);
+                _spill.write(_spillTmp, first, len - first);
+            }
+
+            _spillEnd = to;
+        } catch (IOException e) {
+            Log.e(getOwnerName(), "failed spilling buffer", e);
+            closeSpill();
+            _spillBytes = 0;
+        }
+    }
+
+    /**
+     * Reads a region which has been overwritten but is still available in the spill file
+     */
+    private int getSpilled(Object dst, int startSample, int numSamples)
+    {
+        long pos = (long)startSample * _bytesPerSample;
+        int len = numSamples * _bytesPerSample;
+
+        synchronized (_lock) {
+            long ringStart = _position - _bufferBytes;
+            long spillStart = Math.max(_spillStart, _spillEnd - _spillBytes);
+
+            //the requested region has to be in the spill file and continue in the ring
+            if (_spill == null || pos < spillStart || (pos + len > _spillEnd && _spillEnd < ringStart)) {
+                return STATUS_DATA_NOT_IN_BUFFER_ANYMORE;
+            }
+
+            int fromFile = (int)Math.max(0, Math.min(len, _spillEnd - pos));
+            if (fromFile > 0) {
+                try {
+                    if (_spillTmp == null || _spillTmp.length < fromFile)
+                        _spillTmp = new byte[fromFile];
+
+                    int off = (int)(pos % _spillBytes);
+                    int first = Math.min(fromFile, _spillBytes - off);
+                    _spill.seek(off);
+                    _spill.readFully(_spillTmp, 0, first);
+                    if (first < fromFile) {
+                        _spill.seek(0);
+                        _spill.readFully(_spillTmp, first, fromFile - first);
+                    }
+                    transfer(_spillTmp, 0, dst, 0, fromFile);
+                } catch (IOException e) {
+                    Log.e(getOwnerName(), "failed reading spilled buffer", e);
+                    return STATUS_ERROR;
+                }
+            }
+
+            if (fromFile < len) {
+                long rest = pos + fromFile;
+                read(dst, fromFile, (int)(rest % _bufferBytes), len - fromFile);
+            }
+        }
+
+        _lastAccessedSample = startSample + numSamples - 1;
+        return STATUS_SUCCESS;
+    }
+
+    private void closeSpill()
+    {
+        synchronized (_lock) {
+            if (_spill == null)
+                return;
+
+            try {
+                _spill.close();
+            } catch (IOException e) {
+                Log.w("failed closing spill file", e);
+            }
+            _spillFile.delete();
+            _spill = null;
+            _spillFile = null;
+            _spillStart = 0;
+            _spillEnd = 0;
+        }
+    }
+
     public int get(Object dst, double start_time, double duration)
     {
         int pos = (int)(start_time * _sr + 0.5);
@@ -266,7 +1311,21 @@ public class TimeBuffer {
 
     public int getCapacity()
     {
-        return _buffer.length;
+        return _bufferBytes;
+    }
+
+    public int getCapacitySamples()
+    {
+        return _capacitySamples;
+    }
+
+    /**
+     * @param readSample next sample a reader is going to request
+     * @return number of samples which have been written but not read yet
+     */
+    public int getLag(int readSample)
+    {
+        return (int)(_position / _bytesPerSample) + _offsetSamples - readSample;
     }
 
     public double getLastAccessedSampleTime ()
@@ -297,8 +1356,18 @@ public class TimeBuffer {
         return _owner;
     }
 
+    private String getOwnerName()
+    {
+        return (_owner != null) ? _owner.getComponentName() : "TimeBuffer";
+    }
+
     public int getOffsetSamples()
     {
         return _offsetSamples;
     }
+
+    public boolean isLockFree()
+    {
+        return _lockFree;
+    }
 }
@@ -29,23 +29,41 @@ package hcm.ssj.core;
 
 import android.os.SystemClock;
 
-import java.util.ArrayList;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Created by Johnny on 05.03.2015.
+ *
+ * Ticks are computed in nanoseconds as offset + k * interval, so fractional intervals
+ * (e.g. 512 samples at 44.1kHz) do not accumulate rounding errors.
+ * Waiting uses System.nanoTime(), which stops while the device is suspended. The timer is rebased
+ * on the pipeline's clock (SystemClock.elapsedRealtime()) whenever the two diverge, so ticks stay aligned
+ * with {@link Pipeline#getTime()} and the ticks missed during a suspend are skipped instead of being caught up.
  */
 public class Timer {
 
     private long _now;
     private long _init;
+    private long _initRealtime;
     private long _next;
-    private long _delta;
+    private double _delta;
     private long _offset;
+    private long _ticks;
+
+    private String _name = null;
+
+    private long _lateness = 0;
+    private long _maxLateness = 0;
+    private double _sumLateness = 0;
+    private long _numLateness = 0;
+    private long _missed = 0;
 
     private long _tick_start = 0;
 
     private final int HISTORY_SIZE = 10;
-    private ArrayList<Long> _history = new ArrayList<Long>();
+    private final long[] _history = new long[HISTORY_SIZE];
+    private int _historyPos = 0;
+    private int _historyNum = 0;
 
     private boolean _syncFailFlag;
 
@@ -68,12 +86,12 @@ public class Timer {
 
     public void setClockS(double seconds)
     {
-        _delta = (long)(seconds * 1000 + 0.5);
+        _delta = seconds * 1E9;
     }
 
     public void setClockMs(long milliseconds)
     {
-        _delta = milliseconds;
+        _delta = milliseconds * 1E6;
     }
 
     public void setClockHz(double hz)
@@ -81,57 +99,165 @@ public class Timer {
         setClockS(1.0 / hz);
     }
 
+    /**
+     * @param name used when reporting that the timer is out of sync, components use their name
+     */
+    public void setName(String name)
+    {
+        _name = name;
+    }
+
     public void reset ()
     {
         _syncFailFlag = false;
-        _init = SystemClock.elapsedRealtime();
-        _next = _delta + _offset;
+        _init = System.nanoTime();
+        _initRealtime = SystemClock.elapsedRealtime();
+        _ticks = 1;
+        _next = _offset + Math.round(_delta);
+
+        _lateness = 0;
+        _maxLateness = 0;
+        _sumLateness = 0;
+        _numLateness = 0;
+        _missed = 0;
     }
 
     //offsets the first tick, requires a "reset"
     public void setStartOffset(double seconds)
     {
-        _offset = (long)(seconds * 1000 + 0.5);
+        _offset = Math.round(seconds * 1E9);
     }
 
     //offsets the next tick, requires a "reset"
     public void setStartOffset(long milliseconds)
     {
-        _offset = milliseconds;
+        _offset = milliseconds * 1000000L;
     }
 
     //equivalent to SSI's wait()
     public void sync ()
     {
-        _now = SystemClock.elapsedRealtime() - _init;
+        _now = elapsed();
         while (_now < _next)
         {
-            try
+            LockSupport.parkNanos(_next - _now);
+            if (Thread.interrupted())
             {
-                Thread.sleep (_next - _now);
-            }
-            catch (InterruptedException e){
                 Log.w("thread interrupt");
             }
 
-            _now = SystemClock.elapsedRealtime() - _init;
+            _now = elapsed();
+        }
+
+        update();
+    }
+
+    /**
+     * @return time of the next tick on the System.nanoTime() scale
+     */
+    public long getNextTick()
+    {
+        return _init + _next;
+    }
+
+    /**
+     * Moves on to the next tick without waiting, used if the timer is driven externally (e.g. by the Scheduler)
+     */
+    public void advance()
+    {
+        _now = elapsed();
+        update();
+    }
+
+    /**
+     * @return nanoseconds since the last reset on the pipeline's clock
+     */
+    private long elapsed()
+    {
+        long now = System.nanoTime() - _init;
+
+        //the monotonic clock lags behind the pipeline's clock by the time the device was suspended
+        long gap = (SystemClock.elapsedRealtime() - _initRealtime) * 1000000L - now;
+        if (gap > Cons.TIMER_SYNC_ACCURACY * 1000000L)
+        {
+            _init -= gap;
+            now += gap;
+
+            long skipped = (long) ((now - _next) / _delta);
+            if (skipped > 0)
+            {
+                _ticks += skipped;
+                _next = _offset + Math.round(_ticks * _delta);
+                _missed += skipped;
+                Log.i(getTag(), "device was suspended for " + gap / 1000000L + "ms, skipping " + skipped + " ticks");
+            }
         }
 
-        if(_now - _next > _delta + Cons.TIMER_SYNC_ACCURACY) {
+        return now;
+    }
+
+    private void update()
+    {
+        long late = _now - _next;
+
+        _lateness = late;
+        _sumLateness += late;
+        _numLateness++;
+        if (late > _maxLateness)
+            _maxLateness = late;
+
+        if(late > _delta + Cons.TIMER_SYNC_ACCURACY * 1000000L) {
+            _missed++;
             if(!_syncFailFlag) {
                 _syncFailFlag = true;
-                Log.i(Thread.currentThread().getStackTrace()[3].getClassName().replace("hcm.ssj.", ""),
-                      "thread too slow, missing sync points");
+                Log.i(getTag(), "thread too slow, missing sync points");
             }
-        } else if(_now - _next <= 1) {
+        } else if(late <= 1000000L) {
             if(_syncFailFlag) {
                 _syncFailFlag = false;
-                Log.i(Thread.currentThread().getStackTrace()[3].getClassName().replace("hcm.ssj.", ""),
-                      "thread back in sync");
+                Log.i(getTag(), "thread back in sync");
             }
         }
 
-        _next += _delta;
+        _ticks++;
+        _next = _offset + Math.round(_ticks * _delta);
+    }
+
+    private String getTag()
+    {
+        return (_name != null) ? _name : "Timer";
+    }
+
+    /**
+     * @return how late the last tick was processed (in seconds)
+     */
+    public double getLateness()
+    {
+        return _lateness / 1E9;
+    }
+
+    /**
+     * @return max lateness since the last reset (in seconds)
+     */
+    public double getMaxLateness()
+    {
+        return _maxLateness / 1E9;
+    }
+
+    /**
+     * @return mean lateness since the last reset (in seconds)
+     */
+    public double getMeanLateness()
+    {
+        return (_numLateness == 0) ? 0 : _sumLateness / _numLateness / 1E9;
+    }
+
+    /**
+     * @return number of ticks which were processed more than one interval too late (or skipped during a suspend) since the last reset
+     */
+    public long getMissed()
+    {
+        return _missed;
     }
 
     public void tick_start()
@@ -141,49 +267,52 @@ public class Timer {
 
     public void tick_end()
     {
-        _history.add(System.nanoTime() - _tick_start);
-        if(_history.size() > HISTORY_SIZE)
-            _history.remove(0);
+        addHistory(System.nanoTime() - _tick_start);
     }
 
     public void tick()
     {
         if(_tick_start != 0)
-            _history.add(SystemClock.elapsedRealtime() - _tick_start);
+            addHistory(SystemClock.elapsedRealtime() - _tick_start);
 
         _tick_start = SystemClock.elapsedRealtime();
+    }
 
-        if(_history.size() > HISTORY_SIZE)
-            _history.remove(0);
+    private void addHistory(long delta)
+    {
+        _history[_historyPos] = delta;
+        _historyPos = (_historyPos + 1) % HISTORY_SIZE;
+        if(_historyNum < HISTORY_SIZE)
+            _historyNum++;
     }
 
     public double getMax()
     {
         long max = 0;
-        for(Long delta : _history) {
-            if(delta > max)
-                max = delta;
+        for(int i = 0; i < _historyNum; i++) {
+            if(_history[i] > max)
+                max = _history[i];
         }
         return max / 1000.0;
     }
 
     public double getAvgDur()
     {
-        if(_history.size() == 0)
+        if(_historyNum == 0)
             return 0;
 
         long sum = 0;
-        for(Long delta : _history) {
-            sum += delta;
+        for(int i = 0; i < _historyNum; i++) {
+            sum += _history[i];
         }
 
-        double avg = (double)sum / (double)_history.size();
+        double avg = (double)sum / (double)_historyNum;
         return avg / 1000000.0;
     }
 
     public long getElapsedMs()
     {
-        return SystemClock.elapsedRealtime() - _init;
+        return elapsed() / 1000000L;
     }
 
     public double getElapsed()
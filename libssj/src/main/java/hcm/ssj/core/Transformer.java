@@ -43,12 +43,17 @@ public abstract class Transformer extends Provider {
     private int[] _bufferID_in;
 
     private int[] _readPos;
+    private TimeBuffer.Reader[] _readers;
     private int[] _num_frame;
     private int[] _num_delta;
 
     private Timer _timer;
 
+    private BufferView[] _views;
+
     protected Pipeline _frame;
+    //read input through views on the source buffers instead of copying it into the input streams
+    protected boolean _useBufferViews = false;
 
     public Transformer()
     {
@@ -78,21 +83,22 @@ public abstract class Transformer extends Provider {
             enter(_stream_in, _stream_out);
         } catch(SSJFatalException e) {
             _frame.error(this.getComponentName(), "exception in enter", e);
-            _safeToKill = true;
+            setSafeToKill();
             return;
         } catch(Exception e) {
             _frame.error(this.getComponentName(), "exception in enter", e);
         }
 
-        //wait for framework
-        while (!_terminate && !_frame.isRunning()) {
-            try {
-                Thread.sleep(Cons.SLEEP_IN_LOOP);
-            } catch (InterruptedException e) {
-                Log.w("thread interrupt");
-            }
+        Pipeline.ExecutionMode mode = _frame.getExecutionMode();
+        if(mode == Pipeline.ExecutionMode.INLINE)
+        {
+            runInline();
+            return;
         }
 
+        //wait for framework
+        _frame.waitForStart();
+
         //maintain update rate starting from now
         _timer.reset();
 
@@ -101,31 +107,14 @@ public abstract class Transformer extends Provider {
             try {
                 wakeLock.acquire();
 
-                //grab data
-                boolean ok = true;
-                for(int i = 0; i < _bufferID_in.length; i++)
-                {
-                    ok &= _frame.getData(_bufferID_in[i], _stream_in[i].ptr(), _readPos[i],
-                                         _stream_in[i].num);
-                    if(ok)
-                        _stream_in[i].time = (double)_readPos[i] / _stream_in[i].sr;
-
-                    _readPos[i] += _num_frame[i];
-                }
-
-                //if we received data from all sources, process it
-                if(ok) {
-                    transform(_stream_in, _stream_out);
-                    _frame.pushData(_bufferID, _stream_out.ptr(), _stream_out.tot);
-                }
-
-                if(ok) {
+                //in data-driven mode, reading blocks until the next frame has been pushed
+                if(iterate() && mode == Pipeline.ExecutionMode.TIMED) {
                     //maintain update rate
                     _timer.sync();
                 }
             } catch(SSJFatalException e) {
                 _frame.error(this.getComponentName(), "exception in loop", e);
-                _safeToKill = true;
+                setSafeToKill();
                 return;
             } catch(Exception e) {
                 _frame.error(this.getComponentName(), "exception in loop", e);
@@ -139,7 +128,128 @@ public abstract class Transformer extends Provider {
         } catch(Exception e) {
             _frame.error(this.getComponentName(), "exception in flush", e);
         }
-        _safeToKill = true;
+        setSafeToKill();
+    }
+
+    /**
+     * Reads the next frame from all sources and transforms it
+     *
+     * @return true if data was received from all sources
+     */
+    private boolean iterate() throws SSJFatalException
+    {
+        long start = System.nanoTime();
+        boolean ok = true;
+        boolean done = false;
+        try {
+            //grab data
+            for(int i = 0; i < _bufferID_in.length; i++)
+            {
+                boolean read;
+                if(_useBufferViews)
+                    read = _frame.getDataView(_bufferID_in[i], _readers[i], _views[i], _readPos[i], _stream_in[i].num);
+                else
+                    read = _frame.getData(_bufferID_in[i], _readers[i], _stream_in[i].ptr(), _readPos[i], _stream_in[i].num);
+
+                //the reader may have skipped ahead
+                if(read)
+                    _readPos[i] = _readers[i].getSample();
+
+                ok &= read;
+                if(ok)
+                {
+                    if(_useBufferViews)
+                        _views[i].time = (double)_readPos[i] / _stream_in[i].sr;
+                    else
+                        _stream_in[i].time = (double)_readPos[i] / _stream_in[i].sr;
+                }
+
+                _readPos[i] += _num_frame[i];
+            }
+
+            //if we received data from all sources, process it
+            if(ok) {
+                if(_useBufferViews)
+                {
+                    transform(_views, _stream_out);
+                    //a push blocking on a downstream reader must not keep the upstream buffers pinned
+                    releaseViews();
+                }
+                else
+                    transform(_stream_in, _stream_out);
+
+                _frame.pushData(_bufferID, _stream_out.ptr(), _stream_out.tot);
+                done = true;
+            }
+
+            return ok;
+        } finally {
+            //frames without data or failing to process count as dropped
+            _probe.end(start, done);
+            if(_useBufferViews)
+                releaseViews();
+        }
+    }
+
+    private void releaseViews()
+    {
+        for(BufferView view : _views)
+            view.release();
+    }
+
+    /**
+     * Frames are processed by the providers' threads, this thread only waits for termination
+     */
+    private void runInline()
+    {
+        InlineReader reader = new InlineReader(_name) {
+            @Override
+            protected boolean available() {
+                for(int i = 0; i < _bufferID_in.length; i++)
+                    if(!_frame.isDataAvailable(_bufferID_in[i], _readPos[i], _stream_in[i].num))
+                        return false;
+                return true;
+            }
+
+            @Override
+            protected void step() throws SSJFatalException {
+                try {
+                    iterate();
+                } catch(SSJFatalException e) {
+                    throw e;
+                } catch(Exception e) {
+                    _frame.error(getComponentName(), "exception in loop", e);
+                }
+            }
+        };
+
+        //register before the pipeline starts, so no frame is pushed past the reader
+        reader.start();
+        for(int id : _bufferID_in)
+            _frame.addInlineReader(id, reader);
+
+        //wait for framework
+        _frame.waitForStart();
+
+        //catch up with data which was pushed before we registered
+        reader.run();
+
+        while(!_terminate && _frame.isRunning() && reader.isActive())
+            waitForTermination(Cons.SLEEP_IN_LOOP);
+
+        reader.stop();
+        if(reader.hasFailed())
+        {
+            setSafeToKill();
+            return;
+        }
+
+        try {
+            flush(_stream_in, _stream_out);
+        } catch(Exception e) {
+            _frame.error(this.getComponentName(), "exception in flush", e);
+        }
+        setSafeToKill();
     }
 
     /**
@@ -169,6 +279,23 @@ public abstract class Transformer extends Provider {
      */
     public abstract void transform(Stream[] stream_in, Stream stream_out) throws SSJFatalException;
 
+    /**
+     * Main processing method if input is read through buffer views.
+     * Views are read-only and only valid during this call.
+     * By default, views are copied into the input streams and transform(Stream[], Stream) is called.
+     *
+     * @param views Input views, one per source
+     * @param stream_out Output stream
+     * @throws SSJFatalException Exception
+     */
+    public void transform(BufferView[] views, Stream stream_out) throws SSJFatalException
+    {
+        for(int i = 0; i < views.length; i++)
+            views[i].copyTo(_stream_in[i]);
+
+        transform(_stream_in, stream_out);
+    }
+
     /**
      * Called once prior to termination
      *
@@ -200,6 +327,8 @@ public abstract class Transformer extends Provider {
             _bufferID_in = new int[sources.length];
             _stream_in = new Stream[sources.length];
             _readPos = new int[sources.length];
+            _readers = new TimeBuffer.Reader[sources.length];
+            _views = new BufferView[sources.length];
             _num_frame = new int[sources.length];
             _num_delta = new int[sources.length];
 
@@ -220,7 +349,10 @@ public abstract class Transformer extends Provider {
             //allocate local input buffer
             for (int i = 0; i < sources.length; i++) {
                 _bufferID_in[i] = sources[i].getBufferID();
+                _readers[i] = _frame.getBuffer(_bufferID_in[i]).addReader(this);
+                _readers[i].setWindow(_num_frame[i] + _num_delta[i]);
                 _stream_in[i] = Stream.create(sources[i], _num_frame[i], _num_delta[i]);
+                _views[i] = new BufferView();
             }
 
             // figure out properties of output signal based on first input stream
@@ -240,6 +372,7 @@ public abstract class Transformer extends Provider {
 
             // configure update rate
             _timer = new Timer(frame);
+            _timer.setName(_name);
             _timer.setStartOffset(delta);
         }
         catch(Exception e)
@@ -257,6 +390,30 @@ public abstract class Transformer extends Provider {
         _isSetup = true;
     }
 
+    @Override
+    public Timer getTimer()
+    {
+        return _timer;
+    }
+
+    @Override
+    TimeBuffer.Reader[] getReaders()
+    {
+        return _readers;
+    }
+
+    @Override
+    double getInputLag()
+    {
+        return Metrics.inputLag(_frame, _bufferID_in, _readPos, false);
+    }
+
+    @Override
+    double getInputFill()
+    {
+        return Metrics.inputLag(_frame, _bufferID_in, _readPos, true);
+    }
+
     @Override
     public String[] getOutputDescription()
     {
@@ -235,43 +235,43 @@ public class Util
         else if(src instanceof char[])
         {
             if(dst instanceof byte[]) arraycopy((char[]) src, srcPosBytes, (byte[]) dst, dstPosBytes, numBytes);
-            else if(dst instanceof char[]) System.arraycopy((char[]) src, srcPosBytes / 2, (char[]) dst, dstPosBytes, numBytes / 2);
+            else if(dst instanceof char[]) System.arraycopy((char[]) src, srcPosBytes / 2, (char[]) dst, dstPosBytes / 2, numBytes / 2);
             else throw new UnsupportedOperationException();
         }
         else if(src instanceof short[])
         {
             if(dst instanceof byte[]) arraycopy((short[]) src, srcPosBytes, (byte[]) dst, dstPosBytes, numBytes);
-            else if(dst instanceof short[]) System.arraycopy((short[]) src, srcPosBytes / 2, (short[]) dst, dstPosBytes, numBytes / 2);
+            else if(dst instanceof short[]) System.arraycopy((short[]) src, srcPosBytes / 2, (short[]) dst, dstPosBytes / 2, numBytes / 2);
             else throw new UnsupportedOperationException();
         }
         else if(src instanceof int[])
         {
             if(dst instanceof byte[]) arraycopy((int[]) src, srcPosBytes, (byte[]) dst, dstPosBytes, numBytes);
-            else if(dst instanceof int[]) System.arraycopy((int[]) src, srcPosBytes / 4, (int[]) dst, dstPosBytes, numBytes / 4);
+            else if(dst instanceof int[]) System.arraycopy((int[]) src, srcPosBytes / 4, (int[]) dst, dstPosBytes / 4, numBytes / 4);
             else throw new UnsupportedOperationException();
         }
         else if(src instanceof long[])
         {
             if(dst instanceof byte[]) arraycopy((long[]) src, srcPosBytes, (byte[]) dst, dstPosBytes, numBytes);
-            else if(dst instanceof long[]) System.arraycopy((long[]) src, srcPosBytes / 8, (long[]) dst, dstPosBytes, numBytes / 8);
+            else if(dst instanceof long[]) System.arraycopy((long[]) src, srcPosBytes / 8, (long[]) dst, dstPosBytes / 8, numBytes / 8);
             else throw new UnsupportedOperationException();
         }
         else if(src instanceof float[])
         {
             if(dst instanceof byte[]) arraycopy((float[]) src, srcPosBytes, (byte[]) dst, dstPosBytes, numBytes);
-            else if(dst instanceof float[]) System.arraycopy((float[]) src, srcPosBytes / 4, (float[]) dst, dstPosBytes, numBytes / 4);
+            else if(dst instanceof float[]) System.arraycopy((float[]) src, srcPosBytes / 4, (float[]) dst, dstPosBytes / 4, numBytes / 4);
             else throw new UnsupportedOperationException();
         }
         else if(src instanceof double[])
         {
             if(dst instanceof byte[]) arraycopy((double[]) src, srcPosBytes, (byte[]) dst, dstPosBytes, numBytes);
-            else if(dst instanceof double[]) System.arraycopy((double[]) src, srcPosBytes / 8, (double[]) dst, dstPosBytes, numBytes / 8);
+            else if(dst instanceof double[]) System.arraycopy((double[]) src, srcPosBytes / 8, (double[]) dst, dstPosBytes / 8, numBytes / 8);
             else throw new UnsupportedOperationException();
         }
         else if(src instanceof boolean[])
         {
             if(dst instanceof byte[]) arraycopy((boolean[]) src, srcPosBytes, (byte[]) dst, dstPosBytes, numBytes);
-            else if(dst instanceof boolean[]) System.arraycopy((boolean[]) src, srcPosBytes, (boolean[]) dst, dstPosBytes, numBytes / sizeOf(Cons.Type.BOOL));
+            else if(dst instanceof boolean[]) System.arraycopy((boolean[]) src, srcPosBytes / sizeOf(Cons.Type.BOOL), (boolean[]) dst, dstPosBytes / sizeOf(Cons.Type.BOOL), numBytes / sizeOf(Cons.Type.BOOL));
             else throw new UnsupportedOperationException();
         }
         else throw new UnsupportedOperationException();
@@ -960,6 +960,201 @@ public class Util
         builder.append("</event>");
     }
 
+    public static void eventToXML(AsciiFormatter builder, Event ev)
+    {
+        eventToXML(builder, ev, false, null);
+    }
+
+    /**
+     * Writes an event in SSI's XML format without creating intermediate strings
+     */
+    public static void eventToXML(AsciiFormatter builder, Event ev, boolean sendAsMap, String[] mapKeys)
+    {
+        builder.append("<event sender=\"").append(ev.sender).append("\"");
+        builder.append(" event=\"").append(ev.name).append("\"");
+        builder.append(" from=\"").append(ev.time).append("\"");
+        builder.append(" dur=\"").append(ev.dur).append("\"");
+        builder.append(" prob=\"1.00000\"");
+        builder.append(" type=\"");
+
+        if (sendAsMap && ev.type != Cons.Type.STRING)
+        {
+            builder.append("map");
+        }
+        else
+        {
+            builder.append(ev.type);
+        }
+
+        builder.append("\"");
+        builder.append(" state=\"").append(ev.state).append("\"");
+        builder.append(" glue=\"0\">");
+
+        switch (ev.type)
+        {
+            case BYTE:
+            {
+                byte[] data = ev.ptrB();
+                for (int i = 0; i < data.length; i++)
+                {
+                    if (sendAsMap)
+                    {
+                        addTupleBefore(builder, mapKeys, i);
+                    }
+
+                    builder.append(data[i]);
+
+                    if (sendAsMap)
+                    {
+                        builder.append("\"></tuple>");
+                    }
+                    else
+                    {
+                        if (i < data.length - 1)
+                        {
+                            builder.append(" ");
+                        }
+                    }
+                }
+                break;
+            }
+            case SHORT:
+            {
+                short[] data = ev.ptrShort();
+                for (int i = 0; i < data.length; i++)
+                {
+                    if (sendAsMap)
+                    {
+                        addTupleBefore(builder, mapKeys, i);
+                    }
+
+                    builder.append(data[i]);
+
+                    if (sendAsMap)
+                    {
+                        builder.append("\"></tuple>");
+                    }
+                    else
+                    {
+                        if (i < data.length - 1)
+                        {
+                            builder.append(" ");
+                        }
+                    }
+                }
+                break;
+            }
+            case INT:
+            {
+                int[] data = ev.ptrI();
+                for (int i = 0; i < data.length; i++)
+                {
+                    if (sendAsMap)
+                    {
+                        addTupleBefore(builder, mapKeys, i);
+                    }
+
+                    builder.append(data[i]);
+
+                    if (sendAsMap)
+                    {
+                        builder.append("\"></tuple>");
+                    }
+                    else
+                    {
+                        if (i < data.length - 1)
+                        {
+                            builder.append(" ");
+                        }
+                    }
+                }
+                break;
+            }
+            case LONG:
+            {
+                long[] data = ev.ptrL();
+                for (int i = 0; i < data.length; i++)
+                {
+                    if (sendAsMap)
+                    {
+                        addTupleBefore(builder, mapKeys, i);
+                    }
+
+                    builder.append(data[i]);
+
+                    if (sendAsMap)
+                    {
+                        builder.append("\"></tuple>");
+                    }
+                    else
+                    {
+                        if (i < data.length - 1)
+                        {
+                            builder.append(" ");
+                        }
+                    }
+                }
+                break;
+            }
+            case FLOAT:
+            {
+                float[] data = ev.ptrF();
+                for (int i = 0; i < data.length; i++)
+                {
+                    if (sendAsMap)
+                    {
+                        addTupleBefore(builder, mapKeys, i);
+                    }
+
+                    builder.append(data[i]);
+
+                    if (sendAsMap)
+                    {
+                        builder.append("\"></tuple>");
+                    }
+                    else
+                    {
+                        if (i < data.length - 1)
+                        {
+                            builder.append(" ");
+                        }
+                    }
+                }
+                break;
+            }
+            case DOUBLE:
+            {
+                double[] data = ev.ptrD();
+                for (int i = 0; i < data.length; i++)
+                {
+                    if (sendAsMap)
+                    {
+                        addTupleBefore(builder, mapKeys, i);
+                    }
+
+                    builder.append(data[i]);
+
+                    if (sendAsMap)
+                    {
+                        builder.append("\"></tuple>");
+                    }
+                    else
+                    {
+                        if (i < data.length - 1)
+                        {
+                            builder.append(" ");
+                        }
+                    }
+                }
+                break;
+            }
+            case STRING:
+                builder.append(ev.ptrStr());
+                break;
+        }
+        builder.append("</event>");
+    }
+
     private static void addTupleBefore(StringBuilder builder, String[] mapKeys, int i)
     {
         builder.append("<tuple string=\"");
@@ -976,6 +1171,22 @@ public class Util
         builder.append("\" value=\"");
     }
 
+    private static void addTupleBefore(AsciiFormatter builder, String[] mapKeys, int i)
+    {
+        builder.append("<tuple string=\"");
+
+        if (mapKeys != null && i < mapKeys.length)
+        {
+            builder.append(mapKeys[i].trim());
+        }
+        else
+        {
+            builder.append("value-").append(i);
+        }
+
+        builder.append("\" value=\"");
+    }
+
     /**
      * Helper function to format fft values similar to SSI
      *
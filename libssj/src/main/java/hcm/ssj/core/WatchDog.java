@@ -37,8 +37,8 @@ public class WatchDog extends Thread {
 
     protected String _name = "WatchDog";
 
-    protected boolean _terminate = false;
-    protected boolean _safeToKill = false;
+    protected volatile boolean _terminate = false;
+    protected volatile boolean _safeToKill = false;
 
     protected Timer _timer;
     protected boolean _targetCheckedIn = false;
@@ -52,6 +52,12 @@ public class WatchDog extends Thread {
     protected double _syncInterval;
     protected int _syncIter;
     protected int _watchIter;
+    private int _syncIterCnt;
+    private int _watchIterCnt;
+
+    private PowerManager.WakeLock _wakeLock = null;
+    private Scheduler _scheduler = null;
+    private Scheduler.Job _job = null;
 
     public WatchDog(int bufferID, double watchInterval, double syncInterval)
     {
@@ -82,9 +88,28 @@ public class WatchDog extends Thread {
             _watchIter = (int)(watchInterval / sleep) -1;
         }
 
-        if(sleep > 0) {
+        _syncIterCnt = _syncIter;
+        _watchIterCnt = _watchIter;
+
+        //neither zero-filling nor clock sync make sense on a virtual clock
+        if(sleep > 0 && !_frame.isVirtualTime()) {
             _timer = new Timer(sleep);
-            start();
+            _timer.setName(_name);
+
+            _scheduler = _frame.scheduler;
+            if (_scheduler != null) {
+                //no need for a thread which sleeps most of the time
+                _job = new Scheduler.Job() {
+                    @Override
+                    public boolean step() {
+                        return scheduledStep();
+                    }
+                };
+                _scheduler.schedule(_name + "_" + _bufferID, _job, _timer);
+            }
+            else {
+                start();
+            }
         }
         else {
             _safeToKill = true;
@@ -105,59 +130,93 @@ public class WatchDog extends Thread {
         Thread.currentThread().setName("SSJ_" + _name);
 
         //wait for framework
-        while (_frame.getState() == Pipeline.State.STARTING) {
-            try {
-                sleep(Cons.SLEEP_IN_LOOP);
-            } catch (InterruptedException e) {
-                Log.w("thread interrupt");
-            }
-        }
-
-        PowerManager mgr = (PowerManager)SSJApplication.getAppContext().getSystemService(Context.POWER_SERVICE);
-        PowerManager.WakeLock wakeLock = mgr.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, _name);
-
-        int syncIterCnt = _syncIter;
-        int watchIterCnt = _watchIter;
+        _frame.waitForStart();
 
         _timer.reset();
 
         while(!_terminate && _frame.isRunning())
         {
-            try {
-                wakeLock.acquire();
-
-                //check buffer watch
-                if(_watchIter >= 0) {
-                    if (watchIterCnt == 0) {
-                        synchronized (_lock) {
-                            if (!_targetCheckedIn) {
-                                //provider did not check in, provide zeroes
-                                _frame.pushZeroes(_bufferID);
-                            }
-                            _targetCheckedIn = false;
-                        }
-                        watchIterCnt = _watchIter;
-                    } else watchIterCnt--;
-                }
+            check();
+            waitForTick();
+        }
 
-                //check buffer sync
-                if(_syncIter >= 0) {
-                    if (syncIterCnt == 0) {
-                        _frame.sync(_bufferID);
-                        syncIterCnt = _syncIter;
-                    } else syncIterCnt--;
+        _safeToKill = true;
+    }
+
+    /**
+     * Equivalent to Timer.sync(), but returns as soon as the watch dog is closed
+     */
+    private void waitForTick()
+    {
+        synchronized (_lock)
+        {
+            long wait = _timer.getNextTick() - System.nanoTime();
+            while (!_terminate && wait > 0)
+            {
+                try {
+                    _lock.wait(wait / 1000000L, (int) (wait % 1000000L));
+                } catch (InterruptedException e) {
+                    Log.w("thread interrupt");
                 }
+                wait = _timer.getNextTick() - System.nanoTime();
+            }
+        }
 
-                _timer.sync();
+        if (!_terminate)
+            _timer.advance();
+    }
 
-            } catch(Exception e) {
-                _frame.error(this.getClass().getSimpleName(), "exception in loop", e);
-            } finally {
-                wakeLock.release();
-            }
+    private boolean scheduledStep()
+    {
+        if (_frame.getState() == Pipeline.State.STARTING)
+            return true;
+
+        if (_terminate || !_frame.isRunning()) {
+            _safeToKill = true;
+            return false;
         }
 
-        _safeToKill = true;
+        check();
+        return true;
+    }
+
+    private void check()
+    {
+        if (_wakeLock == null) {
+            PowerManager mgr = (PowerManager)SSJApplication.getAppContext().getSystemService(Context.POWER_SERVICE);
+            _wakeLock = mgr.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, _name);
+        }
+
+        try {
+            _wakeLock.acquire();
+
+            //check buffer watch
+            if(_watchIter >= 0) {
+                if (_watchIterCnt == 0) {
+                    synchronized (_lock) {
+                        if (!_targetCheckedIn) {
+                            //provider did not check in, provide zeroes
+                            _frame.pushZeroes(_bufferID);
+                        }
+                        _targetCheckedIn = false;
+                    }
+                    _watchIterCnt = _watchIter;
+                } else _watchIterCnt--;
+            }
+
+            //check buffer sync
+            if(_syncIter >= 0) {
+                if (_syncIterCnt == 0) {
+                    _frame.sync(_bufferID);
+                    _syncIterCnt = _syncIter;
+                } else _syncIterCnt--;
+            }
+
+        } catch(Exception e) {
+            _frame.error(this.getClass().getSimpleName(), "exception in loop", e);
+        } finally {
+            _wakeLock.release();
+        }
     }
 
     public void close() throws InterruptedException
@@ -166,8 +225,20 @@ public class WatchDog extends Thread {
 
         _terminate = true;
 
-        while(!_safeToKill)
-            sleep(Cons.SLEEP_IN_LOOP);
+        if(_job != null)
+        {
+            //returns once a running tick has completed, the provider may be flushed afterwards
+            _scheduler.cancel(_job);
+            _safeToKill = true;
+        }
+        else if(!_safeToKill)
+        {
+            synchronized (_lock)
+            {
+                _lock.notifyAll();
+            }
+            join();
+        }
 
         Log.i("shut down complete");
     }
@@ -52,6 +52,12 @@ public abstract class Event implements Serializable
 
     public int id;
 
+    /** event is owned by an event channel pool (see EventChannel.obtainEvent) and will be recycled */
+    public transient boolean pooled = false;
+
+    /** number of owners (channel ring, pending deliveries) of a pooled event, guarded by the channel */
+    public transient int refs = 0;
+
     public static Event create(Cons.Type type)
     {
         switch(type)
@@ -0,0 +1,593 @@
+/*
+ * EventCodec.java
+ * Copyright (c) 2018
+ * Authors: Ionut Damian, Michael Dietz, Frank Gaibler, Daniel Langerenken, Simon Flutura,
+ * Vitalijs Krumins, Antonio Grieco
+ * *****************************************************
+ * This file is part of the Social Signal Interpretation for Java (SSJ) framework
+ * developed at the Lab for Human Centered Multimedia of the University of Augsburg.
+ *
+ * SSJ has been inspired by the SSI (http://openssi.net) framework. SSJ is not a
+ * one-to-one port of SSI to Java, it is an approximation. Nor does SSJ pretend
+ * to offer SSI's comprehensive functionality and performance (this is java after all).
+ * Nevertheless, SSJ borrows a lot of programming patterns from SSI.
+ *
+ * This library is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 3 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package hcm.ssj.core.event;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+
+import hcm.ssj.core.Cons;
+import hcm.ssj.core.EventChannel;
+import hcm.ssj.core.Log;
+
+/**
+ * Compact binary encoding of events, an alternative to the SSI XML event protocol (see Util.eventToXML).
+ *
+ * Packet layout (big-endian):
+ * <pre>
+ * header:  int magic ("SSJE"), byte version, byte flags, short number of events, int packet length (incl. header)
+ * event:   int record length (excl. this field), byte type, byte state, long time, int dur,
+ *          string name, string sender, payload
+ * string:  int length, UTF-8 bytes
+ * payload: BYTE, SHORT, INT, LONG, FLOAT, DOUBLE, BOOL: int count, values
+ *          STRING: string
+ *          MAP: int count, key/value strings
+ *          EMPTY: -
+ * </pre>
+ * Records are length-prefixed, readers skip fields appended by newer versions as well as unknown types.
+ * Such compatible additions keep the version, it only changes with the layout and readers reject packets of versions they do not know.
+ * The format is not negotiated, writers are configured to send either XML or binary packets.
+ * Packets start with the magic number, XML packets with '&lt;', so readers can accept both formats.
+ */
+public class EventCodec
+{
+    public enum Format
+    {
+        XML,
+        BINARY
+    }
+
+    public static final int MAGIC = 0x53534A45; //"SSJE"
+    public static final byte VERSION = 1;
+    public static final int HEADER_SIZE = 12;
+    /** upper bound of the length of packets read from streams */
+    public static final int MAX_PACKET_SIZE = 16 * 1024 * 1024;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    //wire codes are fixed, independent of the order of Cons.Type
+    private static final Cons.Type[] TYPES = {Cons.Type.UNDEF, Cons.Type.BYTE, Cons.Type.CHAR, Cons.Type.SHORT, Cons.Type.INT, Cons.Type.LONG,
+                                              Cons.Type.FLOAT, Cons.Type.DOUBLE, Cons.Type.BOOL, Cons.Type.STRING, Cons.Type.EMPTY, Cons.Type.MAP};
+    private static final byte[] CODES = new byte[Cons.Type.values().length];
+    static
+    {
+        for (int i = 0; i < TYPES.length; i++)
+        {
+            CODES[TYPES[i].ordinal()] = (byte) i;
+        }
+    }
+
+    private ByteBuffer out;
+    private int count = 0;
+
+    private ByteBuffer in;
+    private int remaining = 0;
+    private int version = 0;
+
+    public EventCodec()
+    {
+        this(Cons.MAX_EVENT_SIZE);
+    }
+
+    /**
+     * @param capacity initial capacity of the encoding buffer in bytes, grows if needed
+     */
+    public EventCodec(int capacity)
+    {
+        out = ByteBuffer.allocate(Math.max(HEADER_SIZE, capacity)).order(ByteOrder.BIG_ENDIAN);
+    }
+
+    /*
+     * encoding
+     */
+
+    /**
+     * Starts a new packet, previous content is discarded
+     */
+    public void begin()
+    {
+        out.clear();
+        out.position(HEADER_SIZE);
+        count = 0;
+    }
+
+    /**
+     * Appends an event to the current packet
+     */
+    public void add(Event ev)
+    {
+        ensure(64);
+        int start = out.position();
+        out.putInt(0);
+
+        out.put(CODES[ev.type.ordinal()]);
+        out.put((byte) ev.state.ordinal());
+        out.putLong(ev.time);
+        out.putInt(ev.dur);
+        putString(ev.name);
+        putString(ev.sender);
+
+        switch (ev.type)
+        {
+            case BYTE:
+            {
+                byte[] data = ev.ptrB();
+                int n = putCount(data == null ? 0 : data.length, 1);
+                if (n > 0)
+                {
+                    out.put(data, 0, n);
+                }
+                break;
+            }
+            case SHORT:
+            {
+                short[] data = ev.ptrShort();
+                int n = putCount(data == null ? 0 : data.length, 2);
+                for (int i = 0; i < n; i++)
+                {
+                    out.putShort(data[i]);
+                }
+                break;
+            }
+            case INT:
+            {
+                int[] data = ev.ptrI();
+                int n = putCount(data == null ? 0 : data.length, 4);
+                for (int i = 0; i < n; i++)
+                {
+                    out.putInt(data[i]);
+                }
+                break;
+            }
+            case LONG:
+            {
+                long[] data = ev.ptrL();
+                int n = putCount(data == null ? 0 : data.length, 8);
+                for (int i = 0; i < n; i++)
+                {
+                    out.putLong(data[i]);
+                }
+                break;
+            }
+            case FLOAT:
+            {
+                float[] data = ev.ptrF();
+                int n = putCount(data == null ? 0 : data.length, 4);
+                for (int i = 0; i < n; i++)
+                {
+                    out.putFloat(data[i]);
+                }
+                break;
+            }
+            case DOUBLE:
+            {
+                double[] data = ev.ptrD();
+                int n = putCount(data == null ? 0 : data.length, 8);
+                for (int i = 0; i < n; i++)
+                {
+                    out.putDouble(data[i]);
+                }
+                break;
+            }
+            case BOOL:
+            {
+                boolean[] data = ev.ptrBool();
+                int n = putCount(data == null ? 0 : data.length, 1);
+                for (int i = 0; i < n; i++)
+                {
+                    out.put((byte) (data[i] ? 1 : 0));
+                }
+                break;
+            }
+            case CHAR:
+            case STRING:
+                putString(ev.ptrStr());
+                break;
+            case MAP:
+            {
+                Map<String, String> data = ev.ptrMap();
+                putCount(data == null ? 0 : data.size(), 8);
+                if (data != null)
+                {
+                    for (Map.Entry<String, String> entry : data.entrySet())
+                    {
+                        putString(entry.getKey());
+                        putString(entry.getValue());
+                    }
+                }
+                break;
+            }
+            default:
+                break;
+        }
+
+        out.putInt(start, out.position() - start - 4);
+        count++;
+    }
+
+    /**
+     * Completes the packet header
+     *
+     * @return length of the packet in bytes
+     */
+    public int finish()
+    {
+        out.putInt(0, MAGIC);
+        out.put(4, VERSION);
+        out.put(5, (byte) 0);
+        out.putShort(6, (short) count);
+        out.putInt(8, out.position());
+        return out.position();
+    }
+
+    /**
+     * @return backing array of the packet, valid up to {@link #length()}
+     */
+    public byte[] array()
+    {
+        return out.array();
+    }
+
+    public int length()
+    {
+        return out.position();
+    }
+
+    /**
+     * @return number of events in the current packet
+     */
+    public int count()
+    {
+        return count;
+    }
+
+    /*
+     * decoding
+     */
+
+    /**
+     * @return true if the data starts with a binary event packet header
+     */
+    public static boolean isBinary(byte[] data, int offset, int len)
+    {
+        return len >= HEADER_SIZE
+                && data[offset] == 'S' && data[offset + 1] == 'S' && data[offset + 2] == 'J' && data[offset + 3] == 'E';
+    }
+
+    /**
+     * Reads the packet length from a header, used to frame packets on stream connections
+     *
+     * @return length of the packet including the header, -1 if the data is not a binary event packet
+     */
+    public static int packetLength(byte[] header, int offset)
+    {
+        if (!isBinary(header, offset, HEADER_SIZE))
+        {
+            return -1;
+        }
+        return ByteBuffer.wrap(header, offset + 8, 4).order(ByteOrder.BIG_ENDIAN).getInt();
+    }
+
+    /**
+     * Prepares decoding of a packet, events are then retrieved with {@link #next(EventChannel)}
+     *
+     * @return false if the data is not a valid binary event packet
+     */
+    public boolean setInput(byte[] data, int offset, int len)
+    {
+        remaining = 0;
+        if (!isBinary(data, offset, len))
+        {
+            return false;
+        }
+
+        in = ByteBuffer.wrap(data, offset, len).order(ByteOrder.BIG_ENDIAN);
+        in.position(offset + 4);
+        version = in.get();
+        in.get(); //flags
+        int num = in.getShort() & 0xFFFF;
+        int length = in.getInt();
+
+        if (version < 1 || version > VERSION)
+        {
+            Log.w("unsupported event packet version " + version);
+            return false;
+        }
+        if (length < HEADER_SIZE)
+        {
+            Log.w("malformed event packet (length " + length + ")");
+            return false;
+        }
+        if (length > len)
+        {
+            Log.w("truncated event packet (" + len + " of " + length + " bytes)");
+            return false;
+        }
+
+        in.limit(offset + length);
+        remaining = num;
+        return true;
+    }
+
+    /**
+     * @return protocol version of the current input packet
+     */
+    public int getVersion()
+    {
+        return version;
+    }
+
+    /**
+     * Decodes the next event of the current input packet
+     *
+     * @param pool channel the event is obtained from (see EventChannel.obtainEvent), null to create a new event
+     * @return event or null if there are no more events
+     */
+    public Event next(EventChannel pool)
+    {
+        while (remaining > 0)
+        {
+            remaining--;
+
+            try
+            {
+                int length = in.getInt();
+                int end = in.position() + length;
+                if (length < 0 || end > in.limit())
+                {
+                    Log.w("malformed event record");
+                    remaining = 0;
+                    return null;
+                }
+
+                int code = in.get();
+                if (code <= 0 || code >= TYPES.length)
+                {
+                    //unknown type, written by a newer version
+                    in.position(end);
+                    continue;
+                }
+
+                Cons.Type type = TYPES[code];
+                Event ev = (pool != null) ? pool.obtainEvent(type) : Event.create(type);
+
+                int state = in.get();
+                ev.state = (state == Event.State.CONTINUED.ordinal()) ? Event.State.CONTINUED : Event.State.COMPLETED;
+                ev.time = in.getLong();
+                ev.dur = in.getInt();
+                ev.name = getString();
+                ev.sender = getString();
+
+                readPayload(ev);
+
+                //skip fields added by newer versions
+                in.position(end);
+                return ev;
+            }
+            catch (BufferUnderflowException | IllegalArgumentException e)
+            {
+                Log.w("malformed event record", e);
+                remaining = 0;
+            }
+        }
+        return null;
+    }
+
+    private void readPayload(Event ev)
+    {
+        switch (ev.type)
+        {
+            case BYTE:
+            {
+                int n = getCount(1);
+                byte[] data = ev.ptrB();
+                if (data == null || data.length != n)
+                {
+                    data = new byte[n];
+                }
+                in.get(data);
+                ev.setData(data);
+                break;
+            }
+            case SHORT:
+            {
+                int n = getCount(2);
+                short[] data = ev.ptrShort();
+                if (data == null || data.length != n)
+                {
+                    data = new short[n];
+                }
+                in.asShortBuffer().get(data);
+                in.position(in.position() + n * 2);
+                ev.setData(data);
+                break;
+            }
+            case INT:
+            {
+                int n = getCount(4);
+                int[] data = ev.ptrI();
+                if (data == null || data.length != n)
+                {
+                    data = new int[n];
+                }
+                in.asIntBuffer().get(data);
+                in.position(in.position() + n * 4);
+                ev.setData(data);
+                break;
+            }
+            case LONG:
+            {
+                int n = getCount(8);
+                long[] data = ev.ptrL();
+                if (data == null || data.length != n)
+                {
+                    data = new long[n];
+                }
+                in.asLongBuffer().get(data);
+                in.position(in.position() + n * 8);
+                ev.setData(data);
+                break;
+            }
+            case FLOAT:
+            {
+                int n = getCount(4);
+                float[] data = ev.ptrF();
+                if (data == null || data.length != n)
+                {
+                    data = new float[n];
+                }
+                in.asFloatBuffer().get(data);
+                in.position(in.position() + n * 4);
+                ev.setData(data);
+                break;
+            }
+            case DOUBLE:
+            {
+                int n = getCount(8);
+                double[] data = ev.ptrD();
+                if (data == null || data.length != n)
+                {
+                    data = new double[n];
+                }
+                in.asDoubleBuffer().get(data);
+                in.position(in.position() + n * 8);
+                ev.setData(data);
+                break;
+            }
+            case BOOL:
+            {
+                int n = getCount(1);
+                boolean[] data = ev.ptrBool();
+                if (data == null || data.length != n)
+                {
+                    data = new boolean[n];
+                }
+                for (int i = 0; i < n; i++)
+                {
+                    data[i] = in.get() != 0;
+                }
+                ev.setData(data);
+                break;
+            }
+            case CHAR:
+            case STRING:
+                ev.setData(getString());
+                break;
+            case MAP:
+            {
+                int n = getCount(8); //two string lengths per entry
+                Map<String, String> data = new HashMap<>();
+                for (int i = 0; i < n; i++)
+                {
+                    String key = getString();
+                    data.put(key, getString());
+                }
+                ev.setData(data);
+                break;
+            }
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Reads a number of elements and checks it against the remaining input
+     */
+    private int getCount(int bytesPerValue)
+    {
+        int n = in.getInt();
+        if (n < 0 || (long) n * bytesPerValue > in.remaining())
+        {
+            throw new IllegalArgumentException("invalid element count " + n);
+        }
+        return n;
+    }
+
+    private String getString()
+    {
+        int len = in.getInt();
+        if (len < 0 || len > in.remaining())
+        {
+            throw new IllegalArgumentException("invalid string length " + len);
+        }
+
+        String str = new String(in.array(), in.arrayOffset() + in.position(), len, UTF8);
+        in.position(in.position() + len);
+        return str;
+    }
+
+    private void putString(String str)
+    {
+        if (str == null)
+        {
+            str = "";
+        }
+
+        int len = str.length();
+        ensure(4 + len);
+        int start = out.position();
+        out.putInt(len);
+
+        for (int i = 0; i < len; i++)
+        {
+            char c = str.charAt(i);
+            if (c >= 0x80)
+            {
+                //not ASCII, encode the whole string
+                byte[] bytes = str.getBytes(UTF8);
+                out.position(start);
+                ensure(4 + bytes.length);
+                out.putInt(bytes.length);
+                out.put(bytes);
+                return;
+            }
+            out.put((byte) c);
+        }
+    }
+
+    private int putCount(int n, int bytesPerValue)
+    {
+        ensure(4 + n * bytesPerValue);
+        out.putInt(n);
+        return n;
+    }
+
+    private void ensure(int n)
+    {
+        if (out.remaining() < n)
+        {
+            ByteBuffer tmp = ByteBuffer.allocate(Math.max(out.capacity() * 2, out.position() + n)).order(ByteOrder.BIG_ENDIAN);
+            out.flip();
+            tmp.put(out);
+            out = tmp;
+        }
+    }
+}
@@ -66,4 +66,17 @@ public class FloatEvent extends Event {
     public void setData(float[] data) {
         this.data = data;
     }
+
+    /**
+     * Provides a data array of the requested length, reusing the current one if possible
+     *
+     * @param length number of values
+     * @return data array of the event
+     */
+    public float[] reserve(int length) {
+        if (data == null || data.length != length) {
+            data = new float[length];
+        }
+        return data;
+    }
 }
@@ -29,7 +29,6 @@ package hcm.ssj.core.stream;
 
 import org.xmlpull.v1.XmlPullParserException;
 
-import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
@@ -43,6 +42,7 @@ import hcm.ssj.core.Log;
 import hcm.ssj.core.Provider;
 import hcm.ssj.core.Util;
 import hcm.ssj.file.FileCons;
+import hcm.ssj.file.MappedStreamReader;
 import hcm.ssj.file.SimpleXmlParser;
 
 /**
@@ -247,8 +247,30 @@ public abstract class Stream implements Serializable
                 new String[]{"from", "num"}
         );
 
-        double time = Double.valueOf(xmlValues.foundAttributes.get(0)[0]);
-        int num = Integer.valueOf(xmlValues.foundAttributes.get(0)[1]);
+        double time = 0;
+        int num = 0;
+        for (String[] chunk : xmlValues.foundAttributes)
+        {
+            num += Integer.valueOf(chunk[1]);
+        }
+
+        if (!xmlValues.foundAttributes.isEmpty())
+        {
+            time = Double.valueOf(xmlValues.foundAttributes.get(0)[0]);
+        }
+        else if (ftype.equals("BINARY"))
+        {
+            //legacy header without chunks, the data file holds all samples
+            MappedStreamReader reader = MappedStreamReader.open(path);
+            try
+            {
+                num = (int) reader.getNumSamples();
+            }
+            finally
+            {
+                reader.close();
+            }
+        }
 
         Stream stream = create(num, dim, sr, type);
         stream.time = time;
@@ -314,15 +336,16 @@ public abstract class Stream implements Serializable
 
     private static void loadDataBinary(Stream stream, String path) throws IOException, XmlPullParserException
     {
-        InputStream inputStream = new FileInputStream(new File(path));
-        BufferedInputStream reader = new BufferedInputStream(inputStream);
-
-        byte buffer[] = new byte[stream.tot];
-        int len = reader.read(buffer, 0, stream.tot);
-        while(len != -1)
+        //header is parsed again for the codec and chunk index
+        MappedStreamReader reader = MappedStreamReader.open(path);
+        try
+        {
+            int num = (int) Math.min(stream.num, reader.getNumSamples());
+            reader.read(0, num, stream.ptr(), 0);
+        }
+        finally
         {
-            Util.arraycopy(buffer, 0, stream.ptr(),0, len);
-            len = reader.read(buffer, 0, stream.tot);
+            reader.close();
         }
     }
 }
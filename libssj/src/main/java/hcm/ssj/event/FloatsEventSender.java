@@ -33,6 +33,7 @@ import hcm.ssj.core.Cons;
 import hcm.ssj.core.Consumer;
 import hcm.ssj.core.SSJFatalException;
 import hcm.ssj.core.event.Event;
+import hcm.ssj.core.event.FloatEvent;
 import hcm.ssj.core.option.Option;
 import hcm.ssj.core.option.OptionList;
 import hcm.ssj.core.stream.Stream;
@@ -80,7 +81,7 @@ public class FloatsEventSender extends Consumer
     {
         float ptr[] = stream_in[0].ptrF();
 
-        Event ev = Event.create(Cons.Type.FLOAT);
+        FloatEvent ev = (FloatEvent) _evchannel_out.obtainEvent(Cons.Type.FLOAT);
         ev.name = options.event.get();
         ev.sender = options.sender.get();
         ev.time = (int)(1000 * stream_in[0].time + 0.5);
@@ -88,7 +89,7 @@ public class FloatsEventSender extends Consumer
         ev.state = Event.State.COMPLETED;
 
         if (options.mean.get()) {
-            float[] avg = new float[stream_in[0].dim];
+            float[] avg = ev.reserve(stream_in[0].dim);
             Arrays.fill(avg, 0);
             for (int j = 0; j < stream_in[0].dim; j++) {
                 for (int i = 0; i < stream_in[0].num; i++) {
@@ -96,11 +97,9 @@ public class FloatsEventSender extends Consumer
                 }
                 avg[j] /= stream_in[0].num;
             }
-
-            ev.setData(avg);
         }
         else {
-            ev.setData(ptr);
+            System.arraycopy(ptr, 0, ev.reserve(stream_in[0].num * stream_in[0].dim), 0, stream_in[0].num * stream_in[0].dim);
         }
 
         _evchannel_out.pushEvent(ev);
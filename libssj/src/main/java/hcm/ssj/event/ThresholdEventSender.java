@@ -196,7 +196,7 @@ public class ThresholdEventSender extends Consumer
                         _counter_max_dur = _samples_max_dur - _hangover_in;
 
                         if (options.eager.get()) {
-                            Event ev = Event.create(Cons.Type.EMPTY); //empty event
+                            Event ev = _evchannel_out.obtainEvent(Cons.Type.EMPTY); //empty event
                             ev.name = options.event.get();
                             ev.sender = options.sender.get();
                             ev.time = (int)(1000 * _trigger_start + 0.5);
@@ -279,7 +279,7 @@ public class ThresholdEventSender extends Consumer
         }
 
         if (options.eall.get() || state == Event.State.COMPLETED) {
-            Event ev = Event.create(Cons.Type.EMPTY); //empty event
+            Event ev = _evchannel_out.obtainEvent(Cons.Type.EMPTY); //empty event
             ev.name = options.event.get();
             ev.sender = options.sender.get();
             ev.time = Math.max (0,  (int)(1000 * (time - _loffset) + 0.5));
@@ -0,0 +1,428 @@
+/*
+ * AsyncWriter.java
+ * Copyright (c) 2018
+ * Authors: Ionut Damian, Michael Dietz, Frank Gaibler, Daniel Langerenken, Simon Flutura,
+ * Vitalijs Krumins, Antonio Grieco
+ * *****************************************************
+ * This file is part of the Social Signal Interpretation for Java (SSJ) framework
+ * developed at the Lab for Human Centered Multimedia of the University of Augsburg.
+ *
+ * SSJ has been inspired by the SSI (http://openssi.net) framework. SSJ is not a
+ * one-to-one port of SSI to Java, it is an approximation. Nor does SSJ pretend
+ * to offer SSI's comprehensive functionality and performance (this is java after all).
+ * Nevertheless, SSJ borrows a lot of programming patterns from SSI.
+ *
+ * This library is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 3 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package hcm.ssj.file;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import hcm.ssj.core.Log;
+
+/**
+ * Writes a file on a dedicated I/O thread.
+ * Data is collected in preallocated buffers which are handed to the I/O thread once full,
+ * the I/O thread writes all pending buffers with a single gathering write.
+ * If all buffers are in use the producer blocks (backpressure), such stalls are counted as overflows.
+ *
+ * Methods which add data must be called from a single thread.
+ */
+public class AsyncWriter
+{
+    private final String name;
+    private final FileOutputStream fileOutputStream;
+    private final FileChannel channel;
+    private final Thread thread;
+
+    private final ArrayBlockingQueue<ByteBuffer> free;
+    private final LinkedBlockingQueue<Object> pending = new LinkedBlockingQueue<>();
+    private final ByteBuffer[] batch;
+    private final int bufferSize;
+    private ByteBuffer current;
+
+    private volatile boolean running = true;
+    private volatile boolean failed = false;
+    private final Object lock = new Object();
+    private int submitted = 0;
+    private int completed = 0;
+
+    private volatile long bytesWritten = 0;
+    private volatile long bytesDropped = 0;
+    private volatile long overflows = 0;
+    private volatile long stallNanos = 0;
+    private volatile int maxQueueDepth = 0;
+
+    /**
+     * @param file file to write, existing content is replaced
+     * @param bufferSize size of each buffer in bytes
+     * @param numBuffers number of buffers, at least 2
+     * @throws IOException IO Exception
+     */
+    public AsyncWriter(File file, int bufferSize, int numBuffers) throws IOException
+    {
+        name = file.getName();
+        fileOutputStream = new FileOutputStream(file);
+        channel = fileOutputStream.getChannel();
+
+        this.bufferSize = bufferSize;
+        numBuffers = Math.max(2, numBuffers);
+        free = new ArrayBlockingQueue<>(numBuffers);
+        batch = new ByteBuffer[numBuffers];
+        for (int i = 0; i < numBuffers - 1; i++)
+        {
+            free.add(ByteBuffer.allocateDirect(bufferSize));
+        }
+        current = ByteBuffer.allocateDirect(bufferSize);
+
+        thread = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                loop();
+            }
+        }, "AsyncWriter-" + name);
+        thread.start();
+    }
+
+    /**
+     * @param data data to write
+     * @param offset position of the first byte
+     * @param len number of bytes
+     */
+    public void write(byte[] data, int offset, int len)
+    {
+        while (len > 0)
+        {
+            int n = Math.min(len, current.remaining());
+            current.put(data, offset, n);
+            offset += n;
+            len -= n;
+
+            if (!current.hasRemaining())
+            {
+                submit();
+            }
+        }
+    }
+
+    public void write(byte[] data)
+    {
+        write(data, 0, data.length);
+    }
+
+    /**
+     * Writes text without creating intermediate strings, ASCII characters are copied directly.
+     *
+     * @param text text to write
+     * @return number of bytes written
+     */
+    public int write(CharSequence text)
+    {
+        int len = text.length();
+        for (int i = 0; i < len; i++)
+        {
+            if (text.charAt(i) >= 0x80)
+            {
+                byte[] bytes = text.toString().getBytes();
+                write(bytes);
+                return bytes.length;
+            }
+        }
+
+        for (int i = 0; i < len; i++)
+        {
+            current.put((byte) text.charAt(i));
+            if (!current.hasRemaining())
+            {
+                submit();
+            }
+        }
+        return len;
+    }
+
+    /**
+     * Hands the current buffer to the I/O thread and runs a task on the I/O thread
+     * once all data written so far has reached the file, e.g. to update a header.
+     * Does not block the caller.
+     *
+     * @param task task to run on the I/O thread
+     */
+    public void sync(Runnable task)
+    {
+        if (current.position() > 0)
+        {
+            submit();
+        }
+        enqueue(task);
+    }
+
+    /**
+     * Blocks until all data written so far has reached the file
+     */
+    public void flush()
+    {
+        if (current.position() > 0)
+        {
+            submit();
+        }
+
+        synchronized (lock)
+        {
+            while (completed < submitted && thread.isAlive())
+            {
+                try
+                {
+                    lock.wait(100);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes all pending data, stops the I/O thread and closes the file
+     */
+    public void close()
+    {
+        flush();
+        running = false;
+
+        try
+        {
+            thread.join();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        try
+        {
+            channel.close();
+            fileOutputStream.close();
+        }
+        catch (IOException e)
+        {
+            Log.e("could not close " + name, e);
+        }
+
+        if (overflows > 0 || bytesDropped > 0)
+        {
+            Log.w(name + ": " + overflows + " overflows, stalled for " + stallNanos / 1000000 + "ms, max queue depth " + maxQueueDepth + ", " + bytesDropped + " bytes dropped");
+        }
+    }
+
+    /**
+     * @return number of bytes which reached the file
+     */
+    public long getBytesWritten()
+    {
+        return bytesWritten;
+    }
+
+    /**
+     * @return number of bytes which were discarded after a write error
+     */
+    public long getBytesDropped()
+    {
+        return bytesDropped;
+    }
+
+    /**
+     * @return number of times the producer had to wait for a free buffer
+     */
+    public long getOverflows()
+    {
+        return overflows;
+    }
+
+    /**
+     * @return total time the producer waited for free buffers in seconds
+     */
+    public double getStallTime()
+    {
+        return stallNanos / 1E9;
+    }
+
+    /**
+     * @return number of buffers waiting to be written
+     */
+    public int getQueueDepth()
+    {
+        return pending.size();
+    }
+
+    public int getMaxQueueDepth()
+    {
+        return maxQueueDepth;
+    }
+
+    /**
+     * @return true if a write failed, subsequent data is dropped
+     */
+    public boolean hasFailed()
+    {
+        return failed;
+    }
+
+    private void submit()
+    {
+        current.flip();
+        enqueue(current);
+
+        current = free.poll();
+        if (current == null)
+        {
+            overflows++;
+            long start = System.nanoTime();
+            while (current == null)
+            {
+                try
+                {
+                    current = free.poll(100, TimeUnit.MILLISECONDS);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+
+                if (current == null && !thread.isAlive())
+                {
+                    //I/O thread is gone, keep the producer going
+                    current = ByteBuffer.allocateDirect(bufferSize);
+                }
+            }
+            stallNanos += System.nanoTime() - start;
+        }
+        current.clear();
+    }
+
+    private void enqueue(Object item)
+    {
+        synchronized (lock)
+        {
+            submitted++;
+        }
+        pending.add(item);
+
+        int depth = pending.size();
+        if (depth > maxQueueDepth)
+        {
+            maxQueueDepth = depth;
+        }
+    }
+
+    private void loop()
+    {
+        while (running || !pending.isEmpty())
+        {
+            Object item;
+            try
+            {
+                item = pending.poll(100, TimeUnit.MILLISECONDS);
+            }
+            catch (InterruptedException e)
+            {
+                break;
+            }
+
+            if (item == null)
+            {
+                continue;
+            }
+
+            int done;
+            if (item instanceof Runnable)
+            {
+                try
+                {
+                    ((Runnable) item).run();
+                }
+                catch (Exception e)
+                {
+                    Log.e("task failed on " + name, e);
+                }
+                done = 1;
+            }
+            else
+            {
+                //gather all consecutive buffers
+                int n = 0;
+                batch[n++] = (ByteBuffer) item;
+                while (n < batch.length && pending.peek() instanceof ByteBuffer)
+                {
+                    batch[n++] = (ByteBuffer) pending.poll();
+                }
+
+                write(n);
+
+                for (int i = 0; i < n; i++)
+                {
+                    free.offer(batch[i]);
+                }
+                done = n;
+            }
+
+            synchronized (lock)
+            {
+                completed += done;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    private void write(int n)
+    {
+        long size = 0;
+        for (int i = 0; i < n; i++)
+        {
+            size += batch[i].remaining();
+        }
+
+        if (failed)
+        {
+            bytesDropped += size;
+            return;
+        }
+
+        try
+        {
+            long written = 0;
+            while (written < size)
+            {
+                written += channel.write(batch, 0, n);
+            }
+            bytesWritten += written;
+        }
+        catch (IOException e)
+        {
+            Log.e("could not write " + name, e);
+            failed = true;
+            bytesDropped += size;
+        }
+    }
+}
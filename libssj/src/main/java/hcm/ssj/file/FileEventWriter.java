@@ -37,6 +37,7 @@ import java.util.Date;
 import java.util.Locale;
 import java.util.TimeZone;
 
+import hcm.ssj.core.AsciiFormatter;
 import hcm.ssj.core.Cons;
 import hcm.ssj.core.EventHandler;
 import hcm.ssj.core.Log;
@@ -68,19 +69,27 @@ public class FileEventWriter extends EventHandler implements IFileWriter
         ANNO_PLAIN
     }
 
-    public class Options extends IFileWriter.Options
+    public class Options extends IFileWriter.AsyncOptions
     {
         public final Option<Format> format = new Option<>("format", Format.EVENT, Format.class, "format of event file");
+        public final Option<Integer> precision = new Option<>("precision", -1, Integer.class, "number of decimal places of floating point values in XML events (-1 = shortest exact representation)");
+
+        private Options()
+        {
+            super();
+            addOptions();
+        }
     }
     public Options options = new Options();
 
-    StringBuilder _builder = new StringBuilder();
+    AsciiFormatter _builder = new AsciiFormatter();
     byte[] _buffer;
 
     ArrayList<Event> unprocessedEvents = new ArrayList<>();
 
     private File file;
     private FileOutputStream fileOutputStream = null;
+    private AsyncWriter asyncWriter = null;
 
     private boolean headerWritten = false;
 
@@ -98,7 +107,8 @@ public class FileEventWriter extends EventHandler implements IFileWriter
 		}
 
         _buffer = new byte[Cons.MAX_EVENT_SIZE];
-        _builder.delete(0, _builder.length());
+        _builder.clear();
+        _builder.setPrecision(options.precision.get());
 
         //create file
         if (options.filePath.get() == null)
@@ -125,7 +135,22 @@ public class FileEventWriter extends EventHandler implements IFileWriter
             options.fileName.set(defaultName);
         }
         file = new File(fileDirectory, options.fileName.get());
-        fileOutputStream = getFileConnection(file, fileOutputStream);
+        asyncWriter = null;
+        if (options.async.get())
+        {
+            try
+            {
+                asyncWriter = new AsyncWriter(file, options.asyncBufferSize.get(), options.asyncBuffers.get());
+            }
+            catch (IOException e)
+            {
+                Log.e("could not create async writer, writing synchronously", e);
+            }
+        }
+        if (asyncWriter == null)
+        {
+            fileOutputStream = getFileConnection(file, fileOutputStream);
+        }
 
         headerWritten = false;
         unprocessedEvents.clear();
@@ -137,7 +162,7 @@ public class FileEventWriter extends EventHandler implements IFileWriter
         //write header
         if(!headerWritten && options.format.get() == Format.EVENT)
         {
-            _builder.delete(0, _builder.length());
+            _builder.clear();
             _builder.append("<events ssi-v=\"2\" ssj-v=\"");
             _builder.append(_frame.getVersion());
             _builder.append("\">");
@@ -154,18 +179,18 @@ public class FileEventWriter extends EventHandler implements IFileWriter
             _builder.append("<time ms=\"").append(_frame.getStartTimeMs()).append("\" local=\"").append(local).append("\" system=\"").append(system).append("\"/>");
             _builder.append(FileCons.DELIMITER_LINE);
 
-            write(_builder.toString(), fileOutputStream);
+            write(_builder);
             headerWritten = true;
         }
 
-        _builder.delete(0, _builder.length());
+        _builder.clear();
 
         if(options.format.get() == Format.EVENT)
         {
             Util.eventToXML(_builder, event);
             _builder.append(FileCons.DELIMITER_LINE);
 
-            write(_builder.toString(), fileOutputStream);
+            write(_builder);
         }
         else if(options.format.get() == Format.ANNO_PLAIN)
         {
@@ -190,7 +215,7 @@ public class FileEventWriter extends EventHandler implements IFileWriter
                 double from = (start != null) ? start.time / 1000.0 : event.time / 1000.0;
                 _builder.append(from).append(" ").append(to).append(" ").append(event.name);
 
-                writeLine(_builder.toString(), fileOutputStream);
+                writeLine(_builder);
             }
         }
     }
@@ -199,11 +224,16 @@ public class FileEventWriter extends EventHandler implements IFileWriter
     {
         //write footer
         if(options.format.get() == Format.EVENT) {
-            _builder.delete(0, _builder.length());
+            _builder.clear();
             _builder.append("</events>");
-            writeLine(_builder.toString(), fileOutputStream);
+            writeLine(_builder);
         }
 
+        if (asyncWriter != null)
+        {
+            asyncWriter.close();
+            asyncWriter = null;
+        }
         fileOutputStream = closeStream(fileOutputStream);
     }
 
@@ -246,16 +276,19 @@ public class FileEventWriter extends EventHandler implements IFileWriter
     }
 
     /**
-     * @param line   String
-     * @param stream FileOutputStream
+     * @param builder AsciiFormatter
      */
-    private void write(String line, FileOutputStream stream)
+    private void write(AsciiFormatter builder)
     {
-        if (stream != null)
+        if (asyncWriter != null)
+        {
+            asyncWriter.write(builder.array(), 0, builder.length());
+        }
+        else if (fileOutputStream != null)
         {
             try
             {
-                stream.write(line.getBytes());
+                builder.writeTo(fileOutputStream);
             } catch (IOException e)
             {
                 Log.e("could not write data");
@@ -264,21 +297,11 @@ public class FileEventWriter extends EventHandler implements IFileWriter
     }
 
     /**
-     * @param line   String
-     * @param stream FileOutputStream
+     * @param builder AsciiFormatter
      */
-    private void writeLine(String line, FileOutputStream stream)
+    private void writeLine(AsciiFormatter builder)
     {
-        if (stream != null)
-        {
-            try
-            {
-                line += FileCons.DELIMITER_LINE;
-                stream.write(line.getBytes());
-            } catch (IOException e)
-            {
-                Log.e("could not write line");
-            }
-        }
+        builder.append(FileCons.DELIMITER_LINE);
+        write(builder);
     }
 }
@@ -30,7 +30,6 @@ package hcm.ssj.file;
 
 import org.xmlpull.v1.XmlPullParserException;
 
-import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
@@ -39,6 +38,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 
+import hcm.ssj.core.Cons;
 import hcm.ssj.core.Log;
 import hcm.ssj.core.SSJFatalException;
 import hcm.ssj.core.Sensor;
@@ -78,7 +78,7 @@ public class FileReader extends Sensor
     public final Options options = new Options();
     private File fileHeader;
     private File fileReal;
-    private BufferedInputStream inputBinary = null;
+    private MappedStreamReader inputBinary = null;
     private BufferedReader inputASCII = null;
     private int pos;
     private SimpleHeader simpleHeader = null;
@@ -132,6 +132,10 @@ public class FileReader extends Sensor
 		if (simpleHeader._ftype.equals("BINARY"))
 		{
 			inputBinary = getFileConnection(fileReal, inputBinary);
+			if (inputBinary == null)
+			{
+				throw new SSJFatalException("unable to open " + fileReal.getPath());
+			}
 		}
 		else if (simpleHeader._ftype.equals("ASCII"))
 		{
@@ -157,7 +161,7 @@ public class FileReader extends Sensor
             SimpleXmlParser.XmlValues xmlValues = simpleXmlParser.parse(
                     new FileInputStream(fileHeader),
                     new String[]{"stream", "info"},
-                    new String[]{"ftype", "sr", "dim", "byte", "type"}
+                    new String[]{"ftype", "sr", "dim", "byte", "type", "codec"}
             );
             simpleHeader = new SimpleHeader();
             simpleHeader._ftype = xmlValues.foundAttributes.get(0)[0];
@@ -165,6 +169,10 @@ public class FileReader extends Sensor
             simpleHeader._dim = xmlValues.foundAttributes.get(0)[2];
             simpleHeader._byte = xmlValues.foundAttributes.get(0)[3];
             simpleHeader._type = xmlValues.foundAttributes.get(0)[4];
+            if (xmlValues.foundAttributes.get(0)[5] != null)
+            {
+                simpleHeader._codec = xmlValues.foundAttributes.get(0)[5];
+            }
             xmlValues = simpleXmlParser.parse(
                     new FileInputStream(fileHeader),
                     new String[]{"stream", "chunk"},
@@ -198,10 +206,10 @@ public class FileReader extends Sensor
     }
 
     /**
-     * @param reader BufferedReader
-     * @return BufferedReader
+     * @param reader MappedStreamReader
+     * @return MappedStreamReader
      */
-    private BufferedInputStream closeStream(BufferedInputStream reader)
+    private MappedStreamReader closeStream(MappedStreamReader reader)
     {
         if (reader != null)
         {
@@ -250,10 +258,10 @@ public class FileReader extends Sensor
 
     /**
      * @param file   File
-     * @param stream BufferedInputStream
-     * @return BufferedInputStream
+     * @param stream MappedStreamReader
+     * @return MappedStreamReader
      */
-    private BufferedInputStream getFileConnection(File file, BufferedInputStream stream)
+    private MappedStreamReader getFileConnection(File file, MappedStreamReader stream)
     {
         if (stream != null)
         {
@@ -261,11 +269,17 @@ public class FileReader extends Sensor
         }
         try
         {
-            InputStream inputStream = new FileInputStream(file);
-            stream = new BufferedInputStream(inputStream);
-        } catch (FileNotFoundException e)
+            stream = new MappedStreamReader(file,
+                                            Double.valueOf(simpleHeader._sr),
+                                            Integer.valueOf(simpleHeader._dim),
+                                            Integer.valueOf(simpleHeader._byte),
+                                            Cons.Type.valueOf(simpleHeader._type),
+                                            Double.valueOf(simpleHeader._from),
+                                            MappedStreamReader.DEFAULT_PAGE_SIZE,
+                                            StreamCodec.Type.valueOf(simpleHeader._codec));
+        } catch (IOException e)
         {
-            Log.e("file not found", e);
+            Log.e("could not open file", e);
         }
         return stream;
     }
@@ -314,17 +328,17 @@ public class FileReader extends Sensor
     }
 
     /**
-     * @param stream BufferedInputStream
-     * @return String
+     * @param stream MappedStreamReader
+     * @return number of bytes read, -1 at the end of the file
      */
-    private int read(BufferedInputStream stream, byte[] buffer, int numBytes)
+    private int read(MappedStreamReader stream, byte[] buffer, int numBytes)
     {
         int ret = 0;
         if (stream != null)
         {
             try
             {
-                ret = stream.read(buffer, 0, numBytes);
+                ret = stream.read(buffer, numBytes);
             } catch (IOException e)
             {
                 Log.e("could not read line", e);
@@ -356,7 +370,7 @@ public class FileReader extends Sensor
         if(ret == -1 && options.loop.get())
         {
             Log.d("end of file reached, looping");
-            inputBinary = getFileConnection(fileReal, inputBinary);
+            inputBinary.seek(0);
             ret = read(inputBinary, buffer, numBytes);
 
             if(ret <= 0)
@@ -371,10 +385,28 @@ public class FileReader extends Sensor
 
     protected void skip(int bytes)
     {
-        try {
-            inputBinary.skip(bytes);
-        } catch (IOException e) {
-            Log.e("exception while skipping bytes", e);
+        if (inputBinary != null)
+        {
+            inputBinary.seek(inputBinary.tell() + bytes / (Integer.valueOf(simpleHeader._dim) * Integer.valueOf(simpleHeader._byte)));
+        }
+    }
+
+    /**
+     * Moves the read position to the sample at the given time, relative to the beginning of the file
+     *
+     * @param time time in seconds
+     */
+    protected void seek(double time)
+    {
+        if (inputBinary != null)
+        {
+            inputBinary.seek(inputBinary.getSampleIndex(time));
+        }
+        else if (inputASCII != null)
+        {
+            inputASCII = getFileConnection(fileReal, inputASCII);
+            long lines = (long) (time * Double.valueOf(simpleHeader._sr) + 0.5);
+            for (long i = 0; i < lines && readLine(inputASCII) != null; i++);
         }
     }
 }
@@ -136,7 +136,7 @@ public class FileReaderChannel extends SensorChannel
     {
 		if (options.offset.get() > 0)
 		{
-			fileReader.skip((int) (stream_out.sr * options.offset.get()));
+			fileReader.seek(options.offset.get());
 		}
     }
 
@@ -146,6 +146,12 @@ public class FileReaderChannel extends SensorChannel
     @Override
     protected boolean process(Stream stream_out) throws SSJFatalException
     {
+        //keep the read position until the pipeline runs, earlier data would be discarded
+        if (!_frame.isRunning())
+        {
+            return false;
+        }
+
         if(ftype == Cons.FileType.ASCII)
         {
             for(int i = 0; i < num; ++i) {
@@ -230,7 +236,11 @@ public class FileReaderChannel extends SensorChannel
         else if(ftype == Cons.FileType.BINARY)
         {
             int numBytes = num * dimension * bytes;
-            fileReader.getDataBinary(buffer, numBytes);
+            if (fileReader.getDataBinary(buffer, numBytes) <= 0 && !fileReader.options.loop.get())
+            {
+                endOfStream();
+                return false;
+            }
             Util.arraycopy(buffer, 0, stream_out.ptr(), 0, numBytes);
         }
 
@@ -253,6 +263,10 @@ public class FileReaderChannel extends SensorChannel
         {
             //notify listeners
             Monitor.notifyMonitor();
+            if (!fileReader.options.loop.get())
+            {
+                endOfStream();
+            }
             result = new String[dimension];
             Arrays.fill(result, "0");
         }
@@ -36,10 +36,12 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.Locale;
 import java.util.TimeZone;
 
+import hcm.ssj.core.AsciiFormatter;
 import hcm.ssj.core.Cons;
 import hcm.ssj.core.Consumer;
 import hcm.ssj.core.Log;
@@ -69,11 +71,14 @@ public class FileWriter extends Consumer implements IFileWriter
 	/**
 	 *
 	 */
-	public class Options extends IFileWriter.Options
+	public class Options extends IFileWriter.AsyncOptions
 	{
 		public final Option<String> separator = new Option<>("separator", FileCons.DELIMITER_DIMENSION, String.class, "");
 		public final Option<Cons.FileType> type = new Option<>("type", Cons.FileType.ASCII, Cons.FileType.class, "file type (ASCII or BINARY)");
 		public final Option<Boolean> merge = new Option<>("merge", true, Boolean.class, "merge multiple input streams");
+		public final Option<Integer> precision = new Option<>("precision", -1, Integer.class, "number of decimal places of floating point values in ASCII files (-1 = shortest exact representation)");
+		public final Option<Double> chunk = new Option<>("chunk", 0.0, Double.class, "split the file into chunks of this duration in seconds, each chunk is indexed in the header which is updated after every chunk (0 = single chunk)");
+		public final Option<StreamCodec.Type> codec = new Option<>("codec", StreamCodec.Type.NONE, StreamCodec.Type.class, "compression of BINARY files: DELTA (integer types), XOR (FLOAT, DOUBLE) or DEFLATE (any type)");
 
 		/**
 		 *
@@ -88,14 +93,21 @@ public class FileWriter extends Consumer implements IFileWriter
 	public final Options options = new Options();
 	private Cons.FileType fileType;
 	private FileOutputStream fileOutputStream = null;
-	private FileOutputStream fileOutputStreamHeader = null;
 	private BufferedOutputStream byteStream;
+	private AsyncWriter asyncWriter = null;
 	private byte[] buffer;
+	private StreamCodec codec = null;
+	private byte[] encoded;
 
 	private int sampleCount = 0;
+	private long byteCount = 0;
 	private SimpleHeader simpleHeader;
-	private StringBuilder stringBuilder;
+	private AsciiFormatter formatter;
 	private File file;
+	private File fileHeader;
+
+	private int chunkSamples = 0;
+	private ArrayList<long[]> chunks = new ArrayList<>();
 
 	private Merge merge = null;
 	private Stream stream_merged;
@@ -167,19 +179,55 @@ public class FileWriter extends Consumer implements IFileWriter
 			fileHeader = new File(path + "." + FILE_EXTENSION_STREAM);
 			fileReal = new File(path + "." + FILE_EXTENSION_STREAM + FileCons.TAG_DATA_FILE);
 		}
-		fileOutputStreamHeader = getFileConnection(fileHeader, fileOutputStreamHeader);
+		this.fileHeader = fileHeader;
 
 		sampleCount = 0;
-		fileOutputStream = getFileConnection(fileReal, fileOutputStream);
+		byteCount = 0;
+		chunks.clear();
+		chunkSamples = (int) (options.chunk.get() * stream.sr + 0.5);
+
+		asyncWriter = null;
+		if (options.async.get())
+		{
+			try
+			{
+				asyncWriter = new AsyncWriter(fileReal, options.asyncBufferSize.get(), options.asyncBuffers.get());
+			}
+			catch (IOException e)
+			{
+				Log.e("could not create async writer, writing synchronously", e);
+			}
+		}
+		if (asyncWriter == null)
+		{
+			fileOutputStream = getFileConnection(fileReal, fileOutputStream);
+		}
 
 		if (fileType == Cons.FileType.BINARY)
 		{
-			byteStream = new BufferedOutputStream(fileOutputStream);
+			if (asyncWriter == null)
+			{
+				byteStream = new BufferedOutputStream(fileOutputStream);
+			}
 			buffer = new byte[stream.tot];
+
+			codec = null;
+			StreamCodec.Type codecType = options.codec.get();
+			if (codecType != null && codecType != StreamCodec.Type.NONE)
+			{
+				if (!StreamCodec.supports(codecType, stream.type))
+				{
+					Log.w(codecType + " does not support " + stream.type + ", using " + StreamCodec.Type.DEFLATE);
+					codecType = StreamCodec.Type.DEFLATE;
+				}
+				codec = new StreamCodec(codecType, stream.type, stream.dim, stream.bytes);
+				encoded = new byte[codec.maxBlockSize(stream.num)];
+			}
 		}
 		else if (fileType == Cons.FileType.ASCII)
 		{
-			stringBuilder = new StringBuilder();
+			formatter = new AsciiFormatter(stream.tot * 4);
+			formatter.setPrecision(options.precision.get());
 		}
 	}
 
@@ -200,7 +248,7 @@ public class FileWriter extends Consumer implements IFileWriter
 
 		if (fileType == Cons.FileType.ASCII)
 		{
-			stringBuilder.delete(0, stringBuilder.length());
+			formatter.clear();
 		}
 
 		if (fileType == Cons.FileType.ASCII)
@@ -214,13 +262,13 @@ public class FileWriter extends Consumer implements IFileWriter
 					{
 						for (int k = 0; k < input.dim; k++, j++)
 						{
-							stringBuilder.append(in[j]);
-							stringBuilder.append(options.separator.get());
+							formatter.append(in[j]);
+							formatter.append(options.separator.get());
 						}
-						stringBuilder.append(FileCons.DELIMITER_LINE);
+						formatter.append(FileCons.DELIMITER_LINE);
 					}
 					sampleCount += input.num;
-					write(stringBuilder.toString(), fileOutputStream);
+					write(formatter);
 					break;
 				}
 				case BYTE:
@@ -230,13 +278,13 @@ public class FileWriter extends Consumer implements IFileWriter
 					{
 						for (int k = 0; k < input.dim; k++, j++)
 						{
-							stringBuilder.append(in[j]);
-							stringBuilder.append(options.separator.get());
+							formatter.append(in[j]);
+							formatter.append(options.separator.get());
 						}
-						stringBuilder.append(FileCons.DELIMITER_LINE);
+						formatter.append(FileCons.DELIMITER_LINE);
 					}
 					sampleCount += input.num;
-					write(stringBuilder.toString(), fileOutputStream);
+					write(formatter);
 					break;
 				}
 				case CHAR:
@@ -246,13 +294,13 @@ public class FileWriter extends Consumer implements IFileWriter
 					{
 						for (int k = 0; k < input.dim; k++, j++)
 						{
-							stringBuilder.append(in[j]);
-							stringBuilder.append(options.separator.get());
+							formatter.append(in[j]);
+							formatter.append(options.separator.get());
 						}
-						stringBuilder.append(FileCons.DELIMITER_LINE);
+						formatter.append(FileCons.DELIMITER_LINE);
 					}
 					sampleCount += input.num;
-					write(stringBuilder.toString(), fileOutputStream);
+					write(formatter);
 					break;
 				}
 				case SHORT:
@@ -262,13 +310,13 @@ public class FileWriter extends Consumer implements IFileWriter
 					{
 						for (int k = 0; k < input.dim; k++, j++)
 						{
-							stringBuilder.append(in[j]);
-							stringBuilder.append(options.separator.get());
+							formatter.append(in[j]);
+							formatter.append(options.separator.get());
 						}
-						stringBuilder.append(FileCons.DELIMITER_LINE);
+						formatter.append(FileCons.DELIMITER_LINE);
 					}
 					sampleCount += input.num;
-					write(stringBuilder.toString(), fileOutputStream);
+					write(formatter);
 					break;
 				}
 				case INT:
@@ -278,13 +326,13 @@ public class FileWriter extends Consumer implements IFileWriter
 					{
 						for (int k = 0; k < input.dim; k++, j++)
 						{
-							stringBuilder.append(in[j]);
-							stringBuilder.append(options.separator.get());
+							formatter.append(in[j]);
+							formatter.append(options.separator.get());
 						}
-						stringBuilder.append(FileCons.DELIMITER_LINE);
+						formatter.append(FileCons.DELIMITER_LINE);
 					}
 					sampleCount += input.num;
-					write(stringBuilder.toString(), fileOutputStream);
+					write(formatter);
 					break;
 				}
 				case LONG:
@@ -294,13 +342,13 @@ public class FileWriter extends Consumer implements IFileWriter
 					{
 						for (int k = 0; k < input.dim; k++, j++)
 						{
-							stringBuilder.append(in[j]);
-							stringBuilder.append(options.separator.get());
+							formatter.append(in[j]);
+							formatter.append(options.separator.get());
 						}
-						stringBuilder.append(FileCons.DELIMITER_LINE);
+						formatter.append(FileCons.DELIMITER_LINE);
 					}
 					sampleCount += input.num;
-					write(stringBuilder.toString(), fileOutputStream);
+					write(formatter);
 					break;
 				}
 				case FLOAT:
@@ -310,13 +358,13 @@ public class FileWriter extends Consumer implements IFileWriter
 					{
 						for (int k = 0; k < input.dim; k++, j++)
 						{
-							stringBuilder.append(in[j]);
-							stringBuilder.append(options.separator.get());
+							formatter.append(in[j]);
+							formatter.append(options.separator.get());
 						}
-						stringBuilder.append(FileCons.DELIMITER_LINE);
+						formatter.append(FileCons.DELIMITER_LINE);
 					}
 					sampleCount += input.num;
-					write(stringBuilder.toString(), fileOutputStream);
+					write(formatter);
 					break;
 				}
 				case DOUBLE:
@@ -326,13 +374,13 @@ public class FileWriter extends Consumer implements IFileWriter
 					{
 						for (int k = 0; k < input.dim; k++, j++)
 						{
-							stringBuilder.append(in[j]);
-							stringBuilder.append(options.separator.get());
+							formatter.append(in[j]);
+							formatter.append(options.separator.get());
 						}
-						stringBuilder.append(FileCons.DELIMITER_LINE);
+						formatter.append(FileCons.DELIMITER_LINE);
 					}
 					sampleCount += input.num;
-					write(stringBuilder.toString(), fileOutputStream);
+					write(formatter);
 					break;
 				}
 				default:
@@ -344,7 +392,70 @@ public class FileWriter extends Consumer implements IFileWriter
 		{
 			sampleCount += input.num;
 			Util.arraycopy(input.ptr(), 0, buffer, 0, input.tot);
-			write(buffer, byteStream);
+			if (codec != null)
+			{
+				//one self-contained block per frame
+				write(encoded, codec.encode(buffer, input.num, encoded, 0));
+			}
+			else
+			{
+				write(buffer, buffer.length);
+			}
+		}
+
+		if (chunkSamples > 0 && sampleCount - getChunkStart() >= chunkSamples)
+		{
+			closeChunk();
+
+			final String header = getHeader(input);
+			if (asyncWriter != null)
+			{
+				//header is updated by the I/O thread once the chunk has been written
+				asyncWriter.sync(new Runnable()
+				{
+					@Override
+					public void run()
+					{
+						writeHeader(header);
+					}
+				});
+			}
+			else
+			{
+				if (byteStream != null)
+				{
+					try
+					{
+						byteStream.flush();
+					}
+					catch (IOException e)
+					{
+						Log.e("could not flush data", e);
+					}
+				}
+				writeHeader(header);
+			}
+		}
+	}
+
+	/**
+	 * @return index of the first sample of the current chunk
+	 */
+	private int getChunkStart()
+	{
+		return chunks.isEmpty() ? 0 : (int) (chunks.get(chunks.size() - 1)[0] + chunks.get(chunks.size() - 1)[2]);
+	}
+
+	/**
+	 * Adds the samples written since the last chunk to the index as {first sample, first byte, number of samples, end byte}
+	 */
+	private void closeChunk()
+	{
+		long start = getChunkStart();
+		long startByte = chunks.isEmpty() ? 0 : chunks.get(chunks.size() - 1)[3];
+		if (sampleCount > start)
+		{
+			chunks.add(new long[]{start, startByte, sampleCount - start, byteCount});
 		}
 	}
 
@@ -363,6 +474,12 @@ public class FileWriter extends Consumer implements IFileWriter
 			input = stream_merged;
 		}
 
+		if (asyncWriter != null)
+		{
+			asyncWriter.close();
+			asyncWriter = null;
+		}
+
 		if (fileType == Cons.FileType.BINARY)
 		{
 			byteStream = (BufferedOutputStream) closeStream(byteStream);
@@ -370,12 +487,22 @@ public class FileWriter extends Consumer implements IFileWriter
 
 		fileOutputStream = (FileOutputStream) closeStream(fileOutputStream);
 
-		writeHeader(input);
-		fileOutputStreamHeader = (FileOutputStream) closeStream(fileOutputStreamHeader);
+		if (codec != null)
+		{
+			codec.release();
+		}
+
+		closeChunk();
+		writeHeader(getHeader(input));
 	}
 
-	private void writeHeader(Stream stream)
+	/**
+	 * @param stream Stream
+	 * @return header listing all chunks written so far
+	 */
+	private String getHeader(Stream stream)
 	{
+		StringBuilder header = new StringBuilder();
 		simpleHeader = new SimpleHeader();
 
 		simpleHeader._ftype = fileType.name();
@@ -383,6 +510,10 @@ public class FileWriter extends Consumer implements IFileWriter
 		simpleHeader._dim = String.valueOf(stream.dim);
 		simpleHeader._byte = String.valueOf(stream.bytes);
 		simpleHeader._type = stream.type.name();
+		if (fileType == Cons.FileType.BINARY && codec != null)
+		{
+			simpleHeader._codec = codec.getCodec().name();
+		}
 		simpleHeader._from = "0";
 		simpleHeader._ms = String.valueOf(_frame.getStartTimeMs());
 
@@ -394,15 +525,59 @@ public class FileWriter extends Consumer implements IFileWriter
 		sdf.setTimeZone(TimeZone.getTimeZone("UTC"));
 		simpleHeader._system = sdf.format(date);
 
-		writeLine(simpleHeader.getLine1(), fileOutputStreamHeader);
-		writeLine(simpleHeader.getLine2(), fileOutputStreamHeader);
-		writeLine(simpleHeader.getLine3(), fileOutputStreamHeader);
-		writeLine(simpleHeader.getLine4(), fileOutputStreamHeader);
+		appendLine(header, simpleHeader.getLine1());
+		appendLine(header, simpleHeader.getLine2());
+		appendLine(header, simpleHeader.getLine3());
+		appendLine(header, simpleHeader.getLine4());
+
+		if (chunkSamples <= 0 || chunks.isEmpty())
+		{
+			simpleHeader._num = String.valueOf(sampleCount);
+			simpleHeader._to = String.valueOf(stream.time + stream.num / stream.sr);
+			appendLine(header, simpleHeader.getLine5());
+		}
+		else
+		{
+			for (long[] chunk : chunks)
+			{
+				simpleHeader._from = String.valueOf(chunk[0] / stream.sr);
+				simpleHeader._to = String.valueOf((chunk[0] + chunk[2]) / stream.sr);
+				simpleHeader._byte2 = String.valueOf(chunk[1]);
+				simpleHeader._num = String.valueOf(chunk[2]);
+				appendLine(header, simpleHeader.getLine5());
+			}
+		}
+		appendLine(header, simpleHeader.getLine6());
+
+		return header.toString();
+	}
 
-		simpleHeader._num = String.valueOf(sampleCount);
-		simpleHeader._to = String.valueOf(stream.time + stream.num / stream.sr);
-		writeLine(simpleHeader.getLine5(), fileOutputStreamHeader);
-		writeLine(simpleHeader.getLine6(), fileOutputStreamHeader);
+	/**
+	 * Writes the header to a temporary file which then replaces the previous header,
+	 * so a readable header exists at all times, even if the recording is interrupted
+	 *
+	 * @param header String
+	 */
+	private void writeHeader(String header)
+	{
+		File fileTemp = new File(fileHeader.getPath() + ".tmp");
+		FileOutputStream fileOutputStreamHeader = getFileConnection(fileTemp, null);
+		if (fileOutputStreamHeader != null)
+		{
+			try
+			{
+				fileOutputStreamHeader.write(header.getBytes());
+			}
+			catch (IOException e)
+			{
+				Log.e("could not write header", e);
+			}
+		}
+		closeStream(fileOutputStreamHeader);
+		if (!fileTemp.renameTo(fileHeader))
+		{
+			Log.e("could not write header " + fileHeader.getPath());
+		}
 	}
 
 	/**
@@ -445,35 +620,38 @@ public class FileWriter extends Consumer implements IFileWriter
 	}
 
 	/**
-	 * @param data   byte[]
-	 * @param stream BufferedOutputStream
+	 * @param data byte[]
+	 * @param len  number of bytes
 	 */
-	private void write(byte[] data, BufferedOutputStream stream)
+	private void write(byte[] data, int len)
 	{
-		if (data != null)
+		if (asyncWriter != null)
 		{
-			try
-			{
-				stream.write(data);
-			}
-			catch (IOException e)
-			{
-				Log.e("could not write data", e);
-			}
+			asyncWriter.write(data, 0, len);
+			byteCount += len;
+		}
+		else
+		{
+			write(data, len, byteStream);
 		}
 	}
 
 	/**
-	 * @param line   String
-	 * @param stream FileOutputStream
+	 * @param text AsciiFormatter
 	 */
-	private void write(String line, FileOutputStream stream)
+	private void write(AsciiFormatter text)
 	{
-		if (stream != null)
+		if (asyncWriter != null)
+		{
+			asyncWriter.write(text.array(), 0, text.length());
+			byteCount += text.length();
+		}
+		else if (fileOutputStream != null)
 		{
 			try
 			{
-				stream.write(line.getBytes());
+				text.writeTo(fileOutputStream);
+				byteCount += text.length();
 			}
 			catch (IOException e)
 			{
@@ -483,22 +661,32 @@ public class FileWriter extends Consumer implements IFileWriter
 	}
 
 	/**
-	 * @param line   String
-	 * @param stream FileOutputStream
+	 * @param data   byte[]
+	 * @param len    number of bytes
+	 * @param stream BufferedOutputStream
 	 */
-	private void writeLine(String line, FileOutputStream stream)
+	private void write(byte[] data, int len, BufferedOutputStream stream)
 	{
-		if (stream != null)
+		if (data != null)
 		{
 			try
 			{
-				line += FileCons.DELIMITER_LINE;
-				stream.write(line.getBytes());
+				stream.write(data, 0, len);
+				byteCount += len;
 			}
 			catch (IOException e)
 			{
-				Log.e("could not write line", e);
+				Log.e("could not write data", e);
 			}
 		}
 	}
+
+	/**
+	 * @param builder StringBuilder
+	 * @param line    String
+	 */
+	private void appendLine(StringBuilder builder, String line)
+	{
+		builder.append(line).append(FileCons.DELIMITER_LINE);
+	}
 }
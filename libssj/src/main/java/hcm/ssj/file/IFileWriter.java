@@ -55,4 +55,24 @@ public interface IFileWriter
             addOptions();
         }
     }
+
+    /**
+     * Options of writers which can write on a separate I/O thread (see {@link AsyncWriter}).
+     * Mp4Writer and FFMPEGWriter hand their output to MediaMuxer/FFmpeg, which open and write the file (or url) themselves.
+     */
+    class AsyncOptions extends Options
+    {
+        public final Option<Boolean> async = new Option<>("async", false, Boolean.class, "write to disk on a separate I/O thread");
+        public final Option<Integer> asyncBufferSize = new Option<>("asyncBufferSize", 256 * 1024, Integer.class, "size of each I/O buffer in bytes");
+        public final Option<Integer> asyncBuffers = new Option<>("asyncBuffers", 4, Integer.class, "number of I/O buffers, the writer blocks if all are in use");
+
+        /**
+         *
+         */
+        protected AsyncOptions()
+        {
+            super();
+            addOptions();
+        }
+    }
 }
@@ -0,0 +1,728 @@
+/*
+ * MappedStreamReader.java
+ * Copyright (c) 2018
+ * Authors: Ionut Damian, Michael Dietz, Frank Gaibler, Daniel Langerenken, Simon Flutura,
+ * Vitalijs Krumins, Antonio Grieco
+ * *****************************************************
+ * This file is part of the Social Signal Interpretation for Java (SSJ) framework
+ * developed at the Lab for Human Centered Multimedia of the University of Augsburg.
+ *
+ * SSJ has been inspired by the SSI (http://openssi.net) framework. SSJ is not a
+ * one-to-one port of SSI to Java, it is an approximation. Nor does SSJ pretend
+ * to offer SSI's comprehensive functionality and performance (this is java after all).
+ * Nevertheless, SSJ borrows a lot of programming patterns from SSI.
+ *
+ * This library is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 3 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package hcm.ssj.file;
+
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import hcm.ssj.core.Cons;
+import hcm.ssj.core.Util;
+import hcm.ssj.core.stream.Stream;
+
+/**
+ * Random access reader for binary stream files (.stream~) based on memory mapping.
+ * The file is mapped lazily in pages, so recordings larger than the heap (or larger than 2 GB)
+ * can be accessed by sample index or time without loading them.
+ *
+ * Times are relative to the beginning of the file, as in {@link Stream#substream(double, double)}.
+ * If the header lists several chunks (see FileWriter's chunk option), their times and byte offsets
+ * are used as an index to locate samples.
+ *
+ * Compressed files (see FileWriter's codec option) consist of independently encoded blocks,
+ * which are located through a block index built when the file is opened. Views of compressed
+ * files are decoded copies.
+ *
+ * Random access methods are thread-safe, so slices of a file can be read in parallel,
+ * whereas sequential reads (seek/read) must not be shared between threads.
+ */
+public class MappedStreamReader implements Closeable
+{
+    /** default size of a mapped page in bytes */
+    public static final int DEFAULT_PAGE_SIZE = 64 * 1024 * 1024;
+    /** maximum number of pages which are kept mapped at the same time */
+    private static final int MAX_PAGES = 4;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+
+    private final double sr;
+    private final int dim;
+    private final int bytes;
+    private final Cons.Type type;
+    private final double time;
+
+    private final int bytesPerSample;
+    private final long numSamples;
+    private final int pageSamples;
+
+    private final StreamCodec codec;
+    private long[] blockSample = null;
+    private long[] blockByte = null;
+    private byte[] encoded = null;
+    private byte[] decoded = new byte[0];
+    private int decodedBlock = -1;
+    private byte[] window = new byte[0];
+
+    private final long[] pageIndex = new long[MAX_PAGES];
+    private final MappedByteBuffer[] pages = new MappedByteBuffer[MAX_PAGES];
+    private int nextPage = 0;
+
+    private double[] chunkTime = null;
+    private long[] chunkSample = null;
+
+    private long position = 0;
+
+    /**
+     * @param data data file (.stream~)
+     * @param sr sample rate
+     * @param dim dimension
+     * @param bytes bytes per value
+     * @param type type of the values
+     * @param time time of the first sample (in seconds)
+     * @param pageSize size of a mapped page in bytes, rounded down to whole samples
+     * @throws IOException IO Exception
+     */
+    public MappedStreamReader(File data, double sr, int dim, int bytes, Cons.Type type, double time, int pageSize) throws IOException
+    {
+        this(data, sr, dim, bytes, type, time, pageSize, StreamCodec.Type.NONE);
+    }
+
+    /**
+     * @param data data file (.stream~)
+     * @param sr sample rate
+     * @param dim dimension
+     * @param bytes bytes per value
+     * @param type type of the values
+     * @param time time of the first sample (in seconds)
+     * @param pageSize size of a mapped page in bytes, rounded down to whole samples
+     * @param codec codec the data was written with
+     * @throws IOException IO Exception
+     */
+    public MappedStreamReader(File data, double sr, int dim, int bytes, Cons.Type type, double time, int pageSize, StreamCodec.Type codec) throws IOException
+    {
+        this.sr = sr;
+        this.dim = dim;
+        this.bytes = bytes;
+        this.type = type;
+        this.time = time;
+
+        bytesPerSample = dim * bytes;
+        pageSamples = Math.max(1, pageSize / bytesPerSample);
+
+        file = new RandomAccessFile(data, "r");
+        channel = file.getChannel();
+
+        if (codec == null || codec == StreamCodec.Type.NONE)
+        {
+            this.codec = null;
+            numSamples = channel.size() / bytesPerSample;
+        }
+        else
+        {
+            this.codec = new StreamCodec(codec, type, dim, bytes);
+            numSamples = buildBlockIndex();
+        }
+
+        for (int i = 0; i < MAX_PAGES; i++)
+        {
+            pageIndex[i] = -1;
+        }
+    }
+
+    public MappedStreamReader(File data, double sr, int dim, int bytes, Cons.Type type, double time) throws IOException
+    {
+        this(data, sr, dim, bytes, type, time, DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * Reads the header of each block of a compressed file
+     *
+     * @return number of samples
+     */
+    private long buildBlockIndex() throws IOException
+    {
+        int count = 0;
+        long[] samples = new long[1024];
+        long[] offsets = new long[1024];
+
+        ByteBuffer header = ByteBuffer.allocate(StreamCodec.BLOCK_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        long size = channel.size();
+        long pos = 0;
+        long num = 0;
+        int maxBlock = 0;
+
+        while (pos + StreamCodec.BLOCK_HEADER_SIZE <= size)
+        {
+            header.clear();
+            while (header.hasRemaining() && channel.read(header, pos + header.position()) > 0);
+
+            int blockNum = header.getInt(0);
+            int blockSize = StreamCodec.BLOCK_HEADER_SIZE + header.getInt(4);
+            if (blockNum < 0 || blockSize < StreamCodec.BLOCK_HEADER_SIZE || pos + blockSize > size)
+            {
+                //incomplete block at the end of an interrupted recording
+                break;
+            }
+
+            if (count + 1 >= samples.length)
+            {
+                samples = Arrays.copyOf(samples, samples.length * 2);
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            samples[count] = num;
+            offsets[count] = pos;
+            count++;
+
+            num += blockNum;
+            pos += blockSize;
+            maxBlock = Math.max(maxBlock, blockSize);
+        }
+
+        //sentinel
+        samples[count] = num;
+        offsets[count] = pos;
+
+        blockSample = Arrays.copyOf(samples, count + 1);
+        blockByte = Arrays.copyOf(offsets, count + 1);
+        encoded = new byte[maxBlock];
+
+        return num;
+    }
+
+    /**
+     * @param offset byte offset of a block in a compressed file
+     * @return index of the first sample of the block
+     */
+    private long getBlockSample(long offset)
+    {
+        int i = Arrays.binarySearch(blockByte, offset);
+        if (i < 0)
+        {
+            i = Math.max(0, -i - 2);
+        }
+        return blockSample[i];
+    }
+
+    /**
+     * @return codec the file was written with
+     */
+    public StreamCodec.Type getCodec()
+    {
+        return (codec == null) ? StreamCodec.Type.NONE : codec.getCodec();
+    }
+
+    /**
+     * Opens a binary stream file, sample rate, dimension and type are taken from the header
+     *
+     * @param path path to the stream header (with or without extension) or to the data file
+     * @return reader
+     * @throws IOException IO Exception, also thrown if the stream is not stored in binary format
+     * @throws XmlPullParserException XML Exception
+     */
+    public static MappedStreamReader open(String path) throws IOException, XmlPullParserException
+    {
+        if (path.endsWith(FileCons.FILE_EXTENSION_STREAM + FileCons.TAG_DATA_FILE))
+        {
+            path = path.substring(0, path.length() - FileCons.TAG_DATA_FILE.length());
+        }
+        else if (!path.endsWith(FileCons.FILE_EXTENSION_STREAM))
+        {
+            path += "." + FileCons.FILE_EXTENSION_STREAM;
+        }
+
+        SimpleXmlParser simpleXmlParser = new SimpleXmlParser();
+        SimpleXmlParser.XmlValues xmlValues = simpleXmlParser.parse(
+                new FileInputStream(new File(path)),
+                new String[]{"stream", "info"},
+                new String[]{"ftype", "sr", "dim", "byte", "type", "codec"}
+        );
+
+        if (!xmlValues.foundAttributes.get(0)[0].equals("BINARY"))
+        {
+            throw new IOException("stream is not stored in binary format");
+        }
+
+        double sr = Double.valueOf(xmlValues.foundAttributes.get(0)[1]);
+        int dim = Integer.valueOf(xmlValues.foundAttributes.get(0)[2]);
+        int bytes = Integer.valueOf(xmlValues.foundAttributes.get(0)[3]);
+        Cons.Type type = Cons.Type.valueOf(xmlValues.foundAttributes.get(0)[4]);
+        String codecName = xmlValues.foundAttributes.get(0)[5];
+        StreamCodec.Type codec = (codecName == null) ? StreamCodec.Type.NONE : StreamCodec.Type.valueOf(codecName);
+
+        xmlValues = simpleXmlParser.parse(
+                new FileInputStream(new File(path)),
+                new String[]{"stream", "chunk"},
+                new String[]{"from", "byte"}
+        );
+
+        //chunks are optional, legacy headers do not list any
+        int numChunks = xmlValues.foundAttributes.size();
+        double[] chunkTime = new double[numChunks];
+        for (int i = 0; i < numChunks; i++)
+        {
+            chunkTime[i] = Double.valueOf(xmlValues.foundAttributes.get(i)[0]);
+        }
+
+        MappedStreamReader reader = new MappedStreamReader(new File(path + FileCons.TAG_DATA_FILE), sr, dim, bytes, type,
+                                                           (numChunks > 0) ? chunkTime[0] : 0, DEFAULT_PAGE_SIZE, codec);
+
+        long[] chunkSample = new long[numChunks];
+        for (int i = 0; i < numChunks; i++)
+        {
+            String offset = xmlValues.foundAttributes.get(i)[1];
+            long pos = (offset == null) ? 0 : Long.valueOf(offset);
+            chunkSample[i] = (reader.codec == null) ? pos / (dim * bytes) : reader.getBlockSample(pos);
+        }
+
+        if (numChunks > 1)
+        {
+            reader.setIndex(chunkTime, chunkSample);
+        }
+        return reader;
+    }
+
+    /**
+     * @param chunkTime start time of each chunk, ascending
+     * @param chunkSample index of the first sample of each chunk
+     */
+    void setIndex(double[] chunkTime, long[] chunkSample)
+    {
+        this.chunkTime = chunkTime;
+        this.chunkSample = chunkSample;
+    }
+
+    /**
+     * @return number of indexed chunks, 1 if the file has no index
+     */
+    public int getNumChunks()
+    {
+        return (chunkTime == null) ? 1 : chunkTime.length;
+    }
+
+    /**
+     * @param chunk index of the chunk
+     * @return index of the first sample of the chunk
+     */
+    public long getChunkSample(int chunk)
+    {
+        return (chunkSample == null) ? 0 : chunkSample[chunk];
+    }
+
+    /**
+     * @param chunk index of the chunk
+     * @return number of samples in the chunk
+     */
+    public int getChunkNum(int chunk)
+    {
+        long end = (chunk + 1 < getNumChunks()) ? getChunkSample(chunk + 1) : numSamples;
+        return (int) (Math.min(end, numSamples) - Math.min(getChunkSample(chunk), numSamples));
+    }
+
+    /**
+     * Loads a whole chunk into a new stream, e.g. to process the chunks of a recording in parallel
+     *
+     * @param chunk index of the chunk
+     * @return new stream object
+     * @throws IOException IO Exception
+     */
+    public Stream readChunk(int chunk) throws IOException
+    {
+        return read(getChunkSample(chunk), getChunkNum(chunk));
+    }
+
+    public double getSampleRate()
+    {
+        return sr;
+    }
+
+    public int getDim()
+    {
+        return dim;
+    }
+
+    public int getBytes()
+    {
+        return bytes;
+    }
+
+    public Cons.Type getType()
+    {
+        return type;
+    }
+
+    /**
+     * @return time of the first sample in seconds
+     */
+    public double getTime()
+    {
+        return time;
+    }
+
+    public long getNumSamples()
+    {
+        return numSamples;
+    }
+
+    public double getDuration()
+    {
+        return numSamples / sr;
+    }
+
+    /**
+     * @param t time in seconds relative to the beginning of the file
+     * @return index of the sample at the given time, clamped to the file
+     */
+    public long getSampleIndex(double t)
+    {
+        long index;
+        if (chunkTime == null)
+        {
+            index = (long) (t * sr + 0.5);
+        }
+        else
+        {
+            //last chunk which starts before t
+            int lo = 0, hi = chunkTime.length - 1;
+            while (lo < hi)
+            {
+                int mid = (lo + hi + 1) >>> 1;
+                if (chunkTime[mid] <= t)
+                    lo = mid;
+                else
+                    hi = mid - 1;
+            }
+            index = chunkSample[lo] + (long) ((t - chunkTime[lo]) * sr + 0.5);
+        }
+        return Math.max(0, Math.min(numSamples, index));
+    }
+
+    /**
+     * Returns a read-only, little-endian view of the samples without copying them.
+     * Use asFloatBuffer(), asShortBuffer() etc. for typed access.
+     * The view stays valid after the reader is closed, but must not be used after the file changes.
+     *
+     * @param from index of the first sample
+     * @param num number of samples
+     * @return view of the samples
+     * @throws IOException IO Exception
+     */
+    public ByteBuffer view(long from, int num) throws IOException
+    {
+        checkRange(from, num);
+
+        if (codec != null)
+        {
+            byte[] copy = new byte[num * bytesPerSample];
+            read(from, num, copy, 0);
+            return ByteBuffer.wrap(copy).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        long page = from / pageSamples;
+        ByteBuffer view;
+
+        if ((from + num - 1) / pageSamples == page || num == 0)
+        {
+            view = getPage(page).duplicate();
+            int pos = (int) (from - page * pageSamples) * bytesPerSample;
+            view.position(pos);
+            view.limit(pos + num * bytesPerSample);
+        }
+        else
+        {
+            //window spans two pages, map it separately
+            view = channel.map(FileChannel.MapMode.READ_ONLY, from * bytesPerSample, (long) num * bytesPerSample);
+        }
+
+        return view.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Copies samples into an array
+     *
+     * @param from index of the first sample
+     * @param num number of samples
+     * @param dst destination array, either byte[] or an array of the stream's type
+     * @param dstPosBytes position in the destination array (in bytes)
+     * @throws IOException IO Exception
+     */
+    public void read(long from, int num, Object dst, int dstPosBytes) throws IOException
+    {
+        if (codec != null)
+        {
+            synchronized (codec)
+            {
+                copy(decode(from, num), num, dst, dstPosBytes);
+            }
+        }
+        else
+        {
+            copy(view(from, num), num, dst, dstPosBytes);
+        }
+    }
+
+    private void copy(ByteBuffer src, int num, Object dst, int dstPosBytes)
+    {
+        int len = num * dim;
+
+        if (dst instanceof byte[])
+            src.get((byte[]) dst, dstPosBytes, num * bytesPerSample);
+        else if (dst instanceof char[])
+            src.asCharBuffer().get((char[]) dst, dstPosBytes / 2, len);
+        else if (dst instanceof short[])
+            src.asShortBuffer().get((short[]) dst, dstPosBytes / 2, len);
+        else if (dst instanceof int[])
+            src.asIntBuffer().get((int[]) dst, dstPosBytes / 4, len);
+        else if (dst instanceof long[])
+            src.asLongBuffer().get((long[]) dst, dstPosBytes / 8, len);
+        else if (dst instanceof float[])
+            src.asFloatBuffer().get((float[]) dst, dstPosBytes / 4, len);
+        else if (dst instanceof double[])
+            src.asDoubleBuffer().get((double[]) dst, dstPosBytes / 8, len);
+        else if (dst instanceof boolean[])
+        {
+            boolean[] out = (boolean[]) dst;
+            int pos = dstPosBytes / Util.sizeOf(Cons.Type.BOOL);
+            for (int i = 0; i < len; i++)
+            {
+                out[pos + i] = src.get(i) != 0;
+            }
+        }
+        else
+            throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Loads a range of samples into a new stream
+     *
+     * @param from index of the first sample
+     * @param num number of samples
+     * @return new stream object
+     * @throws IOException IO Exception
+     */
+    public Stream read(long from, int num) throws IOException
+    {
+        Stream out = Stream.create(num, dim, sr, type);
+        read(from, num, out.ptr(), 0);
+        out.time = time + from / sr;
+        return out;
+    }
+
+    /**
+     * Loads a time window into a new stream, only the requested samples are read from disk
+     *
+     * @param from time in seconds pointing to the start of the substream
+     * @param to time in seconds pointing to the end of the substream
+     * @return new stream object or null if the window is empty
+     * @throws IOException IO Exception
+     */
+    public Stream substream(double from, double to) throws IOException
+    {
+        long pos = getSampleIndex(from);
+        long len = getSampleIndex(to) - pos;
+
+        if (len <= 0)
+        {
+            return null;
+        }
+        if (len > Integer.MAX_VALUE / bytesPerSample)
+        {
+            throw new IOException("window too large");
+        }
+
+        return read(pos, (int) len);
+    }
+
+    /**
+     * @param sample index of the sample which is returned by the next sequential read
+     */
+    public void seek(long sample)
+    {
+        position = Math.max(0, Math.min(numSamples, sample));
+    }
+
+    /**
+     * @return index of the sample which is returned by the next sequential read
+     */
+    public long tell()
+    {
+        return position;
+    }
+
+    /**
+     * Sequential read starting at the current position
+     *
+     * @param buffer destination
+     * @param numBytes number of bytes to read, should be a multiple of the sample size
+     * @return number of bytes read, -1 at the end of the file
+     * @throws IOException IO Exception
+     */
+    public int read(byte[] buffer, int numBytes) throws IOException
+    {
+        if (position >= numSamples)
+        {
+            return -1;
+        }
+
+        int num = (int) Math.min(numBytes / bytesPerSample, numSamples - position);
+        read(position, num, buffer, 0);
+        position += num;
+
+        return num * bytesPerSample;
+    }
+
+    /**
+     * Decodes the blocks overlapping a range of samples, must be called while holding the codec lock
+     *
+     * @return little-endian buffer with the samples
+     */
+    private ByteBuffer decode(long from, int num) throws IOException
+    {
+        checkRange(from, num);
+
+        int numBytes = num * bytesPerSample;
+        if (window.length < numBytes)
+        {
+            window = new byte[numBytes];
+        }
+
+        //last block which starts at or before from
+        int block = Arrays.binarySearch(blockSample, 0, blockSample.length - 1, from);
+        if (block < 0)
+        {
+            block = -block - 2;
+        }
+        else
+        {
+            //skip empty blocks
+            while (block + 1 < blockSample.length - 1 && blockSample[block + 1] == from)
+            {
+                block++;
+            }
+        }
+
+        int done = 0;
+        while (done < num)
+        {
+            decodeBlock(block);
+
+            long start = blockSample[block];
+            int blockNum = (int) (blockSample[block + 1] - start);
+            int offset = (int) (from + done - start);
+            int n = Math.min(num - done, blockNum - offset);
+            if (n > 0)
+            {
+                System.arraycopy(decoded, offset * bytesPerSample, window, done * bytesPerSample, n * bytesPerSample);
+                done += n;
+            }
+            block++;
+        }
+
+        return ByteBuffer.wrap(window, 0, numBytes).slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private void decodeBlock(int block) throws IOException
+    {
+        if (block == decodedBlock)
+        {
+            return;
+        }
+
+        long pos = blockByte[block];
+        int size = (int) (blockByte[block + 1] - pos);
+        ByteBuffer dst = ByteBuffer.wrap(encoded, 0, size);
+        while (dst.hasRemaining())
+        {
+            if (channel.read(dst, pos + dst.position()) < 0)
+            {
+                throw new IOException("unexpected end of file");
+            }
+        }
+
+        int numBytes = (int) (blockSample[block + 1] - blockSample[block]) * bytesPerSample;
+        if (decoded.length < numBytes)
+        {
+            decoded = new byte[numBytes];
+        }
+
+        try
+        {
+            codec.decode(encoded, 0, decoded, 0);
+        }
+        catch (RuntimeException e)
+        {
+            decodedBlock = -1;
+            throw new IOException("corrupt block " + block, e);
+        }
+        decodedBlock = block;
+    }
+
+    @Override
+    public synchronized void close() throws IOException
+    {
+        for (int i = 0; i < MAX_PAGES; i++)
+        {
+            pages[i] = null;
+            pageIndex[i] = -1;
+        }
+        if (codec != null)
+        {
+            synchronized (codec)
+            {
+                codec.release();
+            }
+        }
+        channel.close();
+        file.close();
+    }
+
+    private synchronized MappedByteBuffer getPage(long page) throws IOException
+    {
+        for (int i = 0; i < MAX_PAGES; i++)
+        {
+            if (pageIndex[i] == page)
+                return pages[i];
+        }
+
+        long start = page * pageSamples * bytesPerSample;
+        long size = Math.min((long) pageSamples * bytesPerSample, numSamples * bytesPerSample - start);
+
+        //unused pages are unmapped by the garbage collector
+        int slot = nextPage;
+        nextPage = (nextPage + 1) % MAX_PAGES;
+        pages[slot] = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+        pageIndex[slot] = page;
+
+        return pages[slot];
+    }
+
+    private void checkRange(long from, int num)
+    {
+        if (from < 0 || num < 0 || from + num > numSamples)
+            throw new IndexOutOfBoundsException("from=" + from + " num=" + num + " numSamples=" + numSamples);
+    }
+}
@@ -46,8 +46,9 @@ class SimpleHeader
     protected String _system = "00/00/00 00:00:00:0";
     protected String _from = "0.0";
     protected String _to = "0.0";
-    private final static String _byte2 = "0";
+    protected String _byte2 = "0";
     protected String _num = "0";
+    protected String _codec = "NONE";
 
     /**
      * @return String
@@ -70,7 +71,9 @@ class SimpleHeader
      */
     protected String getLine3()
     {
-        return "<info ftype=\"" + _ftype + "\" sr=\"" + _sr + "\" dim=\"" + _dim + "\" byte=\"" + _byte + "\" type=\"" + _type + "\" />";
+        //the codec attribute is only written for compressed files, uncompressed files remain readable by SSI
+        String codec = _codec.equals("NONE") ? "" : " codec=\"" + _codec + "\"";
+        return "<info ftype=\"" + _ftype + "\" sr=\"" + _sr + "\" dim=\"" + _dim + "\" byte=\"" + _byte + "\" type=\"" + _type + "\"" + codec + " />";
     }
 
     /**
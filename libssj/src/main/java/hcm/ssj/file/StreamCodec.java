@@ -0,0 +1,582 @@
+/*
+ * StreamCodec.java
+ * Copyright (c) 2018
+ * Authors: Ionut Damian, Michael Dietz, Frank Gaibler, Daniel Langerenken, Simon Flutura,
+ * Vitalijs Krumins, Antonio Grieco
+ * *****************************************************
+ * This file is part of the Social Signal Interpretation for Java (SSJ) framework
+ * developed at the Lab for Human Centered Multimedia of the University of Augsburg.
+ *
+ * SSJ has been inspired by the SSI (http://openssi.net) framework. SSJ is not a
+ * one-to-one port of SSI to Java, it is an approximation. Nor does SSJ pretend
+ * to offer SSI's comprehensive functionality and performance (this is java after all).
+ * Nevertheless, SSJ borrows a lot of programming patterns from SSI.
+ *
+ * This library is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 3 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package hcm.ssj.file;
+
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import hcm.ssj.core.Cons;
+
+/**
+ * Compresses stream data in self-contained blocks, e.g. one block per frame.
+ * Input and output are raw sample bytes in the little-endian layout of binary stream files (see Util.arraycopy).
+ *
+ * Block layout (little-endian): int number of samples, int payload length, payload.
+ * <ul>
+ * <li>DELTA: integer types, difference to the previous sample of the same dimension as zig-zag varint</li>
+ * <li>XOR: FLOAT and DOUBLE, XOR with the previous sample of the same dimension (Gorilla encoding)</li>
+ * <li>DEFLATE: any type, generic block compression</li>
+ * </ul>
+ * All buffers are preallocated by the caller, encoding and decoding do not allocate.
+ * Instances are not thread-safe.
+ */
+public class StreamCodec
+{
+    public enum Type
+    {
+        NONE,
+        DELTA,
+        XOR,
+        DEFLATE
+    }
+
+    public static final int BLOCK_HEADER_SIZE = 8;
+
+    private final Type codec;
+    private final Cons.Type type;
+    private final int dim;
+    private final int bytes;
+
+    private final long[] prev;
+    private final int[] prevLeading;
+    private final int[] prevTrailing;
+
+    private Deflater deflater = null;
+    private Inflater inflater = null;
+
+    //bit stream state of the XOR codec
+    private byte[] bitData;
+    private int bitPos;
+    private long bitBuffer;
+    private int bitCount;
+
+    /**
+     * @param codec codec, see {@link #supports(Type, Cons.Type)}
+     * @param type type of the values
+     * @param dim sample dimension
+     * @param bytes bytes per value
+     */
+    public StreamCodec(Type codec, Cons.Type type, int dim, int bytes)
+    {
+        if (!supports(codec, type))
+        {
+            throw new IllegalArgumentException(codec + " does not support " + type);
+        }
+
+        this.codec = codec;
+        this.type = type;
+        this.dim = dim;
+        this.bytes = bytes;
+
+        prev = new long[dim];
+        prevLeading = new int[dim];
+        prevTrailing = new int[dim];
+    }
+
+    /**
+     * @return true if the codec can encode values of the given type
+     */
+    public static boolean supports(Type codec, Cons.Type type)
+    {
+        switch (codec)
+        {
+            case DELTA:
+                return type == Cons.Type.BYTE || type == Cons.Type.CHAR || type == Cons.Type.SHORT || type == Cons.Type.INT || type == Cons.Type.LONG;
+            case XOR:
+                return type == Cons.Type.FLOAT || type == Cons.Type.DOUBLE;
+            case DEFLATE:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    public Type getCodec()
+    {
+        return codec;
+    }
+
+    /**
+     * @param num number of samples
+     * @return maximum size of an encoded block in bytes (including the block header)
+     */
+    public int maxBlockSize(int num)
+    {
+        int raw = num * dim * bytes;
+        return BLOCK_HEADER_SIZE + Math.max(num * dim * 10, raw + raw / 100 + 64);
+    }
+
+    /**
+     * @return number of samples of the block starting at pos
+     */
+    public static int blockNum(byte[] src, int pos)
+    {
+        return getInt(src, pos);
+    }
+
+    /**
+     * @return size of the block starting at pos in bytes (including the block header)
+     */
+    public static int blockSize(byte[] src, int pos)
+    {
+        return BLOCK_HEADER_SIZE + getInt(src, pos + 4);
+    }
+
+    /**
+     * Encodes samples into a block
+     *
+     * @param src raw samples
+     * @param num number of samples
+     * @param dst destination, at least {@link #maxBlockSize(int)} bytes must be available
+     * @param dstPos position in the destination
+     * @return size of the block in bytes
+     */
+    public int encode(byte[] src, int num, byte[] dst, int dstPos)
+    {
+        int n = num * dim;
+        int pos = dstPos + BLOCK_HEADER_SIZE;
+
+        switch (codec)
+        {
+            case DELTA:
+                pos = encodeDelta(src, n, dst, pos);
+                break;
+            case XOR:
+                pos = encodeXor(src, n, dst, pos);
+                break;
+            case DEFLATE:
+                pos = encodeDeflate(src, n * bytes, dst, pos);
+                break;
+        }
+
+        putInt(dst, dstPos, num);
+        putInt(dst, dstPos + 4, pos - dstPos - BLOCK_HEADER_SIZE);
+        return pos - dstPos;
+    }
+
+    /**
+     * Decodes a block
+     *
+     * @param src encoded data
+     * @param srcPos position of the block
+     * @param dst destination for the raw samples
+     * @param dstPos position in the destination
+     * @return number of decoded samples
+     * @throws IllegalStateException if the block is corrupt
+     */
+    public int decode(byte[] src, int srcPos, byte[] dst, int dstPos)
+    {
+        int num = blockNum(src, srcPos);
+        int len = getInt(src, srcPos + 4);
+        int n = num * dim;
+        int pos = srcPos + BLOCK_HEADER_SIZE;
+
+        switch (codec)
+        {
+            case DELTA:
+                decodeDelta(src, pos, n, dst, dstPos);
+                break;
+            case XOR:
+                decodeXor(src, pos, n, dst, dstPos);
+                break;
+            case DEFLATE:
+                decodeDeflate(src, pos, len, n * bytes, dst, dstPos);
+                break;
+        }
+        return num;
+    }
+
+    /**
+     * Releases native resources of the DEFLATE codec
+     */
+    public void release()
+    {
+        if (deflater != null)
+        {
+            deflater.end();
+            deflater = null;
+        }
+        if (inflater != null)
+        {
+            inflater.end();
+            inflater = null;
+        }
+    }
+
+    /*
+     * DELTA
+     */
+
+    private int encodeDelta(byte[] src, int n, byte[] dst, int pos)
+    {
+        for (int d = 0; d < dim; d++)
+        {
+            prev[d] = 0;
+        }
+
+        for (int i = 0, d = 0; i < n; i++)
+        {
+            long value = getValue(src, i);
+            long delta = value - prev[d];
+            prev[d] = value;
+
+            //zig-zag, small negative deltas become small positive numbers
+            long zz = (delta << 1) ^ (delta >> 63);
+            while ((zz & ~0x7FL) != 0)
+            {
+                dst[pos++] = (byte) ((zz & 0x7F) | 0x80);
+                zz >>>= 7;
+            }
+            dst[pos++] = (byte) zz;
+
+            if (++d == dim)
+            {
+                d = 0;
+            }
+        }
+        return pos;
+    }
+
+    private void decodeDelta(byte[] src, int pos, int n, byte[] dst, int dstPos)
+    {
+        for (int d = 0; d < dim; d++)
+        {
+            prev[d] = 0;
+        }
+
+        for (int i = 0, d = 0; i < n; i++)
+        {
+            long zz = 0;
+            int shift = 0;
+            byte b;
+            do
+            {
+                b = src[pos++];
+                zz |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            }
+            while (b < 0);
+
+            long value = prev[d] + ((zz >>> 1) ^ -(zz & 1));
+            prev[d] = value;
+            putValue(dst, dstPos, i, value);
+
+            if (++d == dim)
+            {
+                d = 0;
+            }
+        }
+    }
+
+    private long getValue(byte[] src, int i)
+    {
+        switch (type)
+        {
+            case BYTE:
+                return src[i];
+            case CHAR:
+                return (src[i * 2] & 0xFF) | (src[i * 2 + 1] & 0xFF) << 8;
+            case SHORT:
+                return (short) ((src[i * 2] & 0xFF) | (src[i * 2 + 1] & 0xFF) << 8);
+            case INT:
+                return getInt(src, i * 4);
+            default:
+                return getLong(src, i * 8);
+        }
+    }
+
+    private void putValue(byte[] dst, int dstPos, int i, long value)
+    {
+        switch (type)
+        {
+            case BYTE:
+                dst[dstPos + i] = (byte) value;
+                break;
+            case CHAR:
+            case SHORT:
+                dst[dstPos + i * 2] = (byte) value;
+                dst[dstPos + i * 2 + 1] = (byte) (value >> 8);
+                break;
+            case INT:
+                putInt(dst, dstPos + i * 4, (int) value);
+                break;
+            default:
+                putLong(dst, dstPos + i * 8, value);
+                break;
+        }
+    }
+
+    /*
+     * XOR
+     */
+
+    private int encodeXor(byte[] src, int n, byte[] dst, int pos)
+    {
+        boolean isDouble = type == Cons.Type.DOUBLE;
+        int width = isDouble ? 64 : 32;
+        int lengthBits = isDouble ? 6 : 5;
+
+        for (int d = 0; d < dim; d++)
+        {
+            prev[d] = 0;
+            prevLeading[d] = -1;
+        }
+
+        bitData = dst;
+        bitPos = pos;
+        bitBuffer = 0;
+        bitCount = 0;
+
+        for (int i = 0, d = 0; i < n; i++)
+        {
+            long value = isDouble ? getLong(src, i * 8) : getInt(src, i * 4) & 0xFFFFFFFFL;
+            long xor = value ^ prev[d];
+            prev[d] = value;
+
+            if (xor == 0)
+            {
+                writeBits(0, 1);
+            }
+            else
+            {
+                int leading = isDouble ? Long.numberOfLeadingZeros(xor) : Long.numberOfLeadingZeros(xor) - 32;
+                int trailing = Long.numberOfTrailingZeros(xor);
+
+                if (prevLeading[d] >= 0 && leading >= prevLeading[d] && trailing >= prevTrailing[d])
+                {
+                    //meaningful bits fit into the previous window
+                    writeBits(2, 2);
+                    writeBits(xor >>> prevTrailing[d], width - prevLeading[d] - prevTrailing[d]);
+                }
+                else
+                {
+                    int length = width - leading - trailing;
+                    writeBits(3, 2);
+                    writeBits(leading, lengthBits);
+                    writeBits(length - 1, lengthBits);
+                    writeBits(xor >>> trailing, length);
+                    prevLeading[d] = leading;
+                    prevTrailing[d] = trailing;
+                }
+            }
+
+            if (++d == dim)
+            {
+                d = 0;
+            }
+        }
+
+        if (bitCount > 0)
+        {
+            bitData[bitPos++] = (byte) (bitBuffer << (8 - bitCount));
+        }
+        bitData = null;
+        return bitPos;
+    }
+
+    private void decodeXor(byte[] src, int pos, int n, byte[] dst, int dstPos)
+    {
+        boolean isDouble = type == Cons.Type.DOUBLE;
+        int width = isDouble ? 64 : 32;
+        int lengthBits = isDouble ? 6 : 5;
+
+        for (int d = 0; d < dim; d++)
+        {
+            prev[d] = 0;
+            prevLeading[d] = -1;
+        }
+
+        bitData = src;
+        bitPos = pos;
+        bitBuffer = 0;
+        bitCount = 0;
+
+        for (int i = 0, d = 0; i < n; i++)
+        {
+            long value = prev[d];
+
+            if (readBits(1) != 0)
+            {
+                if (readBits(1) == 0)
+                {
+                    if (prevLeading[d] < 0)
+                    {
+                        throw new IllegalStateException("corrupt block");
+                    }
+                    value ^= readBits(width - prevLeading[d] - prevTrailing[d]) << prevTrailing[d];
+                }
+                else
+                {
+                    int leading = (int) readBits(lengthBits);
+                    int length = (int) readBits(lengthBits) + 1;
+                    int trailing = width - leading - length;
+                    if (trailing < 0)
+                    {
+                        throw new IllegalStateException("corrupt block");
+                    }
+                    value ^= readBits(length) << trailing;
+                    prevLeading[d] = leading;
+                    prevTrailing[d] = trailing;
+                }
+            }
+            prev[d] = value;
+
+            if (isDouble)
+            {
+                putLong(dst, dstPos + i * 8, value);
+            }
+            else
+            {
+                putInt(dst, dstPos + i * 4, (int) value);
+            }
+
+            if (++d == dim)
+            {
+                d = 0;
+            }
+        }
+        bitData = null;
+    }
+
+    private void writeBits(long value, int n)
+    {
+        if (n > 32)
+        {
+            writeBits(value >>> 32, n - 32);
+            n = 32;
+        }
+
+        bitBuffer = (bitBuffer << n) | (value & ((1L << n) - 1));
+        bitCount += n;
+        while (bitCount >= 8)
+        {
+            bitCount -= 8;
+            bitData[bitPos++] = (byte) (bitBuffer >>> bitCount);
+        }
+    }
+
+    private long readBits(int n)
+    {
+        if (n > 32)
+        {
+            long high = readBits(n - 32);
+            return (high << 32) | readBits(32);
+        }
+
+        while (bitCount < n)
+        {
+            bitBuffer = (bitBuffer << 8) | (bitData[bitPos++] & 0xFF);
+            bitCount += 8;
+        }
+        bitCount -= n;
+        return (bitBuffer >>> bitCount) & ((1L << n) - 1);
+    }
+
+    /*
+     * DEFLATE
+     */
+
+    private int encodeDeflate(byte[] src, int len, byte[] dst, int pos)
+    {
+        if (deflater == null)
+        {
+            deflater = new Deflater(Deflater.BEST_SPEED);
+        }
+
+        deflater.reset();
+        deflater.setInput(src, 0, len);
+        deflater.finish();
+        while (!deflater.finished())
+        {
+            pos += deflater.deflate(dst, pos, dst.length - pos);
+        }
+        return pos;
+    }
+
+    private void decodeDeflate(byte[] src, int pos, int len, int rawLen, byte[] dst, int dstPos)
+    {
+        if (inflater == null)
+        {
+            inflater = new Inflater();
+        }
+
+        inflater.reset();
+        inflater.setInput(src, pos, len);
+        try
+        {
+            int n = 0;
+            while (n < rawLen && !inflater.finished())
+            {
+                int ret = inflater.inflate(dst, dstPos + n, rawLen - n);
+                if (ret == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                {
+                    break;
+                }
+                n += ret;
+            }
+
+            if (n != rawLen)
+            {
+                throw new IllegalStateException("corrupt block");
+            }
+        }
+        catch (DataFormatException e)
+        {
+            throw new IllegalStateException("corrupt block", e);
+        }
+    }
+
+    /*
+     * little-endian helpers
+     */
+
+    private static int getInt(byte[] src, int pos)
+    {
+        return (src[pos] & 0xFF) | (src[pos + 1] & 0xFF) << 8 | (src[pos + 2] & 0xFF) << 16 | (src[pos + 3] & 0xFF) << 24;
+    }
+
+    private static long getLong(byte[] src, int pos)
+    {
+        return (getInt(src, pos) & 0xFFFFFFFFL) | (long) getInt(src, pos + 4) << 32;
+    }
+
+    private static void putInt(byte[] dst, int pos, int value)
+    {
+        dst[pos] = (byte) value;
+        dst[pos + 1] = (byte) (value >> 8);
+        dst[pos + 2] = (byte) (value >> 16);
+        dst[pos + 3] = (byte) (value >> 24);
+    }
+
+    private static void putLong(byte[] dst, int pos, long value)
+    {
+        putInt(dst, pos, (int) value);
+        putInt(dst, pos + 4, (int) (value >> 32));
+    }
+}
@@ -35,6 +35,7 @@ import android.util.Xml;
 import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
 
+import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.UUID;
@@ -46,6 +47,7 @@ import hcm.ssj.core.SSJApplication;
 import hcm.ssj.core.SSJFatalException;
 import hcm.ssj.core.Util;
 import hcm.ssj.core.event.Event;
+import hcm.ssj.core.event.EventCodec;
 import hcm.ssj.core.option.Option;
 import hcm.ssj.core.option.OptionList;
 
@@ -62,6 +64,7 @@ public class BluetoothEventReader extends EventHandler
         public final Option<String> serverAddr = new Option<>("serverAddr", null, String.class, "if this is a client");
         public final Option<BluetoothConnection.Type> connectionType = new Option<>("connectionType", BluetoothConnection.Type.SERVER, BluetoothConnection.Type.class, "");
         public final Option<Boolean> parseXmlToEvent = new Option<>("parseXmlToEvent", true, Boolean.class, "attempt to convert the message to an SSJ event format");
+        public final Option<EventCodec.Format> format = new Option<>("format", EventCodec.Format.XML, EventCodec.Format.class, "XML (SSI compatible) or BINARY (compact), must match the writer");
 
         /**
          *
@@ -79,6 +82,7 @@ public class BluetoothEventReader extends EventHandler
     byte[] _buffer;
 
     XmlPullParser _parser;
+    EventCodec _codec;
     PowerManager _mgr;
     PowerManager.WakeLock _wakeLock;
 
@@ -118,9 +122,10 @@ public class BluetoothEventReader extends EventHandler
 
         Log.i("connected to " + dev.getName() + " @ " + dev.getAddress());
 
-        if(!options.parseXmlToEvent.get())
+        if(!options.parseXmlToEvent.get() || options.format.get() == EventCodec.Format.BINARY)
         {
             _buffer = new byte[Cons.MAX_EVENT_SIZE];
+            _codec = new EventCodec(0);
         }
         else
         {
@@ -157,6 +162,36 @@ public class BluetoothEventReader extends EventHandler
                 ev.setData(new String(_buffer, 0, len));
                 _evchannel_out.pushEvent(ev);
             }
+            else if (options.format.get() == EventCodec.Format.BINARY)
+            {
+                DataInputStream in = new DataInputStream(_conn.input());
+                in.readFully(_buffer, 0, EventCodec.HEADER_SIZE);
+                _wakeLock.acquire();
+
+                int len = EventCodec.packetLength(_buffer, 0);
+                if (len < EventCodec.HEADER_SIZE || len > EventCodec.MAX_PACKET_SIZE)
+                {
+                    Log.w("unknown or malformed bluetooth message");
+                    return;
+                }
+
+                if (len > _buffer.length)
+                {
+                    byte[] tmp = new byte[len];
+                    System.arraycopy(_buffer, 0, tmp, 0, EventCodec.HEADER_SIZE);
+                    _buffer = tmp;
+                }
+                in.readFully(_buffer, EventCodec.HEADER_SIZE, len - EventCodec.HEADER_SIZE);
+
+                if (_codec.setInput(_buffer, 0, len))
+                {
+                    Event ev;
+                    while ((ev = _codec.next(_evchannel_out)) != null)
+                    {
+                        _evchannel_out.pushEvent(ev);
+                    }
+                }
+            }
             else
             {
                 _parser.setInput(new InputStreamReader(_conn.input()));
@@ -34,12 +34,14 @@ import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.UUID;
 
+import hcm.ssj.core.AsciiFormatter;
 import hcm.ssj.core.Cons;
 import hcm.ssj.core.EventHandler;
 import hcm.ssj.core.Log;
 import hcm.ssj.core.SSJFatalException;
 import hcm.ssj.core.Util;
 import hcm.ssj.core.event.Event;
+import hcm.ssj.core.event.EventCodec;
 import hcm.ssj.core.option.Option;
 import hcm.ssj.core.option.OptionList;
 import hcm.ssj.file.FileCons;
@@ -55,6 +57,8 @@ public class BluetoothEventWriter extends EventHandler
         public final Option<String> serverAddr = new Option<>("serverAddr", null, String.class, "we need an address if this is the first time these two devices connect");
         public final Option<String> connectionName = new Option<>("connectionName", "SSJ", String.class, "must match that of the peer");
         public final Option<BluetoothConnection.Type> connectionType = new Option<>("connectionType", BluetoothConnection.Type.CLIENT, BluetoothConnection.Type.class, "");
+        public final Option<Integer> precision = new Option<>("precision", -1, Integer.class, "number of decimal places of floating point values in XML events (-1 = shortest exact representation)");
+        public final Option<EventCodec.Format> format = new Option<>("format", EventCodec.Format.XML, EventCodec.Format.class, "XML (SSI compatible) or BINARY (compact), must match the reader");
 
         /**
          *
@@ -71,7 +75,8 @@ public class BluetoothEventWriter extends EventHandler
     private boolean _connected = false;
     byte[] _buffer;
     int _evID[];
-    StringBuilder _builder = new StringBuilder();
+    AsciiFormatter _builder = new AsciiFormatter();
+    EventCodec _codec = new EventCodec();
 
     public BluetoothEventWriter() {
         _name = "BluetoothEventWriter";
@@ -87,6 +92,8 @@ public class BluetoothEventWriter extends EventHandler
 			throw new RuntimeException("no incoming event channels defined");
 		}
 
+        _builder.setPrecision(options.precision.get());
+
         try {
             switch(options.connectionType.get())
             {
@@ -125,11 +132,19 @@ public class BluetoothEventWriter extends EventHandler
             return;
         }
 
-        _builder.delete(0, _builder.length());
+        boolean binary = options.format.get() == EventCodec.Format.BINARY;
+        if (binary)
+        {
+            _codec.begin();
+        }
+        else
+        {
+            _builder.clear();
 
-        _builder.append("<events ssi-v=\"2\" ssj-v=\"");
-        _builder.append(_frame.getVersion());
-        _builder.append("\">");
+            _builder.append("<events ssi-v=\"2\" ssj-v=\"");
+            _builder.append(_frame.getVersion());
+            _builder.append("\">");
+        }
 
         int count = 0;
         for(int i = 0; i < _evchannel_in.size(); ++i)
@@ -144,23 +159,44 @@ public class BluetoothEventWriter extends EventHandler
             count++;
 
             //build event
-            Util.eventToXML(_builder, ev);
-            _builder.append(FileCons.DELIMITER_LINE);
+            if (binary)
+            {
+                _codec.add(ev);
+            }
+            else
+            {
+                Util.eventToXML(_builder, ev);
+                _builder.append(FileCons.DELIMITER_LINE);
+            }
         }
 
         if(count > 0)
         {
-            _builder.append( "</events>");
+            byte[] data;
+            int len;
+            if (binary)
+            {
+                //packets are length-prefixed, no copy needed
+                len = _codec.finish();
+                data = _codec.array();
+            }
+            else
+            {
+                _builder.append( "</events>");
+
+                ByteBuffer buf = ByteBuffer.wrap(_buffer);
+                buf.order(ByteOrder.BIG_ENDIAN);
 
-            ByteBuffer buf = ByteBuffer.wrap(_buffer);
-            buf.order(ByteOrder.BIG_ENDIAN);
+                //store event
+                buf.put(_builder.array(), 0, _builder.length());
 
-            //store event
-            buf.put(_builder.toString().getBytes());
+                len = buf.position();
+                data = _buffer;
+            }
 
             try
             {
-                _conn.output().write(_buffer, 0, buf.position());
+                _conn.output().write(data, 0, len);
                 _conn.output().flush();
                 _conn.notifyDataTranferResult(true);
             }
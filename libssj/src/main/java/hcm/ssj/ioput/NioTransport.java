@@ -0,0 +1,480 @@
+/*
+ * NioTransport.java
+ * Copyright (c) 2018
+ * Authors: Ionut Damian, Michael Dietz, Frank Gaibler, Daniel Langerenken, Simon Flutura,
+ * Vitalijs Krumins, Antonio Grieco
+ * *****************************************************
+ * This file is part of the Social Signal Interpretation for Java (SSJ) framework
+ * developed at the Lab for Human Centered Multimedia of the University of Augsburg.
+ *
+ * SSJ has been inspired by the SSI (http://openssi.net) framework. SSJ is not a
+ * one-to-one port of SSI to Java, it is an approximation. Nor does SSJ pretend
+ * to offer SSI's comprehensive functionality and performance (this is java after all).
+ * Nevertheless, SSJ borrows a lot of programming patterns from SSI.
+ *
+ * This library is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 3 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package hcm.ssj.ioput;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.concurrent.ArrayBlockingQueue;
+
+import hcm.ssj.core.Cons;
+import hcm.ssj.core.Log;
+
+/**
+ * Non-blocking UDP/TCP sender.
+ * Records (frames or event packets) are collected in preallocated direct buffers, several records
+ * may be batched into one packet. Full packets are queued and sent by a selector thread, so a slow
+ * receiver never blocks the caller. If the queue is full the oldest packet is dropped.
+ * Broken TCP connections are re-established automatically.
+ *
+ * Records must be added from a single thread.
+ */
+public class NioTransport
+{
+    private final String name;
+    private final InetSocketAddress address;
+    private final Cons.SocketType type;
+    private final int batch;
+    private final long reconnectDelay;
+
+    private final ArrayBlockingQueue<ByteBuffer> free;
+    private final ArrayBlockingQueue<ByteBuffer> pending;
+    private ByteBuffer current;
+    private int records = 0;
+
+    private Selector selector;
+    private SelectableChannel channel;
+    private SelectionKey key;
+    private ByteBuffer inflight = null;
+    private volatile boolean connected = false;
+    private long nextConnect = 0;
+
+    private Thread thread;
+    private volatile boolean running = false;
+    private volatile boolean idle = false;
+
+    private volatile long sentBytes = 0;
+    private volatile long sentPackets = 0;
+    private volatile long droppedPackets = 0;
+    private volatile int reconnects = 0;
+
+    /**
+     * @param name name used for logging and the thread
+     * @param address receiver
+     * @param type UDP or TCP
+     * @param packetSize maximum size of a packet in bytes
+     * @param batch number of records sent in one packet
+     * @param queueSize number of packets which may wait to be sent
+     * @param reconnectDelay delay between TCP connection attempts in ms
+     */
+    public NioTransport(String name, InetSocketAddress address, Cons.SocketType type, int packetSize, int batch, int queueSize, long reconnectDelay)
+    {
+        this.name = name;
+        this.address = address;
+        this.type = type;
+        this.batch = Math.max(1, batch);
+        this.reconnectDelay = reconnectDelay;
+
+        queueSize = Math.max(1, queueSize);
+        free = new ArrayBlockingQueue<>(queueSize + 2);
+        pending = new ArrayBlockingQueue<>(queueSize);
+        for (int i = 0; i < queueSize + 1; i++)
+        {
+            free.add(ByteBuffer.allocateDirect(packetSize).order(ByteOrder.LITTLE_ENDIAN));
+        }
+        current = ByteBuffer.allocateDirect(packetSize).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Opens the channel and starts the sender thread
+     *
+     * @throws IOException if the channel cannot be opened
+     */
+    public void start() throws IOException
+    {
+        selector = Selector.open();
+        connect();
+
+        running = true;
+        thread = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                loop();
+            }
+        }, name);
+        thread.start();
+    }
+
+    /**
+     * Returns the packet buffer for the next record
+     *
+     * @param numBytes size of the record
+     * @return buffer with at least numBytes remaining (little-endian), null if the record exceeds the packet size
+     */
+    public ByteBuffer reserve(int numBytes)
+    {
+        if (numBytes > current.capacity())
+        {
+            return null;
+        }
+        if (numBytes > current.remaining())
+        {
+            submit();
+        }
+        return current;
+    }
+
+    /**
+     * Completes a record written to the buffer returned by {@link #reserve(int)}
+     */
+    public void commit()
+    {
+        records++;
+        if (records >= batch || !current.hasRemaining())
+        {
+            submit();
+        }
+    }
+
+    /**
+     * @param data record
+     * @param offset position of the first byte
+     * @param len length of the record
+     * @return false if the record exceeds the packet size
+     */
+    public boolean send(byte[] data, int offset, int len)
+    {
+        ByteBuffer buf = reserve(len);
+        if (buf == null)
+        {
+            return false;
+        }
+        buf.put(data, offset, len);
+        commit();
+        return true;
+    }
+
+    /**
+     * Sends the remaining packets (waits at most timeout ms) and stops the sender thread,
+     * which closes the channel on exit
+     *
+     * @param timeout maximum time to wait for pending packets and again for the thread in ms
+     */
+    public void close(long timeout)
+    {
+        if (thread == null)
+        {
+            //never started
+            return;
+        }
+
+        if (current.position() > 0)
+        {
+            submit();
+        }
+
+        long end = System.currentTimeMillis() + timeout;
+        while (connected && (!pending.isEmpty() || inflight != null) && System.currentTimeMillis() < end && thread.isAlive())
+        {
+            try
+            {
+                Thread.sleep(5);
+            }
+            catch (InterruptedException e)
+            {
+                break;
+            }
+        }
+
+        running = false;
+        selector.wakeup();
+        try
+        {
+            thread.join(timeout);
+            if (thread.isAlive())
+            {
+                //the channel is still in use, interrupting aborts a pending write
+                thread.interrupt();
+                thread.join(timeout);
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        if (thread.isAlive())
+        {
+            Log.w(name + ": sender thread did not terminate, channel is closed once it does");
+        }
+
+        if (droppedPackets > 0)
+        {
+            Log.w(name + ": " + droppedPackets + " packets dropped, " + reconnects + " reconnects");
+        }
+    }
+
+    public long getSentBytes()
+    {
+        return sentBytes;
+    }
+
+    public long getSentPackets()
+    {
+        return sentPackets;
+    }
+
+    /**
+     * @return number of packets dropped because the receiver was too slow or unreachable
+     */
+    public long getDroppedPackets()
+    {
+        return droppedPackets;
+    }
+
+    public int getReconnects()
+    {
+        return reconnects;
+    }
+
+    /**
+     * @return number of packets waiting to be sent
+     */
+    public int getQueueDepth()
+    {
+        return pending.size();
+    }
+
+    private void submit()
+    {
+        records = 0;
+        if (current.position() == 0)
+        {
+            return;
+        }
+
+        current.flip();
+        while (!pending.offer(current))
+        {
+            //receiver too slow, drop the oldest packet
+            ByteBuffer oldest = pending.poll();
+            if (oldest != null)
+            {
+                droppedPackets++;
+                free.offer(oldest);
+            }
+        }
+
+        current = free.poll();
+        while (current == null)
+        {
+            //all other buffers are pending or in flight
+            ByteBuffer oldest = pending.poll();
+            if (oldest != null)
+            {
+                droppedPackets++;
+                current = oldest;
+            }
+            else
+            {
+                current = free.poll();
+            }
+        }
+        current.clear();
+
+        if (idle)
+        {
+            selector.wakeup();
+        }
+    }
+
+    private void connect()
+    {
+        try
+        {
+            if (type == Cons.SocketType.UDP)
+            {
+                DatagramChannel udp = DatagramChannel.open();
+                udp.configureBlocking(false);
+                udp.connect(address);
+                channel = udp;
+                key = udp.register(selector, 0);
+                connected = true;
+            }
+            else
+            {
+                java.nio.channels.SocketChannel tcp = java.nio.channels.SocketChannel.open();
+                tcp.configureBlocking(false);
+                tcp.socket().setTcpNoDelay(true);
+                channel = tcp;
+                if (tcp.connect(address))
+                {
+                    key = tcp.register(selector, 0);
+                    connected = true;
+                }
+                else
+                {
+                    key = tcp.register(selector, SelectionKey.OP_CONNECT);
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            Log.w(name + ": unable to connect to " + address, e);
+            closeChannel();
+        }
+    }
+
+    private void closeChannel()
+    {
+        connected = false;
+        if (key != null)
+        {
+            key.cancel();
+            key = null;
+        }
+        if (channel != null)
+        {
+            try
+            {
+                channel.close();
+            }
+            catch (IOException e)
+            {
+                Log.w("failed closing channel", e);
+            }
+            channel = null;
+        }
+        nextConnect = System.currentTimeMillis() + reconnectDelay;
+    }
+
+    private void loop()
+    {
+        try
+        {
+            send();
+        }
+        finally
+        {
+            //only this thread uses the channel
+            closeChannel();
+            try
+            {
+                selector.close();
+            }
+            catch (IOException e)
+            {
+                Log.w("failed closing selector", e);
+            }
+        }
+    }
+
+    private void send()
+    {
+        while (running)
+        {
+            if (channel == null && System.currentTimeMillis() >= nextConnect)
+            {
+                reconnects++;
+                Log.i(name + ": reconnecting to " + address);
+                connect();
+            }
+
+            if (inflight == null && connected)
+            {
+                inflight = pending.poll();
+            }
+
+            if (key != null && key.isValid() && connected)
+            {
+                key.interestOps(inflight != null ? SelectionKey.OP_WRITE : 0);
+            }
+
+            try
+            {
+                idle = inflight == null && pending.isEmpty();
+                selector.select(channel == null ? reconnectDelay : 100);
+                idle = false;
+                selector.selectedKeys().clear();
+
+                if (key != null && key.isValid() && !connected && key.isConnectable())
+                {
+                    if (((java.nio.channels.SocketChannel) channel).finishConnect())
+                    {
+                        connected = true;
+                        key.interestOps(0);
+                        Log.i(name + ": connected to " + address);
+                    }
+                }
+
+                if (connected && inflight != null)
+                {
+                    write();
+                }
+            }
+            catch (IOException e)
+            {
+                Log.w(name + ": connection lost (" + e.getMessage() + ")");
+                if (inflight != null)
+                {
+                    //partially sent packets cannot be resumed on a new connection
+                    droppedPackets++;
+                    free.offer(inflight);
+                    inflight = null;
+                }
+                closeChannel();
+            }
+        }
+    }
+
+    private void write() throws IOException
+    {
+        while (inflight != null)
+        {
+            int n = (type == Cons.SocketType.UDP)
+                    ? ((DatagramChannel) channel).write(inflight)
+                    : ((java.nio.channels.SocketChannel) channel).write(inflight);
+
+            if (n > 0)
+            {
+                sentBytes += n;
+            }
+
+            if (inflight.hasRemaining())
+            {
+                if (n == 0)
+                {
+                    //socket buffer full, retry once writable
+                    return;
+                }
+                continue;
+            }
+
+            sentPackets++;
+            free.offer(inflight);
+            inflight = pending.poll();
+        }
+    }
+}
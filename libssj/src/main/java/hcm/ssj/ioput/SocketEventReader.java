@@ -48,6 +48,7 @@ import hcm.ssj.core.Log;
 import hcm.ssj.core.SSJFatalException;
 import hcm.ssj.core.Util;
 import hcm.ssj.core.event.Event;
+import hcm.ssj.core.event.EventCodec;
 import hcm.ssj.core.option.Option;
 import hcm.ssj.core.option.OptionList;
 
@@ -57,7 +58,7 @@ import hcm.ssj.core.option.OptionList;
  */
 public class SocketEventReader extends EventHandler
 {
-    final int MAX_MSG_SIZE = 4096;
+    final int MAX_MSG_SIZE = 65507; //max UDP payload
 
 	@Override
 	public OptionList getOptions()
@@ -69,7 +70,7 @@ public class SocketEventReader extends EventHandler
     {
         public Option<String> ip = new Option<>("ip", null, String.class, "");
         public Option<Integer> port = new Option<>("port", 0, Integer.class, "");
-        public Option<Boolean> parseXmlToEvent = new Option<>("parseXmlToEvent", true, Boolean.class, "attempt to convert the message to an SSJ event format");
+        public Option<Boolean> parseXmlToEvent = new Option<>("parseXmlToEvent", true, Boolean.class, "attempt to convert the message to an SSJ event format (XML and binary packets are detected automatically)");
         public Option<Boolean> overwriteEventTime = new Option<>("overwriteEventTime", false, Boolean.class, "overwrite event time with internal receive time");
 
         /**
@@ -86,6 +87,7 @@ public class SocketEventReader extends EventHandler
     boolean _connected = false;
     byte[] _buffer;
     XmlPullParser _parser;
+    EventCodec _codec = new EventCodec(0);
 
     public SocketEventReader()
     {
@@ -167,6 +169,23 @@ public class SocketEventReader extends EventHandler
             ev.setData(new String(_buffer, 0, packet.getLength()));
             _evchannel_out.pushEvent(ev);
         }
+        else if (EventCodec.isBinary(_buffer, 0, packet.getLength()))
+        {
+            if (!_codec.setInput(_buffer, 0, packet.getLength()))
+            {
+                return;
+            }
+
+            Event ev;
+            while ((ev = _codec.next(_evchannel_out)) != null)
+            {
+                if (options.overwriteEventTime.get())
+                {
+                    ev.time = _frame.getTimeMs();
+                }
+                _evchannel_out.pushEvent(ev);
+            }
+        }
         else
         {
             try
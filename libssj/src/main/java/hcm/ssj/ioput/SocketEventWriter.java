@@ -27,20 +27,19 @@
 
 package hcm.ssj.ioput;
 
-import java.io.DataOutputStream;
 import java.io.IOException;
-import java.net.DatagramPacket;
-import java.net.DatagramSocket;
 import java.net.InetAddress;
-import java.net.Socket;
+import java.net.InetSocketAddress;
 import java.util.Arrays;
 
+import hcm.ssj.core.AsciiFormatter;
 import hcm.ssj.core.Cons;
 import hcm.ssj.core.EventHandler;
 import hcm.ssj.core.Log;
 import hcm.ssj.core.SSJFatalException;
 import hcm.ssj.core.Util;
 import hcm.ssj.core.event.Event;
+import hcm.ssj.core.event.EventCodec;
 import hcm.ssj.core.option.Option;
 import hcm.ssj.core.option.OptionList;
 import hcm.ssj.file.FileCons;
@@ -52,6 +51,7 @@ public class SocketEventWriter extends EventHandler
 {
     public final static int SOCKET_TYPE_UDP = 0;
     public final static int SOCKET_TYPE_TCP = 1;
+    private final static int MAX_PACKET_SIZE = 65507; //max UDP payload
 
     public class Options extends OptionList
     {
@@ -60,6 +60,11 @@ public class SocketEventWriter extends EventHandler
         public final Option<String> ip = new Option<>("ip", "127.0.0.1", String.class, "remote ip address");
         public final Option<Boolean> sendAsMap = new Option<>("sendAsMap", false, Boolean.class, "send values as map event");
         public final Option<String> mapKeys = new Option<>("mapKeys", "", String.class, "key for each dimension separated by comma");
+        public final Option<Integer> precision = new Option<>("precision", -1, Integer.class, "number of decimal places of floating point values in XML events (-1 = shortest exact representation)");
+        public final Option<EventCodec.Format> format = new Option<>("format", EventCodec.Format.XML, EventCodec.Format.class, "XML (SSI compatible) or BINARY (compact, SSJ receivers only, sendAsMap is ignored)");
+        public final Option<Integer> queueSize = new Option<>("queueSize", 16, Integer.class, "number of packets which may wait to be sent, oldest packets are dropped if the receiver is too slow");
+        public final Option<Integer> reconnectDelay = new Option<>("reconnectDelay", 1000, Integer.class, "delay between connection attempts in ms (TCP)");
+        public final Option<Integer> closeTimeout = new Option<>("closeTimeout", 1000, Integer.class, "maximum time to wait for pending packets when the pipeline stops in ms");
 
         private Options()
         {
@@ -69,12 +74,11 @@ public class SocketEventWriter extends EventHandler
 
     public Options options = new Options();
 
-    private DatagramSocket _socket_udp;
-    private Socket _socket_tcp;
     private InetAddress _addr;
-    private DataOutputStream _out;
+    private NioTransport _transport;
 
-    StringBuilder _builder = new StringBuilder();
+    AsciiFormatter _builder = new AsciiFormatter();
+    EventCodec _codec = new EventCodec();
     byte[] _buffer;
     int _evID[];
     String[] userMapKeys;
@@ -95,21 +99,16 @@ public class SocketEventWriter extends EventHandler
             throw new SSJFatalException("no incoming event channels defined");
 		}
 
+        _builder.setPrecision(options.precision.get());
+
         //start client
-        String protocol = "";
+        Cons.SocketType protocol = (options.type.get() == SOCKET_TYPE_TCP) ? Cons.SocketType.TCP : Cons.SocketType.UDP;
         try {
             _addr = InetAddress.getByName(options.ip.get());
-            switch(options.type.get()) {
-                case SOCKET_TYPE_UDP:
-                    _socket_udp = new DatagramSocket();
-                    protocol = "UDP";
-                    break;
-                case SOCKET_TYPE_TCP:
-                    _socket_tcp = new Socket(_addr, options.port.get());
-                    _out = new DataOutputStream(_socket_tcp.getOutputStream());
-                    protocol = "TCP";
-                    break;
-            }
+            //all events of one tick are already combined into one packet
+            _transport = new NioTransport(_name, new InetSocketAddress(_addr, options.port.get()), protocol,
+                                          MAX_PACKET_SIZE, 1, options.queueSize.get(), options.reconnectDelay.get());
+            _transport.start();
         }
         catch (IOException e)
         {
@@ -137,11 +136,19 @@ public class SocketEventWriter extends EventHandler
             return;
         }
 
-        _builder.delete(0, _builder.length());
+        boolean binary = options.format.get() == EventCodec.Format.BINARY;
+        if (binary)
+        {
+            _codec.begin();
+        }
+        else
+        {
+            _builder.clear();
 
-        _builder.append("<events ssi-v=\"2\" ssj-v=\"");
-        _builder.append(_frame.getVersion());
-        _builder.append("\">");
+            _builder.append("<events ssi-v=\"2\" ssj-v=\"");
+            _builder.append(_frame.getVersion());
+            _builder.append("\">");
+        }
 
         int count = 0;
         for(int i = 0; i < _evchannel_in.size(); ++i)
@@ -156,33 +163,36 @@ public class SocketEventWriter extends EventHandler
             _evID[i] = ev.id + 1;
 
             //build event
-            Util.eventToXML(_builder, ev, options.sendAsMap.get(), userMapKeys);
-            _builder.append(FileCons.DELIMITER_LINE);
+            if (binary)
+            {
+                _codec.add(ev);
+            }
+            else
+            {
+                Util.eventToXML(_builder, ev, options.sendAsMap.get(), userMapKeys);
+                _builder.append(FileCons.DELIMITER_LINE);
+            }
         }
 
         if(count > 0)
         {
-            _builder.append( "</events>");
             byte[] data;
-            try
+            int len;
+            if (binary)
             {
-                switch(options.type.get()) {
-                    case SOCKET_TYPE_UDP:
-                        data = _builder.toString().getBytes();
-                        DatagramPacket pack = new DatagramPacket(data, data.length, _addr, options.port.get());
-                        _socket_udp.send(pack);
-                        break;
-                    case SOCKET_TYPE_TCP:
-                        data = _builder.toString().getBytes();
-                        _out.write(data);
-                        _out.flush();
-                        break;
-                }
-
+                len = _codec.finish();
+                data = _codec.array();
+            }
+            else
+            {
+                _builder.append( "</events>");
+                len = _builder.length();
+                data = _builder.array();
             }
-            catch (IOException e)
+
+            if (!_transport.send(data, 0, len))
             {
-                Log.w("failed sending data", e);
+                Log.w("event packet exceeds max packet size (" + len + " bytes)");
             }
         }
     }
@@ -191,19 +201,10 @@ public class SocketEventWriter extends EventHandler
     {
         _connected = false;
 
-        try {
-            switch(options.type.get()) {
-                case SOCKET_TYPE_UDP:
-                    _socket_udp.close();
-                    _socket_udp = null;
-                    break;
-                case SOCKET_TYPE_TCP:
-                    _socket_tcp.close();
-                    _socket_tcp = null;
-                    break;
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
+        if (_transport != null)
+        {
+            _transport.close(options.closeTimeout.get());
+            _transport = null;
         }
     }
 
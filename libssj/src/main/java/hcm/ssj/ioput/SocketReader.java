@@ -44,6 +44,8 @@ import hcm.ssj.core.Sensor;
 import hcm.ssj.core.Util;
 import hcm.ssj.core.option.Option;
 import hcm.ssj.core.option.OptionList;
+import hcm.ssj.core.stream.Stream;
+import hcm.ssj.file.StreamCodec;
 
 /**
  * Audio Sensor - get data from audio interface and forwards it
@@ -62,6 +64,7 @@ public class SocketReader extends Sensor
         public Option<String> ip = new Option<>("ip", null, String.class, "");
         public Option<Integer> port = new Option<>("port", 0, Integer.class, "");
         public final Option<Cons.SocketType> type = new Option<>("type", Cons.SocketType.UDP, Cons.SocketType.class, "");
+        public final Option<StreamCodec.Type> codec = new Option<>("codec", StreamCodec.Type.NONE, StreamCodec.Type.class, "compression used by the sender");
 
         /**
          *
@@ -80,6 +83,13 @@ public class SocketReader extends Sensor
 
     boolean _connected = false;
     byte[] _buffer;
+    byte[] _packet;
+    DatagramPacket _datagram;
+    int _packetPos;
+    int _packetLen;
+    StreamCodec _codec = null;
+    byte[] _encoded;
+    int _num;
 
     public SocketReader()
     {
@@ -118,6 +128,11 @@ public class SocketReader extends Sensor
                     _socket_udp = new DatagramSocket(null);
                     _socket_udp.setReuseAddress(true);
                     _socket_udp.bind(saddr);
+                    //the writer may batch several frames into one datagram
+                    _packet = new byte[SocketWriter.MAX_UDP_PAYLOAD];
+                    _datagram = new DatagramPacket(_packet, _packet.length);
+                    _packetPos = 0;
+                    _packetLen = 0;
                     break;
                 case TCP:
                     _server_tcp = new ServerSocket(options.port.get());
@@ -132,7 +147,16 @@ public class SocketReader extends Sensor
             throw new SSJFatalException("ERROR: cannot bind/connect socket", e);
         }
 
-        _buffer = new byte[_provider.get(0).getOutputStream().tot];
+        Stream stream = _provider.get(0).getOutputStream();
+        _buffer = new byte[stream.tot];
+        _num = stream.num;
+
+        _codec = null;
+        if (options.codec.get() != null && options.codec.get() != StreamCodec.Type.NONE)
+        {
+            _codec = new StreamCodec(options.codec.get(), stream.type, stream.dim, stream.bytes);
+            _encoded = new byte[_codec.maxBlockSize(stream.num)];
+        }
         _connected = true;
 
         Log.i("socket connected");
@@ -148,19 +172,69 @@ public class SocketReader extends Sensor
             return;
         }
 
+        byte[] dst = (_codec != null) ? _encoded : _buffer;
+
         try {
             switch(options.type.get()) {
                 case UDP:
-                    DatagramPacket packet = new DatagramPacket(_buffer, _buffer.length);
-                    _socket_udp.receive(packet);
+                    if (_packetPos >= _packetLen)
+                    {
+                        _datagram.setLength(_packet.length);
+                        _socket_udp.receive(_datagram);
+                        _packetPos = 0;
+                        _packetLen = _datagram.getLength();
+                    }
+
+                    int len = dst.length;
+                    if (_codec != null)
+                    {
+                        len = (_packetPos + StreamCodec.BLOCK_HEADER_SIZE <= _packetLen) ? StreamCodec.blockSize(_packet, _packetPos) : -1;
+                        if (len < StreamCodec.BLOCK_HEADER_SIZE)
+                        {
+                            len = -1;
+                        }
+                    }
+                    if (len < 0 || len > dst.length || _packetPos + len > _packetLen)
+                    {
+                        //drop the rest of the datagram
+                        _packetPos = _packetLen;
+                        throw new IOException("truncated datagram (" + _packetLen + " bytes)");
+                    }
+                    System.arraycopy(_packet, _packetPos, dst, 0, len);
+                    _packetPos += len;
                     break;
                 case TCP:
-                    _in.readFully(_buffer);
+                    if (_codec != null)
+                    {
+                        _in.readFully(dst, 0, StreamCodec.BLOCK_HEADER_SIZE);
+                        int size = StreamCodec.blockSize(dst, 0);
+                        if (size < StreamCodec.BLOCK_HEADER_SIZE || size > dst.length)
+                        {
+                            throw new IOException("invalid block size " + size);
+                        }
+                        _in.readFully(dst, StreamCodec.BLOCK_HEADER_SIZE, size - StreamCodec.BLOCK_HEADER_SIZE);
+                    }
+                    else
+                    {
+                        _in.readFully(dst);
+                    }
                     break;
             }
 
+            if (_codec != null)
+            {
+                if (StreamCodec.blockNum(_encoded, 0) != _num)
+                {
+                    Log.w("data mismatch");
+                    return;
+                }
+                _codec.decode(_encoded, 0, _buffer, 0);
+            }
+
         } catch (IOException e) {
             Log.w("failed receiving data", e);
+        } catch (IllegalStateException e) {
+            Log.w("failed decoding data", e);
         }
     }
 
@@ -27,12 +27,10 @@
 
 package hcm.ssj.ioput;
 
-import java.io.DataOutputStream;
 import java.io.IOException;
-import java.net.DatagramPacket;
-import java.net.DatagramSocket;
 import java.net.InetAddress;
-import java.net.Socket;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
 
 import hcm.ssj.core.Cons;
 import hcm.ssj.core.Consumer;
@@ -43,12 +41,14 @@ import hcm.ssj.core.event.Event;
 import hcm.ssj.core.option.Option;
 import hcm.ssj.core.option.OptionList;
 import hcm.ssj.core.stream.Stream;
+import hcm.ssj.file.StreamCodec;
 
 /**
  * Created by Johnny on 05.03.2015.
  */
 public class SocketWriter extends Consumer {
 
+    final static int MAX_UDP_PAYLOAD = 65507;
 
 	@Override
 	public OptionList getOptions()
@@ -61,6 +61,11 @@ public class SocketWriter extends Consumer {
         public final Option<Integer> port = new Option<>("port", 34300, Integer.class, "");
         public final Option<String> ip = new Option<>("ip", "127.0.0.1", String.class, "");
         public final Option<Cons.SocketType> type = new Option<>("type", Cons.SocketType.UDP, Cons.SocketType.class, "");
+        public final Option<Integer> batch = new Option<>("batch", 1, Integer.class, "number of frames sent in one packet (UDP packets are limited to 65507 bytes)");
+        public final Option<Integer> queueSize = new Option<>("queueSize", 16, Integer.class, "number of packets which may wait to be sent, oldest packets are dropped if the receiver is too slow");
+        public final Option<Integer> reconnectDelay = new Option<>("reconnectDelay", 1000, Integer.class, "delay between connection attempts in ms (TCP)");
+        public final Option<Integer> closeTimeout = new Option<>("closeTimeout", 1000, Integer.class, "maximum time to wait for pending packets when the pipeline stops in ms");
+        public final Option<StreamCodec.Type> codec = new Option<>("codec", StreamCodec.Type.NONE, StreamCodec.Type.class, "compression of each frame: DELTA (integer types), XOR (FLOAT, DOUBLE) or DEFLATE (any type), must match the reader");
 
         /**
          *
@@ -71,11 +76,11 @@ public class SocketWriter extends Consumer {
     }
     public final Options options = new Options();
 
-    private DatagramSocket _socket_udp;
-    private Socket _socket_tcp;
     private InetAddress _addr;
-    private DataOutputStream _out;
+    private NioTransport _transport;
     private byte[] _data;
+    private StreamCodec _codec;
+    private byte[] _encoded;
 
     private boolean _connected = false;
 
@@ -87,18 +92,40 @@ public class SocketWriter extends Consumer {
     @Override
 	public void enter(Stream[] stream_in) throws SSJFatalException
     {
+        int frameSize = stream_in[0].tot;
+        int batch = Math.max(1, options.batch.get());
+
+        _codec = null;
+        if (options.codec.get() != null && options.codec.get() != StreamCodec.Type.NONE)
+        {
+            if (!StreamCodec.supports(options.codec.get(), stream_in[0].type))
+            {
+                throw new SSJFatalException(options.codec.get() + " does not support " + stream_in[0].type);
+            }
+            _codec = new StreamCodec(options.codec.get(), stream_in[0].type, stream_in[0].dim, stream_in[0].bytes);
+            _encoded = new byte[_codec.maxBlockSize(stream_in[0].num)];
+            frameSize = _encoded.length;
+        }
+
+        if (options.type.get() == Cons.SocketType.UDP)
+        {
+            if (frameSize > MAX_UDP_PAYLOAD)
+            {
+                throw new SSJFatalException("frame size (" + frameSize + " bytes) exceeds max UDP payload, use TCP");
+            }
+            if (frameSize * batch > MAX_UDP_PAYLOAD)
+            {
+                batch = MAX_UDP_PAYLOAD / frameSize;
+                Log.w("batch exceeds max UDP payload, reduced to " + batch + " frames");
+            }
+        }
+
         //start client
         try {
             _addr = InetAddress.getByName(options.ip.get());
-            switch(options.type.get()) {
-                case UDP:
-                    _socket_udp = new DatagramSocket();
-                    break;
-                case TCP:
-                    _socket_tcp = new Socket(_addr, options.port.get());
-                    _out = new DataOutputStream(_socket_tcp.getOutputStream());
-                    break;
-            }
+            _transport = new NioTransport(_name, new InetSocketAddress(_addr, options.port.get()), options.type.get(),
+                                          frameSize * batch, batch, options.queueSize.get(), options.reconnectDelay.get());
+            _transport.start();
         }
         catch (IOException e)
         {
@@ -118,42 +145,73 @@ public class SocketWriter extends Consumer {
             return;
         }
 
-        try {
-            switch(options.type.get()) {
-                case UDP:
-                    Util.arraycopy(stream_in[0].ptr(), 0, _data, 0, _data.length);
-                    DatagramPacket pack = new DatagramPacket(_data, _data.length, _addr, options.port.get());
-                    _socket_udp.send(pack);
-                    break;
-                case TCP:
-                    Util.arraycopy(stream_in[0].ptr(), 0, _data, 0, _data.length);
-                    _out.write(_data);
-                    _out.flush();
-                    break;
-            }
+        Stream stream = stream_in[0];
+        int numBytes = stream.tot;
 
-        } catch (IOException e) {
-            Log.w("failed sending data", e);
+        if (_codec != null)
+        {
+            Util.arraycopy(stream.ptr(), 0, _data, 0, numBytes);
+            _transport.send(_encoded, 0, _codec.encode(_data, stream.num, _encoded, 0));
+            return;
         }
+
+        ByteBuffer buf = _transport.reserve(numBytes);
+        if (buf == null)
+        {
+            Log.w("frame exceeds packet size");
+            return;
+        }
+
+        //bulk copy through typed views, the buffer is little-endian like Util.arraycopy
+        int pos = buf.position();
+        int num = stream.num * stream.dim;
+        switch (stream.type)
+        {
+            case FLOAT:
+                buf.asFloatBuffer().put(stream.ptrF(), 0, num);
+                break;
+            case DOUBLE:
+                buf.asDoubleBuffer().put(stream.ptrD(), 0, num);
+                break;
+            case SHORT:
+                buf.asShortBuffer().put(stream.ptrS(), 0, num);
+                break;
+            case INT:
+                buf.asIntBuffer().put(stream.ptrI(), 0, num);
+                break;
+            case LONG:
+                buf.asLongBuffer().put(stream.ptrL(), 0, num);
+                break;
+            case CHAR:
+                buf.asCharBuffer().put(stream.ptrC(), 0, num);
+                break;
+            case BYTE:
+            case IMAGE:
+                buf.put(stream.ptrB(), 0, numBytes);
+                break;
+            default:
+                Util.arraycopy(stream.ptr(), 0, _data, 0, numBytes);
+                buf.put(_data, 0, numBytes);
+                break;
+        }
+        buf.position(pos + numBytes);
+
+        _transport.commit();
     }
 
     public void flush(Stream[] stream_in) throws SSJFatalException
     {
         _connected = false;
 
-        try {
-            switch(options.type.get()) {
-                case UDP:
-                    _socket_udp.close();
-                    _socket_udp = null;
-                    break;
-                case TCP:
-                    _socket_tcp.close();
-                    _socket_tcp = null;
-                    break;
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
+        if (_transport != null)
+        {
+            _transport.close(options.closeTimeout.get());
+            _transport = null;
+        }
+
+        if (_codec != null)
+        {
+            _codec.release();
         }
     }
 }
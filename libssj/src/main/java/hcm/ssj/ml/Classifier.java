@@ -36,6 +36,7 @@ import hcm.ssj.core.Log;
 import hcm.ssj.core.SSJFatalException;
 import hcm.ssj.core.Util;
 import hcm.ssj.core.event.Event;
+import hcm.ssj.core.event.FloatEvent;
 import hcm.ssj.core.option.Option;
 import hcm.ssj.core.option.OptionList;
 import hcm.ssj.core.stream.Stream;
@@ -170,14 +171,14 @@ public class Classifier extends Consumer implements IModelHandler
 
             if (_evchannel_out != null)
             {
-                Event ev = Event.create(Cons.Type.FLOAT);
+                FloatEvent ev = (FloatEvent) _evchannel_out.obtainEvent(Cons.Type.FLOAT);
                 ev.sender = options.sender.get();
                 ev.name = model.getClassNames()[bestLabelIdx];
                 ev.time = (int) (1000 * stream_in[0].time + 0.5);
                 double duration = stream_in[0].num / stream_in[0].sr;
                 ev.dur = (int) (1000 * duration + 0.5);
                 ev.state = Event.State.COMPLETED;
-                ev.setData(new float[]{probs[bestLabelIdx]});
+                ev.reserve(1)[0] = probs[bestLabelIdx];
 
                 _evchannel_out.pushEvent(ev);
             }
@@ -212,13 +213,13 @@ public class Classifier extends Consumer implements IModelHandler
                         }
                     }
 
-                    ev = Event.create(Cons.Type.STRING);
+                    ev = _evchannel_out.obtainEvent(Cons.Type.STRING);
                     ev.setData(stringBuilder.toString());
                 }
                 else
                 {
-                    ev = Event.create(Cons.Type.FLOAT);
-                    ev.setData(probs);
+                    ev = _evchannel_out.obtainEvent(Cons.Type.FLOAT);
+                    System.arraycopy(probs, 0, ((FloatEvent) ev).reserve(probs.length), 0, probs.length);
                 }
 
                 ev.sender = options.sender.get();
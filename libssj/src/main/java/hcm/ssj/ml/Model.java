@@ -55,6 +55,7 @@ import hcm.ssj.core.option.OptionList;
 import hcm.ssj.core.stream.Stream;
 import hcm.ssj.file.FileCons;
 import hcm.ssj.file.FileUtils;
+import hcm.ssj.file.MappedStreamReader;
 
 /**
  * Generic model for machine learning
@@ -101,7 +102,7 @@ public abstract class Model extends Component
         {
             // pipe.error(_name, "not initialized", null);
             Log.e("not initialized");
-            _safeToKill = true;
+            setSafeToKill();
 
             return;
         }
@@ -120,7 +121,7 @@ public abstract class Model extends Component
             this.notifyAll();
         }
 
-        _safeToKill = true;
+        setSafeToKill();
     }
 
     public void waitUntilReady()
@@ -552,6 +553,29 @@ public abstract class Model extends Component
         isTrained = true;
     }
 
+    /**
+     * Train model with multiple samples (batch training), only the annotated segments are read from the file
+     * @param reader file from where to extract the samples
+     * @param anno annotation
+     */
+    public void train(MappedStreamReader reader, Annotation anno) throws IOException
+    {
+        if(!_isSetup)
+        {
+            Log.e("model not initialized");
+            return;
+        }
+
+        for(Annotation.Entry e : anno.getEntries())
+        {
+            Stream segment = reader.substream(e.from, e.to);
+            if(segment != null)
+                train(segment, e.classlabel);
+        }
+
+        isTrained = true;
+    }
+
     /**
      * Load model from file
      *
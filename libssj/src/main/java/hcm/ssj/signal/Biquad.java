@@ -0,0 +1,188 @@
+/*
+ * Biquad.java
+ * Copyright (c) 2018
+ * Authors: Ionut Damian, Michael Dietz, Frank Gaibler, Daniel Langerenken, Simon Flutura,
+ * Vitalijs Krumins, Antonio Grieco
+ * *****************************************************
+ * This file is part of the Social Signal Interpretation for Java (SSJ) framework
+ * developed at the Lab for Human Centered Multimedia of the University of Augsburg.
+ *
+ * SSJ has been inspired by the SSI (http://openssi.net) framework. SSJ is not a
+ * one-to-one port of SSI to Java, it is an approximation. Nor does SSJ pretend
+ * to offer SSI's comprehensive functionality and performance (this is java after all).
+ * Nevertheless, SSJ borrows a lot of programming patterns from SSI.
+ *
+ * This library is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 3 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package hcm.ssj.signal;
+
+import java.util.Arrays;
+
+/**
+ * Cascaded second-order sections (biquads) in transposed direct form II.
+ *
+ * Processes interleaved multi-channel frames, one section at a time over the whole frame.
+ * Several filters (bands) can be applied to the same input in one pass, the output then contains
+ * the filtered channels of each band one after another: [band0 ch0..chN, band1 ch0..chN, ...].
+ *
+ * Coefficients are given as second-order section matrices (rows of b0, b1, b2, a0, a1, a2), as returned by
+ * {@link FilterTools#getLPButter(int, double)}, {@link FilterTools#getHPButter(int, double)} or
+ * {@link FilterTools#getBPButter(int, double, double)}. Coefficients and state are kept in double precision.
+ */
+public class Biquad
+{
+	private final int dim;
+	private final int bands;
+	private final int sections;
+
+	// b0, b1, b2, a1, a2 per section of each band
+	private final double[] coefs;
+	// z1 and z2 per channel of each section and band
+	private final double[] z1;
+	private final double[] z2;
+
+	/**
+	 * @param sos second-order sections of a single filter
+	 * @param dim number of interleaved channels
+	 */
+	public Biquad(Matrix sos, int dim)
+	{
+		this(new Matrix[]{sos}, dim);
+	}
+
+	/**
+	 * @param bank second-order sections of each filter of the bank
+	 * @param dim number of interleaved channels
+	 */
+	public Biquad(Matrix[] bank, int dim)
+	{
+		int sections = 0;
+		for (Matrix sos : bank)
+		{
+			if (sos.getCols() != 6)
+			{
+				throw new IllegalArgumentException("second-order sections must have 6 coefficients");
+			}
+			sections = Math.max(sections, sos.getRows());
+		}
+
+		this.dim = dim;
+		this.bands = bank.length;
+		this.sections = sections;
+
+		coefs = new double[bands * sections * 5];
+		z1 = new double[bands * sections * dim];
+		z2 = new double[bands * sections * dim];
+
+		for (int b = 0; b < bands; b++)
+		{
+			for (int s = 0; s < sections; s++)
+			{
+				int c = (b * sections + s) * 5;
+				if (s >= bank[b].getRows())
+				{
+					// pass-through, filters with fewer sections are padded
+					coefs[c] = 1;
+					continue;
+				}
+
+				double a0 = bank[b].getData(s, 3);
+				coefs[c] = bank[b].getData(s, 0) / a0;
+				coefs[c + 1] = bank[b].getData(s, 1) / a0;
+				coefs[c + 2] = bank[b].getData(s, 2) / a0;
+				coefs[c + 3] = bank[b].getData(s, 4) / a0;
+				coefs[c + 4] = bank[b].getData(s, 5) / a0;
+			}
+		}
+	}
+
+	/**
+	 * Clears the filter state
+	 */
+	public void reset()
+	{
+		Arrays.fill(z1, 0);
+		Arrays.fill(z2, 0);
+	}
+
+	/**
+	 * @param in interleaved input, num * dim values
+	 * @param out interleaved output, num * dim * bands values, may be the input array if there is only one band
+	 * @param num number of samples
+	 */
+	public void process(float[] in, float[] out, int num)
+	{
+		int dimOut = dim * bands;
+
+		for (int b = 0; b < bands; b++)
+		{
+			int band = b * dim;
+
+			// the first section reads the input, the others work in place on the output
+			for (int s = 0; s < sections; s++)
+			{
+				int c = (b * sections + s) * 5;
+				double b0 = coefs[c];
+				double b1 = coefs[c + 1];
+				double b2 = coefs[c + 2];
+				double a1 = coefs[c + 3];
+				double a2 = coefs[c + 4];
+
+				float[] src = (s == 0) ? in : out;
+				int srcStep = (s == 0) ? dim : dimOut;
+				int srcOffset = (s == 0) ? 0 : band;
+				int state = (b * sections + s) * dim;
+
+				for (int j = 0; j < dim; j++)
+				{
+					double w1 = z1[state + j];
+					double w2 = z2[state + j];
+
+					int srcPtr = srcOffset + j;
+					int dstPtr = band + j;
+					for (int i = 0; i < num; i++)
+					{
+						double x = src[srcPtr];
+						double y = b0 * x + w1;
+						w1 = b1 * x - a1 * y + w2;
+						w2 = b2 * x - a2 * y;
+						out[dstPtr] = (float) y;
+
+						srcPtr += srcStep;
+						dstPtr += dimOut;
+					}
+
+					z1[state + j] = w1;
+					z2[state + j] = w2;
+				}
+			}
+		}
+	}
+
+	public int getDim()
+	{
+		return dim;
+	}
+
+	public int getBands()
+	{
+		return bands;
+	}
+
+	public int getSections()
+	{
+		return sections;
+	}
+}
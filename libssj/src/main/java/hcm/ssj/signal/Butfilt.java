@@ -74,7 +74,7 @@ public class Butfilt extends Transformer
 	public final Options options = new Options();
 
 	IIR _iir;
-	Matrix<Float> _coefficients;
+	Matrix _coefficients;
 	float[] _firstSample;
 
 	boolean _firstCall;
@@ -84,7 +84,7 @@ public class Butfilt extends Transformer
 		_name = "Butfilt";
 	}
 
-	protected Matrix<Float> getCoefficients(double sr)
+	protected Matrix getCoefficients(double sr)
 	{
 		double low = options.norm.get() ? options.low.get() : 2 * options.low.get() / sr;
 		double high = options.norm.get() ? options.high.get() : 2 * options.high.get() / sr;
@@ -92,9 +92,9 @@ public class Butfilt extends Transformer
 		return initCoefficients(options.type.get(), options.order.get(), low, high);
 	}
 
-	protected Matrix<Float> initCoefficients(Type type, int order, double low, double high)
+	protected Matrix initCoefficients(Type type, int order, double low, double high)
 	{
-		Matrix<Float> coefficients = null;
+		Matrix coefficients = null;
 
 		switch (type)
 		{
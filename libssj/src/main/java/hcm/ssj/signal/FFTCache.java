@@ -0,0 +1,93 @@
+/*
+ * FFTCache.java
+ * Copyright (c) 2018
+ * Authors: Ionut Damian, Michael Dietz, Frank Gaibler, Daniel Langerenken, Simon Flutura,
+ * Vitalijs Krumins, Antonio Grieco
+ * *****************************************************
+ * This file is part of the Social Signal Interpretation for Java (SSJ) framework
+ * developed at the Lab for Human Centered Multimedia of the University of Augsburg.
+ *
+ * SSJ has been inspired by the SSI (http://openssi.net) framework. SSJ is not a
+ * one-to-one port of SSI to Java, it is an approximation. Nor does SSJ pretend
+ * to offer SSI's comprehensive functionality and performance (this is java after all).
+ * Nevertheless, SSJ borrows a lot of programming patterns from SSI.
+ *
+ * This library is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 3 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package hcm.ssj.signal;
+
+import org.jtransforms.fft.FloatFFT_1D;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Shares FFT plans (twiddle factors and bit reversal tables) of the same size between components.
+ *
+ * A plan is only read while transforming, so one instance can be used by several threads at once.
+ */
+public class FFTCache
+{
+	private static FFTCache _instance = null;
+
+	private final Map<Integer, FloatFFT_1D> plans = new HashMap<>();
+
+	/**
+	 * Private constructor for singleton pattern.
+	 */
+	private FFTCache()
+	{
+	}
+
+	/**
+	 * Method for accessing the singleton instance.
+	 *
+	 * @return singleton instance
+	 */
+	public static synchronized FFTCache getInstance()
+	{
+		if (_instance == null)
+		{
+			_instance = new FFTCache();
+		}
+
+		return _instance;
+	}
+
+	/**
+	 * @param size number of (real) input values
+	 * @return plan for the given size, created on first use
+	 */
+	public synchronized FloatFFT_1D get(int size)
+	{
+		FloatFFT_1D fft = plans.get(size);
+
+		if (fft == null)
+		{
+			fft = new FloatFFT_1D(size);
+			plans.put(size, fft);
+		}
+
+		return fft;
+	}
+
+	/**
+	 * Drops all plans
+	 */
+	public synchronized void clear()
+	{
+		plans.clear();
+	}
+}
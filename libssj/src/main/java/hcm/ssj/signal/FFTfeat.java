@@ -34,16 +34,47 @@ import hcm.ssj.core.Log;
 import hcm.ssj.core.SSJFatalException;
 import hcm.ssj.core.Transformer;
 import hcm.ssj.core.Util;
+import hcm.ssj.core.option.Option;
 import hcm.ssj.core.option.OptionList;
 import hcm.ssj.core.stream.Stream;
 
+import static hcm.ssj.signal.FilterTools.WINDOW_TYPE;
+import static hcm.ssj.signal.Matrix.MATRIX_DIMENSION;
+
 /**
+ * Computes the (windowed) magnitude or power spectrum of every dimension once per frame,
+ * so several spectral features can share one FFT (e.g. {@link PSD} or {@link Spectrogram} with option spectrum).
+ *
+ * The output has a single sample with n/2 + 1 bins per dimension, bins are interleaved
+ * like the dimensions of the input: [bin0 dim0, bin0 dim1, ..., bin1 dim0, ...].
+ * Bin 0 holds the DC component, the last bin the nyquist frequency.
+ *
  * Created by Michael Dietz on 18.10.2016.
  */
 
 public class FFTfeat extends Transformer
 {
+	@Override
+	public OptionList getOptions()
+	{
+		return options;
+	}
+
+	public class Options extends OptionList
+	{
+		public final Option<WINDOW_TYPE> wintype = new Option<>("wintype", WINDOW_TYPE.RECTANGLE, WINDOW_TYPE.class, "window applied to each frame before the transform");
+		public final Option<Boolean> power = new Option<>("power", false, Boolean.class, "output the power (squared magnitude / #bins) instead of the magnitude of every bin");
+
+		private Options()
+		{
+			addOptions();
+		}
+	}
+
+	public final Options options = new Options();
+
 	private FloatFFT_1D fft;
+	private float[] window;
 	private float[][] fft_in;
 	private float[][] fft_out;
 
@@ -62,7 +93,18 @@ public class FFTfeat extends Transformer
 		fft_dim = stream_in[0].dim;
 		fft_size = stream_in[0].num;
 
-		fft = new FloatFFT_1D(fft_size);
+		fft = FFTCache.getInstance().get(fft_size);
+		window = null;
+
+		if (options.wintype.get() != WINDOW_TYPE.RECTANGLE)
+		{
+			Matrix win = FilterTools.getInstance().Window(fft_size, options.wintype.get(), MATRIX_DIMENSION.COL);
+			if (win == null)
+			{
+				throw new SSJFatalException("unsupported window " + options.wintype.get());
+			}
+			window = win.array();
+		}
 		fft_out = new float[fft_dim][];
 		fft_in = new float[fft_dim][];
 
@@ -81,7 +123,7 @@ public class FFTfeat extends Transformer
 		for (int j = 0; j < fft_size; j++) {
 			for (int i = 0; i < fft_dim; i++) {
 				if (j < stream_in[0].num){
-					fft_in[i][j] = in[j * fft_dim + i];
+					fft_in[i][j] = (window != null) ? in[j * fft_dim + i] * window[j] : in[j * fft_dim + i];
 				} else {
 					fft_in[i][j] = 0;
 				}
@@ -95,6 +137,14 @@ public class FFTfeat extends Transformer
 
 			// Format values like in SSI
 			Util.joinFFT(fft_in[i], fft_out[i]);
+
+			if (options.power.get())
+			{
+				for (int j = 0; j < rfft; j++)
+				{
+					fft_out[i][j] = fft_out[i][j] * fft_out[i][j] / rfft;
+				}
+			}
 		}
 
 		for (int j = 0; j < rfft; j++){
@@ -104,9 +154,17 @@ public class FFTfeat extends Transformer
 		}
 	}
 
+	@Override
+	public void flush(Stream[] stream_in, Stream stream_out) throws SSJFatalException
+	{
+		window = null;
+	}
+
 	@Override
 	public int getSampleDimension(Stream[] stream_in)
 	{
+		//also remembered for consumers of the spectrum, see getSourceDimension
+		fft_dim = stream_in[0].dim;
 		rfft = ((stream_in[0].num >> 1) + 1);
 		return stream_in[0].dim * rfft;
 	}
@@ -139,9 +197,19 @@ public class FFTfeat extends Transformer
 		stream_out.desc = new String[]{"fft"};
 	}
 
-	@Override
-	public OptionList getOptions()
+	/**
+	 * @return number of dimensions of the transformed signal, the output holds one spectrum per dimension
+	 */
+	public int getSourceDimension()
+	{
+		return fft_dim;
+	}
+
+	/**
+	 * @return number of bins of each spectrum
+	 */
+	public int getBins()
 	{
-		return null;
+		return rfft;
 	}
 }
@@ -0,0 +1,164 @@
+/*
+ * FilterBank.java
+ * Copyright (c) 2018
+ * Authors: Ionut Damian, Michael Dietz, Frank Gaibler, Daniel Langerenken, Simon Flutura,
+ * Vitalijs Krumins, Antonio Grieco
+ * *****************************************************
+ * This file is part of the Social Signal Interpretation for Java (SSJ) framework
+ * developed at the Lab for Human Centered Multimedia of the University of Augsburg.
+ *
+ * SSJ has been inspired by the SSI (http://openssi.net) framework. SSJ is not a
+ * one-to-one port of SSI to Java, it is an approximation. Nor does SSJ pretend
+ * to offer SSI's comprehensive functionality and performance (this is java after all).
+ * Nevertheless, SSJ borrows a lot of programming patterns from SSI.
+ *
+ * This library is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 3 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package hcm.ssj.signal;
+
+import hcm.ssj.core.Cons;
+import hcm.ssj.core.Log;
+import hcm.ssj.core.SSJFatalException;
+import hcm.ssj.core.Transformer;
+import hcm.ssj.core.Util;
+import hcm.ssj.core.option.Option;
+import hcm.ssj.core.option.OptionList;
+import hcm.ssj.core.stream.Stream;
+
+/**
+ * Applies several butterworth band-pass filters to the input in a single pass.
+ * The output contains all input dimensions filtered by the first band, followed by all dimensions filtered by the second band, etc.
+ */
+public class FilterBank extends Transformer
+{
+	@Override
+	public OptionList getOptions()
+	{
+		return options;
+	}
+
+	public class Options extends OptionList
+	{
+		public final Option<String> bands = new Option<>("bands", "0.1 0.2, 0.2 0.4", String.class, "comma separated list of filter bands, each given as low and high cutoff frequency (example: \"20 60, 60 150\")");
+		public final Option<Integer> order = new Option<>("order", 4, Integer.class, "Filter order");
+		public final Option<Boolean> norm = new Option<>("norm", true, Boolean.class, "Frequency values are normalized in interval [0..1], where 1 is the nyquist frequency (=half the sample rate)");
+
+		private Options()
+		{
+			addOptions();
+		}
+	}
+
+	public final Options options = new Options();
+
+	Biquad _biquad;
+
+	public FilterBank()
+	{
+		_name = "FilterBank";
+	}
+
+	@Override
+	public void enter(Stream[] stream_in, Stream stream_out) throws SSJFatalException
+	{
+		double[][] bands = parseBands(options.bands.get());
+
+		Matrix[] bank = new Matrix[bands.length];
+		for (int i = 0; i < bands.length; i++)
+		{
+			double low = options.norm.get() ? bands[i][0] : 2 * bands[i][0] / stream_in[0].sr;
+			double high = options.norm.get() ? bands[i][1] : 2 * bands[i][1] / stream_in[0].sr;
+
+			if (low <= 0 || high >= 1 || low >= high)
+			{
+				throw new SSJFatalException("invalid filter band " + bands[i][0] + " - " + bands[i][1]);
+			}
+
+			bank[i] = FilterTools.getInstance().getBPButter(options.order.get(), low, high);
+		}
+
+		_biquad = new Biquad(bank, stream_in[0].dim);
+	}
+
+	@Override
+	public void transform(Stream[] stream_in, Stream stream_out) throws SSJFatalException
+	{
+		_biquad.process(stream_in[0].ptrF(), stream_out.ptrF(), stream_in[0].num);
+	}
+
+	@Override
+	public int getSampleDimension(Stream[] stream_in)
+	{
+		return stream_in[0].dim * parseBands(options.bands.get()).length;
+	}
+
+	@Override
+	public int getSampleBytes(Stream[] stream_in)
+	{
+		return Util.sizeOf(Cons.Type.FLOAT);
+	}
+
+	@Override
+	public Cons.Type getSampleType(Stream[] stream_in)
+	{
+		if (stream_in[0].type != Cons.Type.FLOAT)
+		{
+			Log.e("unsupported input type");
+		}
+
+		return Cons.Type.FLOAT;
+	}
+
+	@Override
+	public int getSampleNumber(int sampleNumber_in)
+	{
+		return sampleNumber_in;
+	}
+
+	@Override
+	protected void describeOutput(Stream[] stream_in, Stream stream_out)
+	{
+		int dim = stream_in[0].dim;
+		int bands = stream_out.dim / dim;
+
+		stream_out.desc = new String[stream_out.dim];
+		for (int b = 0; b < bands; b++)
+		{
+			for (int j = 0; j < dim; j++)
+			{
+				stream_out.desc[b * dim + j] = stream_in[0].desc[j] + "_band" + b;
+			}
+		}
+	}
+
+	private static double[][] parseBands(String string)
+	{
+		String[] bands = string.trim().split("\\s*,\\s*");
+		double[][] result = new double[bands.length][2];
+
+		for (int i = 0; i < bands.length; i++)
+		{
+			String[] values = bands[i].split("\\s+");
+			if (values.length != 2)
+			{
+				throw new IllegalArgumentException("filter band '" + bands[i] + "' must consist of a low and a high cutoff frequency");
+			}
+			result[i][0] = Double.parseDouble(values[0]);
+			result[i][1] = Double.parseDouble(values[1]);
+		}
+
+		return result;
+	}
+}
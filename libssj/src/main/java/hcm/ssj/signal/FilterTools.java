@@ -27,6 +27,8 @@
 
 package hcm.ssj.signal;
 
+import java.util.Arrays;
+
 import hcm.ssj.core.Log;
 import hcm.ssj.signal.Matrix.MATRIX_DIMENSION;
 
@@ -76,21 +78,21 @@ public class FilterTools
 		return _instance;
 	}
 
-	public Matrix<Float> getLPButter(int order, double cutoff)
+	public Matrix getLPButter(int order, double cutoff)
 	{
 		int sections = (order + 1) / 2;
 
-		Matrix<Float> sos = new Matrix<>(sections, 6);
+		Matrix sos = new Matrix(sections, 6);
 		sos.fillValue(1.0f);
 
 		double freq = cutoff / 2.0;
 
-		Matrix<Complex> poles = getButterPoles(sections, freq);
+		Complex[] poles = getButterPoles(sections, freq);
 
 		for (int i = 0; i < sections; i++)
 		{
-			double poleReal = poles.getData(i).real();
-			double poleImag = poles.getData(i).imag();
+			double poleReal = poles[i].real();
+			double poleImag = poles[i].imag();
 			double a1 = -2.0 * poleReal;
 			double a2 = poleReal * poleReal + poleImag * poleImag;
 			double gain = 4.0 / (1.0 + a1 + a2);
@@ -106,33 +108,33 @@ public class FilterTools
 		return sos;
 	}
 
-	public Matrix<Float> getHPButter(int order, double cutoff)
+	public Matrix getHPButter(int order, double cutoff)
 	{
 		int sections = (order + 1) / 2;
 
-		Matrix<Float> sos = new Matrix<>(sections, 6);
+		Matrix sos = new Matrix(sections, 6);
 		sos.fillValue(1.0f);
 
 		double freq = cutoff / 2.0;
 
-		Matrix<Complex> poles = getButterPoles(sections, 0.5 - freq);
+		Complex[] poles = getButterPoles(sections, 0.5 - freq);
 
 		for (int i = 0; i < sections; i++)
 		{
-			double poleReal = -poles.getData(i).real();
-			double poleImag = poles.getData(i).imag();
+			double poleReal = -poles[i].real();
+			double poleImag = poles[i].imag();
 			double a1 = -2.0 * poleReal;
 			double a2 = poleReal * poleReal + poleImag * poleImag;
 
-			Matrix<Complex> tmp = new Matrix<>(3, 1);
-			tmp.setData(0, new Complex(1.0, 0.0));
-			tmp.setData(1, new Complex(Math.cos(0.5 * PI), Math.sin(0.5 * PI)));
-			tmp.setData(2, new Complex(Math.cos(PI), Math.sin(PI)));
+			Complex[] tmp = {
+					new Complex(1.0, 0.0),
+					new Complex(Math.cos(0.5 * PI), Math.sin(0.5 * PI)),
+					new Complex(Math.cos(PI), Math.sin(PI))};
 
-			Matrix<Complex> tmp2 = new Matrix<>(1, 3);
-			tmp2.setData(0, new Complex(1.0, 0.0));
-			tmp2.setData(1, new Complex(a1, 0.0));
-			tmp2.setData(2, new Complex(a2, 0.0));
+			Complex[] tmp2 = {
+					new Complex(1.0, 0.0),
+					new Complex(a1, 0.0),
+					new Complex(a2, 0.0)};
 
 			double gain = new Complex(2.0, 0.0).div(MatrixOps.getInstance().multiplyVector(tmp2, tmp)).mod();
 
@@ -147,50 +149,50 @@ public class FilterTools
 		return sos;
 	}
 
-	public Matrix<Float> getBPButter(int order, double lowCutoff, double highCutoff)
+	public Matrix getBPButter(int order, double lowCutoff, double highCutoff)
 	{
 		int sections = (order + 1) / 2;
 
-		Matrix<Float> sos = new Matrix<>(sections, 6);
+		Matrix sos = new Matrix(sections, 6);
 		sos.fillValue(1.0f);
 
 		double lFreq = lowCutoff / 2.0;
 		double hFreq = highCutoff / 2.0;
 
-		Matrix<Complex> polesTmp = getButterPoles(sections / 2, hFreq - lFreq);
+		Complex[] polesTmp = getButterPoles(sections / 2, hFreq - lFreq);
 
 		double wLow = 2 * PI * lFreq;
 		double wHigh = 2 * PI * hFreq;
 		double ang = Math.cos((wHigh + wLow) / 2) / Math.cos((wHigh - wLow) / 2);
 
-		Matrix<Complex> poles = new Matrix<>(sections, 1);
-		poles.fillValue(new Complex(0, 0));
+		Complex[] poles = new Complex[sections];
+		Arrays.fill(poles, new Complex(0, 0));
 
 		for (int i = 0; i < sections / 2; i++)
 		{
-			Complex p1 = new Complex(polesTmp.getData(i).real() + 1, polesTmp.getData(i).imag());
-			Complex tmp = p1.times(p1).times(ang * ang * 0.25).minus(polesTmp.getData(i)).sqrt();
+			Complex p1 = new Complex(polesTmp[i].real() + 1, polesTmp[i].imag());
+			Complex tmp = p1.times(p1).times(ang * ang * 0.25).minus(polesTmp[i]).sqrt();
 
-			poles.setData(2 * i, p1.times(ang * 0.5).plus(tmp));
-			poles.setData(2 * i + 1, p1.times(ang * 0.5).minus(tmp));
+			poles[2 * i] = p1.times(ang * 0.5).plus(tmp);
+			poles[2 * i + 1] = p1.times(ang * 0.5).minus(tmp);
 		}
 
 		for (int i = 0; i < sections; i++)
 		{
-			double poleReal = poles.getData(i).real();
-			double poleImag = poles.getData(i).imag();
+			double poleReal = poles[i].real();
+			double poleImag = poles[i].imag();
 			double a1 = -2.0 * poleReal;
 			double a2 = poleReal * poleReal + poleImag * poleImag;
 
-			Matrix<Complex> tmp = new Matrix<>(3, 1);
-			tmp.setData(0, new Complex(1.0, 0.0));
-			tmp.setData(1, new Complex(Math.cos((lFreq + hFreq) * PI), Math.sin((lFreq + hFreq) * PI)));
-			tmp.setData(2, new Complex(Math.cos(2 * (lFreq + hFreq) * PI), Math.sin(2 * (lFreq + hFreq) * PI)));
+			Complex[] tmp = {
+					new Complex(1.0, 0.0),
+					new Complex(Math.cos((lFreq + hFreq) * PI), Math.sin((lFreq + hFreq) * PI)),
+					new Complex(Math.cos(2 * (lFreq + hFreq) * PI), Math.sin(2 * (lFreq + hFreq) * PI))};
 
-			Matrix<Complex> tmp2 = new Matrix<>(1, 3);
-			tmp2.setData(0, new Complex(1.0, 0.0));
-			tmp2.setData(1, new Complex(a1, 0.0));
-			tmp2.setData(2, new Complex(a2, 0.0));
+			Complex[] tmp2 = {
+					new Complex(1.0, 0.0),
+					new Complex(a1, 0.0),
+					new Complex(a2, 0.0)};
 
 			double gain = Math.abs(new Complex(0.1685, 0.5556).div(MatrixOps.getInstance().multiplyVector(tmp2, tmp)).mod());
 
@@ -205,19 +207,12 @@ public class FilterTools
 		return sos;
 	}
 
-	public Matrix<Complex> getButterPoles(int sections, double frequency)
+	public Complex[] getButterPoles(int sections, double frequency)
 	{
-		int columns = 1;
-		Matrix<Complex> poles = new Matrix<>(sections, columns);
+		Complex[] poles = new Complex[sections];
 
 		// Fill with zeros
-		for (int row = 0; row < sections; row++)
-		{
-			for (int col = 0; col < columns; col++)
-			{
-				poles.setData(row, col, new Complex(0, 0));
-			}
-		}
+		Arrays.fill(poles, new Complex(0, 0));
 
 		double w = PI * frequency;
 		double tanW = Math.sin(w) / Math.cos(w);
@@ -232,16 +227,16 @@ public class FilterTools
 			double real = (1.0 - tanW * tanW) / d;
 			double imag = 2.0 * tanW * Math.sin(ang) / d;
 
-			poles.setData(polesIndex++, new Complex(real, imag));
+			poles[polesIndex++] = new Complex(real, imag);
 		}
 
 		return poles;
 	}
 
-	Matrix<Float> Filterbank(int size, double sample_rate, Matrix<Float> intervals, WINDOW_TYPE type)
+	Matrix Filterbank(int size, double sample_rate, Matrix intervals, WINDOW_TYPE type)
 	{
 
-		Matrix<Float> filterbank = new Matrix<>(intervals.getRows(), size);
+		Matrix filterbank = new Matrix(intervals.getRows(), size);
 		filterbank.fillValue(0f);
 
 		sample_rate /= 2; // convert sampling to nyquist rate
@@ -257,7 +252,7 @@ public class FilterTools
 			intervalsptr++;
 
 			maxind = Math.min(maxind, size - 1);
-			Matrix<Float> winmat = Window(1 + (maxind - minind), type, MATRIX_DIMENSION.ROW);
+			Matrix winmat = Window(1 + (maxind - minind), type, MATRIX_DIMENSION.ROW);
 			MatrixOps.getInstance().div(winmat, MatrixOps.getInstance().sum(winmat));
 			filterbank.setSubMatrix(i, minind, winmat);
 		}
@@ -265,17 +260,17 @@ public class FilterTools
 		return filterbank;
 	}
 
-	public Matrix<Float> Window(int size, WINDOW_TYPE type, MATRIX_DIMENSION dimension)
+	public Matrix Window(int size, WINDOW_TYPE type, MATRIX_DIMENSION dimension)
 	{
-		Matrix<Float> window;
+		Matrix window;
 
 		if (size < 1)
 		{
-			window = new Matrix<>(0, 0);
+			window = new Matrix(0, 0);
 		}
 		else if (size == 1)
 		{
-			window = new Matrix<>(1, 1);
+			window = new Matrix(1, 1);
 			window.setData(0, 1f);
 		}
 		else
@@ -284,7 +279,7 @@ public class FilterTools
 			{
 				default:
 				case RECTANGLE:
-					window = new Matrix<>(1, size);
+					window = new Matrix(1, size);
 					window.fillValue(1f);
 					break;
 
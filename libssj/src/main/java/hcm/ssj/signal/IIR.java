@@ -42,108 +42,37 @@ import hcm.ssj.core.stream.Stream;
  */
 public class IIR extends Transformer
 {
-	int _sections;
-	Matrix<Float> _coefficients;
-	Matrix<Float> _history;
+	Matrix _coefficients;
+	Biquad _biquad;
 
 	public IIR()
 	{
 		_name = "IIR";
 	}
 
-	public void setCoefficients(Matrix<Float> coefficients)
+	/**
+	 * @param coefficients second-order sections, one row of b_x1, b_x2, b_x3, a_x1, a_x2, a_x3 per section
+	 */
+	public void setCoefficients(Matrix coefficients)
 	{
-		_coefficients = null;
-		_sections = coefficients.getRows();
-
-		// filt = [b_11, b_12, b_13, 1, a_12, a_13;
-		//         b_21, b_22, b_23, 1, a_22, a_23;
-		//                      ...
-		//         b_n1, b_n2, b_n3, 1, a_n2, a_n3];
-		//
-		// so all we need to store are b_x1, b_x2, b_x3 and a_x2, a_x3
-		// also, we store them in the order a_x2, a_x3, b_x1, b_x2, b_x3
-		// since this is the order in which we'll access them later
-
-		_coefficients = new Matrix<>(_sections, 5);
-
-		for (int i = 0; i < _sections; i++)
-		{
-			_coefficients.setData(i, 0, coefficients.getData(i, 4));
-			_coefficients.setData(i, 1, coefficients.getData(i, 5));
-			_coefficients.setData(i, 2, coefficients.getData(i, 0));
-			_coefficients.setData(i, 3, coefficients.getData(i, 1));
-			_coefficients.setData(i, 4, coefficients.getData(i, 2));
-		}
+		_coefficients = coefficients;
 	}
 
 	@Override
 	public void enter(Stream[] stream_in, Stream stream_out) throws SSJFatalException
 	{
-		int sampleDimension = stream_in[0].dim;
+		if (_coefficients == null)
+		{
+			throw new SSJFatalException("no filter coefficients set");
+		}
 
-		_history = new Matrix<>(_sections * sampleDimension, 2);
-		_history.fillValue(0.0f);
+		_biquad = new Biquad(_coefficients, stream_in[0].dim);
 	}
 
 	@Override
 	public void transform(Stream[] stream_in, Stream stream_out) throws SSJFatalException
 	{
-		int sampleDimension = stream_in[0].dim;
-		int sampleNumber = stream_in[0].num;
-
-		float[] srcPtr = stream_in[0].ptrF();
-		float[] dstPtr = stream_out.ptrF();
-
-		float hist1;
-		float hist2;
-		float newHist;
-
-		int srcIndex = 0;
-		int dstIndex = 0;
-
-		int histPtrIndex = 0;
-		int coefsPtrIndex = 0;
-		int coefsTmpPtrIndex = 0;
-		int histPtrTmpIndex = 0;
-		int histPtrTmp1Index = 0;
-		int histPtrTmp2Index = 0;
-
-		for (int i = 0; i < sampleNumber; i++)
-		{
-			histPtrTmpIndex = histPtrIndex;
-
-			for (int j = 0; j < sampleDimension; j++)
-			{
-				dstPtr[dstIndex] = srcPtr[srcIndex];
-				coefsTmpPtrIndex = coefsPtrIndex;
-				histPtrTmp1Index = histPtrTmpIndex;
-				histPtrTmp2Index = histPtrTmp1Index + 1;
-
-				for (int k = 0; k < _sections; k++)
-				{
-					hist1 = _history.getData(histPtrTmp1Index);
-					hist2 = _history.getData(histPtrTmp2Index);
-
-					dstPtr[dstIndex] -= hist1 * _coefficients.getData(coefsTmpPtrIndex++); // a_x2
-					newHist = dstPtr[dstIndex] - hist2 * _coefficients.getData(coefsTmpPtrIndex++); // a_x3
-					dstPtr[dstIndex] = newHist * _coefficients.getData(coefsTmpPtrIndex++); // b_x1
-					dstPtr[dstIndex] += hist1 * _coefficients.getData(coefsTmpPtrIndex++); // b_x2
-					dstPtr[dstIndex] += hist2 * _coefficients.getData(coefsTmpPtrIndex++); // b_x3
-
-					_history.setData(histPtrTmp2Index++, hist1);
-					_history.setData(histPtrTmp1Index++, newHist);
-
-					histPtrTmp2Index++;
-					histPtrTmp1Index++;
-				}
-
-				srcIndex++;
-				dstIndex++;
-
-				histPtrTmpIndex += (_sections << 1);
-			}
-		}
+		_biquad.process(stream_in[0].ptrF(), stream_out.ptrF(), stream_in[0].num);
 	}
 
 	@Override
@@ -27,8 +27,6 @@
 
 package hcm.ssj.signal;
 
-import java.util.Arrays;
-
 /**
  * Created by Michael Dietz on 19.10.2016.
  */
@@ -161,23 +159,11 @@ public class MathTools
 
 		if (n > 0)
 		{
-			// Copy values for sorting
-			float[] valueCopies = new float[values.length];
-			System.arraycopy(values, 0, valueCopies, 0, values.length);
-
-			// Sort values ascending
-			Arrays.sort(valueCopies);
+			// Copy values for selection
+			float[] valueCopies = new float[n];
+			System.arraycopy(values, 0, valueCopies, 0, n);
 
-			if (n % 2 == 0)
-			{
-				// Even
-				median = (valueCopies[n / 2 - 1] + valueCopies[n / 2]) / 2.0f;
-			}
-			else
-			{
-				// Odd
-				median = valueCopies[(n - 1) / 2];
-			}
+			median = Statistics.median(valueCopies, 0, n - 1, 0, n);
 		}
 
 		return median;
@@ -347,57 +333,16 @@ public class MathTools
 
 		if (n > 0)
 		{
-			// Copy values for sorting
-			float[] valueCopies = new float[values.length];
-			System.arraycopy(values, 0, valueCopies, 0, values.length);
+			// Copy values for selection
+			float[] valueCopies = new float[n];
+			System.arraycopy(values, 0, valueCopies, 0, n);
 
-			// Sort values ascending
-			Arrays.sort(valueCopies);
-
-			float[] lowerPercentile;
-			float[] upperPercentile;
-
-			if (n % 2 == 0)
-			{
-				lowerPercentile = new float[n / 2];
-				upperPercentile = new float[n / 2];
-
-				// Even
-				for (int i = 0; i < n; i++)
-				{
-					if (i < n / 2)
-					{
-						lowerPercentile[i] = valueCopies[i];
-					}
-					else
-					{
-						upperPercentile[i - n / 2] = valueCopies[i];
-					}
-				}
-			}
-			else
-			{
-				lowerPercentile = new float[(n - 1) / 2];
-				upperPercentile = new float[(n - 1) / 2];
-
-				// Odd
-				for (int i = 0; i < n; i++)
-				{
-					if (i < (n - 1) / 2)
-					{
-						lowerPercentile[i] = valueCopies[i];
-					}
-
-					// Exclude median
-
-					if (i > (n - 1) / 2)
-					{
-						upperPercentile[i - ((n - 1) / 2) - 1] = valueCopies[i];
-					}
-				}
-			}
+			// Quartiles are the medians of the lower and upper half, the median is excluded for odd sizes
+			int half = n / 2;
+			float lower = Statistics.median(valueCopies, 0, n - 1, 0, half);
+			float upper = Statistics.median(valueCopies, (half + 1) / 2, n - 1, n - half, half);
 
-			iqr = getMedian(upperPercentile) - getMedian(lowerPercentile);
+			iqr = upper - lower;
 		}
 
 		return iqr;
@@ -27,13 +27,14 @@
 
 package hcm.ssj.signal;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /**
+ * Dense row-major float matrix.
+ * A matrix either owns its storage or is a strided view into the storage of another matrix,
+ * element (row, col) is located at offset + row * stride + col.
+ *
  * Created by Michael Dietz on 11.08.2015.
  */
-public class Matrix<T>
+public class Matrix
 {
 	public enum MATRIX_DIMENSION {
 
@@ -46,69 +47,206 @@ public class Matrix<T>
 	private int rows;
 	private int cols;
 
-	ArrayList<T> data;
+	float[] data;
+	int offset;
+	int stride;
 
 	public Matrix(int rows, int cols)
 	{
 		reset(rows, cols);
 	}
 
+	/**
+	 * Wraps an existing array (row-major), no data is copied
+	 */
+	public Matrix(int rows, int cols, float[] data)
+	{
+		if (data.length < rows * cols)
+		{
+			throw new IllegalArgumentException("array too small for " + rows + "x" + cols + " matrix");
+		}
+
+		this.rows = rows;
+		this.cols = cols;
+		this.data = data;
+		this.offset = 0;
+		this.stride = cols;
+	}
+
+	private Matrix(float[] data, int offset, int rows, int cols, int stride)
+	{
+		this.rows = rows;
+		this.cols = cols;
+		this.data = data;
+		this.offset = offset;
+		this.stride = stride;
+	}
+
+	/**
+	 * Changes the size of the matrix, the content is undefined afterwards.
+	 * Storage is only reallocated if it is too small, views are detached from their source.
+	 */
 	public void reset(int rows, int cols)
 	{
-		if (rows * cols > 0)
+		if (rows < 0 || cols < 0)
 		{
-			this.rows = rows;
-			this.cols = cols;
+			return;
+		}
 
-			data = new ArrayList<T>(rows * cols);
-			while(data.size() < rows * cols) data.add(null);
+		this.rows = rows;
+		this.cols = cols;
+		this.stride = cols;
+
+		if (data == null || offset != 0 || data.length < rows * cols)
+		{
+			data = new float[rows * cols];
+			offset = 0;
 		}
 	}
 
-	public Matrix<T> clone()
+	/**
+	 * @return compact copy of the matrix (or view)
+	 */
+	public Matrix clone()
+	{
+		Matrix ret = new Matrix(rows, cols);
+		ret.setSubMatrix(0, 0, this);
+		return ret;
+	}
+
+	/**
+	 * @return view of a block of the matrix, changes are written through to this matrix
+	 */
+	public Matrix view(int row, int col, int rows, int cols)
 	{
-		Matrix<T> ret = new Matrix<>(rows, cols);
-		for (int i = 0; i < getSize(); i++)
+		if (row < 0 || col < 0 || row + rows > this.rows || col + cols > this.cols)
 		{
-			ret.setData(i, data.get(i));
+			throw new IndexOutOfBoundsException("view exceeds " + this.rows + "x" + this.cols + " matrix");
 		}
+		return new Matrix(data, offset + row * stride + col, rows, cols, stride);
+	}
 
-		return ret;
+	/**
+	 * @return view of a single row (1 x cols)
+	 */
+	public Matrix row(int row)
+	{
+		return view(row, 0, 1, cols);
 	}
 
-	public List<T> getData()
+	/**
+	 * @return view of a single column (rows x 1)
+	 */
+	public Matrix col(int col)
+	{
+		return view(0, col, rows, 1);
+	}
+
+	/**
+	 * @return backing array, see {@link #getOffset()} and {@link #getStride()} for the layout
+	 */
+	public float[] array()
 	{
 		return data;
 	}
 
-	public T getData(int index)
+	public int getOffset()
+	{
+		return offset;
+	}
+
+	/**
+	 * @return distance between two rows in the backing array
+	 */
+	public int getStride()
+	{
+		return stride;
+	}
+
+	/**
+	 * @return true if the elements are stored without gaps
+	 */
+	public boolean isContiguous()
+	{
+		return stride == cols || rows <= 1;
+	}
+
+	/**
+	 * @param index element index in row-major order
+	 */
+	public float getData(int index)
 	{
-		return data.get(index);
+		return data[position(index)];
 	}
 
-	public T getData(int row, int col)
+	public float getData(int row, int col)
 	{
-		return data.get(row * cols + col);
+		return data[offset + row * stride + col];
 	}
 
-	public void setData(int index, T value)
+	/**
+	 * @param index element index in row-major order
+	 */
+	public void setData(int index, float value)
 	{
-		data.set(index, value);
+		data[position(index)] = value;
 	}
 
-	public void setData(int row, int col, T value)
+	public void setData(int row, int col, float value)
 	{
-		data.set(row * cols + col, value);
+		data[offset + row * stride + col] = value;
 	}
 
-	public void fillValue(T value)
+	public void fillValue(float value)
 	{
+		int ptr = offset;
 		for (int row = 0; row < rows; row++)
 		{
 			for (int col = 0; col < cols; col++)
 			{
-				setData(row, col, value);
+				data[ptr + col] = value;
 			}
+			ptr += stride;
+		}
+	}
+
+	/**
+	 * Copies getSize() values (row-major) from an array into the matrix
+	 */
+	public void copyFrom(float[] src, int srcPos)
+	{
+		if (isContiguous())
+		{
+			System.arraycopy(src, srcPos, data, offset, rows * cols);
+			return;
+		}
+
+		int ptr = offset;
+		for (int row = 0; row < rows; row++)
+		{
+			System.arraycopy(src, srcPos, data, ptr, cols);
+			srcPos += cols;
+			ptr += stride;
+		}
+	}
+
+	/**
+	 * Copies the matrix (row-major) into an array
+	 */
+	public void copyTo(float[] dst, int dstPos)
+	{
+		if (isContiguous())
+		{
+			System.arraycopy(data, offset, dst, dstPos, rows * cols);
+			return;
+		}
+
+		int ptr = offset;
+		for (int row = 0; row < rows; row++)
+		{
+			System.arraycopy(data, ptr, dst, dstPos, cols);
+			dstPos += cols;
+			ptr += stride;
 		}
 	}
 
@@ -127,45 +265,42 @@ public class Matrix<T>
 		return cols * rows;
 	}
 
+	/**
+	 * Transposes the matrix, a view is detached from its source
+	 */
 	public void transpose ()
 	{
-		if (data.isEmpty()) {
-			return;
-		}
-
-		if (rows > 1 && cols > 1) {
-
-			Matrix<T> tmp = this.clone();
-
-			int srcrows = tmp.getRows();
-			int srccols = tmp.getCols();
+		if ((rows > 1 && cols > 1) || !isContiguous())
+		{
+			float[] tmp = new float[rows * cols];
 
-			int srcptr = 0;
 			int dstptr = 0;
-
-			for (int i = 0; i < srccols; i++)
+			for (int i = 0; i < cols; i++)
 			{
-				srcptr = i;
-				for (int j = 0; j < srcrows; j++)
+				int srcptr = offset + i;
+				for (int j = 0; j < rows; j++)
 				{
-					data.set(dstptr, tmp.getData(srcptr));
-					srcptr += srccols;
-					dstptr++;
+					tmp[dstptr++] = data[srcptr];
+					srcptr += stride;
 				}
 			}
+
+			data = tmp;
+			offset = 0;
 		}
 
 		int tmp = cols;
 		cols = rows;
 		rows = tmp;
+		stride = cols;
 	}
 
-	public void setSubMatrix(int row, int col, Matrix<T> submaxtrix)
+	public void setSubMatrix(int row, int col, Matrix submaxtrix)
 	{
 		setSubMatrix(row, col, 0, 0, submaxtrix.getRows(), submaxtrix.getCols(), submaxtrix);
 	}
 
-	public void setSubMatrix(int row_dst, int col_dst, int row_src, int col_src, int row_number, int col_number, Matrix<T> src)
+	public void setSubMatrix(int row_dst, int col_dst, int row_src, int col_src, int row_number, int col_number, Matrix src)
 	{
 		if (row_dst + row_number > rows
 				|| col_dst + col_number > cols
@@ -173,18 +308,24 @@ public class Matrix<T>
 				|| col_src + col_number > src.getCols())
 			return;
 
-		int srccols = src.getCols();
-		int srcptr = row_src * srccols + col_src;
-		int dstcols = cols;
-		int dstptr = row_dst * dstcols + col_dst;
+		int srcptr = src.offset + row_src * src.stride + col_src;
+		int dstptr = offset + row_dst * stride + col_dst;
 
 		for (int i = 0; i < row_number; i++) {
 
-			for(int j = 0; j < col_number; j++)
-				data.set(dstptr + j, src.getData(srcptr + j));
+			System.arraycopy(src.data, srcptr, data, dstptr, col_number);
+
+			srcptr += src.stride;
+			dstptr += stride;
+		}
+	}
 
-			srcptr += srccols;
-			dstptr += dstcols;
+	private int position(int index)
+	{
+		if (stride == cols)
+		{
+			return offset + index;
 		}
+		return offset + (index / cols) * stride + index % cols;
 	}
 }
@@ -30,6 +30,9 @@ package hcm.ssj.signal;
 import hcm.ssj.core.Log;
 
 /**
+ * In-place operations on float matrices (elementwise, BLAS-like products and reductions).
+ * All operations respect the strides of matrix views and do not allocate.
+ *
  * Created by Michael Dietz on 12.08.2015.
  */
 public class MatrixOps
@@ -58,185 +61,401 @@ public class MatrixOps
 		return _instance;
 	}
 
-	public Matrix<Float> array (float start, float delta, float end, Matrix.MATRIX_DIMENSION dimension)
+	public Matrix array (float start, float delta, float end, Matrix.MATRIX_DIMENSION dimension)
 	{
 		int steps = (int) (((end - start) / (double)(delta)) + 1.001);
-		Matrix<Float> matrix;
+		Matrix matrix;
 
 		if (steps <= 0) {
-			matrix = new Matrix<> (0,0);
+			matrix = new Matrix (0,0);
 			return matrix;
 		}
 
 		switch (dimension) {
 			case ROW:
-				matrix = new Matrix<> (1, steps);
+				matrix = new Matrix (1, steps);
 				break;
 			case COL:
 			default:
-				matrix = new Matrix<> (steps, 1);
+				matrix = new Matrix (steps, 1);
 				break;
 		}
 
-		int dataptr = 0;
-		matrix.setData(dataptr, start);
+		float[] data = matrix.data;
+		data[0] = start;
 
-		for (int i = 0; i < steps-1; i++)
+		for (int i = 1; i < steps; i++)
 		{
-			matrix.setData(dataptr+1, matrix.getData(dataptr) + delta);
-			dataptr++;
+			data[i] = data[i - 1] + delta;
 		}
 
 		return matrix;
 	}
 
-	public Complex multiplyVector(Matrix<Complex> vec1, Matrix<Complex> vec2)
+	public Complex multiplyVector(Complex[] vec1, Complex[] vec2)
 	{
-		Complex result = new Complex(0, 0);
-
-		int len = vec1.getCols() * vec1.getRows();
+		double real = 0;
+		double imag = 0;
 
-		for (int i = 0; i < len; i++)
+		for (int i = 0; i < vec1.length; i++)
 		{
-			Complex c = vec1.getData(i).times(vec2.getData(i));
-			result = result.plus(c);
+			real += vec1[i].real() * vec2[i].real() - vec1[i].imag() * vec2[i].imag();
+			imag += vec1[i].real() * vec2[i].imag() + vec1[i].imag() * vec2[i].real();
 		}
 
-		return result;
+		return new Complex(real, imag);
 	}
 
-	public void plus (Matrix<Float> matrix, float scalar)
+	public void plus (Matrix matrix, float scalar)
 	{
-		if (matrix.getData().isEmpty()) {
-			return;
+		float[] data = matrix.data;
+		int ptr = matrix.offset;
+
+		for (int i = 0; i < matrix.getRows(); i++) {
+			for (int j = ptr; j < ptr + matrix.getCols(); j++) {
+				data[j] += scalar;
+			}
+			ptr += matrix.stride;
 		}
+	}
+
+	public void mult (Matrix matrix, float scalar)
+	{
+		float[] data = matrix.data;
+		int ptr = matrix.offset;
 
-		for (int i = 0; i < matrix.getSize(); i++) {
-			matrix.setData(i, matrix.getData(i) + scalar);
+		for (int i = 0; i < matrix.getRows(); i++) {
+			for (int j = ptr; j < ptr + matrix.getCols(); j++) {
+				data[j] *= scalar;
+			}
+			ptr += matrix.stride;
 		}
 	}
 
-	public void mult (Matrix<Float> matrix, float scalar)
+	public void div (Matrix matrix, float scalar)
 	{
-		if (matrix.getData().isEmpty()) {
-			return;
+		//no multiplication by the reciprocal, it is not exact
+		float[] data = matrix.data;
+		int ptr = matrix.offset;
+
+		for (int i = 0; i < matrix.getRows(); i++) {
+			for (int j = ptr; j < ptr + matrix.getCols(); j++) {
+				data[j] /= scalar;
+			}
+			ptr += matrix.stride;
 		}
+	}
+
+	/**
+	 * a += b
+	 */
+	public void plus(Matrix a, Matrix b)
+	{
+		axpy(1.0f, b, a);
+	}
+
+	/**
+	 * a -= b
+	 */
+	public void minus(Matrix a, Matrix b)
+	{
+		axpy(-1.0f, b, a);
+	}
 
-		for (int i = 0; i < matrix.getSize(); i++) {
-			matrix.setData(i, matrix.getData(i) * scalar);
+	/**
+	 * y += alpha * x
+	 */
+	public void axpy(float alpha, Matrix x, Matrix y)
+	{
+		if(!matching(x, y))
+			return;
+
+		float[] xdata = x.data;
+		float[] ydata = y.data;
+		int xptr = x.offset;
+		int yptr = y.offset;
+
+		for (int i = 0; i < y.getRows(); i++) {
+			for (int j = 0; j < y.getCols(); j++) {
+				ydata[yptr + j] += alpha * xdata[xptr + j];
+			}
+			xptr += x.stride;
+			yptr += y.stride;
 		}
 	}
 
-	public void mult(Matrix<Float> a, Matrix<Float> b)
+	/**
+	 * a *= b (elementwise)
+	 */
+	public void mult(Matrix a, Matrix b)
 	{
-		if(a.getRows() != b.getRows() || a.getCols() != b.getCols())
-		{
-			Log.w("matrices not matching");
+		if(!matching(a, b))
 			return;
+
+		float[] adata = a.data;
+		float[] bdata = b.data;
+		int aptr = a.offset;
+		int bptr = b.offset;
+
+		for (int i = 0; i < a.getRows(); i++) {
+			for (int j = 0; j < a.getCols(); j++) {
+				adata[aptr + j] *= bdata[bptr + j];
+			}
+			aptr += a.stride;
+			bptr += b.stride;
 		}
+	}
 
-		if(a.getData().isEmpty())
+	/**
+	 * a /= b (elementwise)
+	 */
+	public void div(Matrix a, Matrix b)
+	{
+		if(!matching(a, b))
 			return;
 
-		for(int i = 0; i < a.getSize(); i++)
-		{
-			a.setData(i, a.getData(i) * b.getData(i));
+		float[] adata = a.data;
+		float[] bdata = b.data;
+		int aptr = a.offset;
+		int bptr = b.offset;
+
+		for (int i = 0; i < a.getRows(); i++) {
+			for (int j = 0; j < a.getCols(); j++) {
+				adata[aptr + j] /= bdata[bptr + j];
+			}
+			aptr += a.stride;
+			bptr += b.stride;
 		}
 	}
 
-	public void multM(Matrix<Float> a, Matrix<Float> b, Matrix<Float> dst)
+	/**
+	 * dst = a * b
+	 */
+	public void multM(Matrix a, Matrix b, Matrix dst)
+	{
+		gemm(1.0f, a, b, 0.0f, dst);
+	}
+
+	/**
+	 * c = alpha * a * b + beta * c
+	 */
+	public void gemm(float alpha, Matrix a, Matrix b, float beta, Matrix c)
 	{
-		if(a.getCols() != b.getRows() || dst.getRows() != a.getRows() || dst.getCols() != b.getCols())
+		if(a.getCols() != b.getRows() || c.getRows() != a.getRows() || c.getCols() != b.getCols())
 		{
 			Log.w("matrices not matching");
 			return;
 		}
 
-		dst.fillValue(0f);
-
-		int aptr = 0;
-		int bptr = 0;
-		int dstptr = 0;
-		int dstptr2 = 0;
+		float[] adata = a.data;
+		float[] bdata = b.data;
+		float[] cdata = c.data;
+		int n = b.getCols();
 
+		int cptr = c.offset;
+		int arow = a.offset;
 		for (int i = 0; i < a.getRows(); i++) {
-			bptr = 0;
-			for (int j = 0; j < b.getRows(); j++) {
-				dstptr2 = dstptr;
-				for (int k = 0; k < b.getCols(); k++) {
-					dst.setData(dstptr2, dst.getData(dstptr2) + b.getData(bptr) * a.getData(aptr));
-					bptr++;
-					dstptr2++;
+			if (beta == 0) {
+				for (int k = cptr; k < cptr + n; k++) {
+					cdata[k] = 0;
+				}
+			} else if (beta != 1) {
+				for (int k = cptr; k < cptr + n; k++) {
+					cdata[k] *= beta;
+				}
+			}
+
+			//i-j-k order, the inner loop runs along rows of b and c
+			int bptr = b.offset;
+			for (int j = 0; j < a.getCols(); j++) {
+				float aval = alpha * adata[arow + j];
+				if (aval != 0) {
+					for (int k = 0; k < n; k++) {
+						cdata[cptr + k] += aval * bdata[bptr + k];
+					}
 				}
-				aptr++;
+				bptr += b.stride;
 			}
-			dstptr = dstptr2;
+
+			arow += a.stride;
+			cptr += c.stride;
 		}
 	}
 
-	public void div(Matrix<Float> a, Matrix<Float> b)
+	/**
+	 * y = alpha * a * x + beta * y, x and y are row or column vectors
+	 */
+	public void gemv(float alpha, Matrix a, Matrix x, float beta, Matrix y)
 	{
-		if(a.getRows() != b.getRows() || a.getCols() != b.getCols())
+		if(a.getCols() != x.getSize() || a.getRows() != y.getSize() || !isVector(x) || !isVector(y))
 		{
 			Log.w("matrices not matching");
 			return;
 		}
 
-		if(a.getData().isEmpty())
-			return;
+		float[] adata = a.data;
+		float[] xdata = x.data;
+		float[] ydata = y.data;
+		int xstep = step(x);
+		int ystep = step(y);
 
-		int elements = a.getRows() * a.getCols();
-		for(int i = 0; i < elements; i++)
-		{
-			a.setData(i, a.getData(i) / b.getData(i));
+		int arow = a.offset;
+		int yptr = y.offset;
+		for (int i = 0; i < a.getRows(); i++) {
+			float sum = 0;
+			int xptr = x.offset;
+			for (int j = arow; j < arow + a.getCols(); j++) {
+				sum += adata[j] * xdata[xptr];
+				xptr += xstep;
+			}
+
+			ydata[yptr] = alpha * sum + ((beta == 0) ? 0 : beta * ydata[yptr]);
+
+			arow += a.stride;
+			yptr += ystep;
 		}
 	}
 
-	public void div (Matrix<Float> matrix, float scalar)
+	/**
+	 * @return sum of the elementwise products of a and b
+	 */
+	public float dot(Matrix a, Matrix b)
 	{
-		if (matrix.getData().isEmpty()) {
-			return;
-		}
+		if(!matching(a, b))
+			return 0;
 
-		int elems  = matrix.getRows() * matrix.getCols();
+		float[] adata = a.data;
+		float[] bdata = b.data;
+		int aptr = a.offset;
+		int bptr = b.offset;
+		float sum = 0;
 
-		for (int i = 0; i < elems; i++) {
-			matrix.setData(i, matrix.getData(i) / scalar);
+		for (int i = 0; i < a.getRows(); i++) {
+			for (int j = 0; j < a.getCols(); j++) {
+				sum += adata[aptr + j] * bdata[bptr + j];
+			}
+			aptr += a.stride;
+			bptr += b.stride;
 		}
+
+		return sum;
 	}
 
-	public float sum(Matrix<Float> matrix)
+	public float sum(Matrix matrix)
 	{
+		float[] data = matrix.data;
+		int ptr = matrix.offset;
 		float sum = 0;
-		int elems = matrix.getRows() * matrix.getCols();
 
-		for (int i = 0; i < elems; i++) {
-			sum += matrix.getData(i);
+		for (int i = 0; i < matrix.getRows(); i++) {
+			for (int j = ptr; j < ptr + matrix.getCols(); j++) {
+				sum += data[j];
+			}
+			ptr += matrix.stride;
 		}
 
 		return sum;
 	}
 
-	public void cos (Matrix<Float> matrix)
+	public float mean(Matrix matrix)
 	{
-		if (matrix.getData().isEmpty()) {
-			return;
+		return (matrix.getSize() > 0) ? sum(matrix) / matrix.getSize() : 0;
+	}
+
+	public float min(Matrix matrix)
+	{
+		float[] data = matrix.data;
+		int ptr = matrix.offset;
+		float min = Float.MAX_VALUE;
+
+		for (int i = 0; i < matrix.getRows(); i++) {
+			for (int j = ptr; j < ptr + matrix.getCols(); j++) {
+				if (data[j] < min)
+					min = data[j];
+			}
+			ptr += matrix.stride;
+		}
+
+		return min;
+	}
+
+	public float max(Matrix matrix)
+	{
+		float[] data = matrix.data;
+		int ptr = matrix.offset;
+		float max = -Float.MAX_VALUE;
+
+		for (int i = 0; i < matrix.getRows(); i++) {
+			for (int j = ptr; j < ptr + matrix.getCols(); j++) {
+				if (data[j] > max)
+					max = data[j];
+			}
+			ptr += matrix.stride;
 		}
 
-		for (int i = 0; i < matrix.getSize(); i++) {
-			matrix.setData(i, (float)Math.cos(matrix.getData(i)));
+		return max;
+	}
+
+	public void abs (Matrix matrix)
+	{
+		float[] data = matrix.data;
+		int ptr = matrix.offset;
+
+		for (int i = 0; i < matrix.getRows(); i++) {
+			for (int j = ptr; j < ptr + matrix.getCols(); j++) {
+				data[j] = Math.abs(data[j]);
+			}
+			ptr += matrix.stride;
 		}
 	}
 
-	public void log10 (Matrix<Float> matrix)
+	public void cos (Matrix matrix)
 	{
-		if (matrix.getData().isEmpty()) {
-			return;
+		float[] data = matrix.data;
+		int ptr = matrix.offset;
+
+		for (int i = 0; i < matrix.getRows(); i++) {
+			for (int j = ptr; j < ptr + matrix.getCols(); j++) {
+				data[j] = (float) Math.cos(data[j]);
+			}
+			ptr += matrix.stride;
 		}
+	}
 
-		for (int i = 0; i < matrix.getSize(); i++) {
-			float val = matrix.getData(i);
-			matrix.setData(i, (val <= 0) ? 0 : (float)Math.log10(val));
+	public void log10 (Matrix matrix)
+	{
+		float[] data = matrix.data;
+		int ptr = matrix.offset;
+
+		for (int i = 0; i < matrix.getRows(); i++) {
+			for (int j = ptr; j < ptr + matrix.getCols(); j++) {
+				float val = data[j];
+				data[j] = (val <= 0) ? 0 : (float) Math.log10(val);
+			}
+			ptr += matrix.stride;
 		}
 	}
+
+	private static boolean matching(Matrix a, Matrix b)
+	{
+		if(a.getRows() != b.getRows() || a.getCols() != b.getCols())
+		{
+			Log.w("matrices not matching");
+			return false;
+		}
+		return true;
+	}
+
+	private static boolean isVector(Matrix v)
+	{
+		return v.getRows() == 1 || v.getCols() == 1;
+	}
+
+	/**
+	 * @return distance between two elements of a row or column vector
+	 */
+	private static int step(Matrix v)
+	{
+		return (v.getCols() == 1) ? v.stride : 1;
+	}
 }
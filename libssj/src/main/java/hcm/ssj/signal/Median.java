@@ -27,8 +27,6 @@
 
 package hcm.ssj.signal;
 
-import java.util.Arrays;
-
 import hcm.ssj.core.Cons;
 import hcm.ssj.core.Log;
 import hcm.ssj.core.SSJFatalException;
@@ -151,15 +149,8 @@ public class Median extends Transformer
      */
     private float getMedian(float[] in)
     {
-        Arrays.sort(in);
-        int n = in.length;
-        if (n % 2 == 0)
-        {
-            return (in[n / 2] + in[(n / 2) - 1]) / 2;
-        } else
-        {
-            return in[(n - 1) / 2];
-        }
+        //selection instead of a full sort, the order of in is not needed afterwards
+        return Statistics.median(in, 0, in.length - 1, 0, in.length);
     }
 
     /**
@@ -0,0 +1,198 @@
+/*
+ * MvgQuantile.java
+ * Copyright (c) 2018
+ * Authors: Ionut Damian, Michael Dietz, Frank Gaibler, Daniel Langerenken, Simon Flutura,
+ * Vitalijs Krumins, Antonio Grieco
+ * *****************************************************
+ * This file is part of the Social Signal Interpretation for Java (SSJ) framework
+ * developed at the Lab for Human Centered Multimedia of the University of Augsburg.
+ *
+ * SSJ has been inspired by the SSI (http://openssi.net) framework. SSJ is not a
+ * one-to-one port of SSI to Java, it is an approximation. Nor does SSJ pretend
+ * to offer SSI's comprehensive functionality and performance (this is java after all).
+ * Nevertheless, SSJ borrows a lot of programming patterns from SSI.
+ *
+ * This library is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 3 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package hcm.ssj.signal;
+
+import hcm.ssj.core.Cons;
+import hcm.ssj.core.Log;
+import hcm.ssj.core.SSJFatalException;
+import hcm.ssj.core.Transformer;
+import hcm.ssj.core.Util;
+import hcm.ssj.core.option.Option;
+import hcm.ssj.core.option.OptionList;
+import hcm.ssj.core.stream.Stream;
+
+/**
+ * Computes moving quantiles (e.g. median, 5th/95th percentile) and the interquartile range of every dimension
+ * over the chosen window. The windows are updated sample by sample, each sample costs O(log n) regardless of the window size.
+ *
+ * For every input dimension the output contains the chosen quantiles followed by the IQR (if enabled).
+ */
+public class MvgQuantile extends Transformer
+{
+	@Override
+	public OptionList getOptions()
+	{
+		return options;
+	}
+
+	public class Options extends OptionList
+	{
+		public final Option<Float> windowSize = new Option<>("windowSize", 10.f, Float.class, "Window size in seconds");
+		public final Option<float[]> quantiles = new Option<>("quantiles", new float[]{0.5f}, float[].class, "Quantiles to compute in interval [0..1], e.g. 0.05, 0.5, 0.95");
+		public final Option<Boolean> iqr = new Option<>("iqr", false, Boolean.class, "Output the interquartile range");
+
+		private Options()
+		{
+			addOptions();
+		}
+	}
+
+	public final Options options = new Options();
+
+	SlidingQuantile[] _windows;
+	float[] _quantiles;
+	boolean _iqr;
+
+	public MvgQuantile()
+	{
+		_name = "MvgQuantile";
+	}
+
+	@Override
+	public void enter(Stream[] stream_in, Stream stream_out) throws SSJFatalException
+	{
+		_quantiles = getQuantiles();
+		_iqr = options.iqr.get();
+
+		for (float quantile : _quantiles)
+		{
+			if (quantile < 0 || quantile > 1)
+			{
+				throw new SSJFatalException("quantile " + quantile + " not in interval [0..1]");
+			}
+		}
+
+		int windowSizeInSamples = Math.max(1, (int) (options.windowSize.get() * stream_in[0].sr + 0.5));
+
+		_windows = new SlidingQuantile[stream_in[0].dim];
+		for (int i = 0; i < _windows.length; i++)
+		{
+			_windows[i] = new SlidingQuantile(windowSizeInSamples);
+		}
+	}
+
+	@Override
+	public void transform(Stream[] stream_in, Stream stream_out) throws SSJFatalException
+	{
+		int sampleDimension = stream_in[0].dim;
+		int sampleNumber = stream_in[0].num;
+
+		float[] srcPtr = stream_in[0].ptrF();
+		float[] dstPtr = stream_out.ptrF();
+
+		int srcIndex = 0;
+		int dstIndex = 0;
+
+		for (int i = 0; i < sampleNumber; i++)
+		{
+			for (int j = 0; j < sampleDimension; j++)
+			{
+				SlidingQuantile window = _windows[j];
+				window.add(srcPtr[srcIndex++]);
+
+				for (float quantile : _quantiles)
+				{
+					dstPtr[dstIndex++] = window.quantile(quantile);
+				}
+
+				if (_iqr)
+				{
+					dstPtr[dstIndex++] = window.getIQR();
+				}
+			}
+		}
+	}
+
+	@Override
+	public void flush(Stream[] stream_in, Stream stream_out) throws SSJFatalException
+	{
+		_windows = null;
+	}
+
+	@Override
+	public int getSampleDimension(Stream[] stream_in)
+	{
+		return stream_in[0].dim * getValuesPerDimension();
+	}
+
+	@Override
+	public int getSampleBytes(Stream[] stream_in)
+	{
+		return Util.sizeOf(Cons.Type.FLOAT); // Float
+	}
+
+	@Override
+	public Cons.Type getSampleType(Stream[] stream_in)
+	{
+		if (stream_in[0].type != Cons.Type.FLOAT)
+		{
+			Log.e("unsupported input type");
+		}
+
+		return Cons.Type.FLOAT;
+	}
+
+	@Override
+	public int getSampleNumber(int sampleNumber_in)
+	{
+		return sampleNumber_in;
+	}
+
+	@Override
+	protected void describeOutput(Stream[] stream_in, Stream stream_out)
+	{
+		float[] quantiles = getQuantiles();
+		int valuesPerDimension = getValuesPerDimension();
+
+		stream_out.desc = new String[stream_in[0].dim * valuesPerDimension];
+
+		for (int i = 0, k = 0; i < stream_in[0].dim; i++)
+		{
+			for (float quantile : quantiles)
+			{
+				stream_out.desc[k++] = stream_in[0].desc[i] + "_q" + quantile;
+			}
+
+			if (options.iqr.get())
+			{
+				stream_out.desc[k++] = stream_in[0].desc[i] + "_iqr";
+			}
+		}
+	}
+
+	private float[] getQuantiles()
+	{
+		return (options.quantiles.get() != null) ? options.quantiles.get() : new float[0];
+	}
+
+	private int getValuesPerDimension()
+	{
+		return getQuantiles().length + (options.iqr.get() ? 1 : 0);
+	}
+}
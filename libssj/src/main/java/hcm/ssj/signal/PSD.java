@@ -58,6 +58,7 @@ public class PSD extends Transformer
         public final Option<String[]> outputClass = new Option<>("outputClass", null, String[].class, "Describes the output names for every dimension in e.g. a graph");
         public final Option<Boolean> entropy = new Option<>("entropy", false, Boolean.class, "Calculate entropy instead of PSD");
         public final Option<Boolean> normalize = new Option<>("normalize", false, Boolean.class, "Normalize PSD");
+        public final Option<Boolean> spectrum = new Option<>("spectrum", false, Boolean.class, "Input is the spectrum of a frame computed by FFTfeat instead of the signal itself");
 
         /**
          *
@@ -72,6 +73,9 @@ public class PSD extends Transformer
     //helper variables
     private FloatFFT_1D fft;
     private float[] copy, psd;
+    private int bins;
+    //input spectrum already holds powers
+    private boolean power;
 
     /**
      *
@@ -88,11 +92,32 @@ public class PSD extends Transformer
     @Override
     public void enter(Stream[] stream_in, Stream stream_out) throws SSJFatalException
     {
+        if (options.spectrum.get())
+        {
+            //one spectrum of n/2 + 1 bins per sample, no transform needed
+            if (stream_in.length != 1 || stream_in[0].dim < 2 || stream_in[0].type != Cons.Type.FLOAT)
+            {
+                Log.e("invalid input spectrum");
+            }
+            if (!(stream_in[0].source instanceof FFTfeat))
+            {
+                throw new SSJFatalException("input spectrum must be computed by FFTfeat");
+            }
+            FFTfeat source = (FFTfeat) stream_in[0].source;
+            if (source.getSourceDimension() != 1)
+            {
+                throw new SSJFatalException("input spectrum must be computed from a single dimension (" + source.getSourceDimension() + ")");
+            }
+            //FFTfeat computes the power like step 2 below
+            power = source.options.power.get();
+            psd = new float[stream_in[0].dim];
+            return;
+        }
         if (stream_in.length != 1 || stream_in[0].dim != 1 || stream_in[0].type != Cons.Type.FLOAT)
         {
             Log.e("invalid input stream");
         }
-        fft = new FloatFFT_1D(stream_in[0].num);
+        fft = FFTCache.getInstance().get(stream_in[0].num);
         copy = new float[stream_in[0].num];
         psd = new float[stream_in[0].num / 2 + 1];
     }
@@ -120,18 +145,30 @@ public class PSD extends Transformer
         int rfft = psd.length;
         float[] ptr_in = stream_in[0].ptrF(), ptr_out = stream_out.ptrF();
         float fde = 0;
-        // Copy data for FFT
-        System.arraycopy(ptr_in, 0, copy, 0, stream_in[0].num);
-        // 1. Calculate FFT
-        fft.realForward(copy);
-        // Format values like in SSI
-        joinFFT(copy);
+        if (options.spectrum.get())
+        {
+            // 1. Reorder magnitudes like in joinFFT (dc, nyquist, bin 1, bin 2, ...)
+            psd[0] = ptr_in[0];
+            psd[1] = ptr_in[rfft - 1];
+            System.arraycopy(ptr_in, 1, psd, 2, rfft - 2);
+        } else
+        {
+            // Copy data for FFT
+            System.arraycopy(ptr_in, 0, copy, 0, stream_in[0].num);
+            // 1. Calculate FFT
+            fft.realForward(copy);
+            // Format values like in SSI
+            joinFFT(copy);
+        }
         if (rfft > 0)
         {
             // 2. Calculate Power Spectral Density
-            for (int i = 0; i < rfft; i++)
+            if (!options.spectrum.get() || !power)
             {
-                psd[i] = (float) Math.pow(psd[i], 2) / (float) (rfft);
+                for (int i = 0; i < rfft; i++)
+                {
+                    psd[i] = (float) Math.pow(psd[i], 2) / (float) (rfft);
+                }
             }
             if (options.entropy.get() || options.normalize.get())
             {
@@ -216,6 +253,8 @@ public class PSD extends Transformer
     @Override
     public int getSampleDimension(Stream[] stream_in)
     {
+        //remember the size of input spectra for getSampleNumber
+        bins = stream_in[0].dim;
         return 1;
     }
 
@@ -249,6 +288,9 @@ public class PSD extends Transformer
         if (options.entropy.get())
         {
             return 1;
+        } else if (options.spectrum.get())
+        {
+            return bins;
         } else
         {
             return sampleNumber_in / 2 + 1;
@@ -0,0 +1,330 @@
+/*
+ * SlidingQuantile.java
+ * Copyright (c) 2018
+ * Authors: Ionut Damian, Michael Dietz, Frank Gaibler, Daniel Langerenken, Simon Flutura,
+ * Vitalijs Krumins, Antonio Grieco
+ * *****************************************************
+ * This file is part of the Social Signal Interpretation for Java (SSJ) framework
+ * developed at the Lab for Human Centered Multimedia of the University of Augsburg.
+ *
+ * SSJ has been inspired by the SSI (http://openssi.net) framework. SSJ is not a
+ * one-to-one port of SSI to Java, it is an approximation. Nor does SSJ pretend
+ * to offer SSI's comprehensive functionality and performance (this is java after all).
+ * Nevertheless, SSJ borrows a lot of programming patterns from SSI.
+ *
+ * This library is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 3 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package hcm.ssj.signal;
+
+/**
+ * Order statistics of the most recent values of a stream.
+ *
+ * The window is a ring buffer whose slots are also the nodes of a treap ordered by value.
+ * Adding a value evicts the oldest one, both in O(log n), any quantile can then be read in O(log n).
+ * All storage is allocated up front.
+ */
+public class SlidingQuantile
+{
+	private static final int NIL = -1;
+
+	private final int capacity;
+
+	// node i holds the value of ring buffer slot i
+	private final float[] values;
+	private final int[] left;
+	private final int[] right;
+	private final int[] size;
+	private final int[] priority;
+
+	private int root = NIL;
+	private int head = 0;
+	private int count = 0;
+	private int seed = 0x2545F491;
+
+	// results of split()
+	private int splitLeft;
+	private int splitRight;
+
+	/**
+	 * @param capacity number of values in the window
+	 */
+	public SlidingQuantile(int capacity)
+	{
+		if (capacity < 1)
+		{
+			throw new IllegalArgumentException("capacity must be positive");
+		}
+
+		this.capacity = capacity;
+
+		values = new float[capacity];
+		left = new int[capacity];
+		right = new int[capacity];
+		size = new int[capacity];
+		priority = new int[capacity];
+	}
+
+	/**
+	 * Adds a value to the window, the oldest value is removed once the window is full
+	 */
+	public void add(float value)
+	{
+		int node = head;
+
+		if (count == capacity)
+		{
+			root = remove(root, node);
+		}
+		else
+		{
+			count++;
+		}
+
+		values[node] = value;
+		left[node] = NIL;
+		right[node] = NIL;
+		size[node] = 1;
+		priority[node] = nextPriority();
+
+		root = insert(root, node);
+
+		if (++head == capacity)
+		{
+			head = 0;
+		}
+	}
+
+	/**
+	 * @param rank position in ascending order, 0 is the minimum
+	 * @return value of the given rank
+	 */
+	public float get(int rank)
+	{
+		if (rank < 0 || rank >= count)
+		{
+			throw new IndexOutOfBoundsException("rank " + rank + " of " + count);
+		}
+
+		int node = root;
+		while (true)
+		{
+			int smaller = sizeOf(left[node]);
+
+			if (rank < smaller)
+			{
+				node = left[node];
+			}
+			else if (rank == smaller)
+			{
+				return values[node];
+			}
+			else
+			{
+				rank -= smaller + 1;
+				node = right[node];
+			}
+		}
+	}
+
+	/**
+	 * Quantile with linear interpolation between the closest ranks, 0.5 yields the median
+	 *
+	 * @param p probability in interval [0..1]
+	 * @return quantile of the values in the window, 0 if the window is empty
+	 */
+	public float quantile(double p)
+	{
+		if (count == 0)
+		{
+			return 0;
+		}
+
+		double position = (count - 1) * Math.min(1, Math.max(0, p));
+		int rank = (int) position;
+		double fraction = position - rank;
+
+		float lower = get(rank);
+		if (fraction == 0)
+		{
+			return lower;
+		}
+
+		float upper = get(rank + 1);
+		return (float) (lower + fraction * ((double) upper - lower));
+	}
+
+	public float getMedian()
+	{
+		return quantile(0.5);
+	}
+
+	/**
+	 * @return interquartile range of the values in the window
+	 */
+	public float getIQR()
+	{
+		return quantile(0.75) - quantile(0.25);
+	}
+
+	/**
+	 * @return number of values in the window
+	 */
+	public int size()
+	{
+		return count;
+	}
+
+	public int getCapacity()
+	{
+		return capacity;
+	}
+
+	public void clear()
+	{
+		root = NIL;
+		head = 0;
+		count = 0;
+	}
+
+	private int insert(int tree, int node)
+	{
+		if (tree == NIL)
+		{
+			return node;
+		}
+
+		if (priority[node] > priority[tree])
+		{
+			split(tree, node);
+			left[node] = splitLeft;
+			right[node] = splitRight;
+			update(node);
+			return node;
+		}
+
+		if (less(node, tree))
+		{
+			left[tree] = insert(left[tree], node);
+		}
+		else
+		{
+			right[tree] = insert(right[tree], node);
+		}
+
+		size[tree]++;
+		return tree;
+	}
+
+	private int remove(int tree, int node)
+	{
+		if (tree == node)
+		{
+			return merge(left[tree], right[tree]);
+		}
+
+		if (less(node, tree))
+		{
+			left[tree] = remove(left[tree], node);
+		}
+		else
+		{
+			right[tree] = remove(right[tree], node);
+		}
+
+		size[tree]--;
+		return tree;
+	}
+
+	/**
+	 * Splits the tree into nodes ordered before the given node (splitLeft) and after it (splitRight)
+	 */
+	private void split(int tree, int node)
+	{
+		if (tree == NIL)
+		{
+			splitLeft = NIL;
+			splitRight = NIL;
+			return;
+		}
+
+		if (less(tree, node))
+		{
+			split(right[tree], node);
+			right[tree] = splitLeft;
+			update(tree);
+			splitLeft = tree;
+		}
+		else
+		{
+			split(left[tree], node);
+			left[tree] = splitRight;
+			update(tree);
+			splitRight = tree;
+		}
+	}
+
+	private int merge(int a, int b)
+	{
+		if (a == NIL)
+		{
+			return b;
+		}
+		if (b == NIL)
+		{
+			return a;
+		}
+
+		if (priority[a] > priority[b])
+		{
+			right[a] = merge(right[a], b);
+			update(a);
+			return a;
+		}
+		else
+		{
+			left[b] = merge(a, left[b]);
+			update(b);
+			return b;
+		}
+	}
+
+	/**
+	 * Orders by value, equal values by slot so every node has a unique position
+	 */
+	private boolean less(int a, int b)
+	{
+		int c = Float.compare(values[a], values[b]);
+		return c < 0 || (c == 0 && a < b);
+	}
+
+	private void update(int node)
+	{
+		size[node] = 1 + sizeOf(left[node]) + sizeOf(right[node]);
+	}
+
+	private int sizeOf(int node)
+	{
+		return (node == NIL) ? 0 : size[node];
+	}
+
+	private int nextPriority()
+	{
+		// xorshift
+		seed ^= seed << 13;
+		seed ^= seed >>> 17;
+		seed ^= seed << 5;
+		return seed;
+	}
+}
@@ -70,6 +70,8 @@ public class Spectrogram extends Transformer
 		public final Option<Boolean> dolog = new Option<> ("dolog", true, Boolean.class, "apply logarithm");
 		public final Option<Boolean> dopower = new Option<>("dopower", false, Boolean.class, "compute the PSD for every bank");
 		public final Option<String> banks = new Option<>("banks", "0.040 0.150, 0.150 0.400", String.class, "string with filter banks that gets applied if no file was set (example: \"0.003 0.040\n0.040 0.150\n0.150 0.400\").");
+		public final Option<Boolean> spectrum = new Option<>("spectrum", false, Boolean.class, "input is the spectrum of a frame computed by FFTfeat (nfft samples, windowed by FFTfeat) instead of the signal itself");
+		public final Option<Double> sr = new Option<>("sr", 0.0, Double.class, "sample rate of the signal, required if the input is a spectrum (0 = sample rate of the input)");
 		/**
 		 *
 		 */
@@ -85,24 +87,37 @@ public class Spectrogram extends Transformer
 	private int _rfft;
 	private FilterTools.WINDOW_TYPE _win_type = FilterTools.WINDOW_TYPE.HAMMING;
 	private int _win_size = 0;
-	private Matrix<Float> _filterbank = null;
+	private Matrix _filterbank = null;
 	private FloatFFT_1D _fft = null;
-	private Matrix<Float> _fftmag = null;
-	private Matrix<Float> _window = null;
+	private Matrix _fftmag = null;
+	private Matrix _window = null;
 	private boolean _apply_log = false;
+	//input spectrum already holds powers
+	private boolean _power = false;
 
-	Matrix<Float> _matrix_in;
-	Matrix<Float> _matrix_out;
+	Matrix _matrix_in;
+	Matrix _matrix_out;
 	float _data_in[];
 	float _data_out[];
 
 	@Override
 	public void enter(Stream[] stream_in, Stream stream_out) throws SSJFatalException
 	{
+		//the sample rate of a spectrum stream is the frame rate, not the one of the signal
+		double sr = options.sr.get();
+		if (sr <= 0)
+		{
+			if (options.spectrum.get())
+			{
+				throw new SSJFatalException("sample rate of the signal (option sr) required for spectrum input");
+			}
+			sr = stream_in[0].sr;
+		}
+
 		if (_filterbank == null) {
 			if (options.banks.get() != null)
 			{
-				readFilterbank(options.banks.get(), stream_in[0].sr);
+				readFilterbank(options.banks.get(), sr);
 			}
 			else
 			{
@@ -110,32 +125,65 @@ public class Spectrogram extends Transformer
 			}
 		}
 
+		if (options.spectrum.get())
+		{
+			if (!(stream_in[0].source instanceof FFTfeat))
+			{
+				throw new SSJFatalException("input spectrum must be computed by FFTfeat");
+			}
+			FFTfeat source = (FFTfeat) stream_in[0].source;
+			if (source.getSourceDimension() != 1)
+			{
+				throw new SSJFatalException("input spectrum must be computed from a single dimension (" + source.getSourceDimension() + ")");
+			}
+			if (stream_in[0].dim != _rfft)
+			{
+				throw new SSJFatalException("input spectrum has " + stream_in[0].dim + " bins, the filter banks require " + _rfft + " (FFTfeat frame of " + _fft_size + " samples)");
+			}
+			_power = source.options.power.get();
+			if (_power && !options.dopower.get())
+			{
+				throw new SSJFatalException("input spectrum holds powers, enable dopower or disable power of FFTfeat");
+			}
+		}
+
 		if (stream_in[0].num > options.nfft.get())
 		{
 			Log.w("nfft too small (" + options.nfft.get() + ") for input stream (num=" + stream_in[0].num + "), extra samples will get ignored");
 		}
 
-		_matrix_in = new Matrix<>(stream_in[0].num, 1);
-		_matrix_out = new Matrix<>(1, _filterbank.getCols());
+		_matrix_in = new Matrix(stream_in[0].num, 1);
+		_matrix_out = new Matrix(1, _filterbank.getCols());
 		_data_in = new float[_fft_size];
 		Arrays.fill(_data_in, 0);
 		_data_out = new float[_rfft];
+
+		//fft magnitudes are written directly into the matrix
+		_fftmag = new Matrix(1, _rfft, _data_out);
 	}
 
 	@Override
 	public void transform(Stream[] stream_in, Stream stream_out) throws SSJFatalException
 	{
-		for(int i = 0; i < stream_in[0].num; i++)
+		if (options.spectrum.get())
 		{
-			switch (stream_in[0].type)
-			{
-				case FLOAT:
-					_matrix_in.setData(i, stream_in[0].ptrF()[i]);
-					break;
-				case DOUBLE:
-					_matrix_in.setData(i, (float)stream_in[0].ptrD()[i]);
-					break;
-			}
+			System.arraycopy(stream_in[0].ptrF(), 0, _data_out, 0, _rfft);
+			applyFilterbank(stream_out, !_power && options.dopower.get());
+			return;
+		}
+
+		switch (stream_in[0].type)
+		{
+			case FLOAT:
+				_matrix_in.copyFrom(stream_in[0].ptrF(), 0);
+				break;
+			case DOUBLE:
+				double[] in = stream_in[0].ptrD();
+				for (int i = 0; i < stream_in[0].num; i++)
+				{
+					_matrix_in.setData(i, (float) in[i]);
+				}
+				break;
 		}
 
 		//apply window
@@ -153,14 +201,9 @@ public class Spectrogram extends Transformer
 
 		//copy data from matrix for fft
 		//if nfft to large, fill with zeroes
-		for (int i = 0; i < _data_in.length && i < _matrix_in.getSize(); i++)
-		{
-			_data_in[i] = _matrix_in.getData(i);
-		}
-		for (int i = _matrix_in.getSize(); i < _data_in.length; i++)
-		{
-			_data_in[i] = 0;
-		}
+		int len = Math.min(_data_in.length, _matrix_in.getSize());
+		System.arraycopy(_matrix_in.array(), 0, _data_in, 0, len);
+		Arrays.fill(_data_in, len, _data_in.length, 0);
 
 		// Calculate FFT
 		_fft.realForward(_data_in);
@@ -168,14 +211,17 @@ public class Spectrogram extends Transformer
 		// Format values like in SSI
 		Util.joinFFT(_data_in, _data_out);
 
-		for (int i = 0; i < _data_out.length; ++i)
+		applyFilterbank(stream_out, options.dopower.get());
+	}
+
+	private void applyFilterbank(Stream stream_out, boolean power)
+	{
+		if (power)
 		{
-			if (options.dopower.get())
+			for (int i = 0; i < _data_out.length; ++i)
 			{
-				_data_out[i] = (float) Math.pow(_data_out[i], 2) / _data_out.length;
+				_data_out[i] = _data_out[i] * _data_out[i] / _data_out.length;
 			}
-
-			_fftmag.setData(i, _data_out[i]);
 		}
 
 		MatrixOps.getInstance().multM (_fftmag, _filterbank, _matrix_out);
@@ -185,11 +231,7 @@ public class Spectrogram extends Transformer
 			MatrixOps.getInstance().log10 (_matrix_out);
 		}
 
-		float output[] = stream_out.ptrF();
-		for (int i = 0; i < _matrix_out.getSize(); i++)
-		{
-			output[i] = _matrix_out.getData(i);
-		}
+		_matrix_out.copyTo(stream_out.ptrF(), 0);
 	}
 
 	@Override
@@ -201,7 +243,7 @@ public class Spectrogram extends Transformer
 	private void readFilterbank (String string, double sr)
 	{
 		int n_banks = 0;
-		Matrix<Float> intervals;
+		Matrix intervals;
 
 		String[] banks = string.split("\\s*,\\s*");
 		n_banks = banks.length;
@@ -210,7 +252,7 @@ public class Spectrogram extends Transformer
 			Log.e("#banks ("+n_banks+") in string '"+string+"' differs from #banks ("+options.nbanks+") in options");
 		}
 
-		intervals = new Matrix<>(n_banks, 2);
+		intervals = new Matrix(n_banks, 2);
 		int current_bank = 0;
 
 		for (String bank : banks){
@@ -220,11 +262,11 @@ public class Spectrogram extends Transformer
 			current_bank++;
 		}
 
-		Matrix<Float> filterbank = FilterTools.getInstance().Filterbank(options.nfft.get(), sr, intervals, options.wintype.get());
+		Matrix filterbank = FilterTools.getInstance().Filterbank(options.nfft.get(), sr, intervals, options.wintype.get());
 		setFilterbank(filterbank, options.wintype.get(), options.dolog.get());
 	}
 
-	private void setFilterbank (Matrix<Float> filterbank,	FilterTools.WINDOW_TYPE win_type, boolean apply_log)
+	private void setFilterbank (Matrix filterbank,	FilterTools.WINDOW_TYPE win_type, boolean apply_log)
 	{
 		_fft = null;
 		_fftmag = null;
@@ -238,14 +280,13 @@ public class Spectrogram extends Transformer
 		_filterbank = filterbank;
 		_filterbank.transpose();
 
-		_fft = new FloatFFT_1D (_fft_size);
-		_fftmag = new Matrix<> (1, _rfft);
+		_fft = FFTCache.getInstance().get(_fft_size);
 	}
 
 	@Override
 	public int getSampleDimension(Stream[] stream_in)
 	{
-		if(stream_in[0].dim > 1)
+		if(stream_in[0].dim > 1 && !options.spectrum.get())
 			Log.e("dimension > 1 not supported");
 
 		if (_filterbank != null) {
@@ -264,7 +305,7 @@ public class Spectrogram extends Transformer
 	@Override
 	public Cons.Type getSampleType(Stream[] stream_in)
 	{
-		if(stream_in[0].type != Cons.Type.FLOAT && stream_in[0].type != Cons.Type.DOUBLE)
+		if(stream_in[0].type != Cons.Type.FLOAT && (stream_in[0].type != Cons.Type.DOUBLE || options.spectrum.get()))
 			Log.e("input stream type not supported");
 
 		return Cons.Type.FLOAT;
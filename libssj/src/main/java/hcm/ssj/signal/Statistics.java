@@ -0,0 +1,409 @@
+/*
+ * Statistics.java
+ * Copyright (c) 2018
+ * Authors: Ionut Damian, Michael Dietz, Frank Gaibler, Daniel Langerenken, Simon Flutura,
+ * Vitalijs Krumins, Antonio Grieco
+ * *****************************************************
+ * This file is part of the Social Signal Interpretation for Java (SSJ) framework
+ * developed at the Lab for Human Centered Multimedia of the University of Augsburg.
+ *
+ * SSJ has been inspired by the SSI (http://openssi.net) framework. SSJ is not a
+ * one-to-one port of SSI to Java, it is an approximation. Nor does SSJ pretend
+ * to offer SSI's comprehensive functionality and performance (this is java after all).
+ * Nevertheless, SSJ borrows a lot of programming patterns from SSI.
+ *
+ * This library is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 3 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package hcm.ssj.signal;
+
+/**
+ * Computes descriptive statistics of a series of values with as few passes as possible.
+ *
+ * {@link #compute(float[], int, int, int)} copies the values into a scratch buffer and computes sum, extrema,
+ * RMS and peak in one pass. Variance and MAD share a second pass, skew and kurtosis a third one,
+ * both are only run if requested. Median and IQR use selection instead of sorting.
+ *
+ * Results are identical to the corresponding {@link MathTools} methods.
+ * Instances reuse their buffers and are not thread-safe.
+ */
+public class Statistics
+{
+	private float[] values;
+	private float[] scratch;
+	private int num;
+
+	private float sum;
+	private float min;
+	private float max;
+	private float peak;
+	private float rms;
+
+	private boolean centered;
+	private float variance;
+	private float mad;
+
+	private boolean standardized;
+	private float skew;
+	private float kurtosis;
+
+	private boolean ordered;
+	private float median;
+	private float iqr;
+
+	public Statistics()
+	{
+		this(0);
+	}
+
+	/**
+	 * @param capacity initial number of values, grows if needed
+	 */
+	public Statistics(int capacity)
+	{
+		values = new float[capacity];
+		scratch = new float[capacity];
+	}
+
+	/**
+	 * @param data input values
+	 */
+	public void compute(float[] data)
+	{
+		compute(data, 0, 1, data.length);
+	}
+
+	/**
+	 * Computes the statistics of a strided series, e.g. one dimension of an interleaved stream
+	 *
+	 * @param data input values
+	 * @param offset position of the first value
+	 * @param stride distance between two values
+	 * @param num number of values
+	 */
+	public void compute(float[] data, int offset, int stride, int num)
+	{
+		if (values.length < num)
+		{
+			values = new float[num];
+			scratch = new float[num];
+		}
+
+		this.num = num;
+		centered = false;
+		standardized = false;
+		ordered = false;
+
+		float sum = 0;
+		float min = Float.MAX_VALUE;
+		float max = -Float.MAX_VALUE;
+		float peak = 0;
+		float squares = 0;
+
+		for (int i = 0, pos = offset; i < num; i++, pos += stride)
+		{
+			float value = data[pos];
+			values[i] = value;
+
+			sum += value;
+			if (value < min)
+			{
+				min = value;
+			}
+			if (value > max)
+			{
+				max = value;
+			}
+			if (Math.abs(value) > peak)
+			{
+				peak = Math.abs(value);
+			}
+			squares += (double) value * value;
+		}
+
+		this.sum = sum;
+		this.min = (min == Float.MAX_VALUE) ? 0 : min;
+		this.max = (max == -Float.MAX_VALUE) ? 0 : max;
+		this.peak = peak;
+		this.rms = (num > 0) ? (float) Math.sqrt(squares / (float) num) : 0;
+	}
+
+	public int getNum()
+	{
+		return num;
+	}
+
+	public float getSum()
+	{
+		return sum;
+	}
+
+	public float getMean()
+	{
+		return (num > 0) ? sum / (float) num : 0;
+	}
+
+	public float getMin()
+	{
+		return min;
+	}
+
+	public float getMax()
+	{
+		return max;
+	}
+
+	public float getRange()
+	{
+		return max - min;
+	}
+
+	public float getRMS()
+	{
+		return rms;
+	}
+
+	public float getCrest()
+	{
+		return (rms > 0) ? peak / rms : 0;
+	}
+
+	public float getVariance()
+	{
+		computeCentered();
+		return variance;
+	}
+
+	public float getStdDeviation()
+	{
+		computeCentered();
+		return (num > 0) ? (float) Math.sqrt(variance) : 0;
+	}
+
+	public float getMAD()
+	{
+		computeCentered();
+		return mad;
+	}
+
+	public float getSkew()
+	{
+		computeStandardized();
+		return skew;
+	}
+
+	public float getKurtosis()
+	{
+		computeStandardized();
+		return kurtosis;
+	}
+
+	public float getMedian()
+	{
+		computeOrdered();
+		return median;
+	}
+
+	public float getIQR()
+	{
+		computeOrdered();
+		return iqr;
+	}
+
+	private void computeCentered()
+	{
+		if (centered)
+		{
+			return;
+		}
+
+		float mean = getMean();
+		float variance = 0;
+		float mad = 0;
+
+		for (int i = 0; i < num; i++)
+		{
+			float deviation = values[i] - mean;
+			variance += (double) deviation * deviation;
+			mad += Math.abs(deviation);
+		}
+
+		if (num > 0)
+		{
+			variance = variance / (float) num;
+			mad = (float) Math.sqrt(mad / (float) num);
+		}
+
+		this.variance = variance;
+		this.mad = mad;
+		centered = true;
+	}
+
+	private void computeStandardized()
+	{
+		if (standardized)
+		{
+			return;
+		}
+
+		float mean = getMean();
+		float stdDeviation = getStdDeviation();
+		float skew = 0;
+		float kurtosis = 0;
+
+		if (num > 0 && stdDeviation > 0)
+		{
+			for (int i = 0; i < num; i++)
+			{
+				float z = (values[i] - mean) / stdDeviation;
+				skew += Math.pow(z, 3);
+				kurtosis += Math.pow(z, 4);
+			}
+
+			skew = skew / num;
+			kurtosis = kurtosis / num;
+		}
+
+		this.skew = skew;
+		this.kurtosis = kurtosis;
+		standardized = true;
+	}
+
+	private void computeOrdered()
+	{
+		if (ordered)
+		{
+			return;
+		}
+
+		median = 0;
+		iqr = 0;
+
+		if (num > 0)
+		{
+			System.arraycopy(values, 0, scratch, 0, num);
+
+			// quartiles are the medians of the lower and upper half, the median itself is excluded for odd sizes.
+			// ranks are selected in ascending order so each selection only needs to look right of the previous one
+			int half = num / 2;
+			float lower = median(scratch, 0, num - 1, 0, half);
+			median = median(scratch, (half + 1) / 2, num - 1, 0, num);
+			float upper = median(scratch, (num + 1) / 2, num - 1, num - half, half);
+			iqr = upper - lower;
+		}
+
+		ordered = true;
+	}
+
+	/**
+	 * Median of the ranks [start, start + count) of a[0..hi], the values of all ranks below lo must already be in place.
+	 * Partially reorders a[lo..hi].
+	 */
+	static float median(float[] a, int lo, int hi, int start, int count)
+	{
+		if (count == 0)
+		{
+			return 0;
+		}
+
+		int k = start + (count - 1) / 2;
+		if (k >= lo)
+		{
+			select(a, lo, hi, k);
+		}
+
+		if (count % 2 != 0)
+		{
+			return a[k];
+		}
+
+		// next rank is the smallest value above k
+		float next = a[k + 1];
+		for (int i = k + 2; i <= hi; i++)
+		{
+			if (Float.compare(a[i], next) < 0)
+			{
+				next = a[i];
+			}
+		}
+
+		return (a[k] + next) / 2.0f;
+	}
+
+	/**
+	 * Reorders a[lo..hi] so that a[k] holds the value which would be at position k if the range was sorted,
+	 * smaller values are left of it, larger ones right. Uses the order of Arrays.sort (Float.compare).
+	 */
+	static void select(float[] a, int lo, int hi, int k)
+	{
+		while (lo < hi)
+		{
+			int mid = (lo + hi) >>> 1;
+
+			// median of three as pivot
+			if (Float.compare(a[mid], a[lo]) < 0)
+			{
+				swap(a, mid, lo);
+			}
+			if (Float.compare(a[hi], a[lo]) < 0)
+			{
+				swap(a, hi, lo);
+			}
+			if (Float.compare(a[hi], a[mid]) < 0)
+			{
+				swap(a, hi, mid);
+			}
+
+			float pivot = a[mid];
+			int i = lo;
+			int j = hi;
+
+			while (i <= j)
+			{
+				while (Float.compare(a[i], pivot) < 0)
+				{
+					i++;
+				}
+				while (Float.compare(pivot, a[j]) < 0)
+				{
+					j--;
+				}
+				if (i <= j)
+				{
+					swap(a, i++, j--);
+				}
+			}
+
+			if (k <= j)
+			{
+				hi = j;
+			}
+			else if (k >= i)
+			{
+				lo = i;
+			}
+			else
+			{
+				return;
+			}
+		}
+	}
+
+	private static void swap(float[] a, int i, int j)
+	{
+		float tmp = a[i];
+		a[i] = a[j];
+		a[j] = tmp;
+	}
+}
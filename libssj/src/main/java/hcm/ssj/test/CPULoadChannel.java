@@ -73,6 +73,7 @@ public class CPULoadChannel extends SensorChannel
     public CPULoadChannel()
     {
         _name = "Profiler_CPU";
+        _blockingProcess = true;
     }
 
 